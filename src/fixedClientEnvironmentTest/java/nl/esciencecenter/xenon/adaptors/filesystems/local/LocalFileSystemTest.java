@@ -21,6 +21,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeFalse;
 
 import java.util.AbstractMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -71,11 +72,24 @@ public class LocalFileSystemTest extends FileSystemTestParent {
 
     @Override
     public FileSystem setupFileSystem() throws XenonException {
-        FileSystem f = FileSystem.create("file");
+        return setupFileSystem(new HashMap<>());
+    }
+
+    @Override
+    public FileSystem setupFileSystem(Map<String, String> properties) throws XenonException {
+        FileSystem f = FileSystem.create("file", null, new DefaultCredential(), properties);
         f.setWorkingDirectory(new Path("/tmp"));
         return f;
     }
 
+    // The file systems of the test environment cannot clone files, so cp --reflink=always fails.
+    @Override
+    protected Map<String, String> getFailingServerCopyProperties() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(LocalFileAdaptor.COPY_METHOD, LocalFileAdaptor.COPY_METHOD_REFLINK);
+        return properties;
+    }
+
     @Test
     public void test_credential_default() throws XenonException {
         FileSystem.create("file", null, new DefaultCredential()).close();
@@ -16,6 +16,7 @@
 package nl.esciencecenter.xenon.adaptors.filesystems;
 
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -30,8 +31,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -47,6 +51,7 @@ import org.junit.rules.Timeout;
 
 import nl.esciencecenter.xenon.XenonException;
 import nl.esciencecenter.xenon.adaptors.NotConnectedException;
+import nl.esciencecenter.xenon.credentials.DefaultCredential;
 import nl.esciencecenter.xenon.filesystems.CopyMode;
 import nl.esciencecenter.xenon.filesystems.CopyStatus;
 import nl.esciencecenter.xenon.filesystems.DirectoryNotEmptyException;
@@ -66,6 +71,8 @@ public abstract class FileSystemTestParent {
 
     public static final String TEST_DIR = "xenon_test";
 
+    public static final int SEGMENT_SIZE = 4096;
+
     protected Path testRoot;
 
     protected FileSystem fileSystem;
@@ -142,6 +149,41 @@ public abstract class FileSystemTestParent {
 
     public abstract FileSystem setupFileSystem() throws XenonException;
 
+    /**
+     * Create a file system for the same location and credentials as {@link #setupFileSystem()}, with the given adaptor properties. Tests that need
+     * specific properties are skipped for adaptors that do not override this.
+     *
+     * @param properties
+     *            the adaptor properties, with their full names.
+     * @return the file system.
+     * @throws XenonException
+     *             if the file system could not be created.
+     */
+    public FileSystem setupFileSystem(Map<String, String> properties) throws XenonException {
+        assumeTrue("Cannot create a file system with properties", false);
+        return null;
+    }
+
+    /**
+     * Get the adaptor properties of a file system of which the copies on the server fail with an UnsupportedOperationException, so they fall back to
+     * transferring the data. Returns null by default, which skips the tests that need them.
+     *
+     * @return the adaptor properties, or null if the adaptor has none.
+     */
+    protected Map<String, String> getFailingServerCopyProperties() {
+        return null;
+    }
+
+    /**
+     * Get the size of the file copied in segments of {@link #SEGMENT_SIZE} bytes. This must exceed the minimal segment size of the adaptor, or the file is
+     * copied as a single stream.
+     *
+     * @return the size of the file (in bytes).
+     */
+    protected int getSegmentedFileSize() {
+        return 2 * SEGMENT_SIZE + 100;
+    }
+
     private FileSystemAdaptorDescription setupDescription() throws XenonException {
         String name = fileSystem.getAdaptorName();
         return FileSystem.getAdaptorDescription(name);
@@ -167,8 +209,12 @@ public abstract class FileSystemTestParent {
     }
 
     protected void copySync(Path source, Path target, CopyMode mode, boolean recursive) throws Throwable {
-        String s = fileSystem.copy(source, fileSystem, target, mode, recursive);
-        CopyStatus status = fileSystem.waitUntilDone(s, 1000);
+        copySync(fileSystem, source, fileSystem, target, mode, recursive);
+    }
+
+    protected void copySync(FileSystem sourceFS, Path source, FileSystem targetFS, Path target, CopyMode mode, boolean recursive) throws Throwable {
+        String s = sourceFS.copy(source, targetFS, target, mode, recursive);
+        CopyStatus status = sourceFS.waitUntilDone(s, 1000);
 
         // For some adaptors (like webdav) it may take a few moments for the
         // copy to fully arrive at the server.
@@ -498,7 +544,7 @@ public abstract class FileSystemTestParent {
 
     @Test(expected = IllegalArgumentException.class)
     public void test_exists_null_throwsException() throws Exception {
-        fileSystem.exists(null);
+        fileSystem.exists((Path) null);
     }
 
     @Test
@@ -888,7 +934,7 @@ public abstract class FileSystemTestParent {
 
     @Test(expected = IllegalArgumentException.class)
     public void test_getAttributes_nullPath_throwsException() throws Exception {
-        fileSystem.getAttributes(null);
+        fileSystem.getAttributes((Path) null);
     }
 
     @Test(expected = NoSuchPathException.class)
@@ -899,6 +945,38 @@ public abstract class FileSystemTestParent {
         fileSystem.getAttributes(file0);
     }
 
+    @Test
+    public void test_getAttributes_batch() throws Exception {
+        generateAndCreateTestDir();
+
+        Path file0 = createTestFile(testDir, new byte[] { 1, 2, 3 });
+        Path file1 = createTestFile(testDir, new byte[] { 4 });
+        Path missing = createNewTestFileName(testDir);
+        Path missingParent = createNewTestFileName(testDir).resolve("file");
+
+        Map<Path, PathAttributes> result = fileSystem.getAttributes(Arrays.asList(file0, missing, testDir, file1, missingParent));
+
+        assertEquals(Arrays.asList(file0, testDir, file1), new ArrayList<>(result.keySet()));
+        assertEquals(3, result.get(file0).getSize());
+        assertEquals(1, result.get(file1).getSize());
+        assertTrue(result.get(testDir).isDirectory());
+    }
+
+    @Test
+    public void test_exists_batch() throws Exception {
+        generateAndCreateTestDir();
+
+        Path file0 = createTestFile(testDir, new byte[] { 1 });
+        Path missing = createNewTestFileName(testDir);
+
+        Map<Path, Boolean> result = fileSystem.exists(Arrays.asList(file0, missing, testDir));
+
+        assertEquals(3, result.size());
+        assertTrue(result.get(file0));
+        assertFalse(result.get(missing));
+        assertTrue(result.get(testDir));
+    }
+
     private void assertPathAttributesConsistent(Path path, boolean isDirectory, long size, long currentTime) throws Exception {
 
         PathAttributes result = fileSystem.getAttributes(path);
@@ -1622,6 +1700,193 @@ public abstract class FileSystemTestParent {
 
     }
 
+    // Another file system for the same location and credentials lets the server copy the files, if the adaptor can.
+    @Test
+    public void test_copy_otherFileSystemSameLocation_copiedFile() throws Throwable {
+        byte[] data = "Hello World!".getBytes();
+        generateAndCreateTestDir();
+        Path file0 = createTestFile(testDir, data);
+        Path file1 = createNewTestFileName(testDir);
+
+        FileSystem other = setupFileSystem();
+
+        try {
+            copySync(fileSystem, file0, other, file1, CopyMode.CREATE, false);
+        } finally {
+            other.close();
+        }
+
+        assertSameContents(file0, file1);
+    }
+
+    @Test(expected = PathAlreadyExistsException.class)
+    public void test_copy_otherFileSystemSameLocation_existingTarget_throwsException() throws Throwable {
+        byte[] data = "Hello World!".getBytes();
+        generateAndCreateTestDir();
+        Path file0 = createTestFile(testDir, data);
+        Path file1 = createTestFile(testDir, null);
+
+        FileSystem other = setupFileSystem();
+
+        try {
+            copySync(fileSystem, file0, other, file1, CopyMode.CREATE, false);
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void test_copy_otherFileSystemSameLocation_existingTarget_replace() throws Throwable {
+        byte[] data = "Hello World!".getBytes();
+        byte[] data2 = "Something else!".getBytes();
+        generateAndCreateTestDir();
+        Path file0 = createTestFile(testDir, data);
+        Path file1 = createTestFile(testDir, data2);
+
+        FileSystem other = setupFileSystem();
+
+        try {
+            copySync(fileSystem, file0, other, file1, CopyMode.REPLACE, false);
+        } finally {
+            other.close();
+        }
+
+        assertSameContents(file0, file1);
+    }
+
+    @Test
+    public void test_copy_rec_otherFileSystemSameLocation() throws Throwable {
+        generateAndCreateTestDir();
+
+        Path source = createTestSubDir(testDir);
+        createTestFile(source, "Hello World!".getBytes());
+        Path testSubDir = createTestSubDir(source);
+        createTestFile(testSubDir, "Party people!".getBytes());
+
+        Path target = createTestSubDirName(testDir);
+
+        FileSystem other = setupFileSystem();
+
+        try {
+            copySync(fileSystem, source, other, target, CopyMode.CREATE, true);
+        } finally {
+            other.close();
+        }
+
+        assertSameContentsDir(source, target);
+    }
+
+    @Test
+    public void test_copy_serverCopyFails_transfersData() throws Throwable {
+        Map<String, String> properties = getFailingServerCopyProperties();
+        assumeTrue("Server side copies cannot be made to fail", properties != null);
+
+        byte[] data = "Hello World!".getBytes();
+        generateAndCreateTestDir();
+        Path file0 = createTestFile(testDir, data);
+        Path file1 = createNewTestFileName(testDir);
+
+        FileSystem failing = setupFileSystem(properties);
+
+        try {
+            copySync(failing, file0, fileSystem, file1, CopyMode.CREATE, false);
+        } finally {
+            failing.close();
+        }
+
+        assertSameContents(file0, file1);
+    }
+
+    @Test
+    public void test_copy_rec_serverCopyFails_transfersData() throws Throwable {
+        Map<String, String> properties = getFailingServerCopyProperties();
+        assumeTrue("Server side copies cannot be made to fail", properties != null);
+
+        generateAndCreateTestDir();
+
+        Path source = createTestSubDir(testDir);
+        createTestFile(source, "Hello World!".getBytes());
+        Path testSubDir = createTestSubDir(source);
+        createTestFile(testSubDir, "Party people!".getBytes());
+
+        Path target = createTestSubDirName(testDir);
+
+        FileSystem failing = setupFileSystem(properties);
+
+        try {
+            copySync(failing, source, fileSystem, target, CopyMode.CREATE, true);
+        } finally {
+            failing.close();
+        }
+
+        assertSameContentsDir(source, target);
+    }
+
+    private Map<String, String> segmentProperties(String adaptor) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(FileAdaptor.ADAPTORS_PREFIX + adaptor + "." + FileAdaptor.SEGMENT_THRESHOLD, "1");
+        properties.put(FileAdaptor.ADAPTORS_PREFIX + adaptor + "." + FileAdaptor.SEGMENT_SIZE, String.valueOf(SEGMENT_SIZE));
+        return properties;
+    }
+
+    private byte[] segmentedData() {
+        byte[] data = new byte[getSegmentedFileSize()];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + i / SEGMENT_SIZE);
+        }
+
+        return data;
+    }
+
+    // Downloads to the local file system read the segments with readSegment of the adaptor under test.
+    @Test
+    public void test_copy_segmentedToLocal() throws Throwable {
+        byte[] data = segmentedData();
+        generateAndCreateTestDir();
+        Path file0 = createTestFile(testDir, data);
+
+        java.nio.file.Path tmp = Files.createTempDirectory("xenon-segmented");
+        Path file1 = new Path(tmp.resolve("file").toString());
+
+        FileSystem source = setupFileSystem(segmentProperties(description.getName()));
+        FileSystem local = FileSystem.create("file");
+
+        try {
+            copySync(source, file0, local, file1, CopyMode.CREATE, false);
+            assertArrayEquals(data, Files.readAllBytes(tmp.resolve("file")));
+        } finally {
+            source.close();
+            local.close();
+            Files.deleteIfExists(tmp.resolve("file"));
+            Files.delete(tmp);
+        }
+    }
+
+    // Uploads from the local file system write the segments with startSegmentedWrite of the adaptor under test, if it supports this.
+    @Test
+    public void test_copy_segmentedFromLocal() throws Throwable {
+        byte[] data = segmentedData();
+        generateAndCreateTestDir();
+        Path file1 = createNewTestFileName(testDir);
+
+        java.nio.file.Path tmp = Files.createTempDirectory("xenon-segmented");
+        Files.write(tmp.resolve("file"), data);
+        Path file0 = new Path(tmp.resolve("file").toString());
+
+        FileSystem local = FileSystem.create("file", null, new DefaultCredential(), segmentProperties("file"));
+
+        try {
+            copySync(local, file0, fileSystem, file1, CopyMode.CREATE, false);
+        } finally {
+            local.close();
+            Files.delete(tmp.resolve("file"));
+            Files.delete(tmp);
+        }
+
+        assertContents(file1, data);
+    }
+
     @Test(expected = NoSuchCopyException.class)
     public void test_getStatus_noSuchCopy_throwsException() throws Exception {
         fileSystem.getStatus("it would be a huge coincidence if this string would be linked to a copy status");
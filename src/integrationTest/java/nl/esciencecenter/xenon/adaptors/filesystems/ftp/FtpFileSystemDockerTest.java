@@ -16,6 +16,7 @@
 package nl.esciencecenter.xenon.adaptors.filesystems.ftp;
 
 import java.util.AbstractMap;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.ClassRule;
@@ -64,8 +65,13 @@ public class FtpFileSystemDockerTest extends FtpFileSystemTestParent {
 
     @Override
     public FileSystem setupFileSystem() throws XenonException {
+        return setupFileSystem(new HashMap<>());
+    }
+
+    @Override
+    public FileSystem setupFileSystem(Map<String, String> properties) throws XenonException {
         String location = docker.containers().container("ftp").port(21).inFormat("$HOST:$EXTERNAL_PORT");
         PasswordCredential cred = new PasswordCredential("xenon", "javagat".toCharArray());
-        return FileSystem.create("ftp", location, cred);
+        return FileSystem.create("ftp", location, cred, properties);
     }
 }
@@ -20,4 +20,9 @@ import nl.esciencecenter.xenon.adaptors.filesystems.FileSystemTestParent;
 
 public abstract class S3FileSystemTestParent extends FileSystemTestParent {
 
+    // All but the last part of a multipart upload must be at least 5 MB.
+    @Override
+    protected int getSegmentedFileSize() {
+        return 2 * 5 * 1024 * 1024 + 100;
+    }
 }
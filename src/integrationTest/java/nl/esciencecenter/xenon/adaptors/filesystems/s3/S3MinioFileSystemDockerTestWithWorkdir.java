@@ -63,9 +63,13 @@ public class S3MinioFileSystemDockerTestWithWorkdir extends S3FileSystemTestPare
 
     @Override
     public FileSystem setupFileSystem() throws XenonException {
+        return setupFileSystem(new HashMap<>());
+    }
+
+    @Override
+    public FileSystem setupFileSystem(Map<String, String> properties) throws XenonException {
         String location = docker.containers().container("minio").port(9000).inFormat("http://localhost:$EXTERNAL_PORT/filesystem-test-fixture/links");
         PasswordCredential cred = new PasswordCredential("xenon", "javagat01".toCharArray());
-        Map<String, String> props = new HashMap<>();
-        return FileSystem.create("s3", location, cred, props);
+        return FileSystem.create("s3", location, cred, properties);
     }
 }
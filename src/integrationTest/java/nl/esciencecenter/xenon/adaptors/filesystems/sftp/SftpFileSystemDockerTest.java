@@ -69,9 +69,14 @@ public class SftpFileSystemDockerTest extends SftpFileSystemTestParent {
 
     @Override
     public FileSystem setupFileSystem() throws XenonException {
+        return setupFileSystem(new HashMap<>());
+    }
+
+    @Override
+    public FileSystem setupFileSystem(Map<String, String> properties) throws XenonException {
         String location = docker.containers().container("ssh").port(22).inFormat("$HOST:$EXTERNAL_PORT");
         PasswordCredential cred = new PasswordCredential("xenon", "javagat".toCharArray());
-        Map<String, String> props = new HashMap<>();
+        Map<String, String> props = new HashMap<>(properties);
         props.put(STRICT_HOST_KEY_CHECKING, "false");
         props.put(LOAD_STANDARD_KNOWN_HOSTS, "false");
         return FileSystem.create("sftp", location, cred, props);
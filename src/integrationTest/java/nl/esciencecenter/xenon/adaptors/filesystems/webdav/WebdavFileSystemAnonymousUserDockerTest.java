@@ -15,6 +15,7 @@
  */
 package nl.esciencecenter.xenon.adaptors.filesystems.webdav;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.ClassRule;
@@ -24,6 +25,7 @@ import com.palantir.docker.compose.connection.waiting.HealthChecks;
 
 import nl.esciencecenter.xenon.XenonException;
 import nl.esciencecenter.xenon.adaptors.filesystems.LocationConfig;
+import nl.esciencecenter.xenon.credentials.DefaultCredential;
 import nl.esciencecenter.xenon.filesystems.FileSystem;
 import nl.esciencecenter.xenon.filesystems.Path;
 
@@ -62,8 +64,13 @@ public class WebdavFileSystemAnonymousUserDockerTest extends WebdavFileSystemTes
 
     @Override
     public FileSystem setupFileSystem() throws XenonException {
+        return setupFileSystem(new HashMap<>());
+    }
+
+    @Override
+    public FileSystem setupFileSystem(Map<String, String> properties) throws XenonException {
         String location = docker.containers().container("webdav").port(80).inFormat("http://$HOST:$EXTERNAL_PORT/");
-        return FileSystem.create("webdav", location);
+        return FileSystem.create("webdav", location, new DefaultCredential(), properties);
     }
 
 }
@@ -15,6 +15,7 @@
  */
 package nl.esciencecenter.xenon.adaptors.filesystems.webdav;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.ClassRule;
@@ -62,9 +63,14 @@ public class WebdavFileSystemXenonUserDockerTest extends WebdavFileSystemTestPar
 
     @Override
     public FileSystem setupFileSystem() throws XenonException {
+        return setupFileSystem(new HashMap<>());
+    }
+
+    @Override
+    public FileSystem setupFileSystem(Map<String, String> properties) throws XenonException {
         String location = docker.containers().container("webdav").port(80).inFormat("http://$HOST:$EXTERNAL_PORT/~xenon");
         PasswordCredential cred = new PasswordCredential("xenon", "javagat".toCharArray());
-        return FileSystem.create("webdav", location, cred);
+        return FileSystem.create("webdav", location, cred, properties);
     }
 
 }
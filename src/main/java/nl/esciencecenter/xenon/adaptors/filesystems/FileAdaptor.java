@@ -15,11 +15,17 @@
  */
 package nl.esciencecenter.xenon.adaptors.filesystems;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Map;
 
+import nl.esciencecenter.xenon.InvalidPropertyException;
 import nl.esciencecenter.xenon.XenonException;
 import nl.esciencecenter.xenon.XenonPropertyDescription;
+import nl.esciencecenter.xenon.XenonPropertyDescription.Type;
 import nl.esciencecenter.xenon.adaptors.Adaptor;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
 import nl.esciencecenter.xenon.credentials.Credential;
 import nl.esciencecenter.xenon.filesystems.FileSystem;
 import nl.esciencecenter.xenon.filesystems.FileSystemAdaptorDescription;
@@ -28,6 +34,102 @@ public abstract class FileAdaptor extends Adaptor implements FileSystemAdaptorDe
 
     public static final String ADAPTORS_PREFIX = "xenon.adaptors.filesystems.";
 
+    /** The name (relative to the adaptor prefix) of the property that sets the number of concurrent file transfers. */
+    public static final String COPY_THREADS = "copyThreads";
+
+    /** The default number of concurrent file transfers. */
+    private static final String DEFAULT_COPY_THREADS = "1";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the number of directories listed concurrently by a recursive listing. */
+    public static final String LIST_THREADS = "listThreads";
+
+    /** By default recursive listings list one directory at a time. */
+    private static final String DEFAULT_LIST_THREADS = "1";
+
+    /** The name (relative to the adaptor prefix) of the property that sets how long the attributes of a path are cached. */
+    public static final String ATTRIBUTE_CACHE_TIME = "attributeCacheTime";
+
+    /** By default attributes are not cached. */
+    private static final String DEFAULT_ATTRIBUTE_CACHE_TIME = "0";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the maximum number of paths of which the attributes are cached. */
+    public static final String ATTRIBUTE_CACHE_SIZE = "attributeCacheSize";
+
+    /** The default maximum number of cached paths. */
+    private static final String DEFAULT_ATTRIBUTE_CACHE_SIZE = "10000";
+
+    /** The name (relative to the adaptor prefix) of the property that sets how often directories watched by polling are listed. */
+    public static final String WATCH_INTERVAL = "watchInterval";
+
+    /** By default watched directories are listed every second. */
+    private static final String DEFAULT_WATCH_INTERVAL = "1000";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the minimal size of a file that is transferred in segments. */
+    public static final String SEGMENT_THRESHOLD = "segmentThreshold";
+
+    /** By default files are not transferred in segments. */
+    private static final String DEFAULT_SEGMENT_THRESHOLD = "0";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the size of the segments of a segmented transfer. */
+    public static final String SEGMENT_SIZE = "segmentSize";
+
+    /** The default segment size. */
+    private static final String DEFAULT_SEGMENT_SIZE = "64M";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the local directory in which the journals of resumable copies are stored. */
+    public static final String COPY_JOURNAL_DIRECTORY = "copyJournalDirectory";
+
+    /** The name (relative to the adaptor prefix) of the property that selects if a synchronizing copy compares the content of files. */
+    public static final String SYNC_CHECKSUM = "syncChecksum";
+
+    /** The name (relative to the adaptor prefix) of the property that selects the checksum algorithm used while copying files. */
+    public static final String COPY_CHECKSUM = "copyChecksum";
+
+    /** The name (relative to the adaptor prefix) of the property that selects if the checksum of a copied file is verified at the destination. */
+    public static final String VERIFY_CHECKSUM = "verifyChecksum";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the share of the bandwidth a copy gets when bandwidth is limited. */
+    public static final String COPY_WEIGHT = "copyWeight";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the minimal time between two progress events of a copy. */
+    public static final String COPY_PROGRESS_INTERVAL = "copyProgressInterval";
+
+    /** The name (relative to the adaptor prefix) of the property that selects if copies tune their buffer size to the throughput they achieve. */
+    public static final String ADAPTIVE_BUFFER_SIZE = "adaptiveBufferSize";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the maximum number of completed copies that are remembered. */
+    public static final String COPY_HISTORY_SIZE = "copyHistorySize";
+
+    /** The default number of completed copies that are remembered. */
+    private static final String DEFAULT_COPY_HISTORY_SIZE = "1000";
+
+    /** The name (relative to the adaptor prefix) of the property that sets how long a completed copy is remembered. */
+    public static final String COPY_HISTORY_TIME = "copyHistoryTime";
+
+    /** By default, completed copies are remembered for an hour. */
+    private static final String DEFAULT_COPY_HISTORY_TIME = "3600000";
+
+    /** The name (relative to the adaptor prefix) of the property that sets the size below which the files of a recursive copy are bundled in a tar stream. */
+    public static final String BUNDLE_THRESHOLD = "bundleThreshold";
+
+    /** By default files are not bundled. */
+    private static final String DEFAULT_BUNDLE_THRESHOLD = "0";
+
+    /** The name (relative to the adaptor prefix) of the property that selects if tar streams of copies are compressed. */
+    public static final String COMPRESS_TRANSFERS = "compressTransfers";
+
+    /** Never compress tar streams. */
+    public static final String COMPRESS_NEVER = "never";
+
+    /** Always compress tar streams. */
+    public static final String COMPRESS_ALWAYS = "always";
+
+    /** Compress tar streams if a sample of the data compresses well. */
+    public static final String COMPRESS_AUTO = "auto";
+
+    /** The checksum algorithm that is supported besides the MessageDigest algorithms. */
+    private static final String CRC32 = "CRC32";
+
     protected FileAdaptor(String name, String description, String[] locations, XenonPropertyDescription[] properties) {
         super(name, description, locations, properties);
     }
@@ -81,6 +183,172 @@ public abstract class FileAdaptor extends Adaptor implements FileSystemAdaptorDe
         return false;
     }
 
+    /**
+     * Add the descriptions of the copy engine properties, which are supported by all file adaptors, to the adaptor specific properties.
+     *
+     * @param prefix
+     *            the property prefix of the adaptor.
+     * @param properties
+     *            the adaptor specific properties.
+     * @return the adaptor specific properties followed by the copy engine properties.
+     */
+    protected static XenonPropertyDescription[] addCopyProperties(String prefix, XenonPropertyDescription... properties) {
+
+        XenonPropertyDescription[] copyProperties = new XenonPropertyDescription[] {
+                new XenonPropertyDescription(prefix + COPY_THREADS, Type.INTEGER, DEFAULT_COPY_THREADS,
+                        "The maximum number of files transferred concurrently by all copy operations of a FileSystem. With the default of 1, copy operations run one after another and transfer one file at a time. Larger values transfer files, and segments of large files, concurrently, which may share a single connection of the adaptor."),
+                new XenonPropertyDescription(prefix + LIST_THREADS, Type.INTEGER, DEFAULT_LIST_THREADS,
+                        "The maximum number of directories listed concurrently by all recursive listings and copies of a FileSystem (1 lists the directories one by one, in order)."),
+                new XenonPropertyDescription(prefix + ATTRIBUTE_CACHE_TIME, Type.INTEGER, DEFAULT_ATTRIBUTE_CACHE_TIME,
+                        "The time (in milliseconds) the attributes and existence of a path are cached for the checks that precede file operations. Changes made through the same FileSystem are seen immediately, changes made by others only after this time (0 disables the cache)."),
+                new XenonPropertyDescription(prefix + ATTRIBUTE_CACHE_SIZE, Type.INTEGER, DEFAULT_ATTRIBUTE_CACHE_SIZE,
+                        "The maximum number of paths of which the attributes are cached. The least recently used paths are evicted first."),
+                new XenonPropertyDescription(prefix + WATCH_INTERVAL, Type.INTEGER, DEFAULT_WATCH_INTERVAL,
+                        "The time (in milliseconds) between two listings of a directory that is watched by polling. Each directory is listed once per interval, however many watches it has."),
+                new XenonPropertyDescription(prefix + SEGMENT_THRESHOLD, Type.SIZE, DEFAULT_SEGMENT_THRESHOLD,
+                        "Files of at least this size are split into segments that are transferred concurrently, if both file systems support it (0 disables segmented transfers)."),
+                new XenonPropertyDescription(prefix + SEGMENT_SIZE, Type.SIZE, DEFAULT_SEGMENT_SIZE, "The size of the segments of a segmented transfer (in bytes)."),
+                new XenonPropertyDescription(prefix + COPY_JOURNAL_DIRECTORY, Type.STRING, "",
+                        "The local directory in which the journals of resumable copies are stored (defaults to xenon-copy-journals in the temporary directory)."),
+                new XenonPropertyDescription(prefix + SYNC_CHECKSUM, Type.BOOLEAN, "false",
+                        "Let a synchronizing copy compare the checksums of files of equal size instead of their modification times."),
+                new XenonPropertyDescription(prefix + COPY_CHECKSUM, Type.STRING, "",
+                        "The checksum (CRC32 or a MessageDigest algorithm such as SHA-256) computed while copying files, which disables segmented transfers (empty for none)."),
+                new XenonPropertyDescription(prefix + VERIFY_CHECKSUM, Type.BOOLEAN, "false",
+                        "Compare the checksum computed while copying a file to the checksum of the destination file (requires " + prefix + COPY_CHECKSUM + ")."),
+                new XenonPropertyDescription(prefix + COPY_WEIGHT, Type.INTEGER, "1",
+                        "The weight of copies from this FileSystem when sharing bandwidth limited by the TransferScheduler with other copies."),
+                new XenonPropertyDescription(prefix + COPY_PROGRESS_INTERVAL, Type.INTEGER, "1000",
+                        "The minimal time (in milliseconds) between two progress events sent to the CopyListener of a copy."),
+                new XenonPropertyDescription(prefix + ADAPTIVE_BUFFER_SIZE, Type.BOOLEAN, "false",
+                        "Let copies grow or shrink their buffer size at runtime to maximize throughput, starting from the size learned for the same hosts."),
+                new XenonPropertyDescription(prefix + COPY_HISTORY_SIZE, Type.INTEGER, DEFAULT_COPY_HISTORY_SIZE,
+                        "The maximum number of completed copies of which the status is kept until it is retrieved."),
+                new XenonPropertyDescription(prefix + COPY_HISTORY_TIME, Type.INTEGER, DEFAULT_COPY_HISTORY_TIME,
+                        "The time (in milliseconds) the status of a completed copy is kept until it is retrieved."),
+                new XenonPropertyDescription(prefix + BUNDLE_THRESHOLD, Type.SIZE, DEFAULT_BUNDLE_THRESHOLD,
+                        "Files smaller than this size that are new at the destination of a recursive copy are transferred together as a single tar stream, if both file systems can run tar and at least one is remote (0 disables bundling)."),
+                new XenonPropertyDescription(prefix + COMPRESS_TRANSFERS, Type.STRING, COMPRESS_NEVER,
+                        "Compress the tar streams of copies between file systems that can run tar, of which at least one is remote: never, always, or auto to compress only transfers of at least 8 KB of which a sample of the first file compresses well. Files that keep their name are then also streamed through tar one by one.") };
+
+        XenonPropertyDescription[] result = Arrays.copyOf(properties, properties.length + copyProperties.length);
+        System.arraycopy(copyProperties, 0, result, properties.length, copyProperties.length);
+        return result;
+    }
+
+    /**
+     * Check if the values of the copy engine properties are valid.
+     *
+     * @param adaptorName
+     *            the name of the adaptor.
+     * @param prefix
+     *            the property prefix of the adaptor.
+     * @param properties
+     *            the properties to check.
+     * @throws XenonException
+     *             if one of the copy engine properties has an invalid value.
+     */
+    protected static void checkCopyProperties(String adaptorName, String prefix, XenonProperties properties) throws XenonException {
+
+        int copyThreads = properties.getIntegerProperty(prefix + COPY_THREADS);
+
+        if (copyThreads < 1) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + COPY_THREADS + ": " + copyThreads + " (must be at least 1)");
+        }
+
+        int listThreads = properties.getIntegerProperty(prefix + LIST_THREADS);
+
+        if (listThreads < 1) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + LIST_THREADS + ": " + listThreads + " (must be at least 1)");
+        }
+
+        int attributeCacheTime = properties.getIntegerProperty(prefix + ATTRIBUTE_CACHE_TIME);
+
+        if (attributeCacheTime < 0) {
+            throw new InvalidPropertyException(adaptorName,
+                    "Invalid value for " + prefix + ATTRIBUTE_CACHE_TIME + ": " + attributeCacheTime + " (may not be negative)");
+        }
+
+        int attributeCacheSize = properties.getIntegerProperty(prefix + ATTRIBUTE_CACHE_SIZE);
+
+        if (attributeCacheSize < 1) {
+            throw new InvalidPropertyException(adaptorName,
+                    "Invalid value for " + prefix + ATTRIBUTE_CACHE_SIZE + ": " + attributeCacheSize + " (must be at least 1)");
+        }
+
+        int watchInterval = properties.getIntegerProperty(prefix + WATCH_INTERVAL);
+
+        if (watchInterval < 1) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + WATCH_INTERVAL + ": " + watchInterval + " (must be at least 1)");
+        }
+
+        long segmentThreshold = properties.getSizeProperty(prefix + SEGMENT_THRESHOLD);
+
+        if (segmentThreshold < 0) {
+            throw new InvalidPropertyException(adaptorName,
+                    "Invalid value for " + prefix + SEGMENT_THRESHOLD + ": " + segmentThreshold + " (may not be negative)");
+        }
+
+        long segmentSize = properties.getSizeProperty(prefix + SEGMENT_SIZE);
+
+        if (segmentSize <= 0) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + SEGMENT_SIZE + ": " + segmentSize + " (must be at least 1)");
+        }
+
+        int copyWeight = properties.getIntegerProperty(prefix + COPY_WEIGHT);
+
+        if (copyWeight < 1) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + COPY_WEIGHT + ": " + copyWeight + " (must be at least 1)");
+        }
+
+        int progressInterval = properties.getIntegerProperty(prefix + COPY_PROGRESS_INTERVAL);
+
+        if (progressInterval < 0) {
+            throw new InvalidPropertyException(adaptorName,
+                    "Invalid value for " + prefix + COPY_PROGRESS_INTERVAL + ": " + progressInterval + " (may not be negative)");
+        }
+
+        int historySize = properties.getIntegerProperty(prefix + COPY_HISTORY_SIZE);
+
+        if (historySize < 0) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + COPY_HISTORY_SIZE + ": " + historySize + " (may not be negative)");
+        }
+
+        int historyTime = properties.getIntegerProperty(prefix + COPY_HISTORY_TIME);
+
+        if (historyTime < 0) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + COPY_HISTORY_TIME + ": " + historyTime + " (may not be negative)");
+        }
+
+        long bundleThreshold = properties.getSizeProperty(prefix + BUNDLE_THRESHOLD);
+
+        if (bundleThreshold < 0) {
+            throw new InvalidPropertyException(adaptorName,
+                    "Invalid value for " + prefix + BUNDLE_THRESHOLD + ": " + bundleThreshold + " (may not be negative)");
+        }
+
+        String compress = properties.getStringProperty(prefix + COMPRESS_TRANSFERS);
+
+        if (!COMPRESS_NEVER.equals(compress) && !COMPRESS_ALWAYS.equals(compress) && !COMPRESS_AUTO.equals(compress)) {
+            throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + COMPRESS_TRANSFERS + ": " + compress + " (must be "
+                    + COMPRESS_NEVER + ", " + COMPRESS_ALWAYS + " or " + COMPRESS_AUTO + ")");
+        }
+
+        String checksum = properties.getStringProperty(prefix + COPY_CHECKSUM);
+
+        if (!checksum.isEmpty() && !CRC32.equalsIgnoreCase(checksum)) {
+            try {
+                MessageDigest.getInstance(checksum);
+            } catch (NoSuchAlgorithmException e) {
+                throw new InvalidPropertyException(adaptorName, "Invalid value for " + prefix + COPY_CHECKSUM + ": " + checksum + " (unsupported algorithm)");
+            }
+        }
+
+        if (checksum.isEmpty() && properties.getBooleanProperty(prefix + VERIFY_CHECKSUM)) {
+            throw new InvalidPropertyException(adaptorName, prefix + VERIFY_CHECKSUM + " requires " + prefix + COPY_CHECKSUM + " to be set");
+        }
+    }
+
     public abstract FileSystem createFileSystem(String location, Credential credential, Map<String, String> properties)
             throws XenonException;
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems;
+
+import java.util.Set;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonRuntimeException;
+import nl.esciencecenter.xenon.filesystems.AttributeNotSupportedException;
+import nl.esciencecenter.xenon.filesystems.PathAttributes;
+import nl.esciencecenter.xenon.filesystems.PosixFilePermission;
+
+/**
+ * PathAttributes of which only the path, type, size and last modified time are set up front, as returned by a lightweight listing.
+ *
+ * The other attributes are loaded the first time one of them is asked for. If they cannot be loaded, the getter throws a {@link XenonRuntimeException} with
+ * the {@link XenonException} as its cause.
+ */
+public class LazyPathAttributes extends PathAttributesImplementation {
+
+    /** Loads the complete attributes of a path. */
+    @FunctionalInterface
+    public interface Loader {
+        PathAttributes load() throws XenonException;
+    }
+
+    private final String adaptorName;
+    private final Loader loader;
+
+    private volatile PathAttributes loaded;
+
+    /**
+     * Create a new LazyPathAttributes.
+     *
+     * @param adaptorName
+     *            the name of the adaptor, used in exceptions.
+     * @param loader
+     *            loads the complete attributes when they are needed.
+     */
+    public LazyPathAttributes(String adaptorName, Loader loader) {
+        this.adaptorName = adaptorName;
+        this.loader = loader;
+    }
+
+    /**
+     * Check if the complete attributes have been loaded.
+     *
+     * @return if the complete attributes have been loaded.
+     */
+    public boolean isLoaded() {
+        return loaded != null;
+    }
+
+    private PathAttributes load() {
+
+        PathAttributes result = loaded;
+
+        if (result == null) {
+            try {
+                result = loader.load();
+            } catch (XenonException e) {
+                throw new XenonRuntimeException(adaptorName, "Failed to load attributes of " + getPath(), e);
+            }
+            loaded = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean isExecutable() {
+        return load().isExecutable();
+    }
+
+    @Override
+    public boolean isReadable() {
+        return load().isReadable();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return load().isWritable();
+    }
+
+    @Override
+    public boolean isHidden() {
+        return load().isHidden();
+    }
+
+    @Override
+    public long getCreationTime() {
+        return load().getCreationTime();
+    }
+
+    @Override
+    public long getLastAccessTime() {
+        return load().getLastAccessTime();
+    }
+
+    @Override
+    public String getOwner() throws AttributeNotSupportedException {
+        return load().getOwner();
+    }
+
+    @Override
+    public String getGroup() throws AttributeNotSupportedException {
+        return load().getGroup();
+    }
+
+    @Override
+    public Set<PosixFilePermission> getPermissions() throws AttributeNotSupportedException {
+        return load().getPermissions();
+    }
+
+    @Override
+    public String toString() {
+        return "LazyPathAttributes [path=" + getPath() + ", isDirectory=" + isDirectory() + ", isRegular=" + isRegular() + ", isSymbolicLink="
+                + isSymbolicLink() + ", isOther=" + isOther() + ", lastModifiedTime=" + getLastModifiedTime() + ", size=" + getSize() + ", loaded="
+                + isLoaded() + "]";
+    }
+}
@@ -62,8 +62,8 @@ public class FtpFileAdaptor extends FileAdaptor {
     private static final String[] ADAPTOR_LOCATIONS = new String[] { "host[:port][/workdir]" };
 
     /** List of properties supported by this FTP adaptor */
-    private static final XenonPropertyDescription[] VALID_PROPERTIES = new XenonPropertyDescription[] {
-            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes).") };
+    private static final XenonPropertyDescription[] VALID_PROPERTIES = addCopyProperties(PREFIX,
+            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes)."));
 
     public FtpFileAdaptor() {
         super(ADAPTOR_NAME, ADAPTOR_DESCRIPTION, ADAPTOR_LOCATIONS, VALID_PROPERTIES);
@@ -118,6 +118,8 @@ public class FtpFileAdaptor extends FileAdaptor {
                     "Invalid value for " + BUFFER_SIZE + ": " + bufferSize + " (must be between 1 and " + Integer.MAX_VALUE + ")");
         }
 
+        checkCopyProperties(ADAPTOR_NAME, PREFIX, xp);
+
         FTPClient ftpClient = connect(location, credential);
 
         String cwd = null;
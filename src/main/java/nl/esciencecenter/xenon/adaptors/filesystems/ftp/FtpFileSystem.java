@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.net.ftp.FTPClient;
@@ -204,13 +206,18 @@ public class FtpFileSystem extends FileSystem {
         assertPathNotExists(absTarget);
         assertParentDirectoryExists(absTarget);
 
-        try {
-            ftpClient.rename(absSource.toString(), absTarget.toString());
-        } catch (Exception e) {
-            throw new XenonException(ADAPTOR_NAME, "Failed to rename " + absSource.toString() + " to " + absTarget.toString(), e);
+        synchronized (ftpClient) {
+            try {
+                ftpClient.rename(absSource.toString(), absTarget.toString());
+            } catch (Exception e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to rename " + absSource.toString() + " to " + absTarget.toString(), e);
+            }
+
+            checkClientReply("Failed to rename " + absSource.toString() + " to " + absTarget.toString());
         }
 
-        checkClientReply("Failed to rename " + absSource.toString() + " to " + absTarget.toString());
+        invalidateAttributes(absSource);
+        invalidateAttributes(absTarget);
     }
 
     @Override
@@ -223,13 +230,17 @@ public class FtpFileSystem extends FileSystem {
         assertPathNotExists(absPath);
         assertParentDirectoryExists(absPath);
 
-        try {
-            ftpClient.makeDirectory(absPath.toString());
-        } catch (Exception e) {
-            throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + absPath.toString(), e);
+        synchronized (ftpClient) {
+            try {
+                ftpClient.makeDirectory(absPath.toString());
+            } catch (Exception e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + absPath.toString(), e);
+            }
+
+            checkClientReply("Failed to create directory: " + absPath.toString());
         }
 
-        checkClientReply("Failed to create directory: " + absPath.toString());
+        invalidateAttributes(absPath);
     }
 
     @Override
@@ -241,14 +252,18 @@ public class FtpFileSystem extends FileSystem {
         assertPathNotExists(absPath);
         assertParentDirectoryExists(absPath);
 
-        try {
-            ByteArrayInputStream dummy = new ByteArrayInputStream(new byte[0]);
-            ftpClient.storeFile(absPath.toString(), dummy);
-        } catch (Exception e) {
-            throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + absPath.toString(), e);
+        synchronized (ftpClient) {
+            try {
+                ByteArrayInputStream dummy = new ByteArrayInputStream(new byte[0]);
+                ftpClient.storeFile(absPath.toString(), dummy);
+            } catch (Exception e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + absPath.toString(), e);
+            }
+
+            checkClientReply("Failed to create file: " + absPath.toString());
         }
 
-        checkClientReply("Failed to create file: " + absPath.toString());
+        invalidateAttributes(absPath);
     }
 
     @Override
@@ -261,13 +276,15 @@ public class FtpFileSystem extends FileSystem {
 
         assertIsOpen();
 
-        try {
-            ftpClient.removeDirectory(path.toString());
-        } catch (Exception e) {
-            throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + path.toString(), e);
-        }
+        synchronized (ftpClient) {
+            try {
+                ftpClient.removeDirectory(path.toString());
+            } catch (Exception e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + path.toString(), e);
+            }
 
-        checkClientReply("Failed to delete directory: " + path.toString());
+            checkClientReply("Failed to delete directory: " + path.toString());
+        }
     }
 
     @Override
@@ -275,13 +292,15 @@ public class FtpFileSystem extends FileSystem {
 
         assertIsOpen();
 
-        try {
-            ftpClient.deleteFile(path.toString());
-        } catch (Exception e) {
-            throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + path.toString(), e);
-        }
+        synchronized (ftpClient) {
+            try {
+                ftpClient.deleteFile(path.toString());
+            } catch (Exception e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to createDirectory " + path.toString(), e);
+            }
 
-        checkClientReply("Failed to delete file: " + path.toString());
+            checkClientReply("Failed to delete file: " + path.toString());
+        }
     }
 
     @Override
@@ -321,31 +340,34 @@ public class FtpFileSystem extends FileSystem {
         // We cannot always get the FTPFile of the path directly, behavior of
         // FTP servers seems to vary. Instead,
         // we get the listing of the parent directory and extract the
-        // information we need from there.
-        try {
-            Path p = path.getParent();
+        // information we need from there. Changing the working directory
+        // is not thread safe, so concurrent transfers must take turns.
+        synchronized (ftpClient) {
+            try {
+                Path p = path.getParent();
 
-            String originalWorkingDirectory = ftpClient.printWorkingDirectory();
+                String originalWorkingDirectory = ftpClient.printWorkingDirectory();
 
-            if (p == null) {
-                p = new Path("/");
-            }
+                if (p == null) {
+                    p = new Path("/");
+                }
 
-            boolean pathExists = ftpClient.changeWorkingDirectory(p.toString());
+                boolean pathExists = ftpClient.changeWorkingDirectory(p.toString());
 
-            if (!pathExists) {
-                // parent must be an existing dir, otherwise dir/path certainly
-                // does not exist.
-                throw new NoSuchPathException(ADAPTOR_NAME, "Path not found: " + path);
-            }
+                if (!pathExists) {
+                    // parent must be an existing dir, otherwise dir/path certainly
+                    // does not exist.
+                    throw new NoSuchPathException(ADAPTOR_NAME, "Path not found: " + path);
+                }
 
-            FTPFile[] files = ftpClient.listFiles();
+                FTPFile[] files = ftpClient.listFiles();
 
-            ftpClient.changeWorkingDirectory(originalWorkingDirectory);
+                ftpClient.changeWorkingDirectory(originalWorkingDirectory);
 
-            return findFTPFile(files, path);
-        } catch (IOException e) {
-            throw new XenonException(ADAPTOR_NAME, "Failed to get attributes for path: " + path, e);
+                return findFTPFile(files, path);
+            } catch (IOException e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to get attributes for path: " + path, e);
+            }
         }
     }
 
@@ -356,6 +378,13 @@ public class FtpFileSystem extends FileSystem {
         return convertAttributes(absPath, getFTPFileInfo(absPath));
     }
 
+    // The attributes of a single path already come from a listing of its parent, so paths in the same directory can share that listing.
+    @Override
+    public Map<Path, PathAttributes> getAttributes(Collection<Path> paths) throws XenonException {
+        assertIsOpen();
+        return getAttributesFromListings(paths);
+    }
+
     @Override
     protected List<PathAttributes> listDirectory(Path path) throws XenonException {
         assertIsOpen();
@@ -364,7 +393,13 @@ public class FtpFileSystem extends FileSystem {
         try {
             ArrayList<PathAttributes> result = new ArrayList<>();
 
-            for (FTPFile f : ftpClient.listFiles(path.toString(), FTPFileFilters.NON_NULL)) {
+            FTPFile[] files;
+
+            synchronized (ftpClient) {
+                files = ftpClient.listFiles(path.toString(), FTPFileFilters.NON_NULL);
+            }
+
+            for (FTPFile f : files) {
                 result.add(convertAttributes(path.resolve(f.getName()), f));
             }
 
@@ -399,6 +434,37 @@ public class FtpFileSystem extends FileSystem {
         }
     }
 
+    @Override
+    protected boolean canReadSegments() {
+        return true;
+    }
+
+    @Override
+    protected InputStream readSegment(Path path, long offset, long length) throws XenonException {
+        LOGGER.debug("readSegment path = {} offset = {} length = {}", path, offset, length);
+
+        assertIsOpen();
+        Path absPath = toAbsolutePath(path);
+        assertPathExists(absPath);
+        assertPathIsFile(absPath);
+
+        // Each segment needs its own FTPClient, which restarts the transfer at the offset (REST).
+        FTPClient newClient = adaptor.connect(getLocation(), credential);
+        newClient.enterLocalPassiveMode();
+
+        try {
+            newClient.setFileType(FTPClient.BINARY_FILE_TYPE);
+            newClient.setRestartOffset(offset);
+            InputStream in = newClient.retrieveFileStream(absPath.toString());
+
+            checkClientReply(newClient, "Failed to read from path: " + absPath.toString());
+
+            return new FtpInputStream(in, newClient);
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to read from path: " + absPath);
+        }
+    }
+
     @Override
     public OutputStream writeToFile(Path path, long size) throws XenonException {
         LOGGER.debug("writeToFile path = {} size = {}", path, size);
@@ -417,6 +483,7 @@ public class FtpFileSystem extends FileSystem {
             newClient.setFileType(FTPClient.BINARY_FILE_TYPE);
             OutputStream out = newClient.storeFileStream(absPath.toString());
             checkClientReply(newClient, "Failed to write to path: " + absPath.toString());
+            invalidateAttributes(absPath);
             return new FtpOutputStream(out, newClient);
         } catch (IOException e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to write to path: " + absPath);
@@ -22,19 +22,32 @@ import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import com.google.common.hash.HashCode;
+
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
 import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.GetOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
 
 import nl.esciencecenter.xenon.UnsupportedOperationException;
 import nl.esciencecenter.xenon.XenonException;
@@ -44,6 +57,7 @@ import nl.esciencecenter.xenon.adaptors.filesystems.PathAttributesImplementation
 import nl.esciencecenter.xenon.filesystems.AttributeNotSupportedException;
 import nl.esciencecenter.xenon.filesystems.FileSystem;
 import nl.esciencecenter.xenon.filesystems.InvalidPathException;
+import nl.esciencecenter.xenon.filesystems.ListQuery;
 import nl.esciencecenter.xenon.filesystems.NoSuchPathException;
 import nl.esciencecenter.xenon.filesystems.Path;
 import nl.esciencecenter.xenon.filesystems.PathAttributes;
@@ -62,6 +76,59 @@ public class JCloudsFileSytem extends FileSystem {
 
     boolean open;
 
+    /**
+     * Writes a blob as a multipart upload, with one part per segment.
+     */
+    class MultipartSegmentedWrite extends SegmentedWrite {
+
+        private final Path path;
+        private final MultipartUpload upload;
+        private final MultipartPart[] parts;
+
+        MultipartSegmentedWrite(Path path, MultipartUpload upload, int count) {
+            this.path = path;
+            this.upload = upload;
+            this.parts = new MultipartPart[count];
+        }
+
+        @Override
+        public void writeSegment(int index, long offset, long length, InputStream in) throws XenonException {
+
+            Payload payload = Payloads.newInputStreamPayload(in);
+            payload.getContentMetadata().setContentLength(length);
+
+            try {
+                MultipartPart part = context.getBlobStore().uploadMultipartPart(upload, index + 1, payload);
+
+                synchronized (parts) {
+                    parts[index] = part;
+                }
+            } catch (Exception e) {
+                throw new XenonException(adaptorName, "Failed to upload segment " + index + " of " + path, e);
+            }
+        }
+
+        @Override
+        public void finish() throws XenonException {
+            try {
+                synchronized (parts) {
+                    context.getBlobStore().completeMultipartUpload(upload, Arrays.asList(parts));
+                }
+            } catch (Exception e) {
+                throw new XenonException(adaptorName, "Failed to complete upload of " + path, e);
+            }
+        }
+
+        @Override
+        public void abort() {
+            try {
+                context.getBlobStore().abortMultipartUpload(upload);
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+    }
+
     public JCloudsFileSytem(String uniqueID, String adaptorName, String endPoint, Path workingDir, BlobStoreContext context, String bucket, int bufferSize,
             XenonProperties properties) {
         super(uniqueID, adaptorName, endPoint, workingDir, bufferSize, properties);
@@ -115,6 +182,7 @@ public class JCloudsFileSytem extends FileSystem {
         assertParentDirectoryExists(absDir);
 
         makeDirectoryPlaceholder(absDir);
+        invalidateAttributes(absDir);
     }
 
     // Simulate creating an empty directory by creating a bucket entry with the name "dir/___not__empty___"
@@ -151,6 +219,7 @@ public class JCloudsFileSytem extends FileSystem {
         InputStream emtpy = new org.apache.sshd.common.util.io.NullInputStream();
         final Blob b = context.getBlobStore().blobBuilder(bucket).name(toBucketEntry(absFile)).payload(emtpy).contentLength(0).build();
         context.getBlobStore().putBlob(bucket, b);
+        invalidateAttributes(absFile);
     }
 
     @Override
@@ -344,6 +413,27 @@ public class JCloudsFileSytem extends FileSystem {
         return new ListingIterator(optionsFinal, context.getBlobStore().list(bucket, optionsFinal));
     }
 
+    // The literal start of the name pattern is added to the prefix of the listing, so the blob store only returns entries that may match.
+    @Override
+    protected Iterable<PathAttributes> listDirectory(Path dir, ListQuery query) throws XenonException {
+        checkClosed();
+
+        ListContainerOptions options = new ListContainerOptions().prefix(toBucketEntry(dir) + "/" + query.getNamePrefix());
+        Iterator<PathAttributes> it = new ListingIterator(options, context.getBlobStore().list(bucket, options));
+
+        ArrayList<PathAttributes> result = new ArrayList<>();
+
+        while (it.hasNext()) {
+            PathAttributes p = it.next();
+
+            if (query.matches(p)) {
+                result.add(p);
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public Iterable<PathAttributes> list(Path path, boolean recursive) throws XenonException {
         checkClosed();
@@ -401,6 +491,57 @@ public class JCloudsFileSytem extends FileSystem {
         }
     }
 
+    @Override
+    protected boolean canReadSegments() {
+        return true;
+    }
+
+    @Override
+    protected InputStream readSegment(Path path, long offset, long length) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+
+        assertPathIsFile(absPath);
+
+        try {
+            GetOptions options = new GetOptions().range(offset, offset + length - 1);
+            return context.getBlobStore().getBlob(bucket, toBucketEntry(absPath), options).getPayload().openStream();
+        } catch (IOException e) {
+            throw new XenonException(adaptorName, e.getMessage());
+        }
+    }
+
+    @Override
+    protected boolean canWriteSegments() {
+        return true;
+    }
+
+    @Override
+    protected long getMinimumSegmentSize() {
+        return context.getBlobStore().getMinimumMultipartPartSize();
+    }
+
+    @Override
+    protected SegmentedWrite startSegmentedWrite(Path path, long size, long segmentSize) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+        assertPathNotExists(absPath);
+
+        long count = (size + segmentSize - 1) / segmentSize;
+
+        if (count > context.getBlobStore().getMaximumNumberOfParts() || segmentSize > context.getBlobStore().getMaximumMultipartPartSize()) {
+            throw new UnsupportedOperationException(adaptorName, "Cannot upload " + absPath + " in " + count + " segments of " + segmentSize + " bytes");
+        }
+
+        BlobMetadata metadata = context.getBlobStore().blobBuilder(toBucketEntry(absPath)).build().getMetadata();
+
+        try {
+            return new MultipartSegmentedWrite(absPath, context.getBlobStore().initiateMultipartUpload(bucket, metadata, PutOptions.NONE), (int) count);
+        } catch (Exception e) {
+            throw new XenonException(adaptorName, "Failed to start upload of " + absPath, e);
+        }
+    }
+
     @Override
     public OutputStream writeToFile(Path path, long size) throws XenonException {
 
@@ -418,7 +559,13 @@ public class JCloudsFileSytem extends FileSystem {
             throw new XenonException(adaptorName, "IO error when trying to write: " + e.getMessage());
         }
 
-        new Thread(() -> context.getBlobStore().putBlob(bucket, b)).start();
+        new Thread(() -> {
+            context.getBlobStore().putBlob(bucket, b);
+            // The blob only appears once the upload is done.
+            invalidateAttributes(absPath);
+        }).start();
+
+        invalidateAttributes(absPath);
 
         return out;
     }
@@ -428,6 +575,63 @@ public class JCloudsFileSytem extends FileSystem {
         throw new UnsupportedOperationException(adaptorName, "WriteToFile without predefined size not supported");
     }
 
+    /*
+     * Blob stores can copy a blob within the same endpoint, also between buckets, without downloading it. If the credentials do not give access to both
+     * buckets the copy fails, and the data is transferred instead.
+     */
+    @Override
+    protected boolean canCopyOnServer(FileSystem destinationFS) {
+        return destinationFS instanceof JCloudsFileSytem && adaptorName.equals(destinationFS.getAdaptorName())
+                && getLocation().equals(destinationFS.getLocation());
+    }
+
+    @Override
+    protected void copyOnServer(Path source, FileSystem destinationFS, Path destination) throws XenonException {
+
+        JCloudsFileSytem other = (JCloudsFileSytem) destinationFS;
+
+        String from = toBucketEntry(toAbsolutePath(source));
+        String to = other.toBucketEntry(other.toAbsolutePath(destination));
+
+        try {
+            context.getBlobStore().copyBlob(bucket, from, other.bucket, to, CopyOptions.NONE);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException(adaptorName, "Server side copy from " + bucket + "/" + from + " to " + other.bucket + "/" + to + " failed",
+                    e);
+        }
+    }
+
+    /*
+     * Blob stores keep the MD5 hash of a blob that was uploaded in one piece, either as its content MD5 or as its ETag. If available, a copy to the blob store
+     * is verified against this hash, so the blob need not be read back.
+     */
+    @Override
+    protected byte[] getChecksum(Path path, String algorithm) throws XenonException {
+
+        if ("MD5".equalsIgnoreCase(algorithm)) {
+
+            BlobMetadata md = context.getBlobStore().blobMetadata(bucket, toBucketEntry(toAbsolutePath(path)));
+
+            if (md != null) {
+
+                HashCode md5 = md.getContentMetadata().getContentMD5AsHashCode();
+
+                if (md5 != null) {
+                    return md5.asBytes();
+                }
+
+                // The ETag of a multipart upload is not an MD5 hash of the content, and contains a dash.
+                String etag = md.getETag() == null ? "" : md.getETag().replace("\"", "");
+
+                if (etag.matches("[0-9a-fA-F]{32}")) {
+                    return HashCode.fromString(etag.toLowerCase()).asBytes();
+                }
+            }
+        }
+
+        return super.getChecksum(path, algorithm);
+    }
+
     @Override
     public OutputStream appendToFile(Path file) throws XenonException {
         throw new UnsupportedOperationException(adaptorName, "Append not supported");
@@ -449,6 +653,13 @@ public class JCloudsFileSytem extends FileSystem {
         throw new NoSuchPathException(adaptorName, "File does not exist: " + absPath);
     }
 
+    // Looking up a single entry already lists a prefix, so entries that share a parent are answered from one listing of that parent.
+    @Override
+    public Map<Path, PathAttributes> getAttributes(Collection<Path> paths) throws XenonException {
+        checkClosed();
+        return getAttributesFromListings(paths);
+    }
+
     @Override
     public Path readSymbolicLink(Path link) throws XenonException {
         throw new AttributeNotSupportedException(adaptorName, "Symbolic link  not supported by " + adaptorName);
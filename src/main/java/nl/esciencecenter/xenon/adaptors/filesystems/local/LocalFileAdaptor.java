@@ -57,12 +57,28 @@ public class LocalFileAdaptor extends FileAdaptor {
     /** The buffer size to use when copying data. */
     public static final String BUFFER_SIZE = PREFIX + "bufferSize";
 
+    /** How files are copied within the local file system. */
+    public static final String COPY_METHOD = PREFIX + "copyMethod";
+
+    /** Copy the data of files. */
+    public static final String COPY_METHOD_COPY = "copy";
+
+    /** Create hard links instead of copies. */
+    public static final String COPY_METHOD_HARDLINK = "hardlink";
+
+    /** Create clones that share their data with the original until either is changed. */
+    public static final String COPY_METHOD_REFLINK = "reflink";
+
     /** The locations supported by the adaptor */
     private static final String[] ADAPTOR_LOCATIONS = new String[] { "(null)", "(empty string)", "[/workdir]", "driveletter:[/workdir]" };
 
     /** List of properties supported by this FTP adaptor */
-    private static final XenonPropertyDescription[] VALID_PROPERTIES = new XenonPropertyDescription[] {
-            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes).") };
+    private static final XenonPropertyDescription[] VALID_PROPERTIES = addCopyProperties(PREFIX,
+            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes)."),
+            new XenonPropertyDescription(COPY_METHOD, Type.STRING, COPY_METHOD_COPY,
+                    "How files are copied within the local file system: copy, hardlink (the copy shares its data and attributes with the original, "
+                            + "so only use this for files that are not changed) or reflink (a clone, if the file system supports it). "
+                            + "If a link or clone cannot be made, for example across volumes, the data is copied instead."));
 
     public LocalFileAdaptor() {
         super(ADAPTOR_NAME, ADAPTOR_DESCRIPTION, ADAPTOR_LOCATIONS, VALID_PROPERTIES);
@@ -112,9 +128,18 @@ public class LocalFileAdaptor extends FileAdaptor {
                     "Invalid value for " + BUFFER_SIZE + ": " + bufferSize + " (must be between 1 and " + Integer.MAX_VALUE + ")");
         }
 
+        String copyMethod = xp.getStringProperty(COPY_METHOD);
+
+        if (!COPY_METHOD_COPY.equals(copyMethod) && !COPY_METHOD_HARDLINK.equals(copyMethod) && !COPY_METHOD_REFLINK.equals(copyMethod)) {
+            throw new InvalidPropertyException(ADAPTOR_NAME, "Invalid value for " + COPY_METHOD + ": " + copyMethod + " (must be " + COPY_METHOD_COPY + ", "
+                    + COPY_METHOD_HARDLINK + " or " + COPY_METHOD_REFLINK + ")");
+        }
+
+        checkCopyProperties(ADAPTOR_NAME, PREFIX, xp);
+
         Path entry = new Path(LocalFileSystemUtils.getLocalSeparator(), path);
         // for Windows remove the drive letter from entry?
 
-        return new LocalFileSystem(getNewUniqueID(), location, root, entry, (int) bufferSize, xp);
+        return new LocalFileSystem(getNewUniqueID(), location, root, entry, (int) bufferSize, copyMethod, xp);
     }
 }
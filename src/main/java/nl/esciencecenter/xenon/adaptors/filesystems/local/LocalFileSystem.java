@@ -21,36 +21,209 @@ import static nl.esciencecenter.xenon.utils.LocalFileSystemUtils.getLocalRootles
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.esciencecenter.xenon.UnsupportedOperationException;
 import nl.esciencecenter.xenon.XenonException;
 import nl.esciencecenter.xenon.adaptors.XenonProperties;
+import nl.esciencecenter.xenon.adaptors.filesystems.LazyPathAttributes;
 import nl.esciencecenter.xenon.adaptors.filesystems.PathAttributesImplementation;
 import nl.esciencecenter.xenon.filesystems.DirectoryNotEmptyException;
 import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.filesystems.ListQuery;
 import nl.esciencecenter.xenon.filesystems.NoSuchPathException;
 import nl.esciencecenter.xenon.filesystems.Path;
 import nl.esciencecenter.xenon.filesystems.PathAttributes;
 import nl.esciencecenter.xenon.filesystems.PosixFilePermission;
+import nl.esciencecenter.xenon.filesystems.WatchListener;
 import nl.esciencecenter.xenon.utils.LocalFileSystemUtils;
 
 public class LocalFileSystem extends FileSystem {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalFileSystem.class);
+
     private final String root;
 
+    private final String copyMethod;
+
+    /** A directory registered with the watch service, with the watches on it. */
+    private static class WatchedDirectory {
+
+        private final Path dir;
+        private final WatchKey key;
+        private final Map<String, WatchListener> listeners = new LinkedHashMap<>();
+
+        WatchedDirectory(Path dir, WatchKey key) {
+            this.dir = dir;
+            this.key = key;
+        }
+    }
+
+    /** The watches by identifier. Also guards the other watch fields. */
+    private final Map<String, WatchedDirectory> watches = new HashMap<>();
+
+    private final Map<WatchKey, WatchedDirectory> watchedKeys = new HashMap<>();
+
+    // Created by the first watch.
+    private WatchService watchService;
+
+    /**
+     * Writes the segments of a file at their offset in a single shared channel. Positional writes do not change the position of the channel, so the segments
+     * can be written concurrently.
+     */
+    class LocalSegmentedWrite extends SegmentedWrite {
+
+        private final Path path;
+        private final FileChannel channel;
+
+        LocalSegmentedWrite(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        @Override
+        public void writeSegment(int index, long offset, long length, InputStream in) throws XenonException {
+
+            ReadableByteChannel source = Channels.newChannel(in);
+
+            try {
+                long done = 0;
+
+                while (done < length) {
+                    long bytes = channel.transferFrom(source, offset + done, length - done);
+
+                    if (bytes <= 0) {
+                        // End of stream
+                        return;
+                    }
+
+                    done += bytes;
+                }
+            } catch (IOException e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to write segment " + index + " of " + path, e);
+            }
+        }
+
+        @Override
+        public void finish() throws XenonException {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to close " + path, e);
+            }
+        }
+
+        @Override
+        public void abort() {
+            closeQuietly(channel);
+
+            // The file was extended to its final size, so it must not be left behind to look like a complete copy.
+            try {
+                Files.deleteIfExists(javaPath(path));
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * A local tar process. Its error output is collected by a separate thread, so the process never blocks on a full pipe.
+     */
+    static class LocalArchiveProcess extends ArchiveProcess {
+
+        private final Process process;
+        private final StringBuffer errors = new StringBuffer();
+
+        LocalArchiveProcess(Process process) {
+            this.process = process;
+
+            Thread t = new Thread(this::readErrors, "TarErrorReader");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        private void readErrors() {
+            try (InputStream err = process.getErrorStream()) {
+                byte[] buffer = new byte[1024];
+
+                for (int size = err.read(buffer); size > 0; size = err.read(buffer)) {
+                    if (errors.length() < MAX_ERROR_OUTPUT) {
+                        errors.append(new String(buffer, 0, size, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (IOException e) {
+                // The process is gone
+            }
+        }
+
+        @Override
+        public OutputStream getInput() {
+            return process.getOutputStream();
+        }
+
+        @Override
+        public InputStream getOutput() {
+            return process.getInputStream();
+        }
+
+        @Override
+        public int waitFor() throws XenonException {
+            try {
+                return process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new XenonException(ADAPTOR_NAME, "Interrupted while waiting for tar", e);
+            }
+        }
+
+        @Override
+        public String getErrorOutput() {
+            return errors.toString();
+        }
+
+        @Override
+        public void destroy() {
+            process.destroy();
+        }
+    }
+
+    /** Whether a local tar that supports NUL terminated file lists was found, or null if we have not looked yet. */
+    private static volatile Boolean tarAvailable;
+
     protected LocalFileSystem(String uniqueID, String location, String root, Path entryPath, int bufferSize, XenonProperties properties) {
+        this(uniqueID, location, root, entryPath, bufferSize, LocalFileAdaptor.COPY_METHOD_COPY, properties);
+    }
+
+    protected LocalFileSystem(String uniqueID, String location, String root, Path entryPath, int bufferSize, String copyMethod, XenonProperties properties) {
         super(uniqueID, ADAPTOR_NAME, location, entryPath, bufferSize, properties);
         this.root = root;
+        this.copyMethod = copyMethod;
     }
 
     java.nio.file.Path javaPath(Path path) {
@@ -174,6 +347,34 @@ public class LocalFileSystem extends FileSystem {
         }
     }
 
+    /*
+     * A single stat gives the type, size and modification time. The access checks, the hidden flag, the POSIX attributes and the owner and group names all
+     * take calls of their own, so they are only read when asked for.
+     */
+    private PathAttributes getLightweightAttributes(Path p, java.nio.file.Path path) throws XenonException {
+        try {
+            BasicFileAttributes basicAttributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+            LazyPathAttributes result = new LazyPathAttributes(ADAPTOR_NAME, () -> getLocalFileAttributes(p, path));
+
+            result.setPath(p);
+            result.setLastModifiedTime(basicAttributes.lastModifiedTime().toMillis());
+
+            result.setDirectory(basicAttributes.isDirectory());
+            result.setRegular(basicAttributes.isRegularFile());
+            result.setSymbolicLink(basicAttributes.isSymbolicLink());
+            result.setOther(basicAttributes.isOther());
+
+            if (result.isRegular()) {
+                result.setSize(basicAttributes.size());
+            }
+
+            return result;
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Cannot read attributes.", e);
+        }
+    }
+
     @Override
     public boolean isOpen() throws XenonException {
         return true;
@@ -195,6 +396,8 @@ public class LocalFileSystem extends FileSystem {
 
         try {
             Files.move(javaPath(absSource), javaPath(absTarget));
+            invalidateAttributes(absSource);
+            invalidateAttributes(absTarget);
         } catch (IOException e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to move " + absSource + " to " + absTarget, e);
         }
@@ -209,6 +412,7 @@ public class LocalFileSystem extends FileSystem {
 
         try {
             Files.createDirectory(javaPath(absdir));
+            invalidateAttributes(absdir);
         } catch (IOException e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to create directory " + dir, e);
         }
@@ -223,6 +427,7 @@ public class LocalFileSystem extends FileSystem {
 
         try {
             Files.createFile(javaPath(absFile));
+            invalidateAttributes(absFile);
         } catch (IOException e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to create file " + absFile, e);
         }
@@ -237,6 +442,7 @@ public class LocalFileSystem extends FileSystem {
 
         try {
             Files.createSymbolicLink(javaPath(absLink), javaPath(path));
+            invalidateAttributes(absLink);
         } catch (IOException e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to create link " + absLink + " to " + path, e);
         }
@@ -274,6 +480,201 @@ public class LocalFileSystem extends FileSystem {
         }
     }
 
+    @Override
+    protected List<PathAttributes> listDirectoryLightweight(Path dir) throws XenonException {
+
+        try (DirectoryStream<java.nio.file.Path> s = Files.newDirectoryStream(javaPath(dir))) {
+
+            ArrayList<PathAttributes> result = new ArrayList<>();
+
+            for (java.nio.file.Path p : s) {
+                result.add(getLightweightAttributes(dir.resolve(p.getFileName().toString()), p));
+            }
+
+            return result;
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to list directory: " + dir, e);
+        }
+    }
+
+    // Reading the attributes of an entry takes a system call of its own, so entries with a name that does not match are skipped before that.
+    @Override
+    protected List<PathAttributes> listDirectory(Path dir, ListQuery query) throws XenonException {
+
+        try (DirectoryStream<java.nio.file.Path> s = Files.newDirectoryStream(javaPath(dir), p -> query.matchesName(p.getFileName().toString()))) {
+
+            ArrayList<PathAttributes> result = new ArrayList<>();
+
+            for (java.nio.file.Path p : s) {
+                Path entry = dir.resolve(p.getFileName().toString());
+                PathAttributes a = query.isLightweight() ? getLightweightAttributes(entry, p) : getLocalFileAttributes(entry, p);
+
+                if (query.matches(a)) {
+                    result.add(a);
+                }
+            }
+
+            return result;
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to list directory: " + dir, e);
+        }
+    }
+
+    // Local directories are watched with the WatchService of the platform, which gets its events from the operating system instead of by polling.
+    @Override
+    protected void startWatch(String watchIdentifier, Path dir, WatchListener listener) throws XenonException {
+
+        synchronized (watches) {
+            try {
+                if (watchService == null) {
+                    WatchService service = FileSystems.getDefault().newWatchService();
+
+                    Thread t = new Thread(() -> processWatchEvents(service), "WatchThread-" + ADAPTOR_NAME + "-" + getLocation());
+                    t.setDaemon(true);
+                    t.start();
+
+                    watchService = service;
+                }
+
+                // Registering a directory again returns the same key, so its watches share the key.
+                WatchKey key = javaPath(dir).register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+
+                WatchedDirectory d = watchedKeys.computeIfAbsent(key, k -> new WatchedDirectory(dir, k));
+                d.listeners.put(watchIdentifier, listener);
+                watches.put(watchIdentifier, d);
+            } catch (IOException e) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to watch directory: " + dir, e);
+            }
+        }
+    }
+
+    @Override
+    protected boolean stopWatch(String watchIdentifier) {
+
+        synchronized (watches) {
+            WatchedDirectory d = watches.remove(watchIdentifier);
+
+            if (d == null) {
+                return false;
+            }
+
+            d.listeners.remove(watchIdentifier);
+
+            if (d.listeners.isEmpty()) {
+                watchedKeys.remove(d.key);
+                d.key.cancel();
+            }
+
+            return true;
+        }
+    }
+
+    private void processWatchEvents(WatchService service) {
+
+        while (true) {
+            WatchKey key;
+
+            try {
+                key = service.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            WatchedDirectory d;
+            List<WatchListener> listeners;
+
+            synchronized (watches) {
+                d = watchedKeys.get(key);
+                listeners = d == null ? new ArrayList<>() : new ArrayList<>(d.listeners.values());
+            }
+
+            for (WatchEvent<?> e : key.pollEvents()) {
+                if (d != null) {
+                    deliverWatchEvent(d.dir, e, listeners);
+                }
+            }
+
+            if (!key.reset() && d != null) {
+                watchFailed(d);
+            }
+        }
+    }
+
+    private void deliverWatchEvent(Path dir, WatchEvent<?> event, List<WatchListener> listeners) {
+
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            LOGGER.warn("Lost change events of watched directory {}", dir);
+            return;
+        }
+
+        Path path = dir.resolve(event.context().toString());
+        invalidateAttributes(path);
+
+        for (WatchListener l : listeners) {
+            try {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    l.pathCreated(path);
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    l.pathDeleted(path);
+                } else {
+                    l.pathModified(path);
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Watch listener of {} failed", dir, ex);
+            }
+        }
+    }
+
+    // The key is no longer valid, usually because the directory was removed. Only the watches that are still active when this is noticed are told, as
+    // unwatching the last watch also invalidates the key.
+    private void watchFailed(WatchedDirectory d) {
+
+        List<WatchListener> listeners;
+
+        synchronized (watches) {
+            if (watchedKeys.get(d.key) != d) {
+                return;
+            }
+
+            listeners = new ArrayList<>(d.listeners.values());
+            watchedKeys.remove(d.key);
+            watches.values().removeIf(w -> w == d);
+        }
+
+        XenonException exception = new NoSuchPathException(ADAPTOR_NAME, "Watched directory is no longer accessible: " + d.dir);
+
+        for (WatchListener l : listeners) {
+            try {
+                l.watchFailed(d.dir, exception);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Watch listener of {} failed", d.dir, ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws XenonException {
+
+        synchronized (watches) {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Failed to close watch service", e);
+                }
+                watchService = null;
+                watchedKeys.clear();
+                watches.clear();
+            }
+        }
+
+        super.close();
+    }
+
     @Override
     public InputStream readFromFile(Path path) throws XenonException {
 
@@ -287,13 +688,226 @@ public class LocalFileSystem extends FileSystem {
         }
     }
 
+    @Override
+    protected boolean canReadSegments() {
+        return true;
+    }
+
+    @Override
+    protected InputStream readSegment(Path path, long offset, long length) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+        assertFileExists(absPath);
+
+        FileChannel channel = null;
+
+        try {
+            channel = FileChannel.open(javaPath(absPath), StandardOpenOption.READ);
+            channel.position(offset);
+            return Channels.newInputStream(channel);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new XenonException(ADAPTOR_NAME, "Failed to create InputStream.", e);
+        }
+    }
+
+    @Override
+    protected boolean canWriteSegments() {
+        return true;
+    }
+
+    @Override
+    protected SegmentedWrite startSegmentedWrite(Path path, long size, long segmentSize) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+        assertPathNotExists(absPath);
+
+        FileChannel channel = null;
+
+        try {
+            channel = FileChannel.open(javaPath(absPath), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+
+            // A channel does not transfer data beyond the end of the file, so we extend it to its final size first.
+            if (size > 0) {
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+
+            return new LocalSegmentedWrite(absPath, channel);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new XenonException(ADAPTOR_NAME, "Failed to create file " + absPath, e);
+        }
+    }
+
+    @Override
+    protected boolean canOpenChannels() {
+        return true;
+    }
+
+    @Override
+    protected FileChannel openReadChannel(Path path) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+        assertFileExists(absPath);
+
+        try {
+            return FileChannel.open(javaPath(absPath), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to create channel.", e);
+        }
+    }
+
+    @Override
+    protected FileChannel openWriteChannel(Path path, long size) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+        assertPathNotExists(absPath);
+
+        try {
+            return FileChannel.open(javaPath(absPath), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to create channel.", e);
+        }
+    }
+
+    @Override
+    protected boolean canCopyOnServer(FileSystem destinationFS) {
+        return !LocalFileAdaptor.COPY_METHOD_COPY.equals(copyMethod) && destinationFS instanceof LocalFileSystem;
+    }
+
+    @Override
+    protected void copyOnServer(Path source, FileSystem destinationFS, Path destination) throws XenonException {
+
+        java.nio.file.Path from = javaPath(toAbsolutePath(source));
+        LocalFileSystem other = (LocalFileSystem) destinationFS;
+        java.nio.file.Path to = other.javaPath(other.toAbsolutePath(destination));
+
+        LOGGER.debug("copyOnServer ({}) source = {} target = {}", copyMethod, from, to);
+
+        if (LocalFileAdaptor.COPY_METHOD_HARDLINK.equals(copyMethod)) {
+            try {
+                Files.createLink(to, from);
+            } catch (IOException | java.lang.UnsupportedOperationException e) {
+                // For example, the files are on different volumes, or the file system does not support hard links
+                throw new UnsupportedOperationException(ADAPTOR_NAME, "Failed to link " + to + " to " + from, e);
+            }
+        } else {
+            reflink(from, to);
+        }
+    }
+
+    /*
+     * Java has no API to clone a file, so we use cp, which fails if the file system cannot clone the file.
+     */
+    private void reflink(java.nio.file.Path from, java.nio.file.Path to) throws XenonException {
+
+        if (LocalFileSystemUtils.isWindows()) {
+            throw new UnsupportedOperationException(ADAPTOR_NAME, "Cloning files is not supported on Windows");
+        }
+
+        String[] command = LocalFileSystemUtils.isOSX() ? new String[] { "cp", "-c", "--", from.toString(), to.toString() }
+                : new String[] { "cp", "--reflink=always", "--", from.toString(), to.toString() };
+
+        int exit;
+
+        try {
+            Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+            p.getOutputStream().close();
+            p.getInputStream().close();
+            exit = p.waitFor();
+        } catch (IOException e) {
+            throw new UnsupportedOperationException(ADAPTOR_NAME, "Failed to run cp to clone " + from, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XenonException(ADAPTOR_NAME, "Interrupted while cloning " + from, e);
+        }
+
+        if (exit != 0) {
+            try {
+                // cp may leave an empty file behind
+                Files.deleteIfExists(to);
+            } catch (IOException e) {
+                LOGGER.debug("Failed to remove partial clone {}", to, e);
+            }
+            throw new UnsupportedOperationException(ADAPTOR_NAME, "Failed to clone " + from + " to " + to + " (cp exit code " + exit + ")");
+        }
+    }
+
+    @Override
+    protected boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    protected boolean canStreamArchives() {
+
+        if (tarAvailable == null) {
+            tarAvailable = !LocalFileSystemUtils.isWindows() && findTar();
+        }
+
+        return tarAvailable;
+    }
+
+    private static boolean findTar() {
+        try {
+            Process p = new ProcessBuilder("tar", "--null", "-cf", "/dev/null", "-T", "/dev/null").redirectErrorStream(true).start();
+            p.getOutputStream().close();
+            p.getInputStream().close();
+            return p.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    protected ArchiveProcess startArchiveReader(Path dir, boolean compress) throws XenonException {
+
+        Path absDir = toAbsolutePath(dir);
+        assertDirectoryExists(absDir);
+
+        return startTar(absDir, "tar", "--null", compress ? "-czf" : "-cf", "-", "-C", javaPath(absDir).toString(), "-T", "-");
+    }
+
+    @Override
+    protected ArchiveProcess startArchiveWriter(Path dir, boolean compress) throws XenonException {
+
+        Path absDir = toAbsolutePath(dir);
+        assertDirectoryExists(absDir);
+
+        return startTar(absDir, "tar", compress ? "-xzf" : "-xf", "-", "-C", javaPath(absDir).toString());
+    }
+
+    private ArchiveProcess startTar(Path dir, String... command) throws XenonException {
+        try {
+            return new LocalArchiveProcess(new ProcessBuilder(command).start());
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to start tar in " + dir, e);
+        }
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
     @Override
     public OutputStream writeToFile(Path path, long size) throws XenonException {
 
         Path absPath = toAbsolutePath(path);
         assertPathNotExists(absPath);
         try {
-            return Files.newOutputStream(javaPath(absPath), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            OutputStream out = Files.newOutputStream(javaPath(absPath), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            invalidateAttributes(absPath);
+            return out;
         } catch (IOException e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to create OutputStream.", e);
         }
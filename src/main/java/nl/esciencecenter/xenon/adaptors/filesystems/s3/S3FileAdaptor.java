@@ -56,8 +56,8 @@ public class S3FileAdaptor extends FileAdaptor {
     private static final String[] ADAPTOR_LOCATIONS = new String[] { "[http://host[:port]]/bucketname[/workdir]" };
 
     /** List of properties supported by this FTP adaptor */
-    private static final XenonPropertyDescription[] VALID_PROPERTIES = new XenonPropertyDescription[] {
-            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes).") };
+    private static final XenonPropertyDescription[] VALID_PROPERTIES = addCopyProperties(PREFIX,
+            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes)."));
 
     public S3FileAdaptor() {
         super("s3", ADAPTOR_DESCRIPTION, ADAPTOR_LOCATIONS, VALID_PROPERTIES);
@@ -126,6 +126,8 @@ public class S3FileAdaptor extends FileAdaptor {
                     "Invalid value for " + BUFFER_SIZE + ": " + bufferSize + " (must be between 1 and " + Integer.MAX_VALUE + ")");
         }
 
+        checkCopyProperties(ADAPTOR_NAME, PREFIX, xp);
+
         if (!(credential instanceof PasswordCredential)) {
             throw new InvalidCredentialException(ADAPTOR_NAME, "No secret key given for s3 connection.");
         }
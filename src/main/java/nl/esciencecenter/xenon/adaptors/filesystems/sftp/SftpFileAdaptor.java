@@ -77,6 +77,9 @@ public class SftpFileAdaptor extends FileAdaptor {
     /** Enable strict host key checking. */
     public static final String AUTOMATICALLY_ADD_HOST_KEY = PREFIX + "autoAddHostKey";
 
+    /** Compress the traffic of the SSH session. */
+    public static final String COMPRESSION = PREFIX + "compression";
+
     /** Add gateway to access machine. */
     public static final String GATEWAY = PREFIX + "gateway";
 
@@ -90,17 +93,18 @@ public class SftpFileAdaptor extends FileAdaptor {
     private static final String[] ADAPTOR_LOCATIONS = new String[] { "host[:port][/workdir]" };
 
     /** List of properties supported by this SSH adaptor */
-    private static final XenonPropertyDescription[] VALID_PROPERTIES = new XenonPropertyDescription[] {
+    private static final XenonPropertyDescription[] VALID_PROPERTIES = addCopyProperties(PREFIX,
             new XenonPropertyDescription(AUTOMATICALLY_ADD_HOST_KEY, Type.BOOLEAN, "true", "Automatically add unknown host keys to known_hosts."),
             new XenonPropertyDescription(STRICT_HOST_KEY_CHECKING, Type.BOOLEAN, "true", "Enable strict host key checking."),
             new XenonPropertyDescription(LOAD_STANDARD_KNOWN_HOSTS, Type.BOOLEAN, "true", "Load the standard known_hosts file."),
             new XenonPropertyDescription(LOAD_SSH_CONFIG, Type.BOOLEAN, "true", "Load the OpenSSH config file."),
             new XenonPropertyDescription(SSH_CONFIG_FILE, Type.STRING, null, "OpenSSH config filename."),
             new XenonPropertyDescription(AGENT, Type.BOOLEAN, "false", "Use a (local) ssh-agent."),
+            new XenonPropertyDescription(COMPRESSION, Type.BOOLEAN, "false", "Compress the traffic of the SSH session (zlib), which pays off on slow links."),
             new XenonPropertyDescription(AGENT_FORWARDING, Type.BOOLEAN, "false", "Use ssh-agent forwarding when setting up a connection."),
             new XenonPropertyDescription(CONNECTION_TIMEOUT, Type.NATURAL, "10000",
                     "The timeout for creating and authenticating connections (in milliseconds)."),
-            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes).") };
+            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes)."));
 
     public SftpFileAdaptor() {
         super(ADAPTOR_NAME, ADAPTOR_DESCRIPTION, ADAPTOR_LOCATIONS, VALID_PROPERTIES);
@@ -129,13 +133,16 @@ public class SftpFileAdaptor extends FileAdaptor {
                     "Invalid value for " + BUFFER_SIZE + ": " + bufferSize + " (must be between 1 and " + Integer.MAX_VALUE + ")");
         }
 
+        checkCopyProperties(ADAPTOR_NAME, PREFIX, xp);
+
         boolean loadSSHConfig = xp.getBooleanProperty(LOAD_SSH_CONFIG);
         boolean strictHostCheck = xp.getBooleanProperty(STRICT_HOST_KEY_CHECKING);
         boolean addHostKey = xp.getBooleanProperty(AUTOMATICALLY_ADD_HOST_KEY);
         boolean useSSHAgent = xp.getBooleanProperty(AGENT);
         boolean useAgentForwarding = xp.getBooleanProperty(AGENT_FORWARDING);
+        boolean compression = xp.getBooleanProperty(COMPRESSION);
 
-        SshClient client = SSHUtil.createSSHClient(loadSSHConfig, strictHostCheck, addHostKey, useSSHAgent, useAgentForwarding);
+        SshClient client = SSHUtil.createSSHClient(loadSSHConfig, strictHostCheck, addHostKey, useSSHAgent, useAgentForwarding, compression);
 
         long timeout = xp.getNaturalProperty(CONNECTION_TIMEOUT);
 
@@ -17,25 +17,43 @@ package nl.esciencecenter.xenon.adaptors.filesystems.sftp;
 
 import static nl.esciencecenter.xenon.adaptors.filesystems.sftp.SftpFileAdaptor.ADAPTOR_NAME;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sshd.client.channel.ChannelExec;
+import org.apache.sshd.client.channel.ClientChannelEvent;
+import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.client.subsystem.sftp.SftpClient;
+import org.apache.sshd.client.subsystem.sftp.extensions.CopyDataExtension;
 import org.apache.sshd.common.subsystem.sftp.SftpConstants;
 import org.apache.sshd.common.subsystem.sftp.SftpException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import nl.esciencecenter.xenon.UnsupportedOperationException;
 import nl.esciencecenter.xenon.XenonException;
 import nl.esciencecenter.xenon.adaptors.NotConnectedException;
 import nl.esciencecenter.xenon.adaptors.XenonProperties;
 import nl.esciencecenter.xenon.adaptors.filesystems.EndOfFileException;
+import nl.esciencecenter.xenon.adaptors.filesystems.LazyPathAttributes;
 import nl.esciencecenter.xenon.adaptors.filesystems.NoSpaceException;
 import nl.esciencecenter.xenon.adaptors.filesystems.PathAttributesImplementation;
 import nl.esciencecenter.xenon.adaptors.filesystems.PermissionDeniedException;
@@ -53,11 +71,186 @@ public class SftpFileSystem extends FileSystem {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SftpFileSystem.class);
 
+    /** The number of lstat requests that may be outstanding on the channel during a batch lookup of attributes. */
+    private static final int MAX_OUTSTANDING_STATS = 16;
+
     private final SftpClient client;
 
+    private final ThreadPoolExecutor statPool;
+
+    /**
+     * Reads a file starting at an offset. Each stream uses its own SFTP channel, so concurrent segments are not limited by the flow control window of a single
+     * channel. The channel is closed with the stream.
+     */
+    class SftpSegmentInputStream extends InputStream {
+
+        private final SftpClient channel;
+        private final SftpClient.CloseableHandle handle;
+        private long offset;
+
+        SftpSegmentInputStream(SftpClient channel, SftpClient.CloseableHandle handle, long offset) {
+            this.channel = channel;
+            this.handle = handle;
+            this.offset = offset;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) <= 0 ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            if (len == 0) {
+                return 0;
+            }
+
+            int bytes = channel.read(handle, offset, b, off, len);
+
+            if (bytes > 0) {
+                offset += bytes;
+            }
+
+            return bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                handle.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the segments of a file at their offset. Like the segments that are read, each segment is written on its own SFTP channel.
+     */
+    class SftpSegmentedWrite extends SegmentedWrite {
+
+        private final Path path;
+        private final int bufferSize;
+
+        SftpSegmentedWrite(Path path, int bufferSize) {
+            this.path = path;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void writeSegment(int index, long offset, long length, InputStream in) throws XenonException {
+
+            byte[] buffer = takeBuffer(bufferSize);
+
+            try (SftpClient channel = openChannel(); SftpClient.CloseableHandle handle = channel.open(path.toString(), SftpClient.OpenMode.Write)) {
+                long position = offset;
+                int size = in.read(buffer);
+
+                while (size > 0) {
+                    channel.write(handle, position, buffer, 0, size);
+                    position += size;
+                    size = in.read(buffer);
+                }
+            } catch (IOException e) {
+                throw sftpExceptionToXenonException(e, "Failed to write segment " + index + " of " + path);
+            } finally {
+                releaseBuffer(buffer);
+            }
+        }
+
+        @Override
+        public void finish() throws XenonException {
+            // Each segment closed its own handle, so the file is complete.
+        }
+
+        @Override
+        public void abort() {
+            try {
+                client.remove(path.toString());
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * A tar process on the server, running on an exec channel of the SSH session. The start of its error output is collected in memory.
+     */
+    static class SftpArchiveProcess extends ArchiveProcess {
+
+        /** Keeps the first MAX_ERROR_OUTPUT bytes written to it, and drops the rest. */
+        static class ErrorOutputStream extends ByteArrayOutputStream {
+
+            @Override
+            public synchronized void write(int b) {
+                if (count < MAX_ERROR_OUTPUT) {
+                    super.write(b);
+                }
+            }
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                super.write(b, off, Math.max(0, Math.min(len, MAX_ERROR_OUTPUT - count)));
+            }
+        }
+
+        private final ChannelExec channel;
+        private final ErrorOutputStream errors = new ErrorOutputStream();
+
+        SftpArchiveProcess(ClientSession session, String command, long timeout) throws IOException {
+            channel = session.createExecChannel(command);
+            channel.setErr(errors);
+            channel.open().verify(timeout);
+        }
+
+        @Override
+        public OutputStream getInput() {
+            return channel.getInvertedIn();
+        }
+
+        @Override
+        public InputStream getOutput() {
+            return channel.getInvertedOut();
+        }
+
+        @Override
+        public int waitFor() throws XenonException {
+
+            channel.waitFor(EnumSet.of(ClientChannelEvent.CLOSED), 0L);
+
+            Integer status = channel.getExitStatus();
+            return status == null ? -1 : status;
+        }
+
+        @Override
+        public String getErrorOutput() {
+            return new String(errors.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void destroy() {
+            channel.close(true);
+        }
+    }
+
+    /** The time to wait for the exec channel of a tar process to open. */
+    private static final long ARCHIVE_TIMEOUT = 10000L;
+
+    /** Whether the server has a tar that supports NUL terminated file lists, or null if we have not looked yet. */
+    private volatile Boolean tarAvailable;
+
     protected SftpFileSystem(String uniqueID, String name, String location, Path entryPath, int bufferSize, SftpClient client, XenonProperties properties) {
         super(uniqueID, name, location, entryPath, bufferSize, properties);
         this.client = client;
+
+        this.statPool = new ThreadPoolExecutor(MAX_OUTSTANDING_STATS, MAX_OUTSTANDING_STATS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "StatThread-" + name + "-" + uniqueID);
+            t.setDaemon(true);
+            return t;
+        });
+        this.statPool.allowCoreThreadTimeOut(true);
     }
 
     @Override
@@ -65,6 +258,8 @@ public class SftpFileSystem extends FileSystem {
 
         LOGGER.debug("close fileSystem = {}", this);
 
+        statPool.shutdownNow();
+
         try {
             client.close();
         } catch (IOException e) {
@@ -99,6 +294,8 @@ public class SftpFileSystem extends FileSystem {
 
         try {
             client.rename(absSource.toString(), absTarget.toString());
+            invalidateAttributes(absSource);
+            invalidateAttributes(absTarget);
         } catch (IOException e) {
             throw sftpExceptionToXenonException(e, "Failed to rename path");
         }
@@ -117,6 +314,7 @@ public class SftpFileSystem extends FileSystem {
 
         try {
             client.mkdir(absDir.toString());
+            invalidateAttributes(absDir);
         } catch (IOException e) {
             throw sftpExceptionToXenonException(e, "Failed to mkdir");
         }
@@ -158,6 +356,7 @@ public class SftpFileSystem extends FileSystem {
 
         try {
             client.symLink(absLink.toString(), path.toString());
+            invalidateAttributes(absLink);
         } catch (IOException e) {
             throw sftpExceptionToXenonException(e, "Cannot create link: " + absLink + " -> " + path);
         }
@@ -228,6 +427,45 @@ public class SftpFileSystem extends FileSystem {
         }
     }
 
+    /*
+     * The server sends all attributes along with the listing, but converting the times and permissions costs more than the scan itself on large directories.
+     * The conversion is done when the attributes are first asked for, from the attributes that were received.
+     */
+    @Override
+    protected List<PathAttributes> listDirectoryLightweight(Path path) throws XenonException {
+
+        try {
+            assertDirectoryExists(path);
+
+            ArrayList<PathAttributes> result = new ArrayList<>();
+
+            for (SftpClient.DirEntry f : client.readDir(path.toString())) {
+
+                Path entry = path.resolve(f.getFilename());
+                SftpClient.Attributes attributes = f.getAttributes();
+
+                LazyPathAttributes a = new LazyPathAttributes(ADAPTOR_NAME, () -> convertAttributes(entry, attributes));
+
+                a.setPath(entry);
+                a.setDirectory(attributes.isDirectory());
+                a.setRegular(attributes.isRegularFile());
+                a.setOther(attributes.isOther());
+                a.setSymbolicLink(attributes.isSymbolicLink());
+                a.setSize(attributes.getSize());
+
+                if (attributes.getModifyTime() != null) {
+                    a.setLastModifiedTime(convertTime(attributes.getModifyTime()));
+                }
+
+                result.add(a);
+            }
+
+            return result;
+        } catch (IOException e) {
+            throw sftpExceptionToXenonException(e, "Failed to list directory " + path);
+        }
+    }
+
     @Override
     public InputStream readFromFile(Path path) throws XenonException {
         LOGGER.debug("newInputStream path = {}", path);
@@ -249,6 +487,163 @@ public class SftpFileSystem extends FileSystem {
         return in;
     }
 
+    @Override
+    protected boolean canReadSegments() {
+        return true;
+    }
+
+    @Override
+    protected InputStream readSegment(Path path, long offset, long length) throws XenonException {
+        LOGGER.debug("readSegment path = {} offset = {} length = {}", path, offset, length);
+
+        Path absPath = toAbsolutePath(path);
+
+        assertFileExists(absPath);
+
+        SftpClient channel = null;
+
+        try {
+            channel = openChannel();
+            return new SftpSegmentInputStream(channel, channel.open(absPath.toString(), SftpClient.OpenMode.Read), offset);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new XenonException(ADAPTOR_NAME, "Failed to open stream to read from " + absPath, e);
+        }
+    }
+
+    @Override
+    protected boolean canWriteSegments() {
+        return true;
+    }
+
+    @Override
+    protected SegmentedWrite startSegmentedWrite(Path path, long size, long segmentSize) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+        assertPathNotExists(absPath);
+        assertParentDirectoryExists(absPath);
+
+        // The segments open the file on their own channels, so it is only created here.
+        try (SftpClient.CloseableHandle handle = client.open(absPath.toString(), SftpClient.OpenMode.Write, SftpClient.OpenMode.Create,
+                SftpClient.OpenMode.Truncate)) {
+            return new SftpSegmentedWrite(absPath, getBufferSize());
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed open file to write to: " + absPath, e);
+        }
+    }
+
+    /*
+     * Open an additional SFTP channel on the SSH session of this file system. OpenSSH allows 10 channels per session by default (MaxSessions).
+     */
+    private SftpClient openChannel() throws IOException {
+        return client.getClientSession().createSftpClient();
+    }
+
+    private static void closeQuietly(SftpClient channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    @Override
+    protected boolean canCopyOnServer(FileSystem destinationFS) {
+
+        if (!(destinationFS instanceof SftpFileSystem)) {
+            return false;
+        }
+
+        SftpFileSystem other = (SftpFileSystem) destinationFS;
+
+        return getLocation().equals(other.getLocation())
+                && String.valueOf(client.getClientSession().getUsername()).equals(other.client.getClientSession().getUsername());
+    }
+
+    @Override
+    protected void copyOnServer(Path source, FileSystem destinationFS, Path destination) throws XenonException {
+
+        Path absSource = toAbsolutePath(source);
+        Path absTarget = ((SftpFileSystem) destinationFS).toAbsolutePath(destination);
+
+        LOGGER.debug("copyOnServer source = {} target = {}", absSource, absTarget);
+
+        try {
+            CopyDataExtension copyData = client.getExtension(CopyDataExtension.class);
+
+            if (copyData.isSupported()) {
+                try (SftpClient.CloseableHandle in = client.open(absSource.toString(), SftpClient.OpenMode.Read);
+                        SftpClient.CloseableHandle out = client.open(absTarget.toString(), SftpClient.OpenMode.Write, SftpClient.OpenMode.Create,
+                                SftpClient.OpenMode.Exclusive)) {
+                    // A length of 0 copies the data up to the end of the source file.
+                    copyData.copyData(in, 0, 0, out, 0);
+                }
+            } else {
+                client.getClientSession().executeRemoteCommand("cp -- " + quote(absSource.toString()) + " " + quote(absTarget.toString()));
+            }
+        } catch (IOException e) {
+            try {
+                if (exists(absTarget)) {
+                    delete(absTarget, false);
+                }
+            } catch (XenonException e1) {
+                LOGGER.debug("Failed to remove partial copy {}", absTarget, e1);
+            }
+            throw new UnsupportedOperationException(ADAPTOR_NAME, "Server side copy from " + absSource + " to " + absTarget + " failed", e);
+        }
+    }
+
+    @Override
+    protected boolean canStreamArchives() {
+
+        if (tarAvailable == null) {
+            try {
+                client.getClientSession().executeRemoteCommand("tar --null -cf /dev/null -T /dev/null");
+                tarAvailable = true;
+            } catch (IOException e) {
+                LOGGER.debug("No usable tar found on server, files will not be bundled", e);
+                tarAvailable = false;
+            }
+        }
+
+        return tarAvailable;
+    }
+
+    @Override
+    protected ArchiveProcess startArchiveReader(Path dir, boolean compress) throws XenonException {
+
+        Path absDir = toAbsolutePath(dir);
+        assertDirectoryExists(absDir);
+
+        return startTar(absDir, "tar --null " + (compress ? "-czf" : "-cf") + " - -C " + quote(absDir.toString()) + " -T -");
+    }
+
+    @Override
+    protected ArchiveProcess startArchiveWriter(Path dir, boolean compress) throws XenonException {
+
+        Path absDir = toAbsolutePath(dir);
+        assertDirectoryExists(absDir);
+
+        return startTar(absDir, "tar " + (compress ? "-xzf" : "-xf") + " - -C " + quote(absDir.toString()));
+    }
+
+    private ArchiveProcess startTar(Path dir, String command) throws XenonException {
+
+        LOGGER.debug("startTar dir = {} command = {}", dir, command);
+
+        try {
+            return new SftpArchiveProcess(client.getClientSession(), command, ARCHIVE_TIMEOUT);
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to start tar in " + dir, e);
+        }
+    }
+
+    private static String quote(String path) {
+        return "'" + path.replace("'", "'\\''") + "'";
+    }
+
     @Override
     public OutputStream writeToFile(Path path, long size) throws XenonException {
 
@@ -257,7 +652,9 @@ public class SftpFileSystem extends FileSystem {
         assertParentDirectoryExists(absPath);
 
         try {
-            return client.write(absPath.toString(), SftpClient.OpenMode.Write, SftpClient.OpenMode.Create, SftpClient.OpenMode.Truncate);
+            OutputStream out = client.write(absPath.toString(), SftpClient.OpenMode.Write, SftpClient.OpenMode.Create, SftpClient.OpenMode.Truncate);
+            invalidateAttributes(absPath);
+            return out;
         } catch (IOException e) {
             throw new XenonException(ADAPTOR_NAME, "Failed open stream to write to: " + absPath, e);
         }
@@ -287,6 +684,75 @@ public class SftpFileSystem extends FileSystem {
         return convertAttributes(absPath, stat(absPath));
     }
 
+    /*
+     * Each lstat waits for its own response, so the lookups are spread over several threads to keep multiple requests outstanding on the shared channel. This
+     * hides the round trip time of all but the first request.
+     */
+    @Override
+    public Map<Path, PathAttributes> getAttributes(Collection<Path> paths) throws XenonException {
+
+        if (paths == null) {
+            throw new IllegalArgumentException("Paths is null");
+        }
+
+        // Check all paths before submitting anything, so an invalid one does not leave lookups running.
+        Map<Path, Path> absPaths = new LinkedHashMap<>();
+
+        for (Path p : paths) {
+            if (p == null) {
+                throw new IllegalArgumentException("Paths contains null");
+            }
+            absPaths.put(p, toAbsolutePath(p));
+        }
+
+        assertIsOpen();
+
+        Map<Path, Future<PathAttributes>> pending = new LinkedHashMap<>();
+        Map<Path, PathAttributes> result = new LinkedHashMap<>();
+
+        try {
+            for (Map.Entry<Path, Path> e : absPaths.entrySet()) {
+                Path absPath = e.getValue();
+                pending.put(e.getKey(), statPool.submit(() -> lookup(absPath)));
+            }
+
+            for (Map.Entry<Path, Future<PathAttributes>> e : pending.entrySet()) {
+
+                PathAttributes a = e.getValue().get();
+
+                if (a != null) {
+                    result.put(e.getKey(), a);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XenonException(ADAPTOR_NAME, "Interrupted while retrieving attributes", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XenonException) {
+                throw (XenonException) e.getCause();
+            }
+            throw new XenonException(ADAPTOR_NAME, "Failed to retrieve attributes", e.getCause());
+        } catch (RejectedExecutionException e) {
+            // The file system was closed after the check above.
+            throw new NotConnectedException(ADAPTOR_NAME, "Connection is closed", e);
+        } finally {
+            for (Future<PathAttributes> f : pending.values()) {
+                f.cancel(false);
+            }
+        }
+
+        return result;
+    }
+
+    // Returns null if the path does not exist.
+    private PathAttributes lookup(Path absPath) throws XenonException {
+        try {
+            return convertAttributes(absPath, stat(absPath));
+        } catch (NoSuchPathException e) {
+            return null;
+        }
+    }
+
     @Override
     public Path readSymbolicLink(Path link) throws XenonException {
         LOGGER.debug("readSymbolicLink path = {}", link);
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.webdav;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+
+import com.github.sardine.impl.SardineImpl;
+import com.github.sardine.impl.handler.VoidResponseHandler;
+import com.github.sardine.impl.io.ContentLengthInputStream;
+import com.github.sardine.impl.io.HttpMethodReleaseInputStream;
+
+/**
+ * A Sardine client that can also read part of a file. The Sardine API does not expose the status of a GET request, which is needed to tell whether the
+ * server returned the requested range or ignored it.
+ */
+class WebdavClient extends SardineImpl {
+
+    WebdavClient() {
+        super();
+    }
+
+    WebdavClient(String username, String password) {
+        super(username, password);
+    }
+
+    /**
+     * Read part of a file.
+     *
+     * @param url
+     *            the url of the file.
+     * @param offset
+     *            the offset of the first byte to read.
+     * @param length
+     *            the number of bytes to read.
+     * @return a stream providing the requested bytes, or <code>null</code> if the server does not support reading part of a file.
+     * @throws IOException
+     *             if the request failed.
+     */
+    InputStream getRange(String url, long offset, long length) throws IOException {
+
+        HttpGet get = new HttpGet(url);
+        get.addHeader("Range", "bytes=" + offset + "-" + (offset + length - 1));
+
+        HttpResponse response = execute(get);
+
+        try {
+            new VoidResponseHandler().handleResponse(response);
+
+            // A server that ignores the range answers 200 with the entire file, so the response is dropped without reading it.
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT) {
+                get.abort();
+                return null;
+            }
+
+            return new ContentLengthInputStream(new HttpMethodReleaseInputStream(response), response.getEntity().getContentLength());
+        } catch (IOException e) {
+            get.abort();
+            throw e;
+        }
+    }
+}
@@ -21,8 +21,6 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.sardine.Sardine;
-import com.github.sardine.SardineFactory;
 
 import nl.esciencecenter.xenon.InvalidLocationException;
 import nl.esciencecenter.xenon.InvalidPropertyException;
@@ -57,8 +55,8 @@ public class WebdavFileAdaptor extends FileAdaptor {
     private static final String[] ADAPTOR_LOCATIONS = new String[] { "http://host[:port][/workdir]", "https://host[:port][/workdir]" };
 
     /** List of properties supported by this FTP adaptor */
-    private static final XenonPropertyDescription[] VALID_PROPERTIES = new XenonPropertyDescription[] {
-            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes).") };
+    private static final XenonPropertyDescription[] VALID_PROPERTIES = addCopyProperties(PREFIX,
+            new XenonPropertyDescription(BUFFER_SIZE, Type.SIZE, "64K", "The buffer size to use when copying files (in bytes)."));
 
     public static final int OK_CODE = 200;
 
@@ -98,6 +96,8 @@ public class WebdavFileAdaptor extends FileAdaptor {
                     "Invalid value for " + BUFFER_SIZE + ": " + bufferSize + " (must be between 1 and " + Integer.MAX_VALUE + ")");
         }
 
+        checkCopyProperties(ADAPTOR_NAME, PREFIX, xp);
+
         URI uri;
 
         try {
@@ -106,13 +106,13 @@ public class WebdavFileAdaptor extends FileAdaptor {
             throw new InvalidLocationException(ADAPTOR_NAME, "Failed to parse location: " + location, e);
         }
 
-        Sardine sardine = null;
+        WebdavClient sardine = null;
 
         if (credential == null || credential instanceof DefaultCredential) {
-            sardine = SardineFactory.begin();
+            sardine = new WebdavClient();
         } else if (credential instanceof PasswordCredential) {
             PasswordCredential tmp = (PasswordCredential) credential;
-            sardine = SardineFactory.begin(tmp.getUsername(), new String(tmp.getPassword()));
+            sardine = new WebdavClient(tmp.getUsername(), new String(tmp.getPassword()));
         }
 
         String server = uri.getScheme() + "://" + uri.getHost();
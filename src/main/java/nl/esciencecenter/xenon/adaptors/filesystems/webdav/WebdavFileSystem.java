@@ -23,7 +23,9 @@ import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.http.HttpStatus;
@@ -31,7 +33,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.sardine.DavResource;
-import com.github.sardine.Sardine;
 import com.github.sardine.impl.SardineException;
 
 import nl.esciencecenter.xenon.UnsupportedOperationException;
@@ -49,10 +50,12 @@ public class WebdavFileSystem extends FileSystem {
 
     class StreamToFileWriter extends Thread {
 
+        private final Path path;
         private final String url;
         private final InputStream in;
 
-        StreamToFileWriter(String url, InputStream in) {
+        StreamToFileWriter(Path path, String url, InputStream in) {
+            this.path = path;
             this.url = url;
             this.in = in;
             setName("WebdavStreamToFileWriter");
@@ -65,14 +68,17 @@ public class WebdavFileSystem extends FileSystem {
                 client.put(url, in);
             } catch (Exception e) {
 
+            } finally {
+                // The file only appears once the upload is done.
+                invalidateAttributes(path);
             }
         }
     }
 
-    private final Sardine client;
+    private final WebdavClient client;
     private final String server;
 
-    protected WebdavFileSystem(String uniqueID, String name, String location, String server, Path entryPath, int bufferSize, Sardine client,
+    protected WebdavFileSystem(String uniqueID, String name, String location, String server, Path entryPath, int bufferSize, WebdavClient client,
             XenonProperties properties) {
         super(uniqueID, name, location, entryPath, bufferSize, properties);
         this.client = client;
@@ -174,13 +180,15 @@ public class WebdavFileSystem extends FileSystem {
                 client.move(getFilePath(absSource), getFilePath(absTarget), false);
             }
         } catch (SardineException e) {
-            if (e.getStatusCode() == HttpStatus.SC_MOVED_PERMANENTLY) {
-                return;
+            if (e.getStatusCode() != HttpStatus.SC_MOVED_PERMANENTLY) {
+                throw new XenonException(ADAPTOR_NAME, "Failed to move from " + absSource + " to " + absTarget, e);
             }
-            throw new XenonException(ADAPTOR_NAME, "Failed to move from " + absSource + " to " + absTarget, e);
         } catch (Exception e1) {
             throw new XenonException(ADAPTOR_NAME, "Failed to move from " + absSource + " to " + absTarget, e1);
         }
+
+        invalidateAttributes(absSource);
+        invalidateAttributes(absTarget);
     }
 
     @Override
@@ -193,6 +201,7 @@ public class WebdavFileSystem extends FileSystem {
 
         try {
             client.createDirectory(getDirectoryPath(absDir));
+            invalidateAttributes(absDir);
         } catch (Exception e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to create directory: " + absDir, e);
         }
@@ -208,6 +217,7 @@ public class WebdavFileSystem extends FileSystem {
 
         try {
             client.put(getFilePath(absFile), new byte[0]);
+            invalidateAttributes(absFile);
         } catch (Exception e) {
             throw new XenonException(ADAPTOR_NAME, "Failed to create file: " + absFile, e);
         }
@@ -261,6 +271,56 @@ public class WebdavFileSystem extends FileSystem {
         }
     }
 
+    @Override
+    protected boolean canReadSegments() {
+        return true;
+    }
+
+    @Override
+    protected InputStream readSegment(Path path, long offset, long length) throws XenonException {
+
+        Path absPath = toAbsolutePath(path);
+        assertFileExists(absPath);
+
+        InputStream in;
+
+        try {
+            in = client.getRange(getFilePath(absPath), offset, length);
+        } catch (IOException e) {
+            throw new XenonException(ADAPTOR_NAME, "Failed to access file: " + absPath, e);
+        }
+
+        if (in == null) {
+            throw new UnsupportedOperationException(ADAPTOR_NAME, "Server does not support reading part of file: " + absPath);
+        }
+
+        return in;
+    }
+
+    /*
+     * A WebDAV COPY request copies a resource within the server. It is sent with the credentials of the source file system, so if these do not allow
+     * writing the destination the copy fails, and the data is transferred instead.
+     */
+    @Override
+    protected boolean canCopyOnServer(FileSystem destinationFS) {
+        return destinationFS instanceof WebdavFileSystem && server.equals(((WebdavFileSystem) destinationFS).server);
+    }
+
+    @Override
+    protected void copyOnServer(Path source, FileSystem destinationFS, Path destination) throws XenonException {
+
+        String from = getFilePath(toAbsolutePath(source));
+        String to = getFilePath(((WebdavFileSystem) destinationFS).toAbsolutePath(destination));
+
+        LOGGER.debug("copyOnServer source = {} target = {}", from, to);
+
+        try {
+            client.copy(from, to, false);
+        } catch (IOException e) {
+            throw new UnsupportedOperationException(ADAPTOR_NAME, "Server side copy from " + from + " to " + to + " failed", e);
+        }
+    }
+
     @Override
     public OutputStream writeToFile(Path file, long size) throws XenonException {
 
@@ -273,7 +333,8 @@ public class WebdavFileSystem extends FileSystem {
             PipedOutputStream out = new PipedOutputStream(in);
 
             // Create a separate thread here to handle the writing
-            new StreamToFileWriter(getFilePath(absFile), in).start();
+            new StreamToFileWriter(absFile, getFilePath(absFile), in).start();
+            invalidateAttributes(absFile);
 
             return out;
         } catch (Exception e) {
@@ -283,7 +344,7 @@ public class WebdavFileSystem extends FileSystem {
 
     @Override
     public OutputStream appendToFile(Path file) throws XenonException {
-        throw new XenonException(ADAPTOR_NAME, "Appending to file not supported");
+        throw new UnsupportedOperationException(ADAPTOR_NAME, "Appending to file not supported");
     }
 
     @Override
@@ -305,6 +366,12 @@ public class WebdavFileSystem extends FileSystem {
         }
     }
 
+    // A PROPFIND of depth 1 on the parent returns the properties of all its entries in a single request.
+    @Override
+    public Map<Path, PathAttributes> getAttributes(Collection<Path> paths) throws XenonException {
+        return getAttributesFromListings(paths);
+    }
+
     @Override
     public Path readSymbolicLink(Path link) throws XenonException {
         throw new XenonException(ADAPTOR_NAME, "Operation not supported");
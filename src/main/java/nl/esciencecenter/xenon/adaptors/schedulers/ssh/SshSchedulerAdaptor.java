@@ -71,6 +71,9 @@ public class SshSchedulerAdaptor extends SchedulerAdaptor {
     /** Enable strict host key checking. */
     public static final String AUTOMATICALLY_ADD_HOST_KEY = PREFIX + "autoAddHostKey";
 
+    /** Compress the traffic of the SSH session. */
+    public static final String COMPRESSION = PREFIX + "compression";
+
     /** Add gateway to access machine. */
     public static final String GATEWAY = PREFIX + "gateway";
 
@@ -114,6 +117,7 @@ public class SshSchedulerAdaptor extends SchedulerAdaptor {
             new XenonPropertyDescription(LOAD_SSH_CONFIG, Type.BOOLEAN, "true", "Load the OpenSSH config file."),
             new XenonPropertyDescription(SSH_CONFIG_FILE, Type.STRING, null, "OpenSSH config filename."),
             new XenonPropertyDescription(AGENT, Type.BOOLEAN, "false", "Use a (local) ssh-agent."),
+            new XenonPropertyDescription(COMPRESSION, Type.BOOLEAN, "false", "Compress the traffic of the SSH session (zlib), which pays off on slow links."),
             new XenonPropertyDescription(AGENT_FORWARDING, Type.BOOLEAN, "false", "Use ssh-agent forwarding"),
             new XenonPropertyDescription(TIMEOUT, Type.LONG, "10000", "The timeout for the connection setup and authetication (in milliseconds)."),
             new XenonPropertyDescription(POLLING_DELAY, Type.LONG, "1000", "The polling delay for monitoring running jobs (in milliseconds)."),
@@ -148,8 +152,9 @@ public class SshSchedulerAdaptor extends SchedulerAdaptor {
         boolean addHostKey = xp.getBooleanProperty(AUTOMATICALLY_ADD_HOST_KEY);
         boolean useSSHAgent = xp.getBooleanProperty(AGENT);
         boolean useAgentForwarding = xp.getBooleanProperty(AGENT_FORWARDING);
+        boolean compression = xp.getBooleanProperty(COMPRESSION);
 
-        SshClient client = SSHUtil.createSSHClient(loadSSHConfig, strictHostCheck, addHostKey, useSSHAgent, useAgentForwarding);
+        SshClient client = SSHUtil.createSSHClient(loadSSHConfig, strictHostCheck, addHostKey, useSSHAgent, useAgentForwarding, compression);
 
         long timeout = xp.getLongProperty(TIMEOUT);
 
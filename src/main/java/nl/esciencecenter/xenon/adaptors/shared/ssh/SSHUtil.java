@@ -23,6 +23,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.security.KeyPair;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -35,6 +36,9 @@ import org.apache.sshd.client.keyverifier.AcceptAllServerKeyVerifier;
 import org.apache.sshd.client.keyverifier.DefaultKnownHostsServerKeyVerifier;
 import org.apache.sshd.client.keyverifier.RejectAllServerKeyVerifier;
 import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.common.NamedFactory;
+import org.apache.sshd.common.compression.BuiltinCompressions;
+import org.apache.sshd.common.compression.Compression;
 import org.apache.sshd.common.config.keys.FilePasswordProvider;
 import org.apache.sshd.common.util.security.SecurityUtils;
 import org.slf4j.Logger;
@@ -105,9 +109,42 @@ public class SSHUtil {
      */
     public static SshClient createSSHClient(boolean loadSSHConfig, boolean stricHostCheck, boolean addHostKey, boolean useSSHAgent,
             boolean useAgentForwarding) {
+        return createSSHClient(loadSSHConfig, stricHostCheck, addHostKey, useSSHAgent, useAgentForwarding, false);
+    }
+
+    /**
+     * Create a new {@link SshClient} with the desired configuration, optionally compressing all traffic of its sessions.
+     * <p>
+     * Compression uses the <code>zlib@openssh.com</code> or <code>zlib</code> algorithms, whichever the server prefers. If the server supports neither, the
+     * session is not compressed. Compression pays off on slow links to transfer compressible data, but costs CPU time on both ends.
+     * </p>
+     *
+     * @param loadSSHConfig
+     *            Load the SSH config file in the default location (for OpenSSH this is typically found in $HOME/.ssh/config).
+     * @param stricHostCheck
+     *            Perform a strict host key check. When setting up a connection, the key presented by the server is compared to the default known_hosts file
+     *            (for OpenSSH this is typically found in $HOME/.ssh/known_hosts).
+     * @param addHostKey
+     *            When setting up a connection, add a previously unknown server server key to the default known_hosts file (for OpenSSH this is typically found
+     *            in $HOME/.ssh/known_hosts).
+     * @param useSSHAgent
+     *            When setting up a connection, handoff authentication to a separate SSH agent process.
+     * @param useAgentForwarding
+     *            Support agent forwarding, allowing remote SSH servers to use the local SSH agent process to authenticate connections to other servers.
+     * @param compression
+     *            Compress the traffic of the sessions of this client.
+     * @return the configured {@link SshClient}
+     */
+    public static SshClient createSSHClient(boolean loadSSHConfig, boolean stricHostCheck, boolean addHostKey, boolean useSSHAgent,
+            boolean useAgentForwarding, boolean compression) {
 
         SshClient client = SshClient.setUpDefaultClient();
 
+        if (compression) {
+            client.setCompressionFactories(
+                    Arrays.<NamedFactory<Compression>> asList(BuiltinCompressions.delayedZlib, BuiltinCompressions.zlib, BuiltinCompressions.none));
+        }
+
         if (stricHostCheck) {
             if (addHostKey) {
                 client.setServerKeyVerifier(new DefaultKnownHostsServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE, true));
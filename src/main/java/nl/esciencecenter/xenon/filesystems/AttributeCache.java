@@ -0,0 +1,290 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the attributes of paths for a limited time, so the checks that precede most {@link FileSystem} operations need not ask the server each time.
+ *
+ * An entry either holds the attributes of a path, only records that the path exists, or records that it does not exist. Entries expire after a fixed time,
+ * and the least recently used entries are evicted once the cache is full. Changes made through the FileSystem itself must be reported with
+ * {@link #invalidate(Path)}; changes made by others are only seen once the entry expires.
+ *
+ * A lookup on the server may race with a change through the FileSystem. To prevent the outdated result of such a lookup from being cached, the caller takes
+ * the current generation of the cache before the lookup, and the result is only stored if neither the path nor one of its parents was invalidated in the
+ * meantime. Invalidating a path does not search the cache for the paths below it. Instead, the invalidation is remembered for as long as the entries it
+ * affects may live, and an entry is ignored if the path or one of its parents was invalidated after the lookup that produced it started. This keeps both
+ * the race check and the invalidation local to the path, so many concurrent copies do not spoil each other's entries.
+ */
+class AttributeCache {
+
+    /** The cached knowledge about a single path. */
+    static class Entry {
+
+        private final boolean exists;
+        private final PathAttributes attributes;
+        private final long expires;
+
+        // The generation of the cache when the lookup that produced this entry started.
+        private final long generation;
+
+        Entry(boolean exists, PathAttributes attributes, long expires, long generation) {
+            this.exists = exists;
+            this.attributes = attributes;
+            this.expires = expires;
+            this.generation = generation;
+        }
+
+        boolean exists() {
+            return exists;
+        }
+
+        /** @return the attributes of the path, or <code>null</code> if only its existence is known. */
+        PathAttributes getAttributes() {
+            return attributes;
+        }
+    }
+
+    /** A path that was invalidated, with the generation it was invalidated at. */
+    private static class Invalidation {
+
+        private final long generation;
+        private final long time;
+
+        Invalidation(long generation, long time) {
+            this.generation = generation;
+            this.time = time;
+        }
+    }
+
+    // Ordered by access, and only accessed while holding its lock.
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Ordered by invalidation time, and only accessed while holding the lock of the entries.
+    private final LinkedHashMap<Path, Invalidation> invalidated = new LinkedHashMap<>();
+
+    private final long time;
+    private final int size;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private long generation;
+
+    // Entries and lookups from before this generation may have been affected by an invalidation that is no longer remembered.
+    private long forgotten;
+
+    /**
+     * Create a new AttributeCache.
+     *
+     * @param time
+     *            the time (in milliseconds) an entry remains valid.
+     * @param size
+     *            the maximum number of entries.
+     */
+    AttributeCache(long time, int size) {
+        this.time = TimeUnit.MILLISECONDS.toNanos(time);
+        this.size = size;
+    }
+
+    /**
+     * Look up the entry of a path. A lookup that finds a valid entry that answers the question counts as a hit, any other lookup as a miss.
+     *
+     * @param path
+     *            the absolute path to look up.
+     * @param needAttributes
+     *            if the attributes of the path are needed, rather than only whether it exists.
+     * @return the entry of the path, or <code>null</code> if there is no valid entry.
+     */
+    Entry get(Path path, boolean needAttributes) {
+
+        synchronized (entries) {
+
+            Entry e = entries.get(path);
+
+            if (e != null && (e.expires - System.nanoTime() <= 0 || isInvalidated(path, e.generation))) {
+                entries.remove(path);
+                e = null;
+            }
+
+            if (e == null || (needAttributes && e.exists && e.attributes == null)) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+
+            return e;
+        }
+    }
+
+    /**
+     * @return the current generation, to pass to {@link #put(Path, PathAttributes, long)} or {@link #putExists(Path, boolean, long)}.
+     */
+    long getGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Remember the attributes of a path.
+     *
+     * @param path
+     *            the absolute path.
+     * @param attributes
+     *            the attributes of the path.
+     * @param generation
+     *            the generation of the cache before the attributes were retrieved.
+     */
+    void put(Path path, PathAttributes attributes, long generation) {
+        add(path, new Entry(true, attributes, System.nanoTime() + time, generation));
+    }
+
+    /**
+     * Remember whether a path exists, without its attributes. An existing entry with attributes is kept if it agrees.
+     *
+     * @param path
+     *            the absolute path.
+     * @param exists
+     *            if the path exists.
+     * @param generation
+     *            the generation of the cache before the existence was checked.
+     */
+    void putExists(Path path, boolean exists, long generation) {
+        add(path, new Entry(exists, null, System.nanoTime() + time, generation));
+    }
+
+    private void add(Path path, Entry entry) {
+
+        synchronized (entries) {
+
+            if (isInvalidated(path, entry.generation)) {
+                return;
+            }
+
+            Entry old = entries.get(path);
+
+            if (old != null && old.exists && entry.exists && entry.attributes == null && !isInvalidated(path, old.generation)) {
+                return;
+            }
+
+            entries.put(path, entry);
+
+            Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+
+            while (entries.size() > size && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Forget a path and all paths below it, after it was created, removed, replaced or written to.
+     *
+     * @param path
+     *            the absolute path.
+     */
+    void invalidate(Path path) {
+
+        if (path.isEmpty()) {
+            clear();
+            return;
+        }
+
+        synchronized (entries) {
+
+            long now = System.nanoTime();
+
+            generation++;
+            entries.remove(path);
+
+            // Removed first, so the invalidations stay ordered by time.
+            invalidated.remove(path);
+            invalidated.put(path, new Invalidation(generation, now));
+
+            forgetInvalidations(now);
+        }
+    }
+
+    /*
+     * Was the path, or one of its parents, invalidated after the given generation ?
+     */
+    private boolean isInvalidated(Path path, long since) {
+
+        if (since < forgotten) {
+            return true;
+        }
+
+        for (Path p = path; p != null; p = p.getParent()) {
+
+            Invalidation i = invalidated.get(p);
+
+            if (i != null && i.generation > since) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * An entry affected by an invalidation was stored before it, so it has expired once the invalidation is older than the lifetime of an entry. Only
+     * lookups that are still running might need it after that, and those are not stored. To bound the memory used, the oldest invalidations are also
+     * forgotten once there are more than the number of entries, in which case all older entries are ignored as well.
+     */
+    private void forgetInvalidations(long now) {
+
+        Iterator<Invalidation> it = invalidated.values().iterator();
+
+        while (it.hasNext()) {
+
+            Invalidation i = it.next();
+
+            if (invalidated.size() <= size && now - i.time <= time) {
+                return;
+            }
+
+            forgotten = Math.max(forgotten, i.generation);
+            it.remove();
+        }
+    }
+
+    /**
+     * Forget all paths.
+     */
+    void clear() {
+        synchronized (entries) {
+            generation++;
+            forgotten = generation;
+            entries.clear();
+            invalidated.clear();
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of copy buffers that is shared by all {@link FileSystem} instances in this JVM, so copying many files does not allocate a new buffer for each file.
+ * Buffers are pooled by size. At most {@link #MAX_POOLED_BYTES} bytes are kept in the pool; buffers returned beyond that are left to the garbage collector.
+ */
+final class BufferPool {
+
+    /** The maximum number of bytes kept in the pool. */
+    static final long MAX_POOLED_BYTES = 64L * 1024L * 1024L;
+
+    private static final ConcurrentHashMap<Integer, ConcurrentLinkedQueue<byte[]>> buffers = new ConcurrentHashMap<>();
+
+    private static final AtomicLong pooledBytes = new AtomicLong();
+
+    private BufferPool() {
+        // utility class
+    }
+
+    /**
+     * Take a buffer from the pool, or allocate a new one if the pool has no buffer of the requested size.
+     *
+     * @param size
+     *            the size of the buffer.
+     * @return a buffer of exactly <code>size</code> bytes, of which the content is undefined.
+     */
+    static byte[] take(int size) {
+
+        ConcurrentLinkedQueue<byte[]> queue = buffers.get(size);
+
+        byte[] buffer = queue == null ? null : queue.poll();
+
+        if (buffer == null) {
+            return new byte[size];
+        }
+
+        pooledBytes.addAndGet(-size);
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool. The caller may no longer use the buffer afterwards.
+     *
+     * @param buffer
+     *            the buffer to return.
+     */
+    static void release(byte[] buffer) {
+
+        if (pooledBytes.addAndGet(buffer.length) > MAX_POOLED_BYTES) {
+            pooledBytes.addAndGet(-buffer.length);
+            return;
+        }
+
+        buffers.computeIfAbsent(buffer.length, size -> new ConcurrentLinkedQueue<>()).offer(buffer);
+    }
+
+    /**
+     * Get the number of bytes currently kept in the pool.
+     *
+     * @return the number of pooled bytes.
+     */
+    static long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Remove all buffers from the pool.
+     */
+    static void clear() {
+        for (ConcurrentLinkedQueue<byte[]> queue : buffers.values()) {
+            for (byte[] buffer = queue.poll(); buffer != null; buffer = queue.poll()) {
+                pooledBytes.addAndGet(-buffer.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunes the size of the chunks in which a copy reads and writes its data, based on the throughput it achieves.
+ *
+ * The throughput is measured over windows of at least {@link #WINDOW} nanoseconds. After each window the chunk size is doubled or halved. The tuner keeps
+ * moving in the same direction as long as the throughput improves, turns around when it gets worse, and stays put when the change is within
+ * {@link #TOLERANCE}. All transfers of a copy share a single tuner, so it measures the throughput of the copy as a whole.
+ *
+ * The chunk size that gave the best throughput is remembered for the link between the two file systems, so later copies over the same link start there.
+ */
+class BufferSizeTuner {
+
+    /** The smallest chunk size that is tried. */
+    static final int MIN_CHUNK_SIZE = 4 * 1024;
+
+    /** The largest chunk size that is tried. */
+    static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /** The minimal duration of a measurement window. */
+    static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(250);
+
+    /** The minimal number of chunks in a measurement window. */
+    static final int MIN_CHUNKS_PER_WINDOW = 4;
+
+    /** The relative change in throughput that is considered noise. */
+    static final double TOLERANCE = 0.05;
+
+    private static final ConcurrentHashMap<String, Integer> learned = new ConcurrentHashMap<>();
+
+    private final String link;
+
+    private volatile int chunkSize;
+
+    private int direction = 1;
+    private long windowStart;
+    private long windowBytes;
+    private double lastThroughput;
+    private double bestThroughput;
+
+    /**
+     * Create a tuner for a copy over a link.
+     *
+     * @param link
+     *            the link between the source and destination, as returned by {@link #getLink(FileSystem, FileSystem)}.
+     * @param initialSize
+     *            the chunk size to start with if nothing has been learned about the link yet.
+     */
+    BufferSizeTuner(String link, int initialSize) {
+        this.link = link;
+        this.chunkSize = learned.getOrDefault(link, clamp(initialSize));
+        this.windowStart = System.nanoTime();
+    }
+
+    /*
+     * Describe the link between two file systems by their adaptors and hosts.
+     */
+    static String getLink(FileSystem source, FileSystem destination) {
+        return source.getAdaptorName() + "://" + TransferScheduler.getHost(source.getLocation()) + " -> " + destination.getAdaptorName() + "://"
+                + TransferScheduler.getHost(destination.getLocation());
+    }
+
+    /**
+     * Get the chunk size that was learned for a link.
+     *
+     * @param link
+     *            the link.
+     * @return the learned chunk size, or <code>null</code> if nothing was learned yet.
+     */
+    static Integer getLearnedChunkSize(String link) {
+        return learned.get(link);
+    }
+
+    /**
+     * Forget all learned chunk sizes.
+     */
+    static void clearLearnedChunkSizes() {
+        learned.clear();
+    }
+
+    private static int clamp(int size) {
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+    }
+
+    /**
+     * Get the chunk size to use for the next read.
+     *
+     * @return the chunk size.
+     */
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Report that a chunk has been written.
+     *
+     * @param bytes
+     *            the number of bytes written.
+     */
+    synchronized void update(int bytes) {
+        update(bytes, System.nanoTime());
+    }
+
+    synchronized void update(int bytes, long now) {
+
+        windowBytes += bytes;
+
+        long elapsed = now - windowStart;
+
+        if (elapsed < WINDOW || windowBytes < (long) MIN_CHUNKS_PER_WINDOW * chunkSize) {
+            return;
+        }
+
+        double throughput = windowBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+
+        if (throughput > bestThroughput) {
+            bestThroughput = throughput;
+            learned.put(link, chunkSize);
+        }
+
+        boolean move = true;
+
+        if (lastThroughput > 0) {
+            if (throughput < lastThroughput * (1 - TOLERANCE)) {
+                direction = -direction;
+            } else if (throughput < lastThroughput * (1 + TOLERANCE)) {
+                move = false;
+            }
+        }
+
+        if (move) {
+            int next = clamp(direction > 0 ? chunkSize * 2 : chunkSize / 2);
+
+            if (next == chunkSize) {
+                // We hit a bound, so try the other way next time.
+                direction = -direction;
+            }
+
+            chunkSize = next;
+        }
+
+        lastThroughput = throughput;
+        windowStart = now;
+        windowBytes = 0;
+    }
+}
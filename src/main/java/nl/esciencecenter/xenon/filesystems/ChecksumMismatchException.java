@@ -0,0 +1,37 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import nl.esciencecenter.xenon.XenonException;
+
+/**
+ * Signals that the checksum of a copied file does not match the checksum of the data that was sent.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class ChecksumMismatchException extends XenonException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ChecksumMismatchException(String adaptorName, String message, Throwable t) {
+        super(adaptorName, message, t);
+    }
+
+    public ChecksumMismatchException(String adaptorName, String message) {
+        super(adaptorName, message);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.zip.Deflater;
+
+/**
+ * Decides if data is worth compressing, by compressing a sample of it at the fastest level. Data that is already compressed (or random) does not shrink, so
+ * compressing it only costs CPU time.
+ */
+final class CompressionSampler {
+
+    /** The number of bytes at the start of a file that are sampled. */
+    static final int SAMPLE_SIZE = 64 * 1024;
+
+    /** Data is compressible if the sample shrinks to at most this fraction of its size. */
+    static final double MAX_RATIO = 0.9;
+
+    private CompressionSampler() {
+        // utility class
+    }
+
+    /**
+     * Compress a sample and compute the ratio between its compressed and original size.
+     *
+     * @param data
+     *            the buffer containing the sample.
+     * @param length
+     *            the length of the sample.
+     * @return the compressed size divided by the original size, or 1.0 for an empty sample.
+     */
+    static double ratio(byte[] data, int length) {
+
+        if (length <= 0) {
+            return 1.0;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+
+            byte[] buffer = new byte[SAMPLE_SIZE];
+            long compressed = 0;
+
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+
+            return compressed / (double) length;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Check if a sample compresses well enough to compress the data it was taken from.
+     *
+     * @param data
+     *            the buffer containing the sample.
+     * @param length
+     *            the length of the sample.
+     * @return if the data is worth compressing.
+     */
+    static boolean isCompressible(byte[] data, int length) {
+        return ratio(data, length) <= MAX_RATIO;
+    }
+}
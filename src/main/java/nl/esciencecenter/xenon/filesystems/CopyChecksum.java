@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * A checksum that is computed while the data of a file passes by. Supports <code>CRC32</code> and all {@link MessageDigest} algorithms of the platform.
+ */
+class CopyChecksum {
+
+    static final String CRC32 = "CRC32";
+
+    private final MessageDigest digest;
+    private final CRC32 crc;
+
+    private CopyChecksum(MessageDigest digest, CRC32 crc) {
+        this.digest = digest;
+        this.crc = crc;
+    }
+
+    /**
+     * Create a new checksum.
+     *
+     * @param algorithm
+     *            the name of the checksum algorithm.
+     * @return the checksum.
+     * @throws IllegalArgumentException
+     *             if the algorithm is not supported.
+     */
+    static CopyChecksum create(String algorithm) {
+
+        if (CRC32.equalsIgnoreCase(algorithm)) {
+            return new CopyChecksum(null, new CRC32());
+        }
+
+        try {
+            return new CopyChecksum(MessageDigest.getInstance(algorithm), null);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported checksum algorithm: " + algorithm, e);
+        }
+    }
+
+    void update(byte[] buffer, int offset, int length) {
+        if (digest != null) {
+            digest.update(buffer, offset, length);
+        } else {
+            crc.update(buffer, offset, length);
+        }
+    }
+
+    /**
+     * Get the value of the checksum. A <code>CRC32</code> value is returned as 4 bytes in big-endian order.
+     *
+     * @return the value of the checksum.
+     */
+    byte[] getValue() {
+
+        if (digest != null) {
+            return digest.digest();
+        }
+
+        long value = crc.getValue();
+        return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+    }
+
+    static String toHex(byte[] value) {
+
+        StringBuilder sb = new StringBuilder();
+
+        for (byte b : value) {
+            sb.append(String.format("%02x", b));
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+import nl.esciencecenter.xenon.XenonException;
+
+/**
+ * The checkpoint journal of a resumable copy, stored in a local file.
+ *
+ * The journal is an append-only log containing one line per event. The last line of a source file determines its state. As a result, a journal that was
+ * cut short by a crash only loses its last events, which are then redone when the copy is resumed.
+ */
+class CopyJournal implements AutoCloseable {
+
+    enum State {
+        /** The file is being copied as a single stream. The offset contains the number of bytes written at the last checkpoint. */
+        STARTED,
+        /** The file is being copied in segments, which may be written in any order. */
+        SEGMENTED,
+        /** The file has been copied completely. */
+        DONE
+    }
+
+    static class Entry {
+
+        final State state;
+        final long size;
+        final long lastModified;
+        final long offset;
+
+        Entry(State state, long size, long lastModified, long offset) {
+            this.state = state;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.offset = offset;
+        }
+    }
+
+    private static final String ENCODING = "UTF-8";
+
+    private final String adaptorName;
+    private final java.nio.file.Path file;
+    private final HashMap<String, Entry> entries = new HashMap<>();
+
+    private Writer writer;
+
+    /**
+     * Open the journal of a copy, which is identified by its source and destination. If the journal already exists, its content is loaded.
+     *
+     * @param adaptorName
+     *            the name of the adaptor performing the copy.
+     * @param directory
+     *            the local directory containing the journals.
+     * @param source
+     *            a description of the source of the copy.
+     * @param destination
+     *            a description of the destination of the copy.
+     * @throws XenonException
+     *             if the journal could not be opened.
+     */
+    CopyJournal(String adaptorName, java.nio.file.Path directory, String source, String destination) throws XenonException {
+
+        this.adaptorName = adaptorName;
+        this.file = directory.resolve(getName(source + "\n" + destination));
+
+        try {
+            Files.createDirectories(directory);
+
+            if (Files.exists(file)) {
+                load();
+            }
+
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new XenonException(adaptorName, "Failed to open copy journal " + file, e);
+        }
+    }
+
+    private static String getName(String key) {
+        try {
+            return CopyChecksum.toHex(MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8))) + ".journal";
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1
+            throw new IllegalStateException("SHA-1 not supported", e);
+        }
+    }
+
+    private void load() throws IOException {
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+
+            String line = reader.readLine();
+
+            while (line != null) {
+                parse(line);
+                line = reader.readLine();
+            }
+        }
+    }
+
+    private void parse(String line) throws UnsupportedEncodingException {
+
+        String[] fields = line.split(" ");
+
+        // A line that was only partially written is ignored.
+        if (fields.length != 5) {
+            return;
+        }
+
+        try {
+            Entry entry = new Entry(State.valueOf(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+            entries.put(URLDecoder.decode(fields[4], ENCODING), entry);
+        } catch (IllegalArgumentException e) {
+            // ignore
+        }
+    }
+
+    private void append(Path source, Entry entry) throws XenonException {
+
+        String path = source.toString();
+
+        try {
+            writer.write(entry.state + " " + entry.size + " " + entry.lastModified + " " + entry.offset + " " + URLEncoder.encode(path, ENCODING) + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            throw new XenonException(adaptorName, "Failed to update copy journal " + file, e);
+        }
+
+        entries.put(path, entry);
+    }
+
+    synchronized Entry get(Path source) {
+        return entries.get(source.toString());
+    }
+
+    synchronized void started(Path source, long size, long lastModified, boolean segmented) throws XenonException {
+        append(source, new Entry(segmented ? State.SEGMENTED : State.STARTED, size, lastModified, 0));
+    }
+
+    synchronized void checkpoint(Path source, long offset) throws XenonException {
+
+        Entry entry = entries.get(source.toString());
+
+        if (entry != null && entry.state == State.STARTED && entry.offset != offset) {
+            append(source, new Entry(State.STARTED, entry.size, entry.lastModified, offset));
+        }
+    }
+
+    synchronized void done(Path source) throws XenonException {
+
+        Entry entry = entries.get(source.toString());
+
+        if (entry != null && entry.state != State.DONE) {
+            append(source, new Entry(State.DONE, entry.size, entry.lastModified, entry.size));
+        }
+    }
+
+    /**
+     * Remove the journal once the copy has completed.
+     *
+     * @throws XenonException
+     *             if the journal could not be removed.
+     */
+    synchronized void delete() throws XenonException {
+        close();
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new XenonException(adaptorName, "Failed to delete copy journal " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws XenonException {
+
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new XenonException(adaptorName, "Failed to close copy journal " + file, e);
+        } finally {
+            writer = null;
+        }
+    }
+}
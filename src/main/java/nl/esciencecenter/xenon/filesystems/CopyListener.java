@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+/**
+ * CopyListener receives the events of a copy operation started with {@link FileSystem#copy(Path, FileSystem, Path, CopyMode, boolean, CopyListener)}.
+ *
+ * Events are delivered on the threads that perform the copy, so implementations must be thread safe and should return quickly. Exceptions thrown by a
+ * listener are ignored. All methods do nothing by default, so implementations only need to override the events they are interested in.
+ */
+public interface CopyListener {
+
+    /**
+     * Called when the copy has determined how many bytes it needs to copy.
+     *
+     * @param copyIdentifier
+     *            the identifier of the copy.
+     * @param bytesToCopy
+     *            the number of bytes that need to be copied.
+     */
+    default void copyStarted(String copyIdentifier, long bytesToCopy) {
+        // ignore
+    }
+
+    /**
+     * Called each time a file has been copied.
+     *
+     * @param copyIdentifier
+     *            the identifier of the copy.
+     * @param source
+     *            the file that was copied.
+     * @param destination
+     *            the file that was written.
+     * @param size
+     *            the size of the file.
+     */
+    default void fileCopied(String copyIdentifier, Path source, Path destination, long size) {
+        // ignore
+    }
+
+    /**
+     * Called while data is being copied, at most once per progress interval (set with the <code>copyProgressInterval</code> property of the adaptor).
+     *
+     * @param progress
+     *            the progress of the copy.
+     */
+    default void copyProgress(CopyProgress progress) {
+        // ignore
+    }
+
+    /**
+     * Called when the copy has completed successfully.
+     *
+     * @param status
+     *            the final status of the copy.
+     */
+    default void copyCompleted(CopyStatus status) {
+        // ignore
+    }
+
+    /**
+     * Called when the copy has failed or was cancelled.
+     *
+     * @param status
+     *            the final status of the copy, which contains the exception that caused the failure.
+     */
+    default void copyFailed(CopyStatus status) {
+        // ignore
+    }
+}
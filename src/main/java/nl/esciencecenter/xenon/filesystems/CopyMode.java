@@ -18,7 +18,7 @@ package nl.esciencecenter.xenon.filesystems;
 /**
  * CopyOption is an enumeration containing all possible options for copying a file.
  *
- * Note that the <code>CREATE</code>, <code>REPLACE</code> and <code>IGNORE</code> options are mutually exclusive.
+ * Note that the <code>CREATE</code>, <code>REPLACE</code>, <code>IGNORE</code>, <code>RESUME</code> and <code>SYNC</code> options are mutually exclusive.
  */
 public enum CopyMode {
 
@@ -40,5 +40,22 @@ public enum CopyMode {
     /**
      * Skip the copy if the destination file if it already exists.
      */
-    IGNORE
+    IGNORE,
+
+    /**
+     * Continue an earlier copy that was interrupted. Files that were copied completely are skipped, and partially copied files are verified and then
+     * completed by appending the remaining data. Progress is recorded in a local checkpoint journal, which is removed once the copy has completed.
+     *
+     * If the data already present in the destination does not match the source, the copy fails with an {@link InvalidResumeTargetException}.
+     */
+    RESUME,
+
+    /**
+     * Only copy files that are new or have changed. A destination file is considered up to date if it has the same size as the source file and was last
+     * modified at or after the source file. If the <code>syncChecksum</code> property of the adaptor is set, files of the same size are compared by checksum
+     * instead.
+     *
+     * As with <code>REPLACE</code>, additional files in the destination directory are <b>not</b> touched.
+     */
+    SYNC
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+/**
+ * CopyProgress describes the progress of a copy operation, as reported to a {@link CopyListener}.
+ */
+public class CopyProgress {
+
+    private final String copyIdentifier;
+    private final long bytesToCopy;
+    private final long bytesCopied;
+    private final double throughput;
+    private final long estimatedTimeRemaining;
+
+    CopyProgress(String copyIdentifier, long bytesToCopy, long bytesCopied, double throughput, long estimatedTimeRemaining) {
+        this.copyIdentifier = copyIdentifier;
+        this.bytesToCopy = bytesToCopy;
+        this.bytesCopied = bytesCopied;
+        this.throughput = throughput;
+        this.estimatedTimeRemaining = estimatedTimeRemaining;
+    }
+
+    /**
+     * Get the identifier of the copy.
+     *
+     * @return the identifier of the copy.
+     */
+    public String getCopyIdentifier() {
+        return copyIdentifier;
+    }
+
+    /**
+     * Get the number of bytes that need to be copied for the entire copy operation.
+     *
+     * @return the number of bytes that need to be copied.
+     */
+    public long bytesToCopy() {
+        return bytesToCopy;
+    }
+
+    /**
+     * Get the number of bytes that have been copied.
+     *
+     * @return the number of bytes that have been copied.
+     */
+    public long bytesCopied() {
+        return bytesCopied;
+    }
+
+    /**
+     * Get the throughput of the copy since the previous progress event.
+     *
+     * @return the throughput in bytes per second.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Get the estimated time until the copy is done, based on the current throughput.
+     *
+     * @return the estimated remaining time in milliseconds, or -1 if it is unknown.
+     */
+    public long getEstimatedTimeRemaining() {
+        return estimatedTimeRemaining;
+    }
+
+    @Override
+    public String toString() {
+        return "CopyProgress [copyIdentifier=" + copyIdentifier + ", bytesToCopy=" + bytesToCopy + ", bytesCopied=" + bytesCopied + ", throughput="
+                + throughput + ", estimatedTimeRemaining=" + estimatedTimeRemaining + "]";
+    }
+}
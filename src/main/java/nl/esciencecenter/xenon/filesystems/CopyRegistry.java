@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the copies of a {@link FileSystem}, indexed by their copy identifier.
+ *
+ * Active copies are kept in a concurrent map, so adding and looking up copies does not block. Once a copy has completed, it is moved to a history of
+ * completed copies, where it remains until its status is retrieved. To prevent copies of which the status is never retrieved from piling up, the history
+ * only holds a limited number of copies, for a limited time. The oldest copies are evicted first.
+ *
+ * @param <T>
+ *            the type of the copies.
+ */
+class CopyRegistry<T> {
+
+    private static class Completed<T> {
+
+        final T copy;
+        final long time;
+
+        Completed(T copy, long time) {
+            this.copy = copy;
+            this.time = time;
+        }
+    }
+
+    private final ConcurrentHashMap<String, T> active = new ConcurrentHashMap<>();
+
+    // Ordered by completion time, and only accessed while holding its lock.
+    private final LinkedHashMap<String, Completed<T>> history = new LinkedHashMap<>();
+
+    private final int historySize;
+    private final long historyTime;
+
+    /**
+     * Create a new CopyRegistry.
+     *
+     * @param historySize
+     *            the maximum number of completed copies that are remembered.
+     * @param historyTime
+     *            the time (in milliseconds) a completed copy is remembered.
+     */
+    CopyRegistry(int historySize, long historyTime) {
+        this.historySize = historySize;
+        this.historyTime = TimeUnit.MILLISECONDS.toNanos(historyTime);
+    }
+
+    /**
+     * Add a new copy.
+     *
+     * @param copyIdentifier
+     *            the identifier of the copy.
+     * @param copy
+     *            the copy.
+     */
+    void add(String copyIdentifier, T copy) {
+        active.put(copyIdentifier, copy);
+    }
+
+    /**
+     * Move a copy to the history of completed copies.
+     *
+     * @param copyIdentifier
+     *            the identifier of the copy.
+     */
+    void completed(String copyIdentifier) {
+        completed(copyIdentifier, System.nanoTime());
+    }
+
+    void completed(String copyIdentifier, long now) {
+
+        // Moved while holding the lock of the history, so a concurrent get always finds the copy in one of the two.
+        synchronized (history) {
+
+            T copy = active.remove(copyIdentifier);
+
+            if (copy != null) {
+                history.put(copyIdentifier, new Completed<>(copy, now));
+            }
+
+            evict(now);
+        }
+    }
+
+    /*
+     * Remove the copies that are too old, or too many. The copies are ordered by completion time, so the oldest copies are at the start of the history.
+     */
+    private void evict(long now) {
+
+        Iterator<Completed<T>> it = history.values().iterator();
+
+        while (it.hasNext()) {
+
+            Completed<T> c = it.next();
+
+            if (history.size() <= historySize && now - c.time <= historyTime) {
+                return;
+            }
+
+            it.remove();
+        }
+    }
+
+    /**
+     * Get a copy, which may be active or completed.
+     *
+     * @param copyIdentifier
+     *            the identifier of the copy.
+     * @return the copy, or <code>null</code> if the copy is not known.
+     */
+    T get(String copyIdentifier) {
+
+        T copy = active.get(copyIdentifier);
+
+        if (copy != null) {
+            return copy;
+        }
+
+        synchronized (history) {
+            evict(System.nanoTime());
+            Completed<T> c = history.get(copyIdentifier);
+            return c == null ? null : c.copy;
+        }
+    }
+
+    /**
+     * Forget a copy.
+     *
+     * @param copyIdentifier
+     *            the identifier of the copy.
+     * @return the copy, or <code>null</code> if the copy is not known.
+     */
+    T remove(String copyIdentifier) {
+
+        T copy = active.remove(copyIdentifier);
+
+        synchronized (history) {
+            Completed<T> c = history.remove(copyIdentifier);
+            return copy != null ? copy : (c == null ? null : c.copy);
+        }
+    }
+
+    /**
+     * Get the copies that are still active.
+     *
+     * @return the active copies, indexed by their copy identifier.
+     */
+    Map<String, T> getActive() {
+        return new LinkedHashMap<>(active);
+    }
+
+    /**
+     * Get the identifiers of the completed copies that are remembered, oldest first.
+     *
+     * @return the identifiers of the completed copies.
+     */
+    List<String> getCompleted() {
+        synchronized (history) {
+            evict(System.nanoTime());
+            return new ArrayList<>(history.keySet());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+/**
+ * CopyRequest describes a single copy in a batch of copies submitted with {@link FileSystem#copy(java.util.Collection)}.
+ */
+public class CopyRequest {
+
+    private final Path source;
+    private final FileSystem destinationFileSystem;
+    private final Path destination;
+    private final CopyMode mode;
+    private final boolean recursive;
+
+    /**
+     * Create a new CopyRequest.
+     *
+     * @param source
+     *            the source path (on the file system the batch is submitted to) to copy from.
+     * @param destinationFileSystem
+     *            the destination filesystem to copy to.
+     * @param destination
+     *            the destination path (on the destination filesystem) to copy to.
+     * @param mode
+     *            how to react if the destination already exists.
+     * @param recursive
+     *            if the copy should be recursive.
+     * @throws IllegalArgumentException
+     *             If source, destinationFileSystem, destination or mode is null.
+     */
+    public CopyRequest(Path source, FileSystem destinationFileSystem, Path destination, CopyMode mode, boolean recursive) {
+
+        if (source == null) {
+            throw new IllegalArgumentException("Source path is null");
+        }
+
+        if (destinationFileSystem == null) {
+            throw new IllegalArgumentException("Destination filesystem is null");
+        }
+
+        if (destination == null) {
+            throw new IllegalArgumentException("Destination path is null");
+        }
+
+        if (mode == null) {
+            throw new IllegalArgumentException("Copy mode is null!");
+        }
+
+        this.source = source;
+        this.destinationFileSystem = destinationFileSystem;
+        this.destination = destination;
+        this.mode = mode;
+        this.recursive = recursive;
+    }
+
+    /**
+     * Create a new CopyRequest for a single file.
+     *
+     * @param source
+     *            the source file (on the file system the batch is submitted to) to copy from.
+     * @param destinationFileSystem
+     *            the destination filesystem to copy to.
+     * @param destination
+     *            the destination file (on the destination filesystem) to copy to.
+     * @param mode
+     *            how to react if the destination already exists.
+     * @throws IllegalArgumentException
+     *             If source, destinationFileSystem, destination or mode is null.
+     */
+    public CopyRequest(Path source, FileSystem destinationFileSystem, Path destination, CopyMode mode) {
+        this(source, destinationFileSystem, destination, mode, false);
+    }
+
+    /**
+     * Get the source path.
+     *
+     * @return the source path.
+     */
+    public Path getSource() {
+        return source;
+    }
+
+    /**
+     * Get the destination file system.
+     *
+     * @return the destination file system.
+     */
+    public FileSystem getDestinationFileSystem() {
+        return destinationFileSystem;
+    }
+
+    /**
+     * Get the destination path.
+     *
+     * @return the destination path.
+     */
+    public Path getDestination() {
+        return destination;
+    }
+
+    /**
+     * Get the copy mode.
+     *
+     * @return the copy mode.
+     */
+    public CopyMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Is the copy recursive ?
+     *
+     * @return if the copy is recursive.
+     */
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    @Override
+    public String toString() {
+        return "CopyRequest [source=" + source + ", destination=" + destination + ", mode=" + mode + ", recursive=" + recursive + "]";
+    }
+}
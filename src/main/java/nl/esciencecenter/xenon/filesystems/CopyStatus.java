@@ -15,6 +15,9 @@
  */
 package nl.esciencecenter.xenon.filesystems;
 
+import java.util.Collections;
+import java.util.Map;
+
 import nl.esciencecenter.xenon.XenonException;
 import nl.esciencecenter.xenon.adaptors.NotConnectedException;
 
@@ -96,4 +99,19 @@ public interface CopyStatus {
      * @return the number of bytes that have been copied.
      */
     long bytesCopied();
+
+    /**
+     * Get the checksums of the files that have been copied, if the adaptor was configured to compute them with the <code>copyChecksum</code> property.
+     *
+     * The checksums are computed while the data is copied, and are returned as hexadecimal strings, indexed by the destination path of each file. Since the
+     * data must pass through the copy, computing checksums disables segmented transfers, copies on the server and tar streams. Files that were skipped or
+     * completed by a resumed copy have no checksum.
+     *
+     * This default implementation returns an empty map, for implementations that do not compute checksums.
+     *
+     * @return the checksums of the files that have been copied.
+     */
+    default Map<Path, String> getChecksums() {
+        return Collections.emptyMap();
+    }
 }
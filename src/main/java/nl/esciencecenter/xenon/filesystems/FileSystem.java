@@ -15,24 +15,49 @@
  */
 package nl.esciencecenter.xenon.filesystems;
 
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import nl.esciencecenter.xenon.InvalidCredentialException;
 import nl.esciencecenter.xenon.InvalidLocationException;
@@ -41,6 +66,7 @@ import nl.esciencecenter.xenon.UnknownAdaptorException;
 import nl.esciencecenter.xenon.UnknownPropertyException;
 import nl.esciencecenter.xenon.UnsupportedOperationException;
 import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonRuntimeException;
 import nl.esciencecenter.xenon.adaptors.NotConnectedException;
 import nl.esciencecenter.xenon.adaptors.XenonProperties;
 import nl.esciencecenter.xenon.adaptors.filesystems.FileAdaptor;
@@ -57,6 +83,8 @@ import nl.esciencecenter.xenon.credentials.DefaultCredential;
  */
 public abstract class FileSystem implements AutoCloseable {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystem.class);
+
     /** The name of this component, for use in exceptions */
     private static final String COMPONENT_NAME = "FileSystem";
 
@@ -131,13 +159,21 @@ public abstract class FileSystem implements AutoCloseable {
         private final long bytesToCopy;
         private final long bytesCopied;
 
+        private final Map<Path, String> checksums;
+
         public CopyStatusImplementation(String copyIdentifier, String state, long bytesToCopy, long bytesCopied, XenonException exception) {
+            this(copyIdentifier, state, bytesToCopy, bytesCopied, exception, Collections.emptyMap());
+        }
+
+        public CopyStatusImplementation(String copyIdentifier, String state, long bytesToCopy, long bytesCopied, XenonException exception,
+                Map<Path, String> checksums) {
             super();
             this.copyIdentifier = copyIdentifier;
             this.state = state;
             this.bytesToCopy = bytesToCopy;
             this.bytesCopied = bytesCopied;
             this.exception = exception;
+            this.checksums = checksums;
         }
 
         @Override
@@ -187,6 +223,11 @@ public abstract class FileSystem implements AutoCloseable {
             return bytesCopied;
         }
 
+        @Override
+        public Map<Path, String> getChecksums() {
+            return checksums;
+        }
+
         @Override
         public String toString() {
             return "CopyStatus [copyIdentifier=" + copyIdentifier + ", state=" + state + ", exception=" + exception + ", bytesToCopy=" + bytesToCopy
@@ -201,12 +242,12 @@ public abstract class FileSystem implements AutoCloseable {
                 return false;
             CopyStatusImplementation that = (CopyStatusImplementation) o;
             return bytesToCopy == that.bytesToCopy && bytesCopied == that.bytesCopied && Objects.equals(copyIdentifier, that.copyIdentifier)
-                    && Objects.equals(state, that.state) && Objects.equals(exception, that.exception);
+                    && Objects.equals(state, that.state) && Objects.equals(exception, that.exception) && Objects.equals(checksums, that.checksums);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(copyIdentifier, state, exception, bytesToCopy, bytesCopied);
+            return Objects.hash(copyIdentifier, state, exception, bytesToCopy, bytesCopied, checksums);
         }
     }
 
@@ -366,19 +407,141 @@ public abstract class FileSystem implements AutoCloseable {
         boolean started = false;
         boolean cancelled = false;
 
-        synchronized void start(long bytesToCopy) {
-            if (!started) {
+        // Only set when resuming a copy
+        CopyJournal journal;
+
+        // The flow used to share bandwidth with other copies, if any
+        TransferScheduler.Flow flow;
+
+        // Only set for copies that tune their buffer size
+        BufferSizeTuner tuner;
+
+        final Map<Path, String> checksums = new HashMap<>();
+
+        // Only set for copies with a listener
+        private CopyListener listener;
+        private String copyIdentifier;
+        private long progressInterval;
+        private long progressTime;
+        private long progressBytes;
+
+        synchronized void setListener(CopyListener listener, String copyIdentifier, long progressInterval) {
+            this.listener = listener;
+            this.copyIdentifier = copyIdentifier;
+            this.progressInterval = TimeUnit.MILLISECONDS.toNanos(progressInterval);
+            this.progressTime = System.nanoTime();
+        }
+
+        void start(long bytesToCopy) {
+
+            synchronized (this) {
+                if (started) {
+                    return;
+                }
+
                 started = true;
                 this.bytesToCopy = bytesToCopy;
             }
+
+            if (listener != null) {
+                notifyListener(() -> listener.copyStarted(copyIdentifier, bytesToCopy));
+            }
         }
 
         synchronized boolean isStarted() {
             return started;
         }
 
-        synchronized void addBytesCopied(long bytes) {
-            this.bytesCopied += bytes;
+        /*
+         * Used by a batch of copies, of which the number of bytes to copy grows as its copies start.
+         */
+        synchronized void addBytesToCopy(long bytes) {
+            started = true;
+            bytesToCopy += bytes;
+        }
+
+        void addBytesCopied(long bytes) {
+
+            CopyProgress progress;
+
+            synchronized (this) {
+                this.bytesCopied += bytes;
+                progress = nextProgress();
+            }
+
+            if (progress != null) {
+                notifyListener(() -> listener.copyProgress(progress));
+            }
+        }
+
+        /*
+         * Returns the progress of the copy if a progress event is due, or null otherwise. The throughput is measured since the previous event.
+         */
+        private CopyProgress nextProgress() {
+
+            if (listener == null) {
+                return null;
+            }
+
+            long now = System.nanoTime();
+            long elapsed = now - progressTime;
+
+            if (elapsed < progressInterval) {
+                return null;
+            }
+
+            double throughput = elapsed > 0 ? (bytesCopied - progressBytes) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0.0;
+            long eta = -1;
+
+            if (started && throughput > 0) {
+                eta = (long) (Math.max(0, bytesToCopy - bytesCopied) * 1000 / throughput);
+            }
+
+            progressTime = now;
+            progressBytes = bytesCopied;
+
+            return new CopyProgress(copyIdentifier, bytesToCopy, bytesCopied, throughput, eta);
+        }
+
+        void fileCopied(Path source, Path destination, long size) {
+            if (listener != null) {
+                notifyListener(() -> listener.fileCopied(copyIdentifier, source, destination, size));
+            }
+        }
+
+        void completed() {
+            if (listener != null) {
+                CopyStatus status = getStatus("DONE", null);
+                notifyListener(() -> listener.copyCompleted(status));
+            }
+        }
+
+        void failed(Exception e) {
+            if (listener != null) {
+                XenonException ex = e instanceof XenonException ? (XenonException) e : new XenonException(getAdaptorName(), e.getMessage(), e);
+                CopyStatus status = getStatus("FAILED", ex);
+                notifyListener(() -> listener.copyFailed(status));
+            }
+        }
+
+        private synchronized CopyStatus getStatus(String state, XenonException ex) {
+            return new CopyStatusImplementation(copyIdentifier, state, bytesToCopy, bytesCopied, ex, getChecksums());
+        }
+
+        private void notifyListener(Runnable event) {
+            try {
+                event.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Copy listener of " + copyIdentifier + " failed", e);
+            }
+        }
+
+        synchronized void addChecksum(Path file, String checksum) {
+            checksums.put(file, checksum);
+        }
+
+        synchronized Map<Path, String> getChecksums() {
+            return Collections.unmodifiableMap(new HashMap<>(checksums));
         }
 
         synchronized void cancel() {
@@ -390,11 +553,148 @@ public abstract class FileSystem implements AutoCloseable {
         }
     }
 
+    /*
+     * The callback of a single copy in a batch. It adds its progress to the batch, and is cancelled together with the batch. The copies of a batch to the
+     * same destination file system share a bandwidth flow and buffer tuner.
+     */
+    private class BatchItemCallback extends CopyCallback {
+
+        private final CopyCallback batch;
+
+        BatchItemCallback(CopyCallback batch, TransferScheduler.Flow flow, BufferSizeTuner tuner) {
+            this.batch = batch;
+            this.flow = flow;
+            this.tuner = tuner;
+        }
+
+        @Override
+        void start(long bytesToCopy) {
+
+            synchronized (this) {
+                if (started) {
+                    return;
+                }
+
+                started = true;
+                this.bytesToCopy = bytesToCopy;
+            }
+
+            batch.addBytesToCopy(bytesToCopy);
+        }
+
+        @Override
+        void addBytesCopied(long bytes) {
+            super.addBytesCopied(bytes);
+            batch.addBytesCopied(bytes);
+        }
+
+        @Override
+        void fileCopied(Path source, Path destination, long size) {
+            batch.fileCopied(source, destination, size);
+        }
+
+        @Override
+        synchronized void addChecksum(Path file, String checksum) {
+            super.addChecksum(file, checksum);
+            batch.addChecksum(file, checksum);
+        }
+
+        @Override
+        boolean isCancelled() {
+            return super.isCancelled() || batch.isCancelled();
+        }
+    }
+
+    /*
+     * The callback of a bundle of files transferred as a single tar stream. The stream also contains the headers of the archive, so the bytes it adds to the
+     * copy are capped to the size of the files. The remainder is added once the bundle is done.
+     */
+    private class BundleCallback extends CopyCallback {
+
+        private final CopyCallback copy;
+        private long remaining;
+
+        BundleCallback(CopyCallback copy, long size) {
+            this.copy = copy;
+            this.remaining = size;
+            this.flow = copy.flow;
+            this.tuner = copy.tuner;
+        }
+
+        @Override
+        void addBytesCopied(long bytes) {
+
+            long payload;
+
+            synchronized (this) {
+                payload = Math.min(bytes, remaining);
+                remaining -= payload;
+            }
+
+            if (payload > 0) {
+                copy.addBytesCopied(payload);
+            }
+        }
+
+        void finish() {
+            addBytesCopied(Long.MAX_VALUE);
+        }
+
+        @Override
+        boolean isCancelled() {
+            return copy.isCancelled();
+        }
+    }
+
+    /*
+     * A single copy in a batch, and its outcome.
+     */
+    private class BatchItem {
+
+        final String copyIdentifier;
+        final CopyRequest request;
+        final BatchItemCallback callback;
+
+        private boolean done;
+        private XenonException exception;
+
+        BatchItem(String copyIdentifier, CopyRequest request, BatchItemCallback callback) {
+            this.copyIdentifier = copyIdentifier;
+            this.request = request;
+            this.callback = callback;
+        }
+
+        synchronized void done(XenonException exception) {
+            this.done = true;
+            this.exception = exception;
+        }
+
+        synchronized XenonException getException() {
+            return exception;
+        }
+
+        synchronized CopyStatus getStatus() {
+
+            String state;
+
+            if (done) {
+                state = exception == null ? "DONE" : "FAILED";
+            } else {
+                state = callback.isStarted() ? "RUNNING" : "PENDING";
+            }
+
+            return new CopyStatusImplementation(copyIdentifier, state, callback.bytesToCopy, callback.bytesCopied, exception, callback.getChecksums());
+        }
+    }
+
     private class PendingCopy {
 
         Future<Void> future;
         CopyCallback callback;
 
+        // Only set for a batch of copies
+        List<BatchItem> items;
+
         public PendingCopy(Future<Void> future, CopyCallback callback) {
             super();
             this.future = future;
@@ -402,19 +702,369 @@ public abstract class FileSystem implements AutoCloseable {
         }
     }
 
+    /**
+     * A batch of file transfers belonging to a single copy operation.
+     *
+     * The transfers are run on one of the pools of the FileSystem, which are shared by all copy operations. As a result, at most <code>copyThreads</code>
+     * transfers are running on a pool at any time, whether they belong to the same copy operation or not.
+     */
+    private class TransferBatch {
+
+        private final CompletionService<Void> completion;
+        private final List<Future<Void>> transfers = new ArrayList<>();
+
+        TransferBatch(ExecutorService executor) {
+            completion = new ExecutorCompletionService<>(executor);
+        }
+
+        void submit(Callable<Void> transfer) {
+            transfers.add(completion.submit(transfer));
+        }
+
+        /*
+         * Wait until all transfers are done. If one of the transfers fails, or the waiting thread is interrupted, the remaining transfers are cancelled.
+         */
+        void awaitAll(CopyCallback callback) throws XenonException {
+            try {
+                for (int i = 0; i < transfers.size(); i++) {
+                    completion.take().get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll();
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+            } catch (ExecutionException e) {
+                cancelAll();
+
+                Throwable cause = e.getCause();
+
+                if (cause instanceof XenonException) {
+                    throw (XenonException) cause;
+                }
+
+                throw new XenonException(getAdaptorName(), "File transfer failed", cause);
+            }
+
+            if (callback.isCancelled()) {
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+            }
+        }
+
+        private void cancelAll() {
+            for (Future<Void> f : transfers) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A file that is written in segments, as created by {@link FileSystem#startSegmentedWrite(Path, long, long)}.
+     *
+     * The segments of a file may be written concurrently and in any order. Once all segments have been written, {@link #finish()} is called. If the transfer
+     * fails or is cancelled, {@link #abort()} is called instead.
+     */
+    protected abstract static class SegmentedWrite {
+
+        /**
+         * Write a single segment of the file.
+         *
+         * @param index
+         *            the index of the segment, starting at 0.
+         * @param offset
+         *            the offset in the file at which the segment starts.
+         * @param length
+         *            the length of the segment.
+         * @param in
+         *            the stream providing the data of the segment.
+         * @throws XenonException
+         *             if the segment could not be written.
+         */
+        public abstract void writeSegment(int index, long offset, long length, InputStream in) throws XenonException;
+
+        /**
+         * Complete the file after all segments have been written.
+         *
+         * @throws XenonException
+         *             if the file could not be completed.
+         */
+        public abstract void finish() throws XenonException;
+
+        /**
+         * Release the resources of a failed or cancelled segmented write, and delete the partially written file. Errors are ignored.
+         */
+        public abstract void abort();
+        /**
+         * Take a buffer from the pool of copy buffers shared by all FileSystems. It must be returned with {@link #releaseBuffer(byte[])} once the segment has
+         * been written.
+         *
+         * @param size
+         *            the size of the buffer.
+         * @return a buffer of exactly <code>size</code> bytes.
+         */
+        protected static byte[] takeBuffer(int size) {
+            return BufferPool.take(size);
+        }
+
+        /**
+         * Return a buffer taken with {@link #takeBuffer(int)} to the pool.
+         *
+         * @param buffer
+         *            the buffer to return.
+         */
+        protected static void releaseBuffer(byte[] buffer) {
+            BufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * A <code>tar</code> process started by {@link FileSystem#startArchiveReader(Path, boolean)} or {@link FileSystem#startArchiveWriter(Path, boolean)}.
+     *
+     * The streams of the process are closed by the caller before it calls {@link #waitFor()}. If the transfer fails or is cancelled, {@link #destroy()} is
+     * called instead.
+     */
+    protected abstract static class ArchiveProcess {
+
+        /** The maximum amount of error output kept for a process, so a tar that reports a problem for every file does not fill the heap. */
+        protected static final int MAX_ERROR_OUTPUT = 4096;
+
+        /**
+         * Get the stream connected to the standard input of the process.
+         *
+         * @return the standard input of the process.
+         */
+        public abstract OutputStream getInput();
+
+        /**
+         * Get the stream connected to the standard output of the process.
+         *
+         * @return the standard output of the process.
+         */
+        public abstract InputStream getOutput();
+
+        /**
+         * Wait until the process has terminated.
+         *
+         * @return the exit status of the process.
+         * @throws XenonException
+         *             if waiting for the process failed.
+         */
+        public abstract int waitFor() throws XenonException;
+
+        /**
+         * Get the error output produced by the process so far.
+         *
+         * @return the error output of the process.
+         */
+        public abstract String getErrorOutput();
+
+        /**
+         * Kill the process and release its resources. Errors are ignored.
+         */
+        public abstract void destroy();
+    }
+
+    /**
+     * Provides the data of a single segment. Reads at most <code>length</code> bytes from the underlying stream, and adds them to the progress of the copy
+     * and to the bytes transferred by all segments of the file.
+     */
+    private class SegmentInputStream extends FilterInputStream {
+
+        private final CopyCallback callback;
+        private final AtomicLong transferred;
+        private long remaining;
+
+        SegmentInputStream(InputStream in, long length, CopyCallback callback, AtomicLong transferred) {
+            super(in);
+            this.remaining = length;
+            this.callback = callback;
+            this.transferred = transferred;
+        }
+
+        private int update(int bytes) throws IOException {
+
+            if (bytes > 0) {
+                remaining -= bytes;
+
+                try {
+                    throttle(callback, bytes);
+                } catch (CopyCancelledException e) {
+                    throw new InterruptedIOException("Copy cancelled by user");
+                }
+
+                transferred.addAndGet(bytes);
+                callback.addBytesCopied(bytes);
+            }
+
+            if (callback.isCancelled()) {
+                throw new InterruptedIOException("Copy cancelled by user");
+            }
+
+            return bytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int b = super.read();
+
+            if (b >= 0) {
+                update(1);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            return update(super.read(b, off, (int) Math.min(len, remaining)));
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("Skip not supported");
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        long getRemaining() {
+            return remaining;
+        }
+    }
+
+    /**
+     * Records the number of bytes written to a file in the journal of a resumable copy, once every {@link FileSystem#CHECKPOINT_INTERVAL} bytes and when the
+     * stream is closed.
+     */
+    private class CheckpointOutputStream extends FilterOutputStream {
+
+        private final CopyJournal journal;
+        private final Path source;
+
+        private long offset;
+        private long checkpoint;
+
+        CheckpointOutputStream(OutputStream out, CopyJournal journal, Path source, long offset) {
+            super(out);
+            this.journal = journal;
+            this.source = source;
+            this.offset = offset;
+            this.checkpoint = offset;
+        }
+
+        private void checkpoint() throws IOException {
+            try {
+                journal.checkpoint(source, offset);
+            } catch (XenonException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+
+            checkpoint = offset;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            offset += len;
+
+            if (offset - checkpoint >= CHECKPOINT_INTERVAL) {
+                // Make sure the data has left our buffers before recording it.
+                out.flush();
+                checkpoint();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            checkpoint();
+        }
+    }
+
+    /** The maximum number of bytes transferred between two channels at a time. */
+    private static final int CHANNEL_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /** The number of bytes copied between two checkpoints of a resumable copy. */
+    private static final long CHECKPOINT_INTERVAL = 16L * 1024L * 1024L;
+
+    /** The number of bytes before the last checkpoint that are compared before a copy is resumed. */
+    private static final int RESUME_VERIFY_SIZE = 64 * 1024;
+
+    /** The number of buffers that circulate between the reader and the writer of a stream copy. */
+    private static final int PIPELINE_DEPTH = 4;
+
+    /** The algorithm used to compare the content of files in a synchronizing copy. */
+    private static final String SYNC_CHECKSUM_ALGORITHM = "SHA-256";
+
+    /** A bundle of fewer files is not worth starting two tar processes for. */
+    private static final int MINIMUM_BUNDLE_SIZE = 2;
+
+    /** In auto mode, data smaller than this is not worth sampling and compressing. */
+    private static final long MINIMUM_COMPRESSED_SIZE = 8 * 1024;
+
+    /** The number of directory listings per list thread that may wait for the iterator of a parallel listing. */
+    private static final int MAX_BUFFERED_LISTINGS = 4;
+
+    /** The number of paths in a directory for which listing the directory is cheaper than looking them up one by one. */
+    private static final int MINIMUM_LISTING_GROUP = 2;
+
     private final String uniqueID;
     private final String adaptor;
     private final String location;
     private final XenonProperties properties;
     private final ExecutorService pool;
+    private final ExecutorService transferPool;
+    private final ExecutorService segmentPool;
+    private final ExecutorService readPool;
+    private final ForkJoinPool listPool;
+    private final AttributeCache attributeCache;
+    private final int watchInterval;
+
+    private final long segmentThreshold;
+    private final long segmentSize;
+    private final String journalDirectory;
+    private final boolean syncChecksum;
+    private final String checksumAlgorithm;
+    private final boolean verifyChecksum;
+    private final int copyWeight;
+    private final long progressInterval;
+    private final boolean adaptiveBufferSize;
+    private final long bundleThreshold;
+    private final String compressTransfers;
 
     private Path workingDirectory;
 
-    private long nextCopyID = 0;
+    private final AtomicLong nextCopyID = new AtomicLong();
+
+    private final AtomicLong nextWatchID = new AtomicLong();
+
+    // Created by the first watch that polls.
+    private WatchPoller watchPoller;
 
     private int bufferSize;
 
-    private final HashMap<String, PendingCopy> pendingCopies = new HashMap<>();
+    private final CopyRegistry<PendingCopy> copies;
 
     protected FileSystem(String uniqueID, String adaptor, String location, Path workDirectory, int bufferSize, XenonProperties properties) {
 
@@ -451,14 +1101,114 @@ public abstract class FileSystem implements AutoCloseable {
             return t;
         };
 
-        this.pool = Executors.newFixedThreadPool(1, f);
-    }
-
-    private synchronized String getNextCopyID() {
-        return "COPY-" + getAdaptorName() + "-" + nextCopyID++;
-    }
+        ThreadFactory tf = r -> {
+            Thread t = new Thread(r, "TransferThread-" + adaptor + "-" + uniqueID);
+            t.setDaemon(true);
+            return t;
+        };
 
-    /**
+        ThreadFactory sf = r -> {
+            Thread t = new Thread(r, "SegmentThread-" + adaptor + "-" + uniqueID);
+            t.setDaemon(true);
+            return t;
+        };
+
+        ThreadFactory rf = r -> {
+            Thread t = new Thread(r, "ReadThread-" + adaptor + "-" + uniqueID);
+            t.setDaemon(true);
+            return t;
+        };
+
+        int copyThreads = getCopyThreads();
+
+        // With a single copy thread, copy operations run one after another. Otherwise they only schedule transfers and wait for them, so they do not need
+        // to be limited. The transfers themselves are. A segmented transfer waits for its segments, so these need a pool of their own.
+        this.pool = copyThreads == 1 ? Executors.newFixedThreadPool(1, f) : Executors.newCachedThreadPool(f);
+        this.transferPool = Executors.newFixedThreadPool(copyThreads, tf);
+        this.segmentPool = Executors.newFixedThreadPool(copyThreads, sf);
+
+        // Each stream copy reads its input on a thread of its own, while the transfer thread writes the output.
+        this.readPool = Executors.newCachedThreadPool(rf);
+
+        // Recursive listings fan out over a pool of their own, which limits the number of concurrent listings on this file system.
+        int listThreads = getCopyProperty(FileAdaptor.LIST_THREADS, 1, name -> properties.getIntegerProperty(name));
+
+        if (listThreads > 1) {
+            this.listPool = new ForkJoinPool(listThreads, p -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                t.setName("ListThread-" + adaptor + "-" + uniqueID);
+                t.setDaemon(true);
+                return t;
+            }, null, false);
+        } else {
+            this.listPool = null;
+        }
+
+        this.segmentThreshold = getCopyProperty(FileAdaptor.SEGMENT_THRESHOLD, 0L, name -> properties.getSizeProperty(name));
+        this.segmentSize = Math.max(1, getCopyProperty(FileAdaptor.SEGMENT_SIZE, 1L, name -> properties.getSizeProperty(name)));
+        this.journalDirectory = getCopyProperty(FileAdaptor.COPY_JOURNAL_DIRECTORY, "", name -> properties.getStringProperty(name));
+        this.syncChecksum = getCopyProperty(FileAdaptor.SYNC_CHECKSUM, false, name -> properties.getBooleanProperty(name));
+        this.checksumAlgorithm = getCopyProperty(FileAdaptor.COPY_CHECKSUM, "", name -> properties.getStringProperty(name));
+        this.verifyChecksum = getCopyProperty(FileAdaptor.VERIFY_CHECKSUM, false, name -> properties.getBooleanProperty(name));
+        this.copyWeight = getCopyProperty(FileAdaptor.COPY_WEIGHT, 1, name -> properties.getIntegerProperty(name));
+        this.progressInterval = getCopyProperty(FileAdaptor.COPY_PROGRESS_INTERVAL, 1000, name -> properties.getIntegerProperty(name));
+        this.adaptiveBufferSize = getCopyProperty(FileAdaptor.ADAPTIVE_BUFFER_SIZE, false, name -> properties.getBooleanProperty(name));
+        this.bundleThreshold = getCopyProperty(FileAdaptor.BUNDLE_THRESHOLD, 0L, name -> properties.getSizeProperty(name));
+        this.compressTransfers = getCopyProperty(FileAdaptor.COMPRESS_TRANSFERS, FileAdaptor.COMPRESS_NEVER, name -> properties.getStringProperty(name));
+
+        int attributeCacheTime = getCopyProperty(FileAdaptor.ATTRIBUTE_CACHE_TIME, 0, name -> properties.getIntegerProperty(name));
+
+        if (attributeCacheTime > 0) {
+            this.attributeCache = new AttributeCache(attributeCacheTime,
+                    getCopyProperty(FileAdaptor.ATTRIBUTE_CACHE_SIZE, 10000, name -> properties.getIntegerProperty(name)));
+        } else {
+            this.attributeCache = null;
+        }
+
+        this.watchInterval = getCopyProperty(FileAdaptor.WATCH_INTERVAL, 1000, name -> properties.getIntegerProperty(name));
+
+        this.copies = new CopyRegistry<>(getCopyProperty(FileAdaptor.COPY_HISTORY_SIZE, 1000, name -> properties.getIntegerProperty(name)),
+                getCopyProperty(FileAdaptor.COPY_HISTORY_TIME, 3600000, name -> properties.getIntegerProperty(name)));
+    }
+
+    /*
+     * Reads a single property value of the given name.
+     */
+    private interface PropertyReader<T> {
+        T read(String name) throws XenonException;
+    }
+
+    /*
+     * Retrieve a property of the copy engine, or the given default if the adaptor does not support it.
+     */
+    private <T> T getCopyProperty(String property, T defaultValue, PropertyReader<T> reader) {
+
+        String name = FileAdaptor.ADAPTORS_PREFIX + adaptor + "." + property;
+
+        if (properties == null || !properties.supportsProperty(name)) {
+            return defaultValue;
+        }
+
+        try {
+            return reader.read(name);
+        } catch (XenonException e) {
+            throw new IllegalArgumentException("Invalid value for " + name, e);
+        }
+    }
+
+    /*
+     * Retrieve the number of concurrent file transfers from the properties. Adaptors that do not support the copyThreads property transfer one file at a
+     * time.
+     */
+    private int getCopyThreads() {
+        return Math.max(1, getCopyProperty(FileAdaptor.COPY_THREADS, 1, name -> properties.getIntegerProperty(name)));
+    }
+
+    private String getNextCopyID() {
+        return "COPY-" + getAdaptorName() + "-" + nextCopyID.getAndIncrement();
+    }
+
+    /**
      * Get the name of the adaptor that created this FileSystem.
      *
      * @return the name of the adaptor.
@@ -467,6 +1217,15 @@ public abstract class FileSystem implements AutoCloseable {
         return adaptor;
     }
 
+    /**
+     * Get the size of the buffer used when copying data.
+     *
+     * @return the buffer size (in bytes).
+     */
+    protected int getBufferSize() {
+        return bufferSize;
+    }
+
     /**
      * Get the location of the FileSystem.
      *
@@ -547,6 +1306,22 @@ public abstract class FileSystem implements AutoCloseable {
     public void close() throws XenonException {
         try {
             pool.shutdownNow();
+            transferPool.shutdownNow();
+            segmentPool.shutdownNow();
+            readPool.shutdownNow();
+
+            if (listPool != null) {
+                listPool.shutdownNow();
+            }
+
+            synchronized (this) {
+                if (watchPoller != null) {
+                    watchPoller.close();
+                    watchPoller = null;
+                }
+            }
+
+            clearAttributeCache();
         } catch (Exception e) {
             throw new XenonException(getAdaptorName(), "Failed to cleanly shutdown copy thread pool");
         }
@@ -723,7 +1498,7 @@ public abstract class FileSystem implements AutoCloseable {
 
         assertPathExists(absPath);
 
-        if (getAttributes(absPath).isDirectory()) {
+        if (cachedAttributes(absPath).isDirectory()) {
 
             Iterable<PathAttributes> itt = list(absPath, false);
 
@@ -741,6 +1516,8 @@ public abstract class FileSystem implements AutoCloseable {
         } else {
             deleteFile(absPath);
         }
+
+        invalidateAttributes(absPath);
     }
 
     /**
@@ -768,12 +1545,17 @@ public abstract class FileSystem implements AutoCloseable {
      *
      * Symbolic links are not followed.
      *
+     * A recursive listing is lazy: each subdirectory is listed when the iteration reaches it, so the first entries are available right away and the memory
+     * used does not grow with the size of the tree. If a subdirectory cannot be listed, the iterator throws a {@link XenonRuntimeException} with the
+     * {@link XenonException} as its cause. If the <code>listThreads</code> property of the adaptor is larger than 1, several subdirectories are listed at the
+     * same time. The entries of a directory then still follow the directory itself, but the order of the directories is not defined.
+     *
      * @param dir
      *            the target directory.
      * @param recursive
      *            should the list recursively traverse the subdirectories ?
      *
-     * @return a {@link List} of {@link PathAttributes} that iterates over all entries in the directory <code>dir</code>.
+     * @return an {@link Iterable} of {@link PathAttributes} that iterates over all entries in the directory <code>dir</code>.
      *
      * @throws NoSuchPathException
      *             If a directory does not exists.
@@ -792,11 +1574,134 @@ public abstract class FileSystem implements AutoCloseable {
 
         assertDirectoryExists(dir);
 
+        if (recursive) {
+            // The top directory is listed right away, so errors in dir itself are still thrown by this method.
+            Iterable<PathAttributes> listing = listDirectory(absolute);
+
+            if (listPool != null) {
+                return () -> new ParallelListing(this, listPool, MAX_BUFFERED_LISTINGS * listPool.getParallelism(), absolute, listing);
+            }
+
+            return () -> new RecursiveListing(this, absolute, listing);
+        }
+
         ArrayList<PathAttributes> result = new ArrayList<>();
-        list(absolute, result, recursive);
+        list(absolute, result, false);
         return result;
     }
 
+    /**
+     * List the entries in the directory <code>dir</code> and its subdirectories that match a query.
+     *
+     * Only the subdirectories the query descends into are listed, so a limited depth or a pruned subtree saves the listings below it. Directories at the
+     * maximum depth are listed in a way that lets the adaptor skip entries that do not match, for example by not retrieving their attributes, or by passing the
+     * name prefix of the query to the server. A lightweight query also skips the attributes that are not needed to walk the tree, see
+     * {@link ListQuery#setLightweight(boolean)}.
+     *
+     * Symbolic links are not followed. Like a recursive {@link #list(Path, boolean)}, the listing is lazy, and a subdirectory that cannot be listed makes the
+     * iterator throw a {@link XenonRuntimeException} with the {@link XenonException} as its cause. The entries of a directory are returned before those of its
+     * subdirectories.
+     *
+     * @param dir
+     *            the target directory.
+     * @param query
+     *            the query that selects the entries to return.
+     *
+     * @return an {@link Iterable} of {@link PathAttributes} that iterates over the matching entries.
+     *
+     * @throws NoSuchPathException
+     *             If a directory does not exists.
+     * @throws InvalidPathException
+     *             If <code>dir</code> is not a directory.
+     * @throws NotConnectedException
+     *             If file system is closed.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If path or query is null.
+     */
+    public Iterable<PathAttributes> list(Path dir, ListQuery query) throws XenonException {
+
+        if (query == null) {
+            throw new IllegalArgumentException("Query is null");
+        }
+
+        Path absolute = toAbsolutePath(dir);
+
+        assertDirectoryExists(dir);
+
+        // The top directory is listed right away, so errors in dir itself are still thrown by this method.
+        Iterable<PathAttributes> listing = RecursiveListing.listLevel(this, query, absolute, 1);
+
+        return () -> new RecursiveListing(this, query, absolute, listing);
+    }
+
+    /**
+     * Watch a directory for entries that are created, deleted or modified.
+     *
+     * This replaces polling for a path with {@link #exists(Path)}, and is much cheaper for the server. Adaptors that get change notifications from the file
+     * system use those. Others list each watched directory once per interval (set with the <code>watchInterval</code> property of the adaptor), however many
+     * watches it has, and compare the listing to the previous one. Changes made within one interval may then be combined or missed: a file that is created and
+     * removed again is not reported, and a file that is written several times is reported as modified once.
+     *
+     * The watch is not recursive: changes below subdirectories are not reported, but their creation and removal is. The watch ends when it is removed with
+     * {@link #unwatch(String)}, when the FileSystem is closed, or when the directory can no longer be watched, in which case
+     * {@link WatchListener#watchFailed(Path, XenonException)} is called.
+     *
+     * @param dir
+     *            the directory to watch.
+     * @param listener
+     *            the listener that receives the changes.
+     *
+     * @return the identifier of the watch, used to remove it.
+     *
+     * @throws NoSuchPathException
+     *             If the directory does not exists.
+     * @throws InvalidPathException
+     *             If <code>dir</code> is not a directory.
+     * @throws NotConnectedException
+     *             If file system is closed.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If dir or listener is null.
+     */
+    public String watch(Path dir, WatchListener listener) throws XenonException {
+
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener is null");
+        }
+
+        Path absolute = toAbsolutePath(dir);
+
+        assertDirectoryExists(dir);
+
+        String watchIdentifier = "WATCH-" + getAdaptorName() + "-" + nextWatchID.getAndIncrement();
+        startWatch(watchIdentifier, absolute, listener);
+        return watchIdentifier;
+    }
+
+    /**
+     * Remove a watch created with {@link #watch(Path, WatchListener)}. The listener of the watch receives no more events once this method returns, unless one
+     * was being delivered at the time.
+     *
+     * @param watchIdentifier
+     *            the identifier of the watch.
+     *
+     * @return <code>true</code> if the watch was removed, or <code>false</code> if there was no such watch, for example because it failed.
+     *
+     * @throws IllegalArgumentException
+     *             If watchIdentifier is null.
+     */
+    public boolean unwatch(String watchIdentifier) {
+
+        if (watchIdentifier == null) {
+            throw new IllegalArgumentException("Watch identifier is null");
+        }
+
+        return stopWatch(watchIdentifier);
+    }
+
     /**
      * Open an existing file and return an {@link InputStream} to read from this file.
      *
@@ -925,6 +1830,170 @@ public abstract class FileSystem implements AutoCloseable {
      */
     public abstract PathAttributes getAttributes(Path path) throws XenonException;
 
+    /**
+     * Get the {@link PathAttributes} of several paths at once.
+     *
+     * Paths that do not exist are left out of the result. Depending on the adaptor, the attributes are retrieved in fewer round trips than with a separate
+     * call to {@link #getAttributes(Path)} for each path, for example by answering paths that share a parent directory from a single listing.
+     *
+     * @param paths
+     *            the paths to get the attributes of.
+     *
+     * @return the attributes of the existing paths, keyed by the paths as given, in the order of <code>paths</code>.
+     *
+     * @throws NotConnectedException
+     *             If file system is closed.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If paths is null or contains null.
+     */
+    public Map<Path, PathAttributes> getAttributes(Collection<Path> paths) throws XenonException {
+
+        if (paths == null) {
+            throw new IllegalArgumentException("Paths is null");
+        }
+
+        Map<Path, PathAttributes> result = new LinkedHashMap<>();
+
+        for (Path p : paths) {
+            try {
+                result.put(p, getAttributes(p));
+            } catch (NoSuchPathException e) {
+                // Left out of the result.
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Test if several paths exist at once.
+     *
+     * This is answered by {@link #getAttributes(Collection)}, so it takes as many round trips as retrieving the attributes of the paths.
+     *
+     * @param paths
+     *            the paths to test.
+     *
+     * @return for each path, if it exists, keyed by the paths as given, in the order of <code>paths</code>.
+     *
+     * @throws NotConnectedException
+     *             If file system is closed.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If paths is null or contains null.
+     */
+    public Map<Path, Boolean> exists(Collection<Path> paths) throws XenonException {
+
+        Map<Path, PathAttributes> attributes = getAttributes(paths);
+        Map<Path, Boolean> result = new LinkedHashMap<>();
+
+        for (Path p : paths) {
+            result.put(p, attributes.containsKey(p));
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the {@link PathAttributes} of several paths by listing their parent directories.
+     *
+     * The paths are grouped by parent directory, and each parent that holds more than one of the paths is listed once with {@link #listDirectory(Path)}. The
+     * other paths are looked up with {@link #getAttributes(Path)}. Adaptors for which a listing costs about as much as a single lookup can implement
+     * {@link #getAttributes(Collection)} with this method.
+     *
+     * @param paths
+     *            the paths to get the attributes of.
+     *
+     * @return the attributes of the existing paths, keyed by the paths as given, in the order of <code>paths</code>.
+     *
+     * @throws XenonException
+     *             if an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If paths is null or contains null.
+     */
+    protected Map<Path, PathAttributes> getAttributesFromListings(Collection<Path> paths) throws XenonException {
+
+        if (paths == null) {
+            throw new IllegalArgumentException("Paths is null");
+        }
+
+        Map<Path, List<Path>> groups = new LinkedHashMap<>();
+
+        for (Path p : paths) {
+            Path parent = toAbsolutePath(p).getParent();
+            groups.computeIfAbsent(parent, k -> new ArrayList<>()).add(p);
+        }
+
+        Map<Path, PathAttributes> found = new HashMap<>();
+
+        for (Map.Entry<Path, List<Path>> group : groups.entrySet()) {
+
+            Path parent = group.getKey();
+            List<Path> members = group.getValue();
+
+            if (parent == null || members.size() < MINIMUM_LISTING_GROUP) {
+                for (Path p : members) {
+                    try {
+                        found.put(p, getAttributes(p));
+                    } catch (NoSuchPathException e) {
+                        // Left out of the result.
+                    }
+                }
+            } else {
+                Map<String, PathAttributes> listing = listByName(parent);
+
+                for (Path p : members) {
+                    PathAttributes a = listing.get(toAbsolutePath(p).getFileNameAsString());
+
+                    if (a != null) {
+                        found.put(p, a);
+                    }
+                }
+            }
+        }
+
+        Map<Path, PathAttributes> result = new LinkedHashMap<>();
+
+        for (Path p : paths) {
+            PathAttributes a = found.get(p);
+
+            if (a != null) {
+                result.put(p, a);
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * List a directory, keyed by the names of its entries. A parent that does not exist, or is not a directory, has no entries.
+     */
+    private Map<String, PathAttributes> listByName(Path dir) throws XenonException {
+
+        Map<String, PathAttributes> result = new HashMap<>();
+
+        try {
+            for (PathAttributes p : listDirectory(dir)) {
+                result.put(p.getPath().getFileNameAsString(), p);
+            }
+        } catch (NotConnectedException e) {
+            throw e;
+        } catch (XenonException e) {
+            // Not all adaptors report a missing directory as such when listing it.
+            try {
+                if (getAttributes(dir).isDirectory()) {
+                    throw e;
+                }
+            } catch (NoSuchPathException ex) {
+                // No entries.
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Reads the target of a symbolic link (optional operation).
      *
@@ -970,61 +2039,582 @@ public abstract class FileSystem implements AutoCloseable {
     public abstract void setPosixFilePermissions(Path path, Set<PosixFilePermission> permissions) throws XenonException;
 
     /**
-     * Convert the provided path to an absolute path by (if necessary) resolving a relative path against the working directory of this FileSystem. The resulting
-     * path is also normalized.
+     * Forget all attributes cached by this FileSystem.
      *
-     * @param path
-     *            the path to convert
-     * @throws IllegalArgumentException
-     *             if path is null.
-     * @return an absolute path
+     * If the <code>attributeCacheTime</code> property of the adaptor is larger than 0, the existence and attributes of paths checked before file operations are
+     * cached for that time. Changes made through this FileSystem are taken into account right away, but changes made by others are only seen once the cached
+     * entries expire, or after this method is called.
      */
-    protected Path toAbsolutePath(Path path) {
-
-        assertNotNull(path);
-
-        if (path.isAbsolute()) {
-            return path.normalize();
+    public void clearAttributeCache() {
+        if (attributeCache != null) {
+            attributeCache.clear();
         }
+    }
 
-        return workingDirectory.resolve(path).normalize();
+    /**
+     * Return the number of checks that were answered by the attribute cache of this FileSystem.
+     *
+     * @return the number of cache hits, or 0 if the cache is disabled.
+     */
+    public long getAttributeCacheHits() {
+        return attributeCache == null ? 0 : attributeCache.getHits();
     }
 
     /**
-     * Copy data from <code>in</code> to <code>out</code> using a buffer size of <code>buffersize</code>.
+     * Return the number of checks that needed to ask the server because the attribute cache of this FileSystem had no valid entry.
      *
-     * After each <code>buffersize</code> block of data, <code>callback.addBytesCopied</code> will be invoked to report the number of bytes copied and
-     * <code>callback.isCancelled</code> will be invoked to determine if the copy should continue.
+     * @return the number of cache misses, or 0 if the cache is disabled.
+     */
+    public long getAttributeCacheMisses() {
+        return attributeCache == null ? 0 : attributeCache.getMisses();
+    }
+
+    /**
+     * Forget the cached attributes of a path and all paths below it.
      *
-     * @param in
-     *            the stream to copy the data from.
-     * @param out
-     *            the stream to copy the data to.
-     * @param buffersize
-     *            the buffer size to use for copying.
-     * @param callback
-     *            the callback to report bytes copied to and check cancellation from.
-     * @throws IOException
-     *             if an I/O exception occurred.
-     * @throws CopyCancelledException
-     *             if the copy was cancelled by the user.
+     * Implementations must call this method after they create, remove, rename or write to a path, so the checks that follow do not use outdated
+     * information. Paths removed with {@link #delete(Path, boolean)} and destinations of copies are invalidated by the FileSystem itself.
+     *
+     * @param path
+     *            the path that changed.
      */
-    protected void streamCopy(InputStream in, OutputStream out, int buffersize, CopyCallback callback) throws IOException, CopyCancelledException {
+    protected void invalidateAttributes(Path path) {
+        if (attributeCache != null) {
+            attributeCache.invalidate(toAbsolutePath(path));
+        }
+    }
 
-        byte[] buffer = new byte[buffersize];
+    /*
+     * Check if a path exists, using the attribute cache if it is enabled.
+     */
+    private boolean cachedExists(Path path) throws XenonException {
 
-        int size = in.read(buffer);
+        if (attributeCache == null) {
+            return exists(path);
+        }
 
-        while (size > 0) {
-            out.write(buffer, 0, size);
+        Path absPath = toAbsolutePath(path);
+        AttributeCache.Entry e = attributeCache.get(absPath, false);
 
-            callback.addBytesCopied(size);
+        if (e != null) {
+            return e.exists();
+        }
+
+        long generation = attributeCache.getGeneration();
+        boolean result = exists(path);
+        attributeCache.putExists(absPath, result, generation);
+        return result;
+    }
+
+    /*
+     * Get the attributes of a path, using the attribute cache if it is enabled. A path that is known not to exist results in a NoSuchPathException, like it
+     * does when the attributes are retrieved.
+     */
+    private PathAttributes cachedAttributes(Path path) throws XenonException {
+
+        if (attributeCache == null) {
+            return getAttributes(path);
+        }
+
+        Path absPath = toAbsolutePath(path);
+        AttributeCache.Entry e = attributeCache.get(absPath, true);
+
+        if (e != null && !e.exists()) {
+            throw new NoSuchPathException(getAdaptorName(), "Path does not exist: " + path);
+        }
+
+        if (e != null && e.getAttributes() != null) {
+            return e.getAttributes();
+        }
+
+        long generation = attributeCache.getGeneration();
+
+        try {
+            PathAttributes result = getAttributes(path);
+
+            if (result != null) {
+                attributeCache.put(absPath, result, generation);
+            }
+
+            return result;
+        } catch (NoSuchPathException ex) {
+            attributeCache.putExists(absPath, false, generation);
+            throw ex;
+        }
+    }
+
+    /**
+     * Convert the provided path to an absolute path by (if necessary) resolving a relative path against the working directory of this FileSystem. The resulting
+     * path is also normalized.
+     *
+     * @param path
+     *            the path to convert
+     * @throws IllegalArgumentException
+     *             if path is null.
+     * @return an absolute path
+     */
+    protected Path toAbsolutePath(Path path) {
+
+        assertNotNull(path);
+
+        if (path.isAbsolute()) {
+            return path.normalize();
+        }
+
+        return workingDirectory.resolve(path).normalize();
+    }
+
+    /**
+     * Copy data from <code>in</code> to <code>out</code> using a buffer size of <code>buffersize</code>.
+     *
+     * After each <code>buffersize</code> block of data, <code>callback.addBytesCopied</code> will be invoked to report the number of bytes copied and
+     * <code>callback.isCancelled</code> will be invoked to determine if the copy should continue.
+     *
+     * @param in
+     *            the stream to copy the data from.
+     * @param out
+     *            the stream to copy the data to.
+     * @param buffersize
+     *            the buffer size to use for copying.
+     * @param callback
+     *            the callback to report bytes copied to and check cancellation from.
+     * @throws IOException
+     *             if an I/O exception occurred.
+     * @throws CopyCancelledException
+     *             if the copy was cancelled by the user.
+     */
+    protected void streamCopy(InputStream in, OutputStream out, int buffersize, CopyCallback callback) throws IOException, CopyCancelledException {
+        streamCopy(in, out, buffersize, callback, null);
+    }
+
+    /*
+     * Copy data from in to out, while updating the checksum (if any) with the data that passes through the buffers.
+     *
+     * The data is read by a separate thread, so reading the next buffer overlaps with writing the previous one. A fixed set of buffers taken from the
+     * BufferPool circulates between the reader and the writer. Once the reader has reached the end of the stream, all buffers are back with the writer and
+     * are returned to the pool. If the copy fails the reader may still hold a buffer, so the buffers are then left to the garbage collector.
+     */
+    private void streamCopy(InputStream in, OutputStream out, int buffersize, CopyCallback callback, CopyChecksum checksum)
+            throws IOException, CopyCancelledException {
+
+        BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+
+        // Room for all buffers plus the chunk that ends the stream, so the reader never blocks when handing over a chunk.
+        BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(PIPELINE_DEPTH + 1);
+
+        BufferSizeTuner tuner = callback.tuner;
+
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            free.add(BufferPool.take(tuner == null ? buffersize : tuner.getChunkSize()));
+        }
+
+        Future<?> reader = readPool.submit(() -> readChunks(in, free, filled, tuner));
+
+        boolean done = false;
+
+        try {
+            Chunk chunk = filled.take();
+
+            while (chunk.size > 0) {
+                throttle(callback, chunk.size);
+
+                out.write(chunk.buffer, 0, chunk.size);
+
+                if (checksum != null) {
+                    checksum.update(chunk.buffer, 0, chunk.size);
+                }
+
+                free.add(chunk.buffer);
+
+                callback.addBytesCopied(chunk.size);
+
+                if (tuner != null) {
+                    tuner.update(chunk.size);
+                }
+
+                if (callback.isCancelled()) {
+                    throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+                }
+
+                chunk = filled.take();
+            }
+
+            if (chunk.exception != null) {
+                throw chunk.exception;
+            }
+
+            done = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+        } finally {
+            if (done) {
+                for (byte[] buffer = free.poll(); buffer != null; buffer = free.poll()) {
+                    BufferPool.release(buffer);
+                }
+            } else {
+                reader.cancel(true);
+            }
+        }
+    }
+
+    /*
+     * A buffer filled by the reader of a stream copy. A chunk without data ends the stream, either because the end of the input was reached or because
+     * reading failed.
+     */
+    private static class Chunk {
+
+        final byte[] buffer;
+        final int size;
+        final IOException exception;
+
+        Chunk(byte[] buffer, int size, IOException exception) {
+            this.buffer = buffer;
+            this.size = size;
+            this.exception = exception;
+        }
+    }
+
+    /*
+     * The reader of a stream copy. Fills the free buffers with data from the input until the end of the stream, an error, or an interrupt. If the copy
+     * tunes its buffer size, buffers of the wrong size are exchanged for new ones from the BufferPool.
+     */
+    private static void readChunks(InputStream in, BlockingQueue<byte[]> free, BlockingQueue<Chunk> filled, BufferSizeTuner tuner) {
+        try {
+            while (true) {
+                byte[] buffer = free.take();
+
+                if (tuner != null && buffer.length != tuner.getChunkSize()) {
+                    BufferPool.release(buffer);
+                    buffer = BufferPool.take(tuner.getChunkSize());
+                }
+
+                int size = in.read(buffer);
+
+                if (size <= 0) {
+                    free.add(buffer);
+                    filled.add(new Chunk(null, 0, null));
+                    return;
+                }
+
+                filled.add(new Chunk(buffer, size, null));
+            }
+        } catch (InterruptedException e) {
+            // The writer gave up, so nobody is waiting for more data.
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            filled.add(new Chunk(null, 0, e));
+        } catch (RuntimeException e) {
+            filled.add(new Chunk(null, 0, new IOException("Failed to read data", e)));
+        }
+    }
+
+    /*
+     * Wait until the bandwidth limits of the TransferScheduler allow the copy to transfer the given number of bytes.
+     */
+    private void throttle(CopyCallback callback, int bytes) throws CopyCancelledException {
+
+        if (callback.flow == null) {
+            return;
+        }
+
+        try {
+            TransferScheduler.acquire(callback.flow, bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+        }
+    }
+
+    /**
+     * Can this FileSystem read a part of a file with {@link #readSegment(Path, long, long)} ?
+     *
+     * This default implementation returns <code>false</code>.
+     *
+     * @return if this FileSystem can read a part of a file.
+     */
+    protected boolean canReadSegments() {
+        return false;
+    }
+
+    /**
+     * Open a stream to read a part of an existing file, starting at <code>offset</code>.
+     *
+     * The returned stream must produce the data starting at <code>offset</code>, but may continue after <code>length</code> bytes. The caller will not read
+     * more than <code>length</code> bytes. This operation must be thread safe, as segments of a file are read concurrently.
+     *
+     * This default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param file
+     *            the file to read.
+     * @param offset
+     *            the offset at which to start reading.
+     * @param length
+     *            the number of bytes that will be read.
+     * @return the {@link InputStream} to read from.
+     *
+     * @throws NoSuchPathException
+     *             If the file does not exists.
+     * @throws UnsupportedOperationException
+     *             If this FileSystem cannot read a part of a file.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     */
+    protected InputStream readSegment(Path file, long offset, long length) throws XenonException {
+        throw new UnsupportedOperationException(getAdaptorName(), "Reading a part of a file is not supported");
+    }
+
+    /**
+     * Can this FileSystem write a file in segments with {@link #startSegmentedWrite(Path, long, long)} ?
+     *
+     * This default implementation returns <code>false</code>.
+     *
+     * @return if this FileSystem can write a file in segments.
+     */
+    protected boolean canWriteSegments() {
+        return false;
+    }
+
+    /**
+     * Get the minimal size of all but the last segment of a file written in segments.
+     *
+     * This default implementation returns 1.
+     *
+     * @return the minimal segment size (in bytes).
+     */
+    protected long getMinimumSegmentSize() {
+        return 1;
+    }
+
+    /**
+     * Create a new file that will be written in segments.
+     *
+     * This default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param file
+     *            the file to create.
+     * @param size
+     *            the size of the file.
+     * @param segmentSize
+     *            the size of all but the last segment.
+     * @return a {@link SegmentedWrite} used to write the segments.
+     *
+     * @throws PathAlreadyExistsException
+     *             If the file already exists.
+     * @throws UnsupportedOperationException
+     *             If this FileSystem cannot write this file in segments. The file is then copied as a single stream instead.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     */
+    protected SegmentedWrite startSegmentedWrite(Path file, long size, long segmentSize) throws XenonException {
+        throw new UnsupportedOperationException(getAdaptorName(), "Writing a file in segments is not supported");
+    }
+
+    /**
+     * Can this FileSystem read and write files with {@link #openReadChannel(Path)} and {@link #openWriteChannel(Path, long)} ?
+     *
+     * If both the source and destination of a copy support channels, the data is transferred between the two {@link FileChannel}s by the operating system
+     * where possible, instead of passing through the buffers of a stream copy. This is only useful for files that are accessible on the local machine.
+     *
+     * This default implementation returns <code>false</code>.
+     *
+     * @return if this FileSystem can read and write files using channels.
+     */
+    protected boolean canOpenChannels() {
+        return false;
+    }
+
+    /**
+     * Open a channel to read an existing file.
+     *
+     * This default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param file
+     *            the file to read.
+     * @return a FileChannel to read the file.
+     *
+     * @throws NoSuchPathException
+     *             If the file does not exist.
+     * @throws UnsupportedOperationException
+     *             If this FileSystem does not support channels.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     */
+    protected FileChannel openReadChannel(Path file) throws XenonException {
+        throw new UnsupportedOperationException(getAdaptorName(), "Channels are not supported");
+    }
+
+    /**
+     * Open a channel to write a new file.
+     *
+     * This default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param file
+     *            the file to create.
+     * @param size
+     *            the size of the file.
+     * @return a FileChannel to write the file.
+     *
+     * @throws PathAlreadyExistsException
+     *             If the file already exists.
+     * @throws UnsupportedOperationException
+     *             If this FileSystem does not support channels.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     */
+    protected FileChannel openWriteChannel(Path file, long size) throws XenonException {
+        throw new UnsupportedOperationException(getAdaptorName(), "Channels are not supported");
+    }
+
+    /**
+     * Can this FileSystem copy files to <code>destinationFS</code> on the server, using {@link #copyOnServer(Path, FileSystem, Path)} ?
+     *
+     * This is typically only possible if both file systems are connected to the same server with the same credentials. The data of a file copied on the
+     * server does not pass through this JVM, so no checksum is computed and no bandwidth limits apply. Server side copies are therefore not used when a
+     * checksum is requested.
+     *
+     * This default implementation returns <code>false</code>.
+     *
+     * @param destinationFS
+     *            the file system to copy to.
+     * @return if this FileSystem can copy files to <code>destinationFS</code> on the server.
+     */
+    protected boolean canCopyOnServer(FileSystem destinationFS) {
+        return false;
+    }
+
+    /**
+     * Copy a file on the server, without transferring its data to this JVM.
+     *
+     * When this method is called, the source is known to be a regular file and the destination does not exist. If the server cannot copy the file, an
+     * {@link UnsupportedOperationException} must be thrown, after removing any partial destination file. The copy then falls back to transferring the data.
+     *
+     * This default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param source
+     *            the file to copy.
+     * @param destinationFS
+     *            the destination {@link FileSystem}, for which {@link #canCopyOnServer(FileSystem)} returned <code>true</code>.
+     * @param destination
+     *            the file to create on the destination file system.
+     *
+     * @throws UnsupportedOperationException
+     *             If the server could not copy the file.
+     * @throws XenonException
+     *             if an I/O error occurred.
+     */
+    protected void copyOnServer(Path source, FileSystem destinationFS, Path destination) throws XenonException {
+        throw new UnsupportedOperationException(getAdaptorName(), "Server side copy is not supported");
+    }
+
+    /**
+     * Can this FileSystem run <code>tar</code> to read and write archives with {@link #startArchiveReader(Path, boolean)} and
+     * {@link #startArchiveWriter(Path, boolean)} ?
+     *
+     * If both the source and destination of a recursive copy can, the files smaller than the <code>bundleThreshold</code> of the source adaptor are
+     * transferred as a single tar stream, instead of one by one. This saves several round trips per file. If the source adaptor compresses transfers, the tar
+     * streams are compressed, and other files that keep their name are streamed through tar as well.
+     *
+     * This default implementation returns <code>false</code>.
+     *
+     * @return if this FileSystem can read and write archives.
+     */
+    protected boolean canStreamArchives() {
+        return false;
+    }
+
+    /**
+     * Is the data of this FileSystem reached over a network?
+     *
+     * Tar streams and compression save round trips and bandwidth, but cost two processes and CPU time, so they are only used if the source or the destination
+     * of a copy is remote.
+     *
+     * This default implementation returns <code>true</code>.
+     *
+     * @return if the data of this FileSystem is reached over a network.
+     */
+    protected boolean isRemote() {
+        return true;
+    }
+
+    /**
+     * Start a process that writes an archive of files in a directory to its standard output.
+     *
+     * The process runs <code>tar --null -cf - -C dir -T -</code>, with the <code>-z</code> option if the archive is compressed. It reads the names of the
+     * files to archive from its standard input, relative to <code>dir</code> and each terminated by a NUL character.
+     *
+     * This default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param dir
+     *            the directory containing the files to archive.
+     * @param compress
+     *            if the archive is compressed with gzip.
+     * @return the started process.
+     *
+     * @throws UnsupportedOperationException
+     *             If this FileSystem cannot run tar.
+     * @throws XenonException
+     *             if the process could not be started.
+     */
+    protected ArchiveProcess startArchiveReader(Path dir, boolean compress) throws XenonException {
+        throw new UnsupportedOperationException(getAdaptorName(), "Archive streams are not supported");
+    }
+
+    /**
+     * Start a process that extracts the archive written to its standard input into a directory.
+     *
+     * The process runs <code>tar -xf - -C dir</code>, with the <code>-z</code> option if the archive is compressed.
+     *
+     * This default implementation throws an {@link UnsupportedOperationException}.
+     *
+     * @param dir
+     *            the directory to extract the archive into.
+     * @param compress
+     *            if the archive is compressed with gzip.
+     * @return the started process.
+     *
+     * @throws UnsupportedOperationException
+     *             If this FileSystem cannot run tar.
+     * @throws XenonException
+     *             if the process could not be started.
+     */
+    protected ArchiveProcess startArchiveWriter(Path dir, boolean compress) throws XenonException {
+        throw new UnsupportedOperationException(getAdaptorName(), "Archive streams are not supported");
+    }
+
+    /*
+     * Copy the data of a file between two channels in chunks, so progress, bandwidth limits, checkpoints and cancellation are handled as in a stream copy.
+     */
+    private void channelCopy(FileChannel in, FileChannel out, long size, Path source, CopyJournal journal, CopyCallback callback)
+            throws IOException, XenonException {
+
+        long position = 0;
+        long checkpoint = 0;
+
+        while (position < size) {
+
+            int chunk = (int) Math.min(CHANNEL_CHUNK_SIZE, size - position);
+
+            throttle(callback, chunk);
+
+            long transferred = in.transferTo(position, chunk, out);
+
+            // The file was truncated while we were copying it
+            if (transferred == 0) {
+                throw new XenonException(getAdaptorName(), "Unexpected end of file " + source + " after " + position + " of " + size + " bytes");
+            }
+
+            position += transferred;
+            callback.addBytesCopied(transferred);
+
+            if (journal != null && position - checkpoint >= CHECKPOINT_INTERVAL) {
+                journal.checkpoint(source, position);
+                checkpoint = position;
+            }
 
             if (callback.isCancelled()) {
                 throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
             }
-
-            size = in.read(buffer);
         }
     }
 
@@ -1062,90 +2652,492 @@ public abstract class FileSystem implements AutoCloseable {
      */
     protected void copySymbolicLink(Path source, FileSystem destinationFS, Path destination, CopyMode mode, CopyCallback callback) throws XenonException {
 
-        PathAttributes attributes = getAttributes(source);
+        PathAttributes attributes = getAttributes(source);
+
+        if (!attributes.isSymbolicLink()) {
+            throw new InvalidPathException(getAdaptorName(), "Source is not a regular file: " + source);
+        }
+
+        destinationFS.assertParentDirectoryExists(destination);
+
+        if (destinationFS.exists(destination)) {
+            switch (mode) {
+            case CREATE:
+                throw new PathAlreadyExistsException(getAdaptorName(), "Destination path already exists: " + destination);
+            case IGNORE:
+            case RESUME:
+            case SYNC:
+                return;
+            case REPLACE:
+                // continue
+                break;
+            }
+        }
+
+        Path target = readSymbolicLink(source);
+        destinationFS.createSymbolicLink(destination, target);
+    }
+
+    /**
+     * Copy a single file to another file system.
+     *
+     * This is a blocking copy operation. It only returns once the file has been copied or the copy has failed.
+     *
+     * This operation may be re-implemented by the various implementations of FileSystem. This default implementation is based on a simple stream based copy.
+     *
+     * @param source
+     *            the file to copy.
+     * @param destinationFS
+     *            the destination {@link FileSystem} to copy to.
+     * @param destination
+     *            the destination file on the destination file system.
+     * @param mode
+     *            selects what should happen if the destination file already exists
+     * @param callback
+     *            a {@link CopyCallback} used to update the status of the copy, or cancel it while in progress.
+     *
+     * @throws InvalidPathException
+     *             if the provide source is not a regular file.
+     * @throws NoSuchPathException
+     *             if the source file does not exist or the destination parent directory does not exist.
+     * @throws PathAlreadyExistsException
+     *             if the destination file already exists.
+     * @throws XenonException
+     *             If the file could not be copied.
+     */
+    protected void copyFile(Path source, FileSystem destinationFS, Path destination, CopyMode mode, CopyCallback callback) throws XenonException {
+
+        PathAttributes attributes = getAttributes(source);
+
+        if (!attributes.isRegular()) {
+            throw new InvalidPathException(getAdaptorName(), "Source is not a regular file: " + source);
+        }
+
+        destinationFS.assertParentDirectoryExists(destination);
+
+        PathAttributes target = destinationFS.exists(destination) ? destinationFS.getAttributes(destination) : null;
+
+        copyFile(attributes, destinationFS, destination, target, mode, callback);
+    }
+
+    /*
+     * Copy a regular file of which the attributes are already known, as is the case for the files found while listing a directory. The parent directory of
+     * the destination must exist, and target must contain the attributes of the destination, or null if it does not exist.
+     */
+    private void copyFile(PathAttributes attributes, FileSystem destinationFS, Path destination, PathAttributes target, CopyMode mode, CopyCallback callback)
+            throws XenonException {
+        try {
+            transferFile(attributes, destinationFS, destination, target, mode, callback);
+        } finally {
+            // The destination may have been written in many ways, not all of which pass through the public methods of the destination.
+            destinationFS.invalidateAttributes(destination);
+        }
+    }
+
+    private void transferFile(PathAttributes attributes, FileSystem destinationFS, Path destination, PathAttributes target, CopyMode mode,
+            CopyCallback callback) throws XenonException {
+
+        Path source = attributes.getPath();
+
+        CopyJournal journal = mode == CopyMode.RESUME ? callback.journal : null;
+
+        if (target != null) {
+            switch (mode) {
+            case CREATE:
+                throw new PathAlreadyExistsException(getAdaptorName(), "Destination path already exists: " + destination);
+            case IGNORE:
+                return;
+            case REPLACE:
+                destinationFS.delete(destination, true);
+                // continue
+                break;
+            case RESUME:
+                if (resumeFile(source, attributes, destinationFS, destination, target, journal, callback)) {
+                    callback.fileCopied(source, destination, attributes.getSize());
+                    return;
+                }
+                // The destination was removed, so we continue with a normal copy
+                break;
+            case SYNC:
+                if (isUpToDate(attributes, destinationFS, destination, target, callback)) {
+                    return;
+                }
+                destinationFS.delete(destination, true);
+                break;
+            }
+        }
+
+        if (callback.isCancelled()) {
+            throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+        }
+
+        if (checksumAlgorithm.isEmpty() && canCopyOnServer(destinationFS)
+                && tryCopyOnServer(source, attributes, destinationFS, destination, journal, callback)) {
+            return;
+        }
+
+        if (journal == null && canCompressFile(source, destinationFS, destination) && useCompression(Collections.singletonList(attributes))) {
+            copyBundle(source.getParent(), Collections.singletonList(attributes), destinationFS, destination.getParent(), true, callback);
+            return;
+        }
+
+        if (useSegmentedTransfer(attributes.getSize(), destinationFS)) {
+
+            if (journal != null) {
+                journal.started(source, attributes.getSize(), attributes.getLastModifiedTime(), true);
+            }
+
+            if (copySegmented(source, destinationFS, destination, attributes.getSize(), callback)) {
+                if (journal != null) {
+                    journal.done(source);
+                }
+                callback.fileCopied(source, destination, attributes.getSize());
+                return;
+            }
+        }
+
+        if (journal != null) {
+            journal.started(source, attributes.getSize(), attributes.getLastModifiedTime(), false);
+        }
+
+        CopyChecksum checksum = checksumAlgorithm.isEmpty() ? null : CopyChecksum.create(checksumAlgorithm);
+
+        if (checksum == null && canOpenChannels() && destinationFS.canOpenChannels()) {
+            // The data does not pass through our buffers, so no checksum can be computed on the way.
+            try (FileChannel in = openReadChannel(source); FileChannel out = destinationFS.openWriteChannel(destination, attributes.getSize())) {
+                channelCopy(in, out, attributes.getSize(), source, journal, callback);
+            } catch (IOException e) {
+                throw new XenonException(getAdaptorName(), "Channel copy failed", e);
+            }
+        } else {
+            try (InputStream in = readFromFile(source);
+                    OutputStream out = checkpoint(destinationFS.writeToFile(destination, attributes.getSize()), journal, source, 0)) {
+                streamCopy(in, out, bufferSize, callback, checksum);
+            } catch (Exception e) {
+                throw new XenonException(getAdaptorName(), "Stream copy failed", e);
+            }
+        }
+
+        if (checksum != null) {
+            checkChecksum(checksum.getValue(), destinationFS, destination, callback);
+        }
+
+        if (journal != null) {
+            journal.done(source);
+        }
+
+        callback.fileCopied(source, destination, attributes.getSize());
+    }
+
+    /*
+     * Let the server copy a file without transferring its data. Returns false if the server could not copy the file, in which case the data must be
+     * transferred instead.
+     */
+    private boolean tryCopyOnServer(Path source, PathAttributes attributes, FileSystem destinationFS, Path destination, CopyJournal journal,
+            CopyCallback callback) throws XenonException {
+
+        if (journal != null) {
+            journal.started(source, attributes.getSize(), attributes.getLastModifiedTime(), false);
+        }
+
+        try {
+            copyOnServer(source, destinationFS, destination);
+        } catch (UnsupportedOperationException e) {
+            LOGGER.debug("Server side copy of {} failed, transferring data instead", source, e);
+            return false;
+        }
+
+        if (journal != null) {
+            journal.done(source);
+        }
+
+        callback.addBytesCopied(attributes.getSize());
+        callback.fileCopied(source, destination, attributes.getSize());
+        return true;
+    }
+
+    /*
+     * Record the checksum of the data written to a destination file. If verification is enabled, it is first compared to the checksum that the destination
+     * file system reports for the file.
+     */
+    private void checkChecksum(byte[] value, FileSystem destinationFS, Path destination, CopyCallback callback) throws XenonException {
+
+        String hex = CopyChecksum.toHex(value);
+
+        if (verifyChecksum) {
+
+            String written = CopyChecksum.toHex(destinationFS.getChecksum(destination, checksumAlgorithm));
+
+            if (!hex.equals(written)) {
+                throw new ChecksumMismatchException(getAdaptorName(),
+                        "Checksum of " + destination + " does not match the data copied (" + checksumAlgorithm + " " + written + " != " + hex + ")");
+            }
+        }
+
+        callback.addChecksum(destination, hex);
+    }
+
+    private OutputStream checkpoint(OutputStream out, CopyJournal journal, Path source, long offset) {
+
+        if (journal == null) {
+            return out;
+        }
+
+        return new CheckpointOutputStream(out, journal, source, offset);
+    }
+
+    /*
+     * Resume the copy of a file of which the destination already exists. Returns false if the destination was removed and must be copied from the start.
+     */
+    private boolean resumeFile(Path source, PathAttributes attributes, FileSystem destinationFS, Path destination, PathAttributes target, CopyJournal journal,
+            CopyCallback callback) throws XenonException {
+
+        CopyJournal.Entry entry = journal == null ? null : journal.get(source);
+
+        if (entry != null && (entry.size != attributes.getSize() || entry.lastModified != attributes.getLastModifiedTime())) {
+            throw new InvalidResumeTargetException(getAdaptorName(), "Source file changed since the copy was interrupted: " + source);
+        }
+
+        if (!target.isRegular()) {
+            throw new InvalidResumeTargetException(getAdaptorName(), "Resume target is not a regular file: " + destination);
+        }
+
+        long size = attributes.getSize();
+        long offset = target.getSize();
+
+        if (offset > size) {
+            throw new InvalidResumeTargetException(getAdaptorName(), "Resume target is larger than source: " + destination);
+        }
+
+        if (entry != null && entry.state == CopyJournal.State.DONE && offset == size) {
+            callback.addBytesCopied(size);
+            return true;
+        }
+
+        if (entry != null && entry.state == CopyJournal.State.SEGMENTED) {
+            // The segments may have been written in any order, so the data in the destination cannot be trusted.
+            destinationFS.delete(destination, false);
+            return false;
+        }
+
+        // All data written after the last checkpoint is verified, as well as a window before it.
+        long checkpoint = entry == null ? offset : Math.min(entry.offset, offset);
+        long verifyFrom = Math.max(0, checkpoint - RESUME_VERIFY_SIZE);
+
+        verifyResumeTarget(source, destinationFS, destination, verifyFrom, offset - verifyFrom);
+
+        if (journal != null && entry == null) {
+            journal.started(source, size, attributes.getLastModifiedTime(), false);
+        }
+
+        if (offset < size) {
+
+            OutputStream append;
+
+            try {
+                append = destinationFS.appendToFile(destination);
+            } catch (UnsupportedOperationException e) {
+                destinationFS.delete(destination, false);
+                return false;
+            }
+
+            callback.addBytesCopied(offset);
+
+            try (InputStream in = readFromOffset(this, source, offset, size - offset); OutputStream out = checkpoint(append, journal, source, offset)) {
+                streamCopy(in, out, bufferSize, callback);
+            } catch (Exception e) {
+                throw new XenonException(getAdaptorName(), "Stream copy failed", e);
+            }
+        } else {
+            callback.addBytesCopied(size);
+        }
+
+        if (journal != null) {
+            journal.done(source);
+        }
+
+        return true;
+    }
+
+    /*
+     * Check if a range of the destination of a resumed copy contains the same data as the source.
+     */
+    private void verifyResumeTarget(Path source, FileSystem destinationFS, Path destination, long offset, long length) throws XenonException {
+
+        if (length == 0) {
+            return;
+        }
+
+        byte[] expected = new byte[(int) Math.min(bufferSize, length)];
+        byte[] actual = new byte[expected.length];
+
+        try (InputStream in = readFromOffset(this, source, offset, length); InputStream target = readFromOffset(destinationFS, destination, offset, length)) {
+
+            long remaining = length;
+
+            while (remaining > 0) {
+                int size = (int) Math.min(expected.length, remaining);
+
+                if (!readFully(in, expected, size) || !readFully(target, actual, size)) {
+                    throw new InvalidResumeTargetException(getAdaptorName(), "Unexpected end of file while verifying " + destination);
+                }
+
+                if (!Arrays.equals(expected, actual)) {
+                    throw new InvalidResumeTargetException(getAdaptorName(), "Resume target does not match source: " + destination);
+                }
+
+                remaining -= size;
+            }
+        } catch (IOException e) {
+            throw new XenonException(getAdaptorName(), "Failed to verify resume target " + destination, e);
+        }
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException {
+
+        int offset = 0;
+
+        while (offset < length) {
+            int size = in.read(buffer, offset, length - offset);
+
+            if (size < 0) {
+                return false;
+            }
+
+            offset += size;
+        }
+
+        // Clear the remainder, so complete buffers can be compared.
+        Arrays.fill(buffer, length, buffer.length, (byte) 0);
+        return true;
+    }
+
+    /*
+     * Open a stream to read a file on the given file system, starting at an offset. The stream may continue after length bytes.
+     */
+    private static InputStream readFromOffset(FileSystem fs, Path file, long offset, long length) throws XenonException, IOException {
+
+        if (offset == 0) {
+            return fs.readFromFile(file);
+        }
+
+        if (fs.canReadSegments()) {
+            return fs.readSegment(file, offset, length);
+        }
+
+        InputStream in = fs.readFromFile(file);
+
+        long skipped = 0;
+
+        while (skipped < offset) {
+            long size = in.skip(offset - skipped);
+
+            if (size <= 0) {
+                if (in.read() < 0) {
+                    in.close();
+                    throw new IOException("Unexpected end of file " + file);
+                }
+                size = 1;
+            }
+
+            skipped += size;
+        }
+
+        return in;
+    }
+
+    /*
+     * Segments are written out of order, so files are not transferred in segments when a checksum is computed while copying.
+     */
+    private boolean useSegmentedTransfer(long size, FileSystem destinationFS) {
+        return segmentThreshold > 0 && checksumAlgorithm.isEmpty() && size >= segmentThreshold
+                && size > Math.max(segmentSize, destinationFS.getMinimumSegmentSize()) && canReadSegments() && destinationFS.canWriteSegments();
+    }
+
+    /*
+     * Copy a file by splitting it into segments that are transferred concurrently on the segment pool. Each segment is read and written independently, so
+     * each one uses its own connection where the adaptor needs one per stream. Returns false if the destination cannot write this file in segments, or the
+     * source cannot read it in segments after all, in which case the file must be copied as a single stream instead.
+     */
+    private boolean copySegmented(Path source, FileSystem destinationFS, Path destination, long size, CopyCallback callback) throws XenonException {
+
+        long segment = Math.max(segmentSize, destinationFS.getMinimumSegmentSize());
+        long count = (size + segment - 1) / segment;
 
-        if (!attributes.isSymbolicLink()) {
-            throw new InvalidPathException(getAdaptorName(), "Source is not a regular file: " + source);
+        if (count > Integer.MAX_VALUE) {
+            throw new XenonException(getAdaptorName(), "Too many segments needed to copy " + source);
         }
 
-        destinationFS.assertParentDirectoryExists(destination);
+        SegmentedWrite write;
 
-        if (destinationFS.exists(destination)) {
-            switch (mode) {
-            case CREATE:
-                throw new PathAlreadyExistsException(getAdaptorName(), "Destination path already exists: " + destination);
-            case IGNORE:
-                return;
-            case REPLACE:
-                // continue
-                break;
+        try {
+            write = destinationFS.startSegmentedWrite(destination, size, segment);
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+
+        TransferBatch batch = new TransferBatch(segmentPool);
+        AtomicLong transferred = new AtomicLong();
+
+        try {
+            for (int i = 0; i < count; i++) {
+
+                if (callback.isCancelled()) {
+                    batch.cancelAll();
+                    throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+                }
+
+                int index = i;
+                long offset = i * segment;
+                long length = Math.min(segment, size - offset);
+
+                batch.submit(() -> {
+                    copySegment(source, write, index, offset, length, callback, transferred);
+                    return null;
+                });
             }
+
+            batch.awaitAll(callback);
+            write.finish();
+        } catch (UnsupportedOperationException e) {
+            // For example, a web server that ignores the requested range. The data of the segments is transferred again by the stream copy.
+            LOGGER.debug("Cannot read {} in segments, copying it as a single stream", source, e);
+            write.abort();
+            callback.addBytesCopied(-transferred.get());
+            return false;
+        } catch (XenonException | RuntimeException e) {
+            write.abort();
+            throw e;
         }
 
-        Path target = readSymbolicLink(source);
-        destinationFS.createSymbolicLink(destination, target);
+        return true;
     }
 
-    /**
-     * Copy a single file to another file system.
-     *
-     * This is a blocking copy operation. It only returns once the file has been copied or the copy has failed.
-     *
-     * This operation may be re-implemented by the various implementations of FileSystem. This default implementation is based on a simple stream based copy.
-     *
-     * @param source
-     *            the file to copy.
-     * @param destinationFS
-     *            the destination {@link FileSystem} to copy to.
-     * @param destination
-     *            the destination file on the destination file system.
-     * @param mode
-     *            selects what should happen if the destination file already exists
-     * @param callback
-     *            a {@link CopyCallback} used to update the status of the copy, or cancel it while in progress.
-     *
-     * @throws InvalidPathException
-     *             if the provide source is not a regular file.
-     * @throws NoSuchPathException
-     *             if the source file does not exist or the destination parent directory does not exist.
-     * @throws PathAlreadyExistsException
-     *             if the destination file already exists.
-     * @throws XenonException
-     *             If the file could not be copied.
-     */
-    protected void copyFile(Path source, FileSystem destinationFS, Path destination, CopyMode mode, CopyCallback callback) throws XenonException {
+    private void copySegment(Path source, SegmentedWrite write, int index, long offset, long length, CopyCallback callback, AtomicLong transferred)
+            throws XenonException {
 
-        PathAttributes attributes = getAttributes(source);
+        try (SegmentInputStream in = new SegmentInputStream(readSegment(source, offset, length), length, callback, transferred)) {
 
-        if (!attributes.isRegular()) {
-            throw new InvalidPathException(getAdaptorName(), "Source is not a regular file: " + source);
-        }
+            write.writeSegment(index, offset, length, in);
 
-        destinationFS.assertParentDirectoryExists(destination);
+            if (in.getRemaining() > 0) {
+                throw new XenonException(getAdaptorName(), "Unexpected end of file in segment " + index + " of " + source);
+            }
+        } catch (XenonException e) {
 
-        if (destinationFS.exists(destination)) {
-            switch (mode) {
-            case CREATE:
-                throw new PathAlreadyExistsException(getAdaptorName(), "Destination path already exists: " + destination);
-            case IGNORE:
-                return;
-            case REPLACE:
-                destinationFS.delete(destination, true);
-                // continue
-                break;
+            if (callback.isCancelled()) {
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
             }
-        }
 
-        if (callback.isCancelled()) {
-            throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
-        }
+            throw e;
+        } catch (IOException e) {
 
-        try (InputStream in = readFromFile(source); OutputStream out = destinationFS.writeToFile(destination, attributes.getSize())) {
-            streamCopy(in, out, bufferSize, callback);
-        } catch (Exception e) {
-            throw new XenonException(getAdaptorName(), "Stream copy failed", e);
-        }
+            if (callback.isCancelled()) {
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+            }
 
+            throw new XenonException(getAdaptorName(), "Failed to copy segment " + index + " of " + source, e);
+        }
     }
 
     /**
@@ -1177,7 +3169,14 @@ public abstract class FileSystem implements AutoCloseable {
 
         // if (attributes.isRegular() || attributes.isSymbolicLink()) {
         if (attributes.isRegular()) {
-            copyFile(source, destinationFS, destination, mode, callback);
+            callback.start(attributes.getSize());
+
+            TransferBatch batch = new TransferBatch(transferPool);
+            batch.submit(() -> {
+                copyFile(source, destinationFS, destination, mode, callback);
+                return null;
+            });
+            batch.awaitAll(callback);
             return;
         }
 
@@ -1203,12 +3202,18 @@ public abstract class FileSystem implements AutoCloseable {
             case IGNORE:
                 return;
             case REPLACE:
+            case RESUME:
+            case SYNC:
                 // continue
                 break;
             }
 
             attributes = destinationFS.getAttributes(destination);
 
+            if (mode == CopyMode.RESUME && !attributes.isDirectory()) {
+                throw new InvalidResumeTargetException(getAdaptorName(), "Resume target is not a directory: " + destination);
+            }
+
             if (attributes.isRegular() || attributes.isSymbolicLink()) {
                 destinationFS.delete(destination, false);
                 destinationFS.createDirectory(destination);
@@ -1223,57 +3228,465 @@ public abstract class FileSystem implements AutoCloseable {
         copyRecursive(source, destinationFS, destination, mode, callback);
     }
 
+    /*
+     * Open the journal of a resumable copy, which is identified by the source and destination of the copy.
+     */
+    private CopyJournal openJournal(Path source, FileSystem destinationFS, Path destination) throws XenonException {
+
+        java.nio.file.Path dir;
+
+        if (journalDirectory == null || journalDirectory.isEmpty()) {
+            dir = Paths.get(System.getProperty("java.io.tmpdir"), "xenon-copy-journals");
+        } else {
+            dir = Paths.get(journalDirectory);
+        }
+
+        return new CopyJournal(getAdaptorName(), dir, getAdaptorName() + " " + getLocation() + " " + source,
+                destinationFS.getAdaptorName() + " " + destinationFS.getLocation() + " " + destination);
+    }
+
     private void copyRecursive(Path source, FileSystem destinationFS, Path destination, CopyMode mode, CopyCallback callback) throws XenonException {
+
+        if (mode == CopyMode.SYNC) {
+            syncRecursive(source, destinationFS, destination, callback);
+            return;
+        }
+
+        HashMap<Path, PathAttributes> targets = listTargets(destinationFS, destination);
+
         long bytesToCopy = 0;
-        Iterable<PathAttributes> listing = list(source, true);
+        ArrayList<PathAttributes> files = new ArrayList<>();
+
+        try {
+            for (PathAttributes p : list(source, true)) {
+
+                if (callback.isCancelled()) {
+                    throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+                }
+
+                if (p.isDirectory() && !isDotDot(p.getPath())) {
+
+                    Path rel = source.relativize(p.getPath());
+                    Path dst = destination.resolve(rel);
+                    PathAttributes target = targets.get(rel);
+
+                    if (target != null) {
+                        if (target.isDirectory()) {
+                            switch (mode) {
+                            case CREATE:
+                                throw new PathAlreadyExistsException(getAdaptorName(), "Directory already exists: " + dst);
+                            case REPLACE:
+                            case RESUME:
+                                break; // leave directory
+                            case IGNORE:
+                                return; // ignore subdir
+                            }
+                        } else if (mode == CopyMode.RESUME) {
+                            throw new InvalidResumeTargetException(getAdaptorName(), "Resume target is not a directory: " + dst);
+                        } else {
+                            destinationFS.delete(dst, true);
+                            destinationFS.createDirectory(dst);
+                        }
+                    } else {
+                        destinationFS.createDirectories(dst);
+                    }
+                } else if (p.isRegular()) {
+                    files.add(p);
+                    bytesToCopy += p.getSize();
+                }
+            }
+        } catch (XenonRuntimeException e) {
+            throw RecursiveListing.getCause(e);
+        }
+
+        callback.start(bytesToCopy);
 
-        for (PathAttributes p : listing) {
+        TransferBatch batch = new TransferBatch(transferPool);
+
+        boolean bundling = canBundle(destinationFS);
+        List<PathAttributes> bundle = new ArrayList<>();
+
+        for (PathAttributes p : files) {
 
             if (callback.isCancelled()) {
+                batch.cancelAll();
                 throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
             }
 
-            if (p.isDirectory() && !isDotDot(p.getPath())) {
+            Path rel = source.relativize(p.getPath());
+            Path dst = destination.resolve(rel);
+            PathAttributes target = targets.get(rel);
+
+            if (bundling && target == null && p.getSize() < bundleThreshold) {
+                bundle.add(p);
+                continue;
+            }
+
+            batch.submit(() -> {
+                copyFile(p, destinationFS, dst, target, mode, callback);
+                return null;
+            });
+        }
+
+        submitBundle(batch, source, bundle, destinationFS, destination, mode, callback);
+
+        batch.awaitAll(callback);
+    }
+
+    /*
+     * List the destination directory of a recursive copy in one go, so the files to copy need not be looked up one by one. The attributes are indexed by
+     * their path relative to the destination directory.
+     */
+    private static HashMap<Path, PathAttributes> listTargets(FileSystem destinationFS, Path destination) throws XenonException {
+
+        HashMap<Path, PathAttributes> targets = new HashMap<>();
+
+        try {
+            for (PathAttributes p : destinationFS.list(destination, true)) {
+                targets.put(destination.relativize(p.getPath()), p);
+            }
+        } catch (XenonRuntimeException e) {
+            throw RecursiveListing.getCause(e);
+        }
+
+        return targets;
+    }
+
+    /*
+     * Synchronize the destination directory with the source directory. The destination is listed once, after which only the files that are new or have
+     * changed are transferred. When checksums are used, files of equal size are compared by the transfer threads, and count as copied if they turn out to be
+     * up to date.
+     */
+    private void syncRecursive(Path source, FileSystem destinationFS, Path destination, CopyCallback callback) throws XenonException {
+
+        HashMap<Path, PathAttributes> targets = listTargets(destinationFS, destination);
+
+        long bytesToCopy = 0;
+        ArrayList<PathAttributes> transfers = new ArrayList<>();
+
+        try {
+            for (PathAttributes p : list(source, true)) {
+
+                if (callback.isCancelled()) {
+                    throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+                }
 
                 Path rel = source.relativize(p.getPath());
-                Path dst = destination.resolve(rel);
-                if (destinationFS.exists(dst)) {
-                    if (destinationFS.getAttributes(dst).isDirectory()) {
-                        switch (mode) {
-                        case CREATE:
-                            throw new PathAlreadyExistsException(getAdaptorName(), "Directory already exists: " + dst);
-                        case REPLACE:
-                            break; // leave directory
-                        case IGNORE:
-                            return; // ignore subdir
-                        }
-                    } else {
+                PathAttributes target = targets.get(rel);
+
+                if (p.isDirectory() && !isDotDot(p.getPath())) {
+
+                    Path dst = destination.resolve(rel);
+
+                    if (target != null && !target.isDirectory()) {
                         destinationFS.delete(dst, true);
+                        target = null;
                     }
+
+                    if (target == null) {
+                        destinationFS.createDirectories(dst);
+                    }
+                } else if (p.isRegular() && (target == null || syncChecksum || !isUpToDate(p, destinationFS, null, target, callback))) {
+                    transfers.add(p);
+                    bytesToCopy += p.getSize();
+                }
+            }
+        } catch (XenonRuntimeException e) {
+            throw RecursiveListing.getCause(e);
+        }
+
+        callback.start(bytesToCopy);
+
+        TransferBatch batch = new TransferBatch(transferPool);
+
+        boolean bundling = canBundle(destinationFS);
+        List<PathAttributes> bundle = new ArrayList<>();
+
+        for (PathAttributes p : transfers) {
+
+            if (callback.isCancelled()) {
+                batch.cancelAll();
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+            }
+
+            Path rel = source.relativize(p.getPath());
+            Path dst = destination.resolve(rel);
+            PathAttributes target = targets.get(rel);
+
+            if (bundling && target == null && p.getSize() < bundleThreshold) {
+                bundle.add(p);
+                continue;
+            }
+
+            batch.submit(() -> {
+                if (target != null && isUpToDate(p, destinationFS, dst, target, callback)) {
+                    callback.addBytesCopied(p.getSize());
                 } else {
-                    destinationFS.createDirectories(dst);
+                    copyFile(p, destinationFS, dst, target, CopyMode.REPLACE, callback);
                 }
-            } else if (p.isRegular()) {
-                bytesToCopy += p.getSize();
+                return null;
+            });
+        }
+
+        submitBundle(batch, source, bundle, destinationFS, destination, CopyMode.REPLACE, callback);
+
+        batch.awaitAll(callback);
+    }
+
+    /*
+     * Files are only bundled if both file systems can run tar and at least one of them is remote. Bundles are not used when the server can copy the files
+     * itself, or when a checksum is computed for each file.
+     */
+    private boolean canBundle(FileSystem destinationFS) {
+        return bundleThreshold > 0 && canStreamTo(destinationFS);
+    }
+
+    private boolean canStreamTo(FileSystem destinationFS) {
+        return checksumAlgorithm.isEmpty() && (isRemote() || destinationFS.isRemote()) && !canCopyOnServer(destinationFS) && canStreamArchives()
+                && destinationFS.canStreamArchives();
+    }
+
+    /*
+     * A single file can be sent as a compressed tar stream if it keeps its name, as tar extracts it under the name it was archived with.
+     */
+    private boolean canCompressFile(Path source, FileSystem destinationFS, Path destination) {
+        return !FileAdaptor.COMPRESS_NEVER.equals(compressTransfers) && source.getParent() != null && destination.getParent() != null
+                && source.getFileNameAsString().equals(destination.getFileNameAsString()) && canStreamTo(destinationFS);
+    }
+
+    /*
+     * Decide if the tar stream of the given files is compressed. In auto mode, small transfers are not compressed, and otherwise the first chunk of the
+     * first non-empty file is sampled.
+     */
+    private boolean useCompression(List<PathAttributes> files) throws XenonException {
+
+        if (FileAdaptor.COMPRESS_ALWAYS.equals(compressTransfers)) {
+            return true;
+        }
+
+        if (!FileAdaptor.COMPRESS_AUTO.equals(compressTransfers)) {
+            return false;
+        }
+
+        long size = 0;
+
+        for (PathAttributes p : files) {
+            size += p.getSize();
+        }
+
+        if (size < MINIMUM_COMPRESSED_SIZE) {
+            return false;
+        }
+
+        for (PathAttributes p : files) {
+            if (p.getSize() > 0) {
+                return isCompressible(p.getPath());
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isCompressible(Path file) throws XenonException {
+
+        byte[] sample = BufferPool.take(CompressionSampler.SAMPLE_SIZE);
+
+        try (InputStream in = readFromFile(file)) {
+
+            int length = 0;
+            int size = in.read(sample);
+
+            while (size > 0) {
+                length += size;
+                size = length < sample.length ? in.read(sample, length, sample.length - length) : 0;
+            }
+
+            return CompressionSampler.isCompressible(sample, length);
+        } catch (IOException e) {
+            throw new XenonException(getAdaptorName(), "Failed to sample " + file, e);
+        } finally {
+            BufferPool.release(sample);
+        }
+    }
+
+    /*
+     * Submit the transfer of a bundle of files that do not exist at the destination yet. If the bundle is too small to be worth it, the files are transferred
+     * one by one instead.
+     */
+    private void submitBundle(TransferBatch batch, Path source, List<PathAttributes> bundle, FileSystem destinationFS, Path destination, CopyMode mode,
+            CopyCallback callback) {
+
+        if (bundle.size() >= MINIMUM_BUNDLE_SIZE) {
+            batch.submit(() -> {
+                copyBundle(source, bundle, destinationFS, destination, useCompression(bundle), callback);
+                return null;
+            });
+            return;
+        }
+
+        for (PathAttributes p : bundle) {
+            Path dst = destination.resolve(source.relativize(p.getPath()));
+
+            batch.submit(() -> {
+                copyFile(p, destinationFS, dst, null, mode, callback);
+                return null;
+            });
+        }
+    }
+
+    /*
+     * Transfer a bundle of files as a single tar stream. The source directory is archived by a tar process on this file system, and extracted by a tar
+     * process on the destination file system. The names of the files are written to the archiving process by a separate thread, while the archive is copied
+     * between the processes like any other stream, so bandwidth limits and cancellation apply. Bundled files are not recorded in the journal of a resumable
+     * copy. A compressed stream is shorter than the files it contains, so the progress of the copy lags behind until the bundle is done.
+     */
+    private void copyBundle(Path source, List<PathAttributes> members, FileSystem destinationFS, Path destination, boolean compress, CopyCallback callback)
+            throws XenonException {
+
+        long size = 0;
+
+        for (PathAttributes p : members) {
+            size += p.getSize();
+        }
+
+        ArchiveProcess reader = startArchiveReader(source, compress);
+        ArchiveProcess writer;
+
+        try {
+            writer = destinationFS.startArchiveWriter(destination, compress);
+        } catch (XenonException | RuntimeException e) {
+            reader.destroy();
+            throw e;
+        }
+
+        Future<Void> names = readPool.submit(() -> writeMemberNames(reader.getInput(), source, members));
+
+        BundleCallback bundleCallback = new BundleCallback(callback, size);
+        boolean done = false;
+
+        try {
+            try (InputStream in = reader.getOutput(); OutputStream out = writer.getInput()) {
+                streamCopy(in, out, bufferSize, bundleCallback);
             }
+
+            checkArchiveProcess(reader, "create", source);
+            destinationFS.checkArchiveProcess(writer, "extract", destination);
+
+            names.get();
+            done = true;
+        } catch (IOException e) {
+            throw new XenonException(getAdaptorName(), "Bundled copy from " + source + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+        } catch (ExecutionException e) {
+            throw new XenonException(getAdaptorName(), "Failed to pass file names to tar", e.getCause());
+        } finally {
+            if (!done) {
+                names.cancel(true);
+                reader.destroy();
+                writer.destroy();
+            }
+
+            // tar creates files and directories below the destination without the destination file system knowing about it.
+            destinationFS.invalidateAttributes(destination);
+        }
+
+        bundleCallback.finish();
+
+        for (PathAttributes p : members) {
+            callback.fileCopied(p.getPath(), destination.resolve(source.relativize(p.getPath())), p.getSize());
+        }
+    }
+
+    private static Void writeMemberNames(OutputStream out, Path source, List<PathAttributes> members) throws IOException {
+
+        try (OutputStream names = new BufferedOutputStream(out)) {
+            for (PathAttributes p : members) {
+                // The ./ prefix prevents names starting with a dash from being taken as options.
+                names.write(("./" + source.relativize(p.getPath()).toString()).getBytes(StandardCharsets.UTF_8));
+                names.write(0);
+            }
+        }
+
+        return null;
+    }
+
+    private void checkArchiveProcess(ArchiveProcess process, String action, Path dir) throws XenonException {
+
+        int status = process.waitFor();
+
+        if (status != 0) {
+            throw new XenonException(getAdaptorName(),
+                    "Failed to " + action + " archive in " + dir + " (tar exit status " + status + "): " + process.getErrorOutput().trim());
+        }
+    }
+
+    /*
+     * Check if the destination of a synchronizing copy is up to date with the source. If checksums are used, the content of both files is read.
+     */
+    private boolean isUpToDate(PathAttributes source, FileSystem destinationFS, Path destination, PathAttributes target, CopyCallback callback)
+            throws XenonException {
+
+        if (!target.isRegular() || target.getSize() != source.getSize()) {
+            return false;
+        }
+
+        if (!syncChecksum) {
+            return target.getLastModifiedTime() >= source.getLastModifiedTime();
         }
 
-        callback.start(bytesToCopy);
+        return Arrays.equals(computeChecksum(this, source.getPath(), SYNC_CHECKSUM_ALGORITHM, callback),
+                computeChecksum(destinationFS, destination, SYNC_CHECKSUM_ALGORITHM, callback));
+    }
+
+    /*
+     * Compute the checksum of a file by reading its content. The callback, if any, is checked for cancellation.
+     */
+    private static byte[] computeChecksum(FileSystem fs, Path file, String algorithm, CopyCallback callback) throws XenonException {
+
+        CopyChecksum checksum = CopyChecksum.create(algorithm);
 
-        for (PathAttributes p : listing) {
+        byte[] buffer = BufferPool.take(fs.bufferSize);
 
-            if (callback.isCancelled()) {
-                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
-            }
+        try (InputStream in = fs.readFromFile(file)) {
 
-            if (p.isRegular()) {
+            int read = in.read(buffer);
 
-                Path rel = source.relativize(p.getPath());
-                Path dst = destination.resolve(rel);
+            while (read > 0) {
+
+                if (callback != null && callback.isCancelled()) {
+                    throw new CopyCancelledException(fs.getAdaptorName(), "Copy cancelled by user");
+                }
 
-                copyFile(p.getPath(), destinationFS, dst, mode, callback);
+                checksum.update(buffer, 0, read);
+                read = in.read(buffer);
             }
+        } catch (IOException e) {
+            throw new XenonException(fs.getAdaptorName(), "Failed to compute checksum of " + file, e);
+        } finally {
+            BufferPool.release(buffer);
         }
+
+        return checksum.getValue();
+    }
+
+    /**
+     * Get the checksum of a file, which is used to verify a copy to this FileSystem.
+     *
+     * This default implementation reads the file and computes the checksum. Implementations may override it to use a checksum that the data store already
+     * maintains for the file.
+     *
+     * @param file
+     *            the file to compute the checksum of.
+     * @param algorithm
+     *            the checksum algorithm, which is either <code>CRC32</code> or a {@link java.security.MessageDigest} algorithm.
+     * @return the checksum of the file. A <code>CRC32</code> value is returned as 4 bytes in big-endian order.
+     * @throws XenonException
+     *             if the checksum could not be retrieved.
+     */
+    protected byte[] getChecksum(Path file, String algorithm) throws XenonException {
+        return computeChecksum(this, file, algorithm, null);
     }
 
     /**
@@ -1325,6 +3738,96 @@ public abstract class FileSystem implements AutoCloseable {
      */
     protected abstract Iterable<PathAttributes> listDirectory(Path dir) throws XenonException;
 
+    /**
+     * Return the list of entries in a directory, of which only the cheap attributes are retrieved up front.
+     *
+     * Like {@link #listDirectory(Path)}, but the entries must at least hold their path and type. Implementations for which the complete attributes of an
+     * entry take extra work can return {@link nl.esciencecenter.xenon.adaptors.filesystems.LazyPathAttributes}, which retrieve the rest when needed. This
+     * generic implementation returns the complete attributes.
+     *
+     * @param dir
+     *            the directory to list
+     * @return a {@link Iterable} that iterates over all entries in <code>dir</code>
+     * @throws XenonException
+     *             If the list could not be retrieved.
+     */
+    protected Iterable<PathAttributes> listDirectoryLightweight(Path dir) throws XenonException {
+        return listDirectory(dir);
+    }
+
+    /**
+     * Start watching a directory.
+     *
+     * This generic implementation polls the directory with {@link #listDirectoryLightweight(Path)}, sharing a single listing per interval between all watches
+     * of the directory. Implementations that receive change notifications can override it, together with {@link #stopWatch(String)}.
+     *
+     * @param watchIdentifier
+     *            the identifier of the new watch.
+     * @param dir
+     *            the absolute path of an existing directory.
+     * @param listener
+     *            the listener that receives the changes.
+     * @throws XenonException
+     *             If the watch could not be started.
+     */
+    protected void startWatch(String watchIdentifier, Path dir, WatchListener listener) throws XenonException {
+        getWatchPoller().add(watchIdentifier, dir, listener);
+    }
+
+    /**
+     * Stop a watch started with {@link #startWatch(String, Path, WatchListener)}.
+     *
+     * @param watchIdentifier
+     *            the identifier of the watch.
+     * @return if the watch existed.
+     */
+    protected boolean stopWatch(String watchIdentifier) {
+
+        WatchPoller p;
+
+        synchronized (this) {
+            p = watchPoller;
+        }
+
+        return p != null && p.remove(watchIdentifier);
+    }
+
+    synchronized WatchPoller getWatchPoller() {
+
+        if (watchPoller == null) {
+            watchPoller = new WatchPoller(this, "WatchThread-" + adaptor + "-" + uniqueID, watchInterval);
+        }
+
+        return watchPoller;
+    }
+
+    /**
+     * Return the entries in a directory that match a query.
+     *
+     * This operation is non-recursive, and used by {@link #list(Path, ListQuery)} for directories of which the subdirectories are not needed. This generic
+     * implementation filters the result of {@link #listDirectory(Path)}. Implementations can override it to avoid work for entries that cannot match.
+     *
+     * @param dir
+     *            the directory to list
+     * @param query
+     *            the query that selects the entries to return.
+     * @return a {@link Iterable} that iterates over the matching entries in <code>dir</code>
+     * @throws XenonException
+     *             If the list could not be retrieved.
+     */
+    protected Iterable<PathAttributes> listDirectory(Path dir, ListQuery query) throws XenonException {
+
+        ArrayList<PathAttributes> result = new ArrayList<>();
+
+        for (PathAttributes p : query.isLightweight() ? listDirectoryLightweight(dir) : listDirectory(dir)) {
+            if (!isDotDot(p.getPath()) && query.matches(p)) {
+                result.add(p);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns an (optionally recursive) listing of the entries in a directory <code>dir</code>.
      *
@@ -1343,18 +3846,18 @@ public abstract class FileSystem implements AutoCloseable {
 
         Iterable<PathAttributes> tmp = listDirectory(dir);
 
-        for (PathAttributes p : tmp) {
-            if (!isDotDot(p.getPath())) {
-                list.add(p);
+        if (recursive) {
+            try {
+                new RecursiveListing(this, dir, tmp).forEachRemaining(list::add);
+            } catch (XenonRuntimeException e) {
+                throw RecursiveListing.getCause(e);
             }
+            return;
         }
 
-        if (recursive) {
-            for (PathAttributes current : tmp) {
-                // traverse subdirs provided they are not "." or "..".
-                if (current.isDirectory() && !isDotDot(current.getPath())) {
-                    list(dir.resolve(current.getPath().getFileNameAsString()), list, true);
-                }
+        for (PathAttributes p : tmp) {
+            if (!isDotDot(p.getPath())) {
+                list.add(p);
             }
         }
     }
@@ -1386,7 +3889,36 @@ public abstract class FileSystem implements AutoCloseable {
      * @throws IllegalArgumentException
      *             If source, destinationFS, destination or mode is null.
      */
-    public synchronized String copy(final Path source, final FileSystem destinationFS, final Path destination, final CopyMode mode, final boolean recursive) {
+    public String copy(final Path source, final FileSystem destinationFS, final Path destination, final CopyMode mode, final boolean recursive) {
+        return copy(source, destinationFS, destination, mode, recursive, null);
+    }
+
+    /**
+     * Asynchronously Copy an existing source path to a target path on a different file system, and report its progress to a listener.
+     *
+     * This operation behaves like {@link #copy(Path, FileSystem, Path, CopyMode, boolean)}, but in addition pushes the events of the copy to
+     * <code>listener</code>. Progress events are sent at most once per <code>copyProgressInterval</code> milliseconds, a property of the adaptor.
+     *
+     * @param source
+     *            the source path (on this filesystem) to copy from.
+     * @param destinationFS
+     *            the destination filesystem to copy to.
+     * @param destination
+     *            the destination path (on the destination filesystem) to copy to.
+     * @param mode
+     *            how to react if the destination already exists.
+     * @param recursive
+     *            if the copy should be recursive.
+     * @param listener
+     *            the listener to send the events of the copy to, or <code>null</code>.
+     *
+     * @return a {@link String} that identifies this copy and be used to inspect its progress.
+     *
+     * @throws IllegalArgumentException
+     *             If source, destinationFS, destination or mode is null.
+     */
+    public String copy(final Path source, final FileSystem destinationFS, final Path destination, final CopyMode mode, final boolean recursive,
+            final CopyListener listener) {
 
         if (source == null) {
             throw new IllegalArgumentException("Source path is null");
@@ -1407,21 +3939,315 @@ public abstract class FileSystem implements AutoCloseable {
         String copyID = getNextCopyID();
 
         final CopyCallback callback = new CopyCallback();
+        callback.flow = new TransferScheduler.Flow(copyWeight, this, destinationFS);
 
-        Future<Void> future = pool.submit(() -> {
+        if (adaptiveBufferSize) {
+            callback.tuner = new BufferSizeTuner(BufferSizeTuner.getLink(this, destinationFS), bufferSize);
+        }
 
-            if (Thread.currentThread().isInterrupted()) {
-                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+        if (listener != null) {
+            callback.setListener(listener, copyID, progressInterval);
+        }
+
+        return submit(copyID, callback, null, () -> runCopy(source, destinationFS, destination, mode, recursive, callback));
+    }
+
+    /**
+     * Asynchronously copy a batch of paths, which are identified by a single copy identifier.
+     *
+     * The copies in the batch are independent. They are scheduled together, so the files of all copies are transferred concurrently, up to the number of
+     * <code>copyThreads</code> of the adaptor. A copy that fails does not stop the others. Once all copies are done, the batch is done. If any of the copies
+     * failed, the status of the batch contains an exception of which the cause is the exception of the first failed copy.
+     *
+     * The status of the batch as a whole is retrieved with {@link #getStatus(String)}, {@link #waitUntilDone(String, long)} and {@link #cancel(String)}. The
+     * number of bytes to copy of a batch grows as its copies start. The status of the individual copies is retrieved with {@link #getItemStatus(String)}.
+     *
+     * @param requests
+     *            the copies to perform.
+     *
+     * @return a {@link String} that identifies the batch and can be used to inspect its progress.
+     *
+     * @throws IllegalArgumentException
+     *             If requests is null or contains null.
+     */
+    public String copy(Collection<CopyRequest> requests) {
+
+        if (requests == null) {
+            throw new IllegalArgumentException("Copy requests are null");
+        }
+
+        String copyID = getNextCopyID();
+
+        final CopyCallback callback = new CopyCallback();
+
+        HashMap<FileSystem, TransferScheduler.Flow> flows = new HashMap<>();
+        HashMap<FileSystem, BufferSizeTuner> tuners = new HashMap<>();
+
+        List<BatchItem> items = new ArrayList<>(requests.size());
+
+        for (CopyRequest r : requests) {
+
+            if (r == null) {
+                throw new IllegalArgumentException("Copy request is null");
+            }
+
+            FileSystem destinationFS = r.getDestinationFileSystem();
+
+            TransferScheduler.Flow flow = flows.computeIfAbsent(destinationFS, fs -> new TransferScheduler.Flow(copyWeight, this, fs));
+            BufferSizeTuner tuner = null;
+
+            if (adaptiveBufferSize) {
+                tuner = tuners.computeIfAbsent(destinationFS, fs -> new BufferSizeTuner(BufferSizeTuner.getLink(this, fs), bufferSize));
+            }
+
+            items.add(new BatchItem(copyID + "[" + items.size() + "]", r, new BatchItemCallback(callback, flow, tuner)));
+        }
+
+        return submit(copyID, callback, items, () -> runBatch(items, callback));
+    }
+
+    /*
+     * A copy operation run by the copy pool.
+     */
+    private interface CopyTask {
+        void run() throws XenonException;
+    }
+
+    /*
+     * Run a copy operation on the copy pool. The copy is registered before it is started, so it is known when it completes.
+     */
+    private String submit(String copyID, CopyCallback callback, List<BatchItem> items, CopyTask task) {
+
+        FutureTask<Void> future = new FutureTask<Void>(() -> {
+
+            try {
+                task.run();
+            } catch (Exception e) {
+                callback.failed(e);
+                throw e;
             }
 
-            performCopy(toAbsolutePath(source), destinationFS, toAbsolutePath(destination), mode, recursive, callback);
+            callback.completed();
             return null;
-        });
+        }) {
+            @Override
+            protected void done() {
+                copies.completed(copyID);
+            }
+        };
+
+        PendingCopy copy = new PendingCopy(future, callback);
+        copy.items = items;
+
+        copies.add(copyID, copy);
+
+        try {
+            pool.execute(future);
+        } catch (RejectedExecutionException e) {
+            copies.remove(copyID);
+            throw e;
+        }
 
-        pendingCopies.put(copyID, new PendingCopy(future, callback));
         return copyID;
     }
 
+    /*
+     * Run the copies of a batch. Single files and links are copied by the transfer threads directly, so files from all copies are transferred concurrently.
+     * Directories need a transfer batch of their own, so they are copied by this thread once the files are done.
+     */
+    private void runBatch(List<BatchItem> items, CopyCallback callback) throws XenonException {
+
+        Queue<BatchItem> directories = new ConcurrentLinkedQueue<>();
+
+        TransferBatch batch = new TransferBatch(transferPool);
+
+        for (BatchItem item : items) {
+
+            if (callback.isCancelled()) {
+                batch.cancelAll();
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+            }
+
+            batch.submit(() -> {
+                runBatchItem(item, directories);
+                return null;
+            });
+        }
+
+        batch.awaitAll(callback);
+
+        for (BatchItem item : directories) {
+
+            if (callback.isCancelled()) {
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+            }
+
+            runBatchItem(item, null);
+        }
+
+        int failed = 0;
+        XenonException first = null;
+
+        for (BatchItem item : items) {
+            if (item.getException() != null) {
+                failed++;
+                first = first == null ? item.getException() : first;
+            }
+        }
+
+        if (failed > 0) {
+            throw new XenonException(getAdaptorName(), failed + " of " + items.size() + " copies failed", first);
+        }
+    }
+
+    /*
+     * Run a single copy of a batch, and record its outcome. If directories is not null, a directory is added to it instead of being copied.
+     */
+    private void runBatchItem(BatchItem item, Queue<BatchItem> directories) {
+
+        CopyRequest r = item.request;
+        BatchItemCallback callback = item.callback;
+
+        try {
+            if (callback.isCancelled()) {
+                throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+            }
+
+            if (directories == null) {
+                runCopy(r.getSource(), r.getDestinationFileSystem(), r.getDestination(), r.getMode(), r.isRecursive(), callback);
+                item.done(null);
+                return;
+            }
+
+            Path source = toAbsolutePath(r.getSource());
+            Path destination = toAbsolutePath(r.getDestination());
+            PathAttributes attributes = getAttributes(source);
+
+            if (attributes.isRegular()) {
+                callback.start(attributes.getSize());
+                copyBatchFile(attributes, r.getDestinationFileSystem(), destination, r.getMode(), callback);
+            } else if (attributes.isSymbolicLink()) {
+                copySymbolicLink(source, r.getDestinationFileSystem(), destination, r.getMode(), callback);
+            } else {
+                directories.add(item);
+                return;
+            }
+
+            item.done(null);
+        } catch (XenonException e) {
+            item.done(e);
+        } catch (RuntimeException e) {
+            item.done(new XenonException(getAdaptorName(), "Copy failed: " + r, e));
+        }
+    }
+
+    /*
+     * Copy a single file of a batch on a transfer thread. Unlike performCopy, this does not start a transfer batch of its own.
+     */
+    private void copyBatchFile(PathAttributes attributes, FileSystem destinationFS, Path destination, CopyMode mode, CopyCallback callback)
+            throws XenonException {
+
+        destinationFS.assertParentDirectoryExists(destination);
+
+        PathAttributes target = destinationFS.exists(destination) ? destinationFS.getAttributes(destination) : null;
+
+        if (mode != CopyMode.RESUME) {
+            copyFile(attributes, destinationFS, destination, target, mode, callback);
+            return;
+        }
+
+        try (CopyJournal journal = openJournal(attributes.getPath(), destinationFS, destination)) {
+            callback.journal = journal;
+            copyFile(attributes, destinationFS, destination, target, mode, callback);
+            journal.delete();
+        }
+    }
+
+    /**
+     * Get the status of each copy in a batch submitted with {@link #copy(Collection)}.
+     *
+     * Unlike {@link #getStatus(String)}, this does not cause the batch to be forgotten. The identifier of each copy consists of the identifier of the batch,
+     * followed by the index of the copy in the batch between square brackets.
+     *
+     * @param copyIdentifier
+     *            the identifier of the batch.
+     *
+     * @return the status of each copy in the batch, in the order in which they were submitted, or an empty list if the copy is not a batch.
+     *
+     * @throws NoSuchCopyException
+     *             If the copy is not known.
+     * @throws IllegalArgumentException
+     *             If the copyIdentifier is null.
+     */
+    public List<CopyStatus> getItemStatus(String copyIdentifier) throws XenonException {
+
+        if (copyIdentifier == null) {
+            throw new IllegalArgumentException("Copy identifier may not be null");
+        }
+
+        PendingCopy copy = copies.get(copyIdentifier);
+
+        if (copy == null) {
+            throw new NoSuchCopyException(getAdaptorName(), "Copy not found: " + copyIdentifier);
+        }
+
+        List<CopyStatus> result = new ArrayList<>();
+
+        if (copy.items != null) {
+            for (BatchItem item : copy.items) {
+                result.add(item.getStatus());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the status of all copies that have not completed yet.
+     *
+     * Unlike {@link #getStatus(String)}, this does not cause copies to be forgotten. Completed copies are remembered until their status is retrieved, or until
+     * they are evicted from the history of completed copies. The size of this history and the time copies are kept are set with the
+     * <code>copyHistorySize</code> and <code>copyHistoryTime</code> properties of the adaptor.
+     *
+     * @return the status of each copy that is pending or running.
+     */
+    public List<CopyStatus> getActiveCopies() {
+
+        List<CopyStatus> result = new ArrayList<>();
+
+        for (Map.Entry<String, PendingCopy> e : copies.getActive().entrySet()) {
+
+            CopyCallback callback = e.getValue().callback;
+
+            result.add(new CopyStatusImplementation(e.getKey(), callback.isStarted() ? "RUNNING" : "PENDING", callback.bytesToCopy, callback.bytesCopied,
+                    null, callback.getChecksums()));
+        }
+
+        return result;
+    }
+
+    private void runCopy(Path source, FileSystem destinationFS, Path destination, CopyMode mode, boolean recursive, CopyCallback callback)
+            throws XenonException {
+
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
+        }
+
+        Path absSource = toAbsolutePath(source);
+        Path absDestination = toAbsolutePath(destination);
+
+        if (mode != CopyMode.RESUME) {
+            performCopy(absSource, destinationFS, absDestination, mode, recursive, callback);
+            return;
+        }
+
+        try (CopyJournal journal = openJournal(absSource, destinationFS, absDestination)) {
+            callback.journal = journal;
+            performCopy(absSource, destinationFS, absDestination, mode, recursive, callback);
+            journal.delete();
+        }
+    }
+
     /**
      * Cancel a copy operation. Afterwards, the copy is forgotten and subsequent queries with this copy string will lead to {@link NoSuchCopyException}
      *
@@ -1439,12 +4265,12 @@ public abstract class FileSystem implements AutoCloseable {
      * @throws IllegalArgumentException
      *             If the copyIdentifier is null.
      */
-    public synchronized CopyStatus cancel(String copyIdentifier) throws XenonException {
+    public CopyStatus cancel(String copyIdentifier) throws XenonException {
 
         if (copyIdentifier == null) {
             throw new IllegalArgumentException("Copy identifier may not be null");
         }
-        PendingCopy copy = pendingCopies.remove(copyIdentifier);
+        PendingCopy copy = copies.remove(copyIdentifier);
 
         if (copy == null) {
             throw new NoSuchCopyException(getAdaptorName(), "Copy not found: " + copyIdentifier);
@@ -1465,7 +4291,8 @@ public abstract class FileSystem implements AutoCloseable {
             ex = new CopyCancelledException(getAdaptorName(), "Copy cancelled by user");
             state = "FAILED";
         }
-        return new CopyStatusImplementation(copyIdentifier, state, copy.callback.bytesToCopy, copy.callback.bytesCopied, ex);
+        return new CopyStatusImplementation(copyIdentifier, state, copy.callback.bytesToCopy, copy.callback.bytesCopied, ex,
+                copy.callback.getChecksums());
     }
 
     /**
@@ -1506,7 +4333,7 @@ public abstract class FileSystem implements AutoCloseable {
             throw new IllegalArgumentException("Copy identifier may not be null");
         }
 
-        PendingCopy copy = pendingCopies.get(copyIdentifier);
+        PendingCopy copy = copies.get(copyIdentifier);
 
         if (copy == null) {
             throw new NoSuchCopyException(getAdaptorName(), "Copy not found: " + copyIdentifier);
@@ -1533,10 +4360,11 @@ public abstract class FileSystem implements AutoCloseable {
         }
 
         if (copy.future.isDone()) {
-            pendingCopies.remove(copyIdentifier);
+            copies.remove(copyIdentifier);
         }
 
-        return new CopyStatusImplementation(copyIdentifier, state, copy.callback.bytesToCopy, copy.callback.bytesCopied, ex);
+        return new CopyStatusImplementation(copyIdentifier, state, copy.callback.bytesToCopy, copy.callback.bytesCopied, ex,
+                copy.callback.getChecksums());
     }
 
     /**
@@ -1563,7 +4391,7 @@ public abstract class FileSystem implements AutoCloseable {
             throw new IllegalArgumentException("Copy identifier may not be null");
         }
 
-        PendingCopy copy = pendingCopies.get(copyIdentifier);
+        PendingCopy copy = copies.get(copyIdentifier);
 
         if (copy == null) {
             throw new NoSuchCopyException(getAdaptorName(), "Copy not found: " + copyIdentifier);
@@ -1573,7 +4401,7 @@ public abstract class FileSystem implements AutoCloseable {
         String state = "PENDING";
 
         if (copy.future.isDone()) {
-            pendingCopies.remove(copyIdentifier);
+            copies.remove(copyIdentifier);
 
             // We have either finished, crashed, or cancelled
             try {
@@ -1590,7 +4418,8 @@ public abstract class FileSystem implements AutoCloseable {
             state = "RUNNING";
         }
 
-        return new CopyStatusImplementation(copyIdentifier, state, copy.callback.bytesToCopy, copy.callback.bytesCopied, ex);
+        return new CopyStatusImplementation(copyIdentifier, state, copy.callback.bytesToCopy, copy.callback.bytesCopied, ex,
+                copy.callback.getChecksums());
     }
 
     protected void assertNotNull(Path path) {
@@ -1603,7 +4432,7 @@ public abstract class FileSystem implements AutoCloseable {
 
         assertNotNull(path);
 
-        if (!exists(path)) {
+        if (!cachedExists(path)) {
             throw new NoSuchPathException(getAdaptorName(), "Path does not exist: " + path);
         }
     }
@@ -1612,7 +4441,7 @@ public abstract class FileSystem implements AutoCloseable {
 
         assertNotNull(path);
 
-        if (exists(path)) {
+        if (cachedExists(path)) {
             throw new PathAlreadyExistsException(getAdaptorName(), "Path already exists: " + path);
         }
     }
@@ -1621,9 +4450,9 @@ public abstract class FileSystem implements AutoCloseable {
 
         assertNotNull(path);
 
-        if (exists(path)) {
+        if (cachedExists(path)) {
 
-            PathAttributes a = getAttributes(path);
+            PathAttributes a = cachedAttributes(path);
             if (a.isDirectory()) {
                 throw new InvalidPathException(getAdaptorName(), "Was expecting a regular file, but got a directory: " + path.toString());
             }
@@ -1634,7 +4463,7 @@ public abstract class FileSystem implements AutoCloseable {
 
         assertNotNull(path);
 
-        if (!getAttributes(path).isRegular()) {
+        if (!cachedAttributes(path).isRegular()) {
             throw new InvalidPathException(getAdaptorName(), "Path is not a file: " + path);
         }
     }
@@ -1643,7 +4472,7 @@ public abstract class FileSystem implements AutoCloseable {
 
         assertNotNull(path);
 
-        PathAttributes a = getAttributes(path);
+        PathAttributes a = cachedAttributes(path);
 
         if (a == null) {
             throw new InvalidPathException(getAdaptorName(), "Path failed to produce attributes: " + path);
@@ -1677,7 +4506,7 @@ public abstract class FileSystem implements AutoCloseable {
     protected void assertFileIsSymbolicLink(Path link) throws XenonException {
         assertNotNull(link);
         assertPathExists(link);
-        if (!getAttributes(link).isSymbolicLink()) {
+        if (!cachedAttributes(link).isSymbolicLink()) {
             throw new InvalidPathException(getAdaptorName(), "Not a symbolic link: " + link);
         }
     }
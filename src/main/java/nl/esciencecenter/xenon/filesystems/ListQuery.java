@@ -0,0 +1,358 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * ListQuery describes which entries of a directory tree are returned by {@link FileSystem#list(Path, ListQuery)}.
+ *
+ * By default, all entries of the directory and its subdirectories are returned, like a recursive {@link FileSystem#list(Path, boolean)}. The entries can be
+ * limited by name, type and depth, and subtrees can be skipped altogether. Since the FileSystem knows what is asked for, it does not need to list
+ * subdirectories below the maximum depth or below a pruned directory, and does not need to retrieve the attributes of entries that cannot match.
+ */
+public class ListQuery {
+
+    /** The name pattern, or null to accept all names. */
+    private Pattern namePattern = null;
+
+    /** The literal text every accepted name starts with. */
+    private String namePrefix = "";
+
+    /** The depth of the deepest entries to return. */
+    private int maxDepth = Integer.MAX_VALUE;
+
+    /** If entries that are not directories are returned. */
+    private boolean includeFiles = true;
+
+    /** If directories are returned. */
+    private boolean includeDirectories = true;
+
+    /** Decides which directories not to descend into, or null to descend into all. */
+    private Predicate<PathAttributes> prune = null;
+
+    /** If only the cheap attributes of entries are retrieved up front. */
+    private boolean lightweight = false;
+
+    /**
+     * Create a ListQuery that returns all entries.
+     */
+    public ListQuery() {
+        // nothing
+    }
+
+    /**
+     * Only return entries of which the name matches a glob pattern.
+     *
+     * The pattern is matched against the file name of an entry only. It supports <code>*</code> (any number of characters), <code>?</code> (a single
+     * character), <code>[...]</code> and <code>[!...]</code> (a character out of a set), <code>{a,b}</code> (one of several alternatives) and <code>\</code> to
+     * escape the next character. The name filter does not limit the directories that are descended into.
+     *
+     * @param glob
+     *            the glob pattern, or <code>null</code> to accept all names.
+     * @throws IllegalArgumentException
+     *             If the pattern is not a valid glob.
+     */
+    public void setNameGlob(String glob) {
+
+        if (glob == null) {
+            namePattern = null;
+            namePrefix = "";
+            return;
+        }
+
+        StringBuilder regex = new StringBuilder();
+        StringBuilder prefix = new StringBuilder();
+        boolean literal = true;
+        int group = 0;
+
+        for (int i = 0; i < glob.length(); i++) {
+
+            char c = glob.charAt(i);
+
+            switch (c) {
+            case '*':
+                regex.append(".*");
+                literal = false;
+                break;
+            case '?':
+                regex.append('.');
+                literal = false;
+                break;
+            case '[':
+                int end = glob.indexOf(']', i + 2);
+
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed character set in glob: " + glob);
+                }
+
+                String set = glob.substring(i + 1, end);
+                regex.append('[');
+
+                if (set.charAt(0) == '!') {
+                    regex.append('^');
+                    set = set.substring(1);
+                }
+
+                regex.append(set.replace("\\", "\\\\").replace("[", "\\[").replace("&", "\\&")).append(']');
+                literal = false;
+                i = end;
+                break;
+            case '{':
+                regex.append("(?:");
+                group++;
+                literal = false;
+                break;
+            case '}':
+                if (group == 0) {
+                    throw new IllegalArgumentException("Unopened group in glob: " + glob);
+                }
+                regex.append(')');
+                group--;
+                break;
+            case ',':
+                if (group > 0) {
+                    regex.append('|');
+                } else {
+                    appendLiteral(regex, prefix, c, literal);
+                }
+                break;
+            case '\\':
+                if (++i == glob.length()) {
+                    throw new IllegalArgumentException("Dangling escape in glob: " + glob);
+                }
+                appendLiteral(regex, prefix, glob.charAt(i), literal);
+                break;
+            default:
+                appendLiteral(regex, prefix, c, literal);
+            }
+        }
+
+        if (group > 0) {
+            throw new IllegalArgumentException("Unclosed group in glob: " + glob);
+        }
+
+        try {
+            namePattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid glob: " + glob, e);
+        }
+
+        namePrefix = prefix.toString();
+    }
+
+    private static void appendLiteral(StringBuilder regex, StringBuilder prefix, char c, boolean literal) {
+
+        regex.append(Pattern.quote(String.valueOf(c)));
+
+        if (literal) {
+            prefix.append(c);
+        }
+    }
+
+    /**
+     * Only return entries of which the name matches a regular expression.
+     *
+     * The expression must match the complete file name of an entry. The name filter does not limit the directories that are descended into.
+     *
+     * @param regex
+     *            the regular expression, or <code>null</code> to accept all names.
+     * @throws IllegalArgumentException
+     *             If the regular expression is not valid.
+     */
+    public void setNameRegex(String regex) {
+
+        if (regex == null) {
+            namePattern = null;
+        } else {
+            try {
+                namePattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regular expression: " + regex, e);
+            }
+        }
+
+        namePrefix = "";
+    }
+
+    /**
+     * Get the pattern names are matched against.
+     *
+     * @return the pattern, or <code>null</code> if all names are accepted.
+     */
+    public Pattern getNamePattern() {
+        return namePattern;
+    }
+
+    /**
+     * Get the literal text every accepted name starts with. Adaptors can pass this to the server to limit a listing.
+     *
+     * @return the prefix of the glob pattern up to its first wildcard, or an empty string if there is none.
+     */
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    /**
+     * Get the maximum depth.
+     *
+     * @return the maximum depth.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Set the maximum depth of the entries to return. The entries of the listed directory itself have depth 1, those of its subdirectories depth 2, etc.
+     *
+     * @param maxDepth
+     *            the maximum depth.
+     * @throws IllegalArgumentException
+     *             If the depth is smaller than 1.
+     */
+    public void setMaxDepth(int maxDepth) {
+
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Maximum depth must be at least 1: " + maxDepth);
+        }
+
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Check if entries that are not directories are returned.
+     *
+     * @return if entries that are not directories are returned.
+     */
+    public boolean isIncludeFiles() {
+        return includeFiles;
+    }
+
+    /**
+     * Set if entries that are not directories, such as regular files and symbolic links, are returned.
+     *
+     * @param includeFiles
+     *            if entries that are not directories are returned.
+     */
+    public void setIncludeFiles(boolean includeFiles) {
+        this.includeFiles = includeFiles;
+    }
+
+    /**
+     * Check if directories are returned.
+     *
+     * @return if directories are returned.
+     */
+    public boolean isIncludeDirectories() {
+        return includeDirectories;
+    }
+
+    /**
+     * Set if directories are returned. Directories are still descended into if they are not returned.
+     *
+     * @param includeDirectories
+     *            if directories are returned.
+     */
+    public void setIncludeDirectories(boolean includeDirectories) {
+        this.includeDirectories = includeDirectories;
+    }
+
+    /**
+     * Get the predicate that decides which directories are not descended into.
+     *
+     * @return the predicate, or <code>null</code> if all directories are descended into.
+     */
+    public Predicate<PathAttributes> getPrune() {
+        return prune;
+    }
+
+    /**
+     * Set a predicate that decides which directories are not descended into. A pruned directory is still returned if it matches the query, but none of the
+     * entries below it are, and it is not listed.
+     *
+     * @param prune
+     *            returns <code>true</code> for directories that must not be descended into, or <code>null</code> to descend into all.
+     */
+    public void setPrune(Predicate<PathAttributes> prune) {
+        this.prune = prune;
+    }
+
+    /**
+     * Check if the entries are lightweight.
+     *
+     * @return if only the cheap attributes of entries are retrieved up front.
+     */
+    public boolean isLightweight() {
+        return lightweight;
+    }
+
+    /**
+     * Set if the entries are lightweight.
+     *
+     * Lightweight entries only hold the path and type of an entry, and its size and last modified time if the adaptor gets those along with the type. The
+     * other attributes, such as permissions, owner and group, are retrieved when they are first asked for. This makes scans that only look at names and
+     * types much cheaper on adaptors that need extra work per entry for the complete attributes. If attributes cannot be retrieved later, for example because
+     * the entry was removed, the getter throws a {@link nl.esciencecenter.xenon.XenonRuntimeException}.
+     *
+     * @param lightweight
+     *            if only the cheap attributes of entries are retrieved up front.
+     */
+    public void setLightweight(boolean lightweight) {
+        this.lightweight = lightweight;
+    }
+
+    /**
+     * Check if a name is accepted by the name filter.
+     *
+     * @param name
+     *            the file name of an entry.
+     * @return if the name is accepted.
+     */
+    public boolean matchesName(String name) {
+        return namePattern == null || namePattern.matcher(name).matches();
+    }
+
+    /**
+     * Check if an entry is returned by the query.
+     *
+     * @param attributes
+     *            the attributes of the entry.
+     * @return if the entry is returned.
+     */
+    public boolean matches(PathAttributes attributes) {
+
+        if (attributes.isDirectory() ? !includeDirectories : !includeFiles) {
+            return false;
+        }
+
+        return matchesName(attributes.getPath().getFileNameAsString());
+    }
+
+    /**
+     * Check if the query descends into a directory.
+     *
+     * @param attributes
+     *            the attributes of the directory.
+     * @param depth
+     *            the depth of the directory.
+     * @return if the entries of the directory are needed.
+     */
+    boolean descends(PathAttributes attributes, int depth) {
+        return attributes.isDirectory() && depth < maxDepth && (prune == null || !prune.test(attributes));
+    }
+}
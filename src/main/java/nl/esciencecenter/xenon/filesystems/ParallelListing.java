@@ -0,0 +1,279 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonRuntimeException;
+import nl.esciencecenter.xenon.adaptors.NotConnectedException;
+
+/**
+ * A walk of a directory tree that lists several subdirectories at the same time, built on {@link FileSystem#listDirectory(Path)}.
+ *
+ * Each directory is listed by a task on a {@link ForkJoinPool}, which forks a task for each of its subdirectories. Idle threads of the pool steal these
+ * tasks, so wide and deep trees both keep all threads busy. The parallelism of the pool limits the number of concurrent listings on the file system.
+ *
+ * The listings are handed to the iterator one directory at a time. Entries of a directory are returned after the entry of the directory itself, but the
+ * order of the directories is not defined. To keep the memory bounded, no new subdirectories are listed while <code>maxBuffered</code> listings are waiting
+ * for the iterator. These subdirectories are set aside, and listed once the iterator catches up.
+ *
+ * If a subdirectory cannot be listed, the iterator throws a {@link XenonRuntimeException} with the {@link XenonException} as its cause. If the file system
+ * is closed during the walk, the pool drops the directories that are still queued, so the iterator throws a {@link XenonRuntimeException} with a
+ * {@link NotConnectedException} as its cause instead of waiting for them.
+ */
+final class ParallelListing implements Iterator<PathAttributes> {
+
+    /** Marks the end of the walk in the queue of listings. */
+    private static final List<PathAttributes> END = Collections.emptyList();
+
+    /** How long (in milliseconds) the iterator waits for a listing before it checks if the pool was shut down. */
+    private static final long CLOSED_CHECK_INTERVAL = 100;
+
+    /** Lists a single directory, and forks a task for each of its subdirectories. */
+    private class ListTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path dir;
+
+        ListTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (failure != null) {
+                done();
+                return;
+            }
+
+            try {
+                publish(dir, fs.listDirectory(dir));
+            } catch (XenonException e) {
+                fail(new XenonRuntimeException(fs.getAdaptorName(), "Failed to list directory: " + dir, e));
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+
+            done();
+        }
+    }
+
+    private final FileSystem fs;
+    private final ForkJoinPool pool;
+    private final int maxBuffered;
+
+    /** The listings that are ready, including the END marker once all directories are listed. */
+    private final BlockingQueue<List<PathAttributes>> listings = new LinkedBlockingQueue<>();
+
+    /** The subdirectories that were set aside because too many listings were waiting. */
+    private final ConcurrentLinkedQueue<Path> deferred = new ConcurrentLinkedQueue<>();
+
+    /** The number of directories that are queued, being listed, or set aside. */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile RuntimeException failure;
+
+    private Iterator<PathAttributes> current = Collections.emptyIterator();
+    private boolean ended;
+
+    /**
+     * Start a walk of a directory of which the listing is already known.
+     *
+     * @param fs
+     *            the file system to list the subdirectories on.
+     * @param pool
+     *            the pool that lists the subdirectories.
+     * @param maxBuffered
+     *            the number of listings that may wait for the iterator before subdirectories are set aside.
+     * @param dir
+     *            the directory at the root of the walk.
+     * @param listing
+     *            the listing of <code>dir</code>.
+     */
+    ParallelListing(FileSystem fs, ForkJoinPool pool, int maxBuffered, Path dir, Iterable<PathAttributes> listing) {
+        this.fs = fs;
+        this.pool = pool;
+        this.maxBuffered = maxBuffered;
+
+        pending.incrementAndGet();
+        publish(dir, listing);
+        done();
+    }
+
+    /*
+     * Hand the listing of a directory to the iterator, and schedule its subdirectories. Called by the task of the directory, so the directory is still
+     * pending and the walk cannot end in between.
+     */
+    private void publish(Path dir, Iterable<PathAttributes> listing) {
+
+        List<PathAttributes> entries = new ArrayList<>();
+        List<ListTask> tasks = new ArrayList<>();
+
+        for (PathAttributes p : listing) {
+            if (!fs.isDotDot(p.getPath())) {
+                entries.add(p);
+
+                if (p.isDirectory()) {
+                    pending.incrementAndGet();
+
+                    Path sub = dir.resolve(p.getPath().getFileNameAsString());
+
+                    if (listings.size() < maxBuffered) {
+                        tasks.add(new ListTask(sub));
+                    } else {
+                        deferred.add(sub);
+                    }
+                }
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            listings.add(entries);
+        }
+
+        for (ListTask t : tasks) {
+            submit(t);
+        }
+    }
+
+    private void submit(ListTask task) {
+
+        try {
+            if (ForkJoinTask.getPool() == pool) {
+                // Pushed on the deque of this worker, where idle workers can steal it.
+                task.fork();
+            } else {
+                pool.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            fail(closed(e));
+            done();
+        }
+    }
+
+    private XenonRuntimeException closed(Throwable cause) {
+        return new XenonRuntimeException(fs.getAdaptorName(), "File system closed while listing",
+                new NotConnectedException(fs.getAdaptorName(), "File system is closed", cause));
+    }
+
+    private void fail(RuntimeException e) {
+
+        if (failure == null) {
+            failure = e;
+        }
+
+        // The iterator throws the failure as soon as it sees the end of the walk, so the remaining directories need not be listed.
+        deferred.clear();
+        listings.add(END);
+    }
+
+    private void done() {
+        if (pending.decrementAndGet() == 0) {
+            listings.add(END);
+        }
+    }
+
+    /*
+     * Move the directories that were set aside back to the pool, as long as there is room for their listings.
+     */
+    private void resume() {
+
+        int room = maxBuffered - listings.size();
+
+        while (room > 0 && failure == null) {
+
+            Path dir = deferred.poll();
+
+            if (dir == null) {
+                return;
+            }
+
+            submit(new ListTask(dir));
+            room--;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        while (!current.hasNext()) {
+
+            if (ended) {
+                return false;
+            }
+
+            resume();
+
+            List<PathAttributes> next;
+
+            try {
+                next = listings.poll(CLOSED_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new XenonRuntimeException(fs.getAdaptorName(), "Interrupted while listing", e);
+            }
+
+            if (next == null) {
+                // Tasks dropped by a shut down pool never end the walk, so it must be ended here.
+                if (pool.isShutdown()) {
+                    ended = true;
+                    throw closed(null);
+                }
+                continue;
+            }
+
+            if (next == END) {
+                ended = true;
+
+                if (failure != null) {
+                    throw failure;
+                }
+
+                return false;
+            }
+
+            current = next.iterator();
+        }
+
+        return true;
+    }
+
+    @Override
+    public PathAttributes next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more elements");
+        }
+
+        return current.next();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonRuntimeException;
+
+/**
+ * A lazy, depth first walk of a directory tree, built on {@link FileSystem#listDirectory(Path)}.
+ *
+ * Each directory is listed when the walk reaches it. Its entries are returned before those of its subdirectories, in the order of the listing, which is the
+ * same order as a complete recursive listing. Only the listings of the directories on the current path, and the names of their subdirectories that have not
+ * been visited yet, are kept in memory.
+ *
+ * A {@link ListQuery} limits the walk: only matching entries are returned, and subdirectories are only listed if the query descends into them. Directories
+ * at the maximum depth are listed with {@link FileSystem#listDirectory(Path, ListQuery)}, so the adaptor can skip entries that cannot match.
+ *
+ * If a subdirectory cannot be listed, the iterator throws a {@link XenonRuntimeException} with the {@link XenonException} as its cause.
+ */
+final class RecursiveListing implements Iterator<PathAttributes> {
+
+    /** The listing of a single directory, and the subdirectories found in it so far. */
+    private static class Frame {
+
+        private final Path dir;
+        private final int depth;
+        private final Iterator<PathAttributes> entries;
+        private final ArrayDeque<Path> subdirs = new ArrayDeque<>();
+
+        Frame(Path dir, int depth, Iterable<PathAttributes> entries) {
+            this.dir = dir;
+            this.depth = depth;
+            this.entries = entries.iterator();
+        }
+    }
+
+    private final FileSystem fs;
+    private final ListQuery query;
+    private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+
+    private PathAttributes next;
+
+    /**
+     * Start a walk of a directory of which the listing is already known.
+     *
+     * @param fs
+     *            the file system to list the subdirectories on.
+     * @param dir
+     *            the directory at the root of the walk.
+     * @param listing
+     *            the listing of <code>dir</code>.
+     */
+    RecursiveListing(FileSystem fs, Path dir, Iterable<PathAttributes> listing) {
+        this(fs, new ListQuery(), dir, listing);
+    }
+
+    /**
+     * Start a walk, limited by a query, of a directory of which the listing is already known.
+     *
+     * @param fs
+     *            the file system to list the subdirectories on.
+     * @param query
+     *            the query that selects the entries to return.
+     * @param dir
+     *            the directory at the root of the walk.
+     * @param listing
+     *            the listing of <code>dir</code>, as returned by {@link #listLevel(FileSystem, ListQuery, Path, int)}.
+     */
+    RecursiveListing(FileSystem fs, ListQuery query, Path dir, Iterable<PathAttributes> listing) {
+        this.fs = fs;
+        this.query = query;
+        stack.push(new Frame(dir, 1, listing));
+    }
+
+    /**
+     * List a directory of the walk. Only the matching entries are needed from directories at the maximum depth, as their subdirectories are not listed.
+     *
+     * @param fs
+     *            the file system to list the directory on.
+     * @param query
+     *            the query that selects the entries to return.
+     * @param dir
+     *            the directory to list.
+     * @param depth
+     *            the depth of the entries of <code>dir</code>.
+     * @return the listing of <code>dir</code>.
+     * @throws XenonException
+     *             If the directory could not be listed.
+     */
+    static Iterable<PathAttributes> listLevel(FileSystem fs, ListQuery query, Path dir, int depth) throws XenonException {
+
+        if (depth >= query.getMaxDepth()) {
+            return fs.listDirectory(dir, query);
+        }
+
+        if (query.isLightweight()) {
+            return fs.listDirectoryLightweight(dir);
+        }
+
+        return fs.listDirectory(dir);
+    }
+
+    /*
+     * Find the next entry, listing subdirectories until one is found or the walk is done. This is only done when the next entry is needed, so a failure to
+     * list a directory is thrown before the entries of that directory would have been returned.
+     */
+    private void advance() {
+
+        while (!stack.isEmpty()) {
+
+            Frame current = stack.peek();
+
+            if (current.entries.hasNext()) {
+
+                PathAttributes p = current.entries.next();
+
+                if (!fs.isDotDot(p.getPath())) {
+                    if (query.descends(p, current.depth)) {
+                        current.subdirs.add(current.dir.resolve(p.getPath().getFileNameAsString()));
+                    }
+                    if (query.matches(p)) {
+                        next = p;
+                        return;
+                    }
+                }
+            } else if (!current.subdirs.isEmpty()) {
+                Path dir = current.subdirs.poll();
+                stack.push(new Frame(dir, current.depth + 1, listDirectory(dir, current.depth + 1)));
+            } else {
+                stack.pop();
+            }
+        }
+    }
+
+    private Iterable<PathAttributes> listDirectory(Path dir, int depth) {
+        try {
+            return listLevel(fs, query, dir, depth);
+        } catch (XenonException e) {
+            // Drop the rest of the walk, so the iterator ends after the exception.
+            stack.clear();
+            throw new XenonRuntimeException(fs.getAdaptorName(), "Failed to list directory: " + dir, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        if (next == null) {
+            advance();
+        }
+
+        return next != null;
+    }
+
+    @Override
+    public PathAttributes next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more elements");
+        }
+
+        PathAttributes result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Return the {@link XenonException} that caused a walk to fail, or rethrow the exception if it was not caused by a listing.
+     *
+     * @param e
+     *            the exception thrown by a {@link RecursiveListing}.
+     * @return the cause of the exception.
+     */
+    static XenonException getCause(XenonRuntimeException e) {
+
+        if (e.getCause() instanceof XenonException) {
+            return (XenonException) e.getCause();
+        }
+
+        throw e;
+    }
+}
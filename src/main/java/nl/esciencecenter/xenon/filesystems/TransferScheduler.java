@@ -0,0 +1,291 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransferScheduler limits the bandwidth used by the copy operations of all {@link FileSystem} instances in this JVM.
+ *
+ * A limit can be set for all copies together, for the copies of an adaptor, and for the copies from or to a host. Each limit is enforced by a token
+ * bucket that holds at most one second worth of data. Copies that compete for a bucket share its bandwidth in proportion to their weight, which is set
+ * with the <code>copyWeight</code> property of the adaptor of the source file system.
+ *
+ * By default no limits are set, and copies are not slowed down.
+ */
+public final class TransferScheduler {
+
+    private static volatile TokenBucket global;
+
+    private static final ConcurrentHashMap<String, TokenBucket> adaptorBuckets = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, TokenBucket> hostBuckets = new ConcurrentHashMap<>();
+
+    private TransferScheduler() {
+        // utility class
+    }
+
+    /**
+     * Set the maximum bandwidth of all copies together.
+     *
+     * @param bytesPerSecond
+     *            the maximum number of bytes per second, or 0 to remove the limit.
+     * @throws IllegalArgumentException
+     *             if the limit is negative.
+     */
+    public static void setBandwidthLimit(long bytesPerSecond) {
+        global = createBucket(bytesPerSecond);
+    }
+
+    /**
+     * Set the maximum bandwidth of all copies from or to file systems of an adaptor.
+     *
+     * @param adaptorName
+     *            the name of the adaptor.
+     * @param bytesPerSecond
+     *            the maximum number of bytes per second, or 0 to remove the limit.
+     * @throws IllegalArgumentException
+     *             if the adaptor name is null or the limit is negative.
+     */
+    public static void setAdaptorBandwidthLimit(String adaptorName, long bytesPerSecond) {
+        setLimit(adaptorBuckets, adaptorName, bytesPerSecond);
+    }
+
+    /**
+     * Set the maximum bandwidth of all copies from or to file systems on a host.
+     *
+     * @param host
+     *            the name of the host, as it appears in the location of the file systems.
+     * @param bytesPerSecond
+     *            the maximum number of bytes per second, or 0 to remove the limit.
+     * @throws IllegalArgumentException
+     *             if the host is null or the limit is negative.
+     */
+    public static void setHostBandwidthLimit(String host, long bytesPerSecond) {
+        setLimit(hostBuckets, host, bytesPerSecond);
+    }
+
+    private static void setLimit(ConcurrentHashMap<String, TokenBucket> buckets, String key, long bytesPerSecond) {
+
+        if (key == null) {
+            throw new IllegalArgumentException("Name may not be null");
+        }
+
+        TokenBucket bucket = createBucket(bytesPerSecond);
+
+        if (bucket == null) {
+            buckets.remove(key);
+        } else {
+            buckets.put(key, bucket);
+        }
+    }
+
+    private static TokenBucket createBucket(long bytesPerSecond) {
+
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Bandwidth limit may not be negative: " + bytesPerSecond);
+        }
+
+        return bytesPerSecond == 0 ? null : new TokenBucket(bytesPerSecond);
+    }
+
+    /**
+     * Remove all bandwidth limits.
+     */
+    public static void clearBandwidthLimits() {
+        global = null;
+        adaptorBuckets.clear();
+        hostBuckets.clear();
+    }
+
+    /*
+     * Extract the host name from the location of a file system, or return null if it has none (as is the case for local file systems).
+     */
+    static String getHost(String location) {
+
+        if (location == null || location.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new URI(location.contains("://") ? location : "xenon://" + location).getHost();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A stream of data that competes with other flows for bandwidth. All transfers of a single copy operation belong to the same flow.
+     */
+    static class Flow {
+
+        private final double weight;
+        private final String[] adaptors;
+        private final String[] hosts;
+
+        // The finish tags of this flow in the buckets it used, only updated while holding the lock of the bucket.
+        private final ConcurrentHashMap<TokenBucket, Double> finish = new ConcurrentHashMap<>();
+
+        /**
+         * Create a flow for a copy between two file systems.
+         *
+         * @param weight
+         *            the weight of the flow relative to other flows.
+         * @param source
+         *            the source file system.
+         * @param destination
+         *            the destination file system.
+         */
+        Flow(int weight, FileSystem source, FileSystem destination) {
+            this.weight = Math.max(1, weight);
+            this.adaptors = distinct(source.getAdaptorName(), destination.getAdaptorName());
+            this.hosts = distinct(getHost(source.getLocation()), getHost(destination.getLocation()));
+        }
+
+        private static String[] distinct(String a, String b) {
+
+            List<String> result = new ArrayList<>(2);
+
+            if (a != null) {
+                result.add(a);
+            }
+
+            if (b != null && !b.equals(a)) {
+                result.add(b);
+            }
+
+            return result.toArray(new String[result.size()]);
+        }
+    }
+
+    /**
+     * Wait until the bandwidth limits that apply to a flow allow it to transfer a number of bytes.
+     *
+     * @param flow
+     *            the flow that wants to transfer the data.
+     * @param bytes
+     *            the number of bytes to transfer.
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting.
+     */
+    static void acquire(Flow flow, int bytes) throws InterruptedException {
+
+        for (String host : flow.hosts) {
+            acquire(hostBuckets.get(host), flow, bytes);
+        }
+
+        for (String adaptor : flow.adaptors) {
+            acquire(adaptorBuckets.get(adaptor), flow, bytes);
+        }
+
+        acquire(global, flow, bytes);
+    }
+
+    private static void acquire(TokenBucket bucket, Flow flow, int bytes) throws InterruptedException {
+        if (bucket != null) {
+            bucket.acquire(flow, bytes);
+        }
+    }
+
+    /**
+     * A token bucket that serves waiting flows using start-time fair queuing.
+     *
+     * Each request is tagged with a virtual start time, which is the later of the current virtual time and the finish tag of the previous request of its
+     * flow. The finish tag of a request is its start tag plus its size divided by the weight of the flow. Requests are served in order of their start tags,
+     * so each flow gets a share of the bandwidth that is proportional to its weight. A flow that was idle does not build up credit.
+     */
+    static class TokenBucket {
+
+        private static class Request implements Comparable<Request> {
+
+            final double start;
+            final long sequence;
+
+            Request(double start, long sequence) {
+                this.start = start;
+                this.sequence = sequence;
+            }
+
+            @Override
+            public int compareTo(Request other) {
+                int result = Double.compare(start, other.start);
+                return result != 0 ? result : Long.compare(sequence, other.sequence);
+            }
+        }
+
+        private final long rate;
+        private final PriorityQueue<Request> waiting = new PriorityQueue<>();
+
+        private double tokens;
+        private long lastRefill;
+        private double virtualTime;
+        private long sequence;
+
+        TokenBucket(long rate) {
+            this.rate = rate;
+            this.tokens = rate;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(rate, tokens + (now - lastRefill) * (double) rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+        }
+
+        synchronized void acquire(Flow flow, int bytes) throws InterruptedException {
+
+            double start = Math.max(virtualTime, flow.finish.getOrDefault(this, 0.0));
+            flow.finish.put(this, start + bytes / flow.weight);
+
+            Request request = new Request(start, sequence++);
+            waiting.add(request);
+
+            // Requests larger than the bucket only wait for a full bucket, after which the tokens go negative.
+            double needed = Math.min(bytes, rate);
+
+            try {
+                refill();
+
+                while (waiting.peek() != request || tokens < needed) {
+
+                    if (waiting.peek() == request) {
+                        long delay = (long) Math.ceil((needed - tokens) * TimeUnit.SECONDS.toNanos(1) / rate);
+                        TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, delay));
+                    } else {
+                        wait();
+                    }
+
+                    refill();
+                }
+            } catch (InterruptedException e) {
+                waiting.remove(request);
+                notifyAll();
+                throw e;
+            }
+
+            waiting.poll();
+            tokens -= bytes;
+            virtualTime = start;
+            notifyAll();
+        }
+    }
+}
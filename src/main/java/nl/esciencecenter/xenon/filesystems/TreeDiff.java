@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TreeDiff contains the differences between two {@link TreeSnapshot}s of the same directory tree, as returned by {@link TreeSnapshot#diff(TreeSnapshot)}.
+ *
+ * All paths are absolute, and sorted by their path relative to the root of the tree.
+ */
+public class TreeDiff {
+
+    private final List<Path> added;
+    private final List<Path> removed;
+    private final List<Path> modified;
+
+    TreeDiff(List<Path> added, List<Path> removed, List<Path> modified) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.modified = Collections.unmodifiableList(modified);
+    }
+
+    /**
+     * Get the paths that only exist in the newer snapshot.
+     *
+     * @return the added paths.
+     */
+    public List<Path> getAdded() {
+        return added;
+    }
+
+    /**
+     * Get the paths that only exist in the older snapshot.
+     *
+     * @return the removed paths.
+     */
+    public List<Path> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Get the paths that exist in both snapshots, but changed in type, or of which the size or last modified time changed. Directories are only reported if
+     * they changed in type, as their modification time changes with their entries.
+     *
+     * @return the modified paths.
+     */
+    public List<Path> getModified() {
+        return modified;
+    }
+
+    /**
+     * Check if the snapshots are the same.
+     *
+     * @return if no paths were added, removed or modified.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && modified.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "TreeDiff [added=" + added + ", removed=" + removed + ", modified=" + modified + "]";
+    }
+}
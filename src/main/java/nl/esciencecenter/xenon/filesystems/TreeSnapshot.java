@@ -0,0 +1,603 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import nl.esciencecenter.xenon.XenonException;
+
+/**
+ * A snapshot of the paths, types, sizes and modification times of all entries in a directory tree.
+ *
+ * A snapshot is taken with {@link #create(FileSystem, Path)}, stored in a local file with {@link #save(java.nio.file.Path)}, and read back with
+ * {@link #load(java.nio.file.Path)}. The changes since a snapshot are found by taking a new one with {@link #rescan(FileSystem, boolean)} and comparing the
+ * two with {@link #diff(TreeSnapshot)}.
+ *
+ * A rescan can skip the listing of directories whose modification time did not change since the previous snapshot, as adding, removing or renaming an
+ * entry updates the modification time of its directory. This is much cheaper for large trees that change little, but does not notice files that are
+ * changed in place in such a directory. Directories without a modification time, such as those of blob stores, are always listed.
+ *
+ * Whether a directory may have changed again after it was listed is decided by comparing its modification time, set by the clock of the server, with the
+ * time the previous snapshot was started, taken from the local clock. This assumes the clocks differ by less than the modification margin passed to
+ * {@link #rescan(FileSystem, boolean, long)}. Use a margin larger than the expected clock skew for remote trees, or changes made just before the previous
+ * snapshot may be missed.
+ */
+public class TreeSnapshot {
+
+    /** The first line of a stored snapshot. */
+    private static final String HEADER = "xenon-tree-snapshot 1";
+
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * The default modification margin (in milliseconds): directories modified this close to the start of a snapshot may have changed again within the same
+     * modification time, or after it if the clock of the server is behind.
+     */
+    public static final long DEFAULT_MODIFICATION_MARGIN = 2000;
+
+    /** The part of a snapshot that describes a single entry. */
+    public static class Entry {
+
+        private final char type;
+        private final long size;
+        private final long lastModified;
+
+        Entry(char type, long size, long lastModified) {
+            this.type = type;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        Entry(PathAttributes attributes) {
+            if (attributes.isDirectory()) {
+                type = 'd';
+            } else if (attributes.isRegular()) {
+                type = 'f';
+            } else if (attributes.isSymbolicLink()) {
+                type = 'l';
+            } else {
+                type = 'o';
+            }
+
+            size = attributes.isRegular() ? attributes.getSize() : 0;
+            lastModified = attributes.getLastModifiedTime();
+        }
+
+        public boolean isDirectory() {
+            return type == 'd';
+        }
+
+        public boolean isRegular() {
+            return type == 'f';
+        }
+
+        public boolean isSymbolicLink() {
+            return type == 'l';
+        }
+
+        public boolean isOther() {
+            return type == 'o';
+        }
+
+        /**
+         * Get the size of the entry.
+         *
+         * @return the size of a regular file, or 0 for other entries.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the last modified time of the entry.
+         *
+         * @return the last modified time, or 0 if the adaptor does not provide it.
+         */
+        public long getLastModifiedTime() {
+            return lastModified;
+        }
+
+        boolean isModified(Entry other) {
+            return type != other.type || (type != 'd' && (size != other.size || lastModified != other.lastModified));
+        }
+    }
+
+    /** A directory that still needs to be scanned. */
+    private static class Pending {
+
+        private final String key;
+        private final Path dir;
+        private final long lastModified;
+
+        Pending(String key, Path dir, long lastModified) {
+            this.key = key;
+            this.dir = dir;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final String adaptorName;
+    private final String location;
+    private final Path root;
+    private final long created;
+    private final long rootLastModified;
+
+    // Keyed by the path relative to the root. The entries below a directory all start with its key and the separator, so they form a single range, but
+    // siblings that share a prefix with the directory (like "data.csv" next to "data") may sort in between the directory and that range.
+    private final TreeMap<String, Entry> entries;
+
+    private TreeSnapshot(String adaptorName, String location, Path root, long created, long rootLastModified, TreeMap<String, Entry> entries) {
+        this.adaptorName = adaptorName;
+        this.location = location;
+        this.root = root;
+        this.created = created;
+        this.rootLastModified = rootLastModified;
+        this.entries = entries;
+    }
+
+    /**
+     * Take a snapshot of a directory tree by listing all its directories.
+     *
+     * Symbolic links are not followed. The entries are retrieved with a lightweight listing, so only the attributes in the snapshot are needed.
+     *
+     * @param fs
+     *            the file system that contains the tree.
+     * @param dir
+     *            the root directory of the tree.
+     * @return the snapshot.
+     * @throws NoSuchPathException
+     *             If the directory does not exist.
+     * @throws InvalidPathException
+     *             If <code>dir</code> is not a directory.
+     * @throws XenonException
+     *             If an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If fs or dir is null.
+     */
+    public static TreeSnapshot create(FileSystem fs, Path dir) throws XenonException {
+
+        if (fs == null) {
+            throw new IllegalArgumentException("FileSystem is null");
+        }
+
+        return scan(fs, dir, null, 0);
+    }
+
+    /**
+     * Take a new snapshot of the same directory tree, using the {@link #DEFAULT_MODIFICATION_MARGIN}.
+     *
+     * @param fs
+     *            the file system that contains the tree, which must have the same adaptor and location as the one this snapshot was taken on.
+     * @param pruneUnchangedDirectories
+     *            if directories whose modification time did not change since this snapshot are not listed again. Their subdirectories are still checked.
+     * @return the new snapshot.
+     * @throws NoSuchPathException
+     *             If the root directory no longer exists.
+     * @throws XenonException
+     *             If an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If fs is null, or is not on the same location as this snapshot.
+     */
+    public TreeSnapshot rescan(FileSystem fs, boolean pruneUnchangedDirectories) throws XenonException {
+        return rescan(fs, pruneUnchangedDirectories, DEFAULT_MODIFICATION_MARGIN);
+    }
+
+    /**
+     * Take a new snapshot of the same directory tree.
+     *
+     * @param fs
+     *            the file system that contains the tree, which must have the same adaptor and location as the one this snapshot was taken on.
+     * @param pruneUnchangedDirectories
+     *            if directories whose modification time did not change since this snapshot are not listed again. Their subdirectories are still checked.
+     * @param modificationMargin
+     *            directories modified less than this time (in milliseconds) before the previous snapshot was started, according to the local clock, are
+     *            always listed. It must cover the difference between the local clock and the clock of the server.
+     * @return the new snapshot.
+     * @throws NoSuchPathException
+     *             If the root directory no longer exists.
+     * @throws XenonException
+     *             If an I/O error occurred.
+     * @throws IllegalArgumentException
+     *             If fs is null, is not on the same location as this snapshot, or the margin is negative.
+     */
+    public TreeSnapshot rescan(FileSystem fs, boolean pruneUnchangedDirectories, long modificationMargin) throws XenonException {
+
+        if (modificationMargin < 0) {
+            throw new IllegalArgumentException("Modification margin may not be negative: " + modificationMargin);
+        }
+
+        if (fs == null) {
+            throw new IllegalArgumentException("FileSystem is null");
+        }
+
+        if (!adaptorName.equals(fs.getAdaptorName()) || !location.equals(fs.getLocation())) {
+            throw new IllegalArgumentException("Snapshot of " + adaptorName + " at " + location + " cannot be rescanned on " + fs);
+        }
+
+        return scan(fs, root, pruneUnchangedDirectories ? this : null, modificationMargin);
+    }
+
+    private static TreeSnapshot scan(FileSystem fs, Path dir, TreeSnapshot previous, long modificationMargin) throws XenonException {
+
+        long created = System.currentTimeMillis();
+
+        Path root = fs.toAbsolutePath(dir);
+        PathAttributes rootAttributes = fs.getAttributes(root);
+
+        if (!rootAttributes.isDirectory()) {
+            throw new InvalidPathException(fs.getAdaptorName(), "Not a directory: " + root);
+        }
+
+        TreeMap<String, Entry> entries = new TreeMap<>();
+        ArrayDeque<Pending> todo = new ArrayDeque<>();
+
+        todo.push(new Pending("", root, rootAttributes.getLastModifiedTime()));
+
+        while (!todo.isEmpty()) {
+
+            Pending d = todo.pop();
+
+            if (previous != null && previous.isUnchanged(d.key, d.lastModified, modificationMargin)) {
+                previous.copyDirectory(fs, d, entries, todo);
+            } else {
+                for (PathAttributes p : fs.listDirectoryLightweight(d.dir)) {
+
+                    if (fs.isDotDot(p.getPath())) {
+                        continue;
+                    }
+
+                    String name = p.getPath().getFileNameAsString();
+                    String key = childKey(root, d.key, name);
+
+                    entries.put(key, new Entry(p));
+
+                    if (p.isDirectory()) {
+                        todo.push(new Pending(key, d.dir.resolve(name), p.getLastModifiedTime()));
+                    }
+                }
+            }
+        }
+
+        return new TreeSnapshot(fs.getAdaptorName(), fs.getLocation(), root, created, rootAttributes.getLastModifiedTime(), entries);
+    }
+
+    private static String childKey(Path root, String parent, String name) {
+        return parent.isEmpty() ? name : parent + root.getSeparator() + name;
+    }
+
+    /*
+     * Check if a directory is known to have the same entries as in this snapshot.
+     */
+    private boolean isUnchanged(String key, long lastModified, long modificationMargin) {
+
+        long previous;
+
+        if (key.isEmpty()) {
+            previous = rootLastModified;
+        } else {
+            Entry e = entries.get(key);
+
+            if (e == null || !e.isDirectory()) {
+                return false;
+            }
+
+            previous = e.lastModified;
+        }
+
+        return previous != 0 && previous == lastModified && lastModified < created - modificationMargin;
+    }
+
+    /*
+     * Copy the entries of an unchanged directory from this snapshot. Its subdirectories may have changed, so their attributes are retrieved (in one batch)
+     * and they are scanned as usual.
+     */
+    private void copyDirectory(FileSystem fs, Pending d, TreeMap<String, Entry> result, ArrayDeque<Pending> todo) throws XenonException {
+
+        String prefix = d.key.isEmpty() ? "" : d.key + root.getSeparator();
+
+        List<String> subdirKeys = new ArrayList<>();
+        List<Path> subdirs = new ArrayList<>();
+
+        String key = entries.ceilingKey(prefix);
+
+        while (key != null && key.startsWith(prefix)) {
+
+            String name = key.substring(prefix.length());
+            int separator = name.indexOf(root.getSeparator());
+
+            if (separator >= 0) {
+                // Skip the other entries below the same subdirectory. Siblings such as "data.csv" may sort between "data" and "data/x", so the range
+                // only starts at the first entry below it.
+                key = entries.higherKey(prefix + name.substring(0, separator + 1) + Character.MAX_VALUE);
+                continue;
+            }
+
+            if (!name.isEmpty()) {
+
+                Entry e = entries.get(key);
+
+                if (e.isDirectory()) {
+                    subdirKeys.add(key);
+                    subdirs.add(d.dir.resolve(name));
+                } else {
+                    result.put(key, e);
+                }
+            }
+
+            key = entries.higherKey(key);
+        }
+
+        Map<Path, PathAttributes> current = fs.getAttributes(subdirs);
+
+        for (int i = 0; i < subdirs.size(); i++) {
+
+            PathAttributes a = current.get(subdirs.get(i));
+
+            if (a != null) {
+                result.put(subdirKeys.get(i), new Entry(a));
+
+                if (a.isDirectory()) {
+                    todo.push(new Pending(subdirKeys.get(i), subdirs.get(i), a.getLastModifiedTime()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare this snapshot to a newer snapshot of the same tree.
+     *
+     * @param newer
+     *            the newer snapshot.
+     * @return the paths that were added, removed or modified since this snapshot.
+     * @throws IllegalArgumentException
+     *             If newer is null, or is a snapshot of another tree.
+     */
+    public TreeDiff diff(TreeSnapshot newer) {
+
+        if (newer == null) {
+            throw new IllegalArgumentException("Snapshot is null");
+        }
+
+        if (!adaptorName.equals(newer.adaptorName) || !location.equals(newer.location) || !root.equals(newer.root)) {
+            throw new IllegalArgumentException("Snapshots are of different trees");
+        }
+
+        List<Path> added = new ArrayList<>();
+        List<Path> removed = new ArrayList<>();
+        List<Path> modified = new ArrayList<>();
+
+        // Both are sorted, so a single pass over both suffices.
+        Iterator<Map.Entry<String, Entry>> olds = entries.entrySet().iterator();
+        Iterator<Map.Entry<String, Entry>> news = newer.entries.entrySet().iterator();
+
+        Map.Entry<String, Entry> o = olds.hasNext() ? olds.next() : null;
+        Map.Entry<String, Entry> n = news.hasNext() ? news.next() : null;
+
+        while (o != null || n != null) {
+
+            int c = o == null ? 1 : n == null ? -1 : o.getKey().compareTo(n.getKey());
+
+            if (c < 0) {
+                removed.add(root.resolve(o.getKey()));
+                o = olds.hasNext() ? olds.next() : null;
+            } else if (c > 0) {
+                added.add(root.resolve(n.getKey()));
+                n = news.hasNext() ? news.next() : null;
+            } else {
+                if (o.getValue().isModified(n.getValue())) {
+                    modified.add(root.resolve(n.getKey()));
+                }
+                o = olds.hasNext() ? olds.next() : null;
+                n = news.hasNext() ? news.next() : null;
+            }
+        }
+
+        return new TreeDiff(added, removed, modified);
+    }
+
+    /**
+     * Get the root directory of the tree.
+     *
+     * @return the absolute path of the root directory.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Get the time the snapshot was started.
+     *
+     * @return the time the snapshot was started, in milliseconds since the epoch.
+     */
+    public long getCreationTime() {
+        return created;
+    }
+
+    /**
+     * Get the number of entries in the snapshot, not counting the root directory.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the entry of a path in the snapshot.
+     *
+     * @param path
+     *            the path, absolute or relative to the root of the tree.
+     * @return the entry, or <code>null</code> if the path is not in the snapshot.
+     */
+    public Entry get(Path path) {
+
+        Path relative = path.isAbsolute() ? root.relativize(path) : path;
+
+        StringBuilder key = new StringBuilder();
+
+        for (int i = 0; i < relative.getNameCount(); i++) {
+            if (i > 0) {
+                key.append(root.getSeparator());
+            }
+            key.append(relative.getName(i).getFileNameAsString());
+        }
+
+        return entries.get(key.toString());
+    }
+
+    /**
+     * Store the snapshot in a local file, replacing the file if it exists.
+     *
+     * The file is compressed, and each path is stored as the length of the part it shares with the previous path and the rest.
+     *
+     * @param file
+     *            the local file to store the snapshot in.
+     * @throws XenonException
+     *             If the snapshot could not be stored.
+     */
+    public void save(java.nio.file.Path file) throws XenonException {
+
+        java.nio.file.Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+
+                w.write(HEADER + "\n");
+                w.write(encode(adaptorName) + " " + encode(location) + " " + (int) root.getSeparator() + " " + encode(root.toString()) + " " + created + " "
+                        + rootLastModified + "\n");
+
+                String last = "";
+
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+
+                    String key = e.getKey();
+                    int shared = sharedLength(last, key);
+                    Entry entry = e.getValue();
+
+                    w.write(entry.type + " " + entry.size + " " + entry.lastModified + " " + shared + " " + encode(key.substring(shared)) + "\n");
+                    last = key;
+                }
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new XenonException(adaptorName, "Failed to store tree snapshot " + file, e);
+        }
+    }
+
+    private static int sharedLength(String a, String b) {
+
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Read a snapshot stored with {@link #save(java.nio.file.Path)}.
+     *
+     * @param file
+     *            the local file containing the snapshot.
+     * @return the snapshot.
+     * @throws XenonException
+     *             If the snapshot could not be read, or the file does not contain a valid snapshot.
+     */
+    public static TreeSnapshot load(java.nio.file.Path file) throws XenonException {
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+
+            if (!HEADER.equals(r.readLine())) {
+                throw new XenonException("snapshot", "Not a tree snapshot: " + file);
+            }
+
+            String[] header = split(r.readLine(), 6, file);
+
+            char separator = (char) Integer.parseInt(header[2]);
+            Path root = new Path(separator, decode(header[3]));
+
+            TreeMap<String, Entry> entries = new TreeMap<>();
+            String last = "";
+            String line = r.readLine();
+
+            while (line != null) {
+                String[] fields = split(line, 5, file);
+
+                String key = last.substring(0, Integer.parseInt(fields[3])) + decode(fields[4]);
+                entries.put(key, new Entry(fields[0].charAt(0), Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+
+                last = key;
+                line = r.readLine();
+            }
+
+            return new TreeSnapshot(decode(header[0]), decode(header[1]), root, Long.parseLong(header[4]), Long.parseLong(header[5]), entries);
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new XenonException("snapshot", "Failed to read tree snapshot " + file, e);
+        }
+    }
+
+    private static String[] split(String line, int count, java.nio.file.Path file) throws XenonException {
+
+        String[] fields = line == null ? new String[0] : line.split(" ", -1);
+
+        if (fields.length != count) {
+            throw new XenonException("snapshot", "Corrupt tree snapshot " + file);
+        }
+
+        return fields;
+    }
+
+    private static String encode(String s) throws UnsupportedEncodingException {
+        return URLEncoder.encode(s, ENCODING);
+    }
+
+    private static String decode(String s) throws UnsupportedEncodingException {
+        return URLDecoder.decode(s, ENCODING);
+    }
+
+    @Override
+    public String toString() {
+        return "TreeSnapshot [adaptorName=" + adaptorName + ", location=" + location + ", root=" + root + ", created=" + created + ", entries="
+                + entries.size() + "]";
+    }
+}
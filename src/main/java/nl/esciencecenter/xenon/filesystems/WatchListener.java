@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import nl.esciencecenter.xenon.XenonException;
+
+/**
+ * WatchListener receives the changes to the entries of a directory watched with {@link FileSystem#watch(Path, WatchListener)}.
+ *
+ * Events are delivered on a thread of the FileSystem that is shared by all watches, so implementations must be thread safe and should return quickly.
+ * Exceptions thrown by a listener are ignored. All methods do nothing by default, so implementations only need to override the events they are interested
+ * in.
+ */
+public interface WatchListener {
+
+    /**
+     * Called when an entry was added to the directory.
+     *
+     * @param path
+     *            the absolute path of the new entry.
+     */
+    default void pathCreated(Path path) {
+        // ignore
+    }
+
+    /**
+     * Called when an entry was removed from the directory.
+     *
+     * @param path
+     *            the absolute path of the removed entry.
+     */
+    default void pathDeleted(Path path) {
+        // ignore
+    }
+
+    /**
+     * Called when an entry of the directory was changed.
+     *
+     * @param path
+     *            the absolute path of the changed entry.
+     */
+    default void pathModified(Path path) {
+        // ignore
+    }
+
+    /**
+     * Called when the directory can no longer be watched, for example because it was removed. No more events are delivered for the watch after this.
+     *
+     * @param dir
+     *            the absolute path of the watched directory.
+     * @param exception
+     *            the exception that ended the watch.
+     */
+    default void watchFailed(Path dir, XenonException exception) {
+        // ignore
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.esciencecenter.xenon.XenonException;
+
+/**
+ * Watches directories of a FileSystem by listing them periodically and comparing each listing to the previous one.
+ *
+ * A directory is listed once per interval, no matter how many watches it has, so the load on the server only depends on the number of directories watched.
+ */
+class WatchPoller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchPoller.class);
+
+    /** A watched directory, with its watches and the entries it had at the previous poll. */
+    private static class Directory {
+
+        private final Path dir;
+        private final Map<String, WatchListener> listeners = new LinkedHashMap<>();
+
+        private Map<String, TreeSnapshot.Entry> entries;
+
+        Directory(Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    private final FileSystem fs;
+    private final ScheduledExecutorService timer;
+
+    private final Map<Path, Directory> directories = new HashMap<>();
+    private final Map<String, Directory> watches = new HashMap<>();
+
+    /** Held while polling, so the entries of a directory are only compared by one poll at a time. */
+    private final Object pollLock = new Object();
+
+    WatchPoller(FileSystem fs, String threadName, long interval) {
+        this.fs = fs;
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+
+        timer.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * Add a watch. The first watch of a directory lists it right away, so later changes are seen by the next poll. The poll lock is not needed for
+     * this, as the directory is only installed once its listing is complete, so adding a watch does not wait for a poll of all directories.
+     */
+    void add(String watchIdentifier, Path dir, WatchListener listener) throws XenonException {
+
+        if (addToExisting(watchIdentifier, dir, listener)) {
+            return;
+        }
+
+        Directory d = new Directory(dir);
+        d.entries = list(dir);
+
+        synchronized (this) {
+            // Another watch of the same directory may have been added while listing, in which case its listing is used.
+            Directory existing = directories.putIfAbsent(dir, d);
+
+            if (existing != null) {
+                d = existing;
+            }
+
+            d.listeners.put(watchIdentifier, listener);
+            watches.put(watchIdentifier, d);
+        }
+    }
+
+    private synchronized boolean addToExisting(String watchIdentifier, Path dir, WatchListener listener) {
+
+        Directory d = directories.get(dir);
+
+        if (d == null) {
+            return false;
+        }
+
+        d.listeners.put(watchIdentifier, listener);
+        watches.put(watchIdentifier, d);
+        return true;
+    }
+
+    /*
+     * Remove a watch, and stop polling its directory if it was the last one.
+     */
+    synchronized boolean remove(String watchIdentifier) {
+
+        Directory d = watches.remove(watchIdentifier);
+
+        if (d == null) {
+            return false;
+        }
+
+        d.listeners.remove(watchIdentifier);
+
+        if (d.listeners.isEmpty()) {
+            directories.remove(d.dir);
+        }
+
+        return true;
+    }
+
+    /*
+     * List all watched directories once, and report the differences with the previous listing to their watches.
+     */
+    void poll() {
+
+        synchronized (pollLock) {
+            List<Directory> todo;
+
+            synchronized (this) {
+                todo = new ArrayList<>(directories.values());
+            }
+
+            for (Directory d : todo) {
+                try {
+                    Map<String, TreeSnapshot.Entry> current = list(d.dir);
+                    compare(d, current);
+                    d.entries = current;
+                } catch (XenonException e) {
+                    failed(d, e);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Failed to poll " + d.dir, e);
+                }
+            }
+        }
+    }
+
+    private Map<String, TreeSnapshot.Entry> list(Path dir) throws XenonException {
+
+        Map<String, TreeSnapshot.Entry> result = new TreeMap<>();
+
+        for (PathAttributes p : fs.listDirectoryLightweight(dir)) {
+            if (!fs.isDotDot(p.getPath())) {
+                result.put(p.getPath().getFileNameAsString(), new TreeSnapshot.Entry(p));
+            }
+        }
+
+        return result;
+    }
+
+    private void compare(Directory d, Map<String, TreeSnapshot.Entry> current) {
+
+        for (Map.Entry<String, TreeSnapshot.Entry> e : d.entries.entrySet()) {
+            if (!current.containsKey(e.getKey())) {
+                report(d, d.dir.resolve(e.getKey()), WatchListener::pathDeleted);
+            }
+        }
+
+        for (Map.Entry<String, TreeSnapshot.Entry> e : current.entrySet()) {
+
+            TreeSnapshot.Entry old = d.entries.get(e.getKey());
+
+            if (old == null) {
+                report(d, d.dir.resolve(e.getKey()), WatchListener::pathCreated);
+            } else if (old.isModified(e.getValue())) {
+                report(d, d.dir.resolve(e.getKey()), WatchListener::pathModified);
+            }
+        }
+    }
+
+    private interface Event {
+        void deliver(WatchListener listener, Path path);
+    }
+
+    private void report(Directory d, Path path, Event event) {
+
+        // Cached attributes of the path are stale now, whoever changed it.
+        fs.invalidateAttributes(path);
+
+        for (WatchListener l : getListeners(d)) {
+            try {
+                event.deliver(l, path);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Watch listener of " + d.dir + " failed", e);
+            }
+        }
+    }
+
+    private synchronized List<WatchListener> getListeners(Directory d) {
+        return new ArrayList<>(d.listeners.values());
+    }
+
+    /*
+     * End all watches of a directory that can no longer be listed. The directory may have been unwatched and watched again during the poll, in which case the
+     * new watches belong to another Directory that is left alone.
+     */
+    private void failed(Directory d, XenonException exception) {
+
+        List<WatchListener> listeners;
+
+        synchronized (this) {
+            listeners = new ArrayList<>(d.listeners.values());
+            directories.remove(d.dir, d);
+            watches.values().removeIf(w -> w == d);
+            d.listeners.clear();
+        }
+
+        for (WatchListener l : listeners) {
+            try {
+                l.watchFailed(d.dir, exception);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Watch listener of " + d.dir + " failed", e);
+            }
+        }
+    }
+
+    void close() {
+        timer.shutdownNow();
+    }
+}
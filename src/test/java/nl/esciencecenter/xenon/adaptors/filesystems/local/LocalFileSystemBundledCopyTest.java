@@ -0,0 +1,276 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.InvalidPropertyException;
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.filesystems.Path;
+
+public class LocalFileSystemBundledCopyTest extends LocalFileSystemCopyTestParent {
+
+    // tar keeps the modification time of the files it extracts, while a channel copy does not.
+    private static final FileTime OLD = FileTime.fromMillis(1000000000000L);
+
+    private static Map<String, String> bundleProperties(String bundleThreshold, String compress) {
+        return properties("bundleThreshold", bundleThreshold, "compressTransfers", compress);
+    }
+
+    private LocalFileSystem createFileSystem(String bundleThreshold) throws XenonException {
+        return createFileSystem(bundleThreshold, "never");
+    }
+
+    // Tar streams are only used if a remote file system is involved, so this one pretends to be remote.
+    private LocalFileSystem createFileSystem(String bundleThreshold, String compress) throws XenonException {
+        XenonProperties properties = new XenonProperties(new LocalFileAdaptor().getSupportedProperties(), bundleProperties(bundleThreshold, compress));
+        Path root = new Path(folder.getRoot().getAbsolutePath());
+
+        LocalFileSystem fs = new LocalFileSystem("test", root.toString(), "/", root, 4096, properties) {
+            @Override
+            protected boolean isRemote() {
+                return true;
+            }
+        };
+
+        assumeTrue(fs.canStreamArchives());
+        return fs;
+    }
+
+    @Override
+    protected byte[] createFile(String name, int size) throws Exception {
+        byte[] data = super.createFile(name, size);
+        Files.setLastModifiedTime(local(name), OLD);
+        return data;
+    }
+
+    private byte[] createTextFile(String name, int lines) throws Exception {
+        StringBuilder b = new StringBuilder();
+
+        for (int i = 0; i < lines; i++) {
+            b.append("line ").append(i % 10).append(" of a text file\n");
+        }
+
+        byte[] data = b.toString().getBytes(StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(write(name, data), OLD);
+        return data;
+    }
+
+    private CopyStatus copy(FileSystem fs, CopyMode mode) throws Exception {
+        return copy(fs, "source", "target", mode, true);
+    }
+
+    @Test
+    public void test_copy_bundlesSmallFiles() throws Exception {
+        LocalFileSystem fs = createFileSystem("1K");
+
+        byte[] a = createFile("source/a", 100);
+        byte[] b = createFile("source/dir/b", 200);
+        byte[] c = createFile("source/dir/sub/-c", 300);
+        byte[] big = createFile("source/dir/big", 5000);
+
+        CopyStatus s = copy(fs, CopyMode.CREATE);
+
+        assertEquals(5600, s.bytesCopied());
+        assertArrayEquals(a, read("target/a"));
+        assertArrayEquals(b, read("target/dir/b"));
+        assertArrayEquals(c, read("target/dir/sub/-c"));
+        assertArrayEquals(big, read("target/dir/big"));
+
+        assertEquals(OLD, Files.getLastModifiedTime(local("target/dir/b")));
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target/dir/big")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_replaceOnlyBundlesNewFiles() throws Exception {
+        LocalFileSystem fs = createFileSystem("1K");
+
+        byte[] a = createFile("source/a", 100);
+        byte[] b = createFile("source/b", 200);
+        byte[] c = createFile("source/c", 300);
+        createFile("target/a", 10);
+
+        copy(fs, CopyMode.REPLACE);
+
+        assertArrayEquals(a, read("target/a"));
+        assertArrayEquals(b, read("target/b"));
+        assertArrayEquals(c, read("target/c"));
+
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target/a")));
+        assertEquals(OLD, Files.getLastModifiedTime(local("target/b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_sync_bundlesNewFiles() throws Exception {
+        LocalFileSystem fs = createFileSystem("1K");
+
+        byte[] a = createFile("source/a", 100);
+        byte[] b = createFile("source/sub/b", 200);
+
+        CopyStatus s = copy(fs, CopyMode.SYNC);
+
+        assertEquals(300, s.bytesCopied());
+        assertArrayEquals(a, read("target/a"));
+        assertArrayEquals(b, read("target/sub/b"));
+        assertEquals(OLD, Files.getLastModifiedTime(local("target/sub/b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_disabled() throws Exception {
+        LocalFileSystem fs = createFileSystem("0");
+
+        createFile("source/a", 100);
+        createFile("source/b", 200);
+
+        copy(fs, CopyMode.CREATE);
+
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target/a")));
+        fs.close();
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_negativeThreshold() throws Exception {
+        createFileSystem(bundleProperties("-1", "never"));
+    }
+
+    @Test
+    public void test_copy_compressedBundle() throws Exception {
+        LocalFileSystem fs = createFileSystem("1M", "always");
+
+        byte[] a = createTextFile("source/a", 100);
+        byte[] b = createFile("source/dir/b", 200);
+
+        CopyStatus s = copy(fs, CopyMode.CREATE);
+
+        assertEquals(a.length + b.length, s.bytesCopied());
+        assertArrayEquals(a, read("target/a"));
+        assertArrayEquals(b, read("target/dir/b"));
+        assertEquals(OLD, Files.getLastModifiedTime(local("target/dir/b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_compressedFileWithSameName() throws Exception {
+        LocalFileSystem fs = createFileSystem("0", "always");
+
+        byte[] a = createTextFile("source/a", 1000);
+        Files.createDirectories(local("target"));
+
+        CopyStatus s = copy(fs, "source/a", "target/a", CopyMode.CREATE, false);
+
+        assertEquals(a.length, s.bytesCopied());
+        assertArrayEquals(a, read("target/a"));
+        assertEquals(OLD, Files.getLastModifiedTime(local("target/a")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_renamedFileNotCompressed() throws Exception {
+        LocalFileSystem fs = createFileSystem("0", "always");
+
+        byte[] a = createTextFile("source/a", 1000);
+        Files.createDirectories(local("target"));
+
+        copy(fs, "source/a", "target/b", CopyMode.CREATE, false);
+
+        assertArrayEquals(a, read("target/b"));
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target/b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_autoCompressesText() throws Exception {
+        LocalFileSystem fs = createFileSystem("0", "auto");
+
+        byte[] a = createTextFile("source/a", 1000);
+        Files.createDirectories(local("target"));
+
+        copy(fs, "source/a", "target/a", CopyMode.CREATE, false);
+
+        assertArrayEquals(a, read("target/a"));
+        assertEquals(OLD, Files.getLastModifiedTime(local("target/a")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_autoSkipsRandomData() throws Exception {
+        LocalFileSystem fs = createFileSystem("0", "auto");
+
+        byte[] a = createFile("source/a", 100000);
+        Files.createDirectories(local("target"));
+
+        copy(fs, "source/a", "target/a", CopyMode.CREATE, false);
+
+        assertArrayEquals(a, read("target/a"));
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target/a")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_localToLocalNotStreamed() throws Exception {
+        FileSystem fs = createFileSystem(bundleProperties("1M", "always"));
+
+        byte[] a = createTextFile("source/a", 1000);
+        createFile("source/b", 100);
+        byte[] c = createTextFile("single/c", 1000);
+        Files.createDirectories(local("target2"));
+
+        copy(fs, CopyMode.CREATE);
+        copy(fs, "single/c", "target2/c", CopyMode.CREATE, false);
+
+        assertArrayEquals(a, read("target/a"));
+        assertArrayEquals(c, read("target2/c"));
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target/a")));
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target2/c")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_autoSkipsSmallFiles() throws Exception {
+        LocalFileSystem fs = createFileSystem("0", "auto");
+
+        byte[] a = createTextFile("source/a", 100);
+        Files.createDirectories(local("target"));
+
+        copy(fs, "source/a", "target/a", CopyMode.CREATE, false);
+
+        assertArrayEquals(a, read("target/a"));
+        assertNotEquals(OLD, Files.getLastModifiedTime(local("target/a")));
+        fs.close();
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_invalidCompression() throws Exception {
+        createFileSystem(bundleProperties("0", "sometimes"));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.filesystems.Path;
+import nl.esciencecenter.xenon.filesystems.PathAlreadyExistsException;
+
+public class LocalFileSystemChannelCopyTest extends LocalFileSystemCopyTestParent {
+
+    private LocalFileSystem createFileSystem() throws XenonException {
+        return (LocalFileSystem) createFileSystem(properties());
+    }
+
+    private byte[] copy(int size) throws Exception {
+
+        byte[] data = createFile("source", size);
+
+        FileSystem fs = createFileSystem();
+
+        CopyStatus s = copy(fs, "source", "target", CopyMode.CREATE, false);
+
+        assertEquals(size, s.bytesCopied());
+        fs.close();
+
+        assertArrayEquals(data, read("target"));
+        return data;
+    }
+
+    @Test
+    public void test_copy_multipleChunks() throws Exception {
+        // Larger than a single channel transfer
+        copy(20 * 1024 * 1024 + 17);
+    }
+
+    @Test
+    public void test_copy_small() throws Exception {
+        copy(100);
+    }
+
+    @Test
+    public void test_copy_empty() throws Exception {
+        copy(0);
+    }
+
+    @Test
+    public void test_copy_sourceShorterThanSize() throws Exception {
+        createFile("source", 1000);
+        createFile("short", 100);
+
+        Path root = new Path(folder.getRoot().getAbsolutePath());
+
+        // Reads a shorter file than the size of the source, like a source that is truncated during the copy.
+        LocalFileSystem fs = new LocalFileSystem("test", root.toString(), "/", root, 4096, null) {
+            @Override
+            protected FileChannel openReadChannel(Path path) throws XenonException {
+                return super.openReadChannel(new Path("short"));
+            }
+        };
+
+        CopyStatus s = waitForCopy(fs, "source", "target", CopyMode.CREATE, false);
+
+        assertTrue(s.hasException());
+        assertTrue(s.getException().getMessage().contains("Unexpected end of file"));
+        assertEquals(100, s.bytesCopied());
+        fs.close();
+    }
+
+    @Test
+    public void test_openChannels() throws Exception {
+        LocalFileSystem fs = createFileSystem();
+        write("source", new byte[] { 1, 2, 3 });
+
+        try (ReadableByteChannel in = fs.openReadChannel(new Path("source")); WritableByteChannel out = fs.openWriteChannel(new Path("target"), 3)) {
+            assertTrue(in instanceof FileChannel);
+            assertTrue(out instanceof FileChannel);
+
+            ByteBuffer buffer = ByteBuffer.allocate(3);
+            in.read(buffer);
+            buffer.flip();
+            out.write(buffer);
+        }
+
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read("target"));
+        fs.close();
+    }
+
+    @Test(expected = PathAlreadyExistsException.class)
+    public void test_openWriteChannel_exists() throws Exception {
+        LocalFileSystem fs = createFileSystem();
+        write("target", new byte[] { 1, 2, 3 });
+        fs.openWriteChannel(new Path("target"), 3);
+    }
+}
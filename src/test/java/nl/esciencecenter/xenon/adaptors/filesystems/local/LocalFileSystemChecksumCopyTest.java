@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.InvalidPropertyException;
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.filesystems.Path;
+
+public class LocalFileSystemChecksumCopyTest extends LocalFileSystemCopyTestParent {
+
+    // The checksums of "hello world"
+    private static final String SHA256 = "b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9";
+    private static final String CRC32 = "0d4a1185";
+
+    private FileSystem createFileSystem(String checksum, String verify) throws XenonException {
+        // A segment threshold would select a segmented transfer, which is disabled while computing checksums
+        return createFileSystem(properties("copyChecksum", checksum, "verifyChecksum", verify, "segmentThreshold", "1"));
+    }
+
+    private void write(String name) throws Exception {
+        write(name, "hello world".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_copy_sha256() throws Exception {
+        FileSystem fs = createFileSystem("SHA-256", "false");
+        write("a");
+
+        CopyStatus s = copy(fs, "a", "b", CopyMode.CREATE, false);
+
+        assertEquals(1, s.getChecksums().size());
+        assertEquals(SHA256, s.getChecksums().get(fs.getWorkingDirectory().resolve("b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_crc32Verified() throws Exception {
+        FileSystem fs = createFileSystem("CRC32", "true");
+        write("a");
+
+        CopyStatus s = copy(fs, "a", "b", CopyMode.CREATE, false);
+
+        assertEquals(CRC32, s.getChecksums().get(fs.getWorkingDirectory().resolve("b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_recursiveVerified() throws Exception {
+        FileSystem fs = createFileSystem("SHA-256", "true");
+        write("src/a");
+        write("src/dir/b");
+
+        CopyStatus s = copy(fs, "src", "dst", CopyMode.CREATE, true);
+
+        Path dst = fs.getWorkingDirectory().resolve("dst");
+
+        assertEquals(2, s.getChecksums().size());
+        assertEquals(SHA256, s.getChecksums().get(dst.resolve("a")));
+        assertEquals(SHA256, s.getChecksums().get(dst.resolve("dir/b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_noChecksum() throws Exception {
+        FileSystem fs = createFileSystem("", "false");
+        write("a");
+
+        CopyStatus s = copy(fs, "a", "b", CopyMode.CREATE, false);
+
+        assertTrue(s.getChecksums().isEmpty());
+        fs.close();
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_unknownAlgorithm() throws XenonException {
+        createFileSystem("NO-SUCH-HASH", "false");
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_verifyWithoutChecksum() throws XenonException {
+        createFileSystem("", "true");
+    }
+}
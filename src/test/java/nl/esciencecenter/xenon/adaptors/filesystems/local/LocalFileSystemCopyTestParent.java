@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.filesystems.Path;
+
+/**
+ * Shared fixture of the tests of the copy features on the local file system. The file systems created by a test work in its own temporary folder, so
+ * relative paths refer to files in that folder.
+ */
+public abstract class LocalFileSystemCopyTestParent {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Create the adaptor properties from pairs of names, without the prefix of the local adaptor, and values.
+     */
+    protected static Map<String, String> properties(String... namesAndValues) {
+        Map<String, String> properties = new HashMap<>();
+
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            properties.put(LocalFileAdaptor.PREFIX + namesAndValues[i], namesAndValues[i + 1]);
+        }
+
+        return properties;
+    }
+
+    protected FileSystem createFileSystem(Map<String, String> properties) throws XenonException {
+        return FileSystem.create("file", folder.getRoot().getAbsolutePath(), null, properties);
+    }
+
+    protected java.nio.file.Path local(String name) {
+        return folder.getRoot().toPath().resolve(name);
+    }
+
+    protected byte[] createData(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    protected byte[] createFile(String name, int size) throws Exception {
+        byte[] data = createData(size);
+        write(name, data);
+        return data;
+    }
+
+    protected java.nio.file.Path write(String name, byte[] data) throws Exception {
+        java.nio.file.Path file = local(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, data);
+        return file;
+    }
+
+    protected byte[] read(String name) throws Exception {
+        return Files.readAllBytes(local(name));
+    }
+
+    /**
+     * Copy within a file system and wait until the copy is done, without checking if it succeeded.
+     */
+    protected CopyStatus waitForCopy(FileSystem fs, String source, String target, CopyMode mode, boolean recursive) throws XenonException {
+        String h = fs.copy(new Path(source), fs, new Path(target), mode, recursive);
+        CopyStatus s = fs.waitUntilDone(h, 30 * 1000);
+        assertTrue(s.isDone());
+        return s;
+    }
+
+    protected CopyStatus copy(FileSystem fs, String source, String target, CopyMode mode, boolean recursive) throws Exception {
+        CopyStatus s = waitForCopy(fs, source, target, mode, recursive);
+        s.maybeThrowException();
+        return s;
+    }
+}
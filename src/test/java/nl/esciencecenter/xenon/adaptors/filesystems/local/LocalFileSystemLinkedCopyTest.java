@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.InvalidPropertyException;
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.utils.LocalFileSystemUtils;
+
+public class LocalFileSystemLinkedCopyTest extends LocalFileSystemCopyTestParent {
+
+    private FileSystem createFileSystem(String copyMethod) throws XenonException {
+        return createFileSystem(properties("copyMethod", copyMethod));
+    }
+
+    @Test
+    public void test_copy_hardlink() throws Exception {
+        assumeFalse(LocalFileSystemUtils.isWindows());
+        FileSystem fs = createFileSystem("hardlink");
+
+        byte[] a = createFile("source/a", 1000);
+
+        CopyStatus s = copy(fs, "source/a", "target", CopyMode.CREATE, false);
+
+        assertEquals(1000, s.bytesCopied());
+        assertArrayEquals(a, read("target"));
+        assertTrue(Files.isSameFile(local("source/a"), local("target")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_hardlinkRecursive() throws Exception {
+        assumeFalse(LocalFileSystemUtils.isWindows());
+        FileSystem fs = createFileSystem("hardlink");
+
+        createFile("source/a", 100);
+        createFile("source/dir/b", 200);
+
+        copy(fs, "source", "target", CopyMode.CREATE, true);
+
+        assertTrue(Files.isSameFile(local("source/a"), local("target/a")));
+        assertTrue(Files.isSameFile(local("source/dir/b"), local("target/dir/b")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_reflinkOrFallback() throws Exception {
+        FileSystem fs = createFileSystem("reflink");
+
+        byte[] a = createFile("source/a", 1000);
+
+        copy(fs, "source/a", "target", CopyMode.CREATE, false);
+
+        // Whether the file system supports clones or not, the result is an independent copy
+        assertArrayEquals(a, read("target"));
+        assertFalse(Files.isSameFile(local("source/a"), local("target")));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_default() throws Exception {
+        FileSystem fs = createFileSystem("copy");
+
+        byte[] a = createFile("source/a", 1000);
+
+        copy(fs, "source/a", "target", CopyMode.CREATE, false);
+
+        assertArrayEquals(a, read("target"));
+        assertFalse(Files.isSameFile(local("source/a"), local("target")));
+        fs.close();
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_invalidCopyMethod() throws Exception {
+        createFileSystem("symlink");
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.filesystems.InvalidResumeTargetException;
+
+public class LocalFileSystemResumeCopyTest extends LocalFileSystemCopyTestParent {
+
+    private File journals;
+    private FileSystem fs;
+
+    @Before
+    public void setup() throws Exception {
+        journals = folder.newFolder("journals");
+        fs = createFileSystem(properties("copyJournalDirectory", journals.getAbsolutePath()));
+    }
+
+    private CopyStatus resume(String source, String target, boolean recursive) throws XenonException {
+        return waitForCopy(fs, source, target, CopyMode.RESUME, recursive);
+    }
+
+    @Test
+    public void test_resume_partialFile() throws Exception {
+        byte[] data = createData(100000);
+        write("source", data);
+        write("target", Arrays.copyOf(data, 30000));
+
+        CopyStatus s = resume("source", "target", false);
+
+        s.maybeThrowException();
+        assertEquals(data.length, s.bytesCopied());
+        assertArrayEquals(data, read("target"));
+    }
+
+    @Test
+    public void test_resume_noTarget() throws Exception {
+        byte[] data = createData(1000);
+        write("source", data);
+
+        resume("source", "target", false).maybeThrowException();
+
+        assertArrayEquals(data, read("target"));
+    }
+
+    @Test
+    public void test_resume_completeFile() throws Exception {
+        byte[] data = createData(1000);
+        write("source", data);
+        write("target", data);
+
+        resume("source", "target", false).maybeThrowException();
+
+        assertArrayEquals(data, read("target"));
+    }
+
+    @Test
+    public void test_resume_removesJournal() throws Exception {
+        byte[] data = createData(1000);
+        write("source", data);
+        write("target", Arrays.copyOf(data, 10));
+
+        resume("source", "target", false).maybeThrowException();
+
+        assertEquals(0, journals.listFiles().length);
+    }
+
+    @Test
+    public void test_resume_mismatch() throws Exception {
+        byte[] data = createData(100000);
+        write("source", data);
+
+        byte[] partial = Arrays.copyOf(data, 30000);
+        partial[29990]++;
+        write("target", partial);
+
+        CopyStatus s = resume("source", "target", false);
+
+        assertTrue(s.getException() instanceof InvalidResumeTargetException);
+        assertArrayEquals(partial, read("target"));
+    }
+
+    @Test
+    public void test_resume_targetTooLarge() throws Exception {
+        byte[] data = createData(1000);
+        write("source", data);
+        write("target", createData(2000));
+
+        CopyStatus s = resume("source", "target", false);
+
+        assertTrue(s.getException() instanceof InvalidResumeTargetException);
+    }
+
+    @Test
+    public void test_resume_targetIsDirectory() throws Exception {
+        write("source", createData(1000));
+        Files.createDirectory(local("target"));
+
+        CopyStatus s = resume("source", "target", false);
+
+        assertTrue(s.getException() instanceof InvalidResumeTargetException);
+    }
+
+    @Test
+    public void test_resume_recursive() throws Exception {
+        byte[] data0 = createData(1000);
+        byte[] data1 = createData(50000);
+        byte[] data2 = createData(3000);
+
+        Files.createDirectories(local("source/sub"));
+        write("source/file0", data0);
+        write("source/sub/file1", data1);
+        write("source/sub/file2", data2);
+
+        Files.createDirectories(local("target/sub"));
+        write("target/file0", data0);
+        write("target/sub/file1", Arrays.copyOf(data1, 20000));
+
+        resume("source", "target", true).maybeThrowException();
+
+        assertArrayEquals(data0, read("target/file0"));
+        assertArrayEquals(data1, read("target/sub/file1"));
+        assertArrayEquals(data2, read("target/sub/file2"));
+    }
+
+    @Test
+    public void test_resume_recursiveFileInsteadOfDirectory() throws Exception {
+        Files.createDirectories(local("source/sub"));
+        write("source/sub/file1", createData(10));
+
+        Files.createDirectories(local("target"));
+        write("target/sub", createData(10));
+
+        CopyStatus s = resume("source", "target", true);
+
+        assertTrue(s.getException() instanceof InvalidResumeTargetException);
+    }
+}
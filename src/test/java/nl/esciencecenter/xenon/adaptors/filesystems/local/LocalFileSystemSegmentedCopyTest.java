@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.InvalidPropertyException;
+import nl.esciencecenter.xenon.UnsupportedOperationException;
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+import nl.esciencecenter.xenon.filesystems.Path;
+
+public class LocalFileSystemSegmentedCopyTest extends LocalFileSystemCopyTestParent {
+
+    private FileSystem createFileSystem(String segmentThreshold, String segmentSize) throws XenonException {
+        return createFileSystem(properties("segmentThreshold", segmentThreshold, "segmentSize", segmentSize));
+    }
+
+    private byte[] copy(FileSystem fs, byte[] data) throws Exception {
+
+        write("source", data);
+
+        CopyStatus s = copy(fs, "source", "target", CopyMode.CREATE, false);
+
+        assertEquals(data.length, s.bytesCopied());
+
+        return read("target");
+    }
+
+    @Test
+    public void test_copy_segmented() throws Exception {
+        FileSystem fs = createFileSystem("1", "1000");
+        byte[] data = createData(10500);
+        assertArrayEquals(data, copy(fs, data));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_segmentedExactMultiple() throws Exception {
+        FileSystem fs = createFileSystem("1", "1000");
+        byte[] data = createData(4000);
+        assertArrayEquals(data, copy(fs, data));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_belowThreshold() throws Exception {
+        FileSystem fs = createFileSystem("1M", "1000");
+        byte[] data = createData(10500);
+        assertArrayEquals(data, copy(fs, data));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_segmentedDisabled() throws Exception {
+        FileSystem fs = createFileSystem("0", "1000");
+        byte[] data = createData(10500);
+        assertArrayEquals(data, copy(fs, data));
+        fs.close();
+    }
+
+    @Test
+    public void test_copy_segmentsUnsupported_copiedAsStream() throws Exception {
+        XenonProperties properties = new XenonProperties(new LocalFileAdaptor().getSupportedProperties(),
+                properties("segmentThreshold", "1", "segmentSize", "1000"));
+        Path root = new Path(folder.getRoot().getAbsolutePath());
+
+        // Like a web server that ignores the requested range, this only fails some of the segments.
+        LocalFileSystem fs = new LocalFileSystem("test", root.toString(), "/", root, 4096, properties) {
+            @Override
+            protected InputStream readSegment(Path path, long offset, long length) throws XenonException {
+                if (offset >= 5000) {
+                    throw new UnsupportedOperationException("file", "Cannot read part of " + path);
+                }
+                return super.readSegment(path, offset, length);
+            }
+        };
+
+        byte[] data = createData(10500);
+        assertArrayEquals(data, copy(fs, data));
+        fs.close();
+    }
+
+    @Test
+    public void test_readSegment() throws Exception {
+        LocalFileSystem fs = (LocalFileSystem) createFileSystem("0", "1000");
+        byte[] data = createData(100);
+        write("source", data);
+
+        byte[] result = new byte[10];
+
+        try (InputStream in = fs.readSegment(new Path("source"), 50, 10)) {
+            assertEquals(10, in.read(result));
+        }
+
+        assertArrayEquals(Arrays.copyOfRange(data, 50, 60), result);
+        fs.close();
+    }
+
+    @Test
+    public void test_startSegmentedWrite_outOfOrder() throws Exception {
+        LocalFileSystem fs = (LocalFileSystem) createFileSystem("0", "1000");
+        byte[] data = createData(25);
+
+        LocalFileSystem.LocalSegmentedWrite write = (LocalFileSystem.LocalSegmentedWrite) fs.startSegmentedWrite(new Path("target"), 25, 10);
+        write.writeSegment(2, 20, 5, new ByteArrayInputStream(data, 20, 5));
+        write.writeSegment(0, 0, 10, new ByteArrayInputStream(data, 0, 10));
+        write.writeSegment(1, 10, 10, new ByteArrayInputStream(data, 10, 10));
+        write.finish();
+
+        assertArrayEquals(data, read("target"));
+        fs.close();
+    }
+
+    @Test
+    public void test_startSegmentedWrite_abortDeletesFile() throws Exception {
+        LocalFileSystem fs = (LocalFileSystem) createFileSystem("0", "1000");
+        byte[] data = createData(25);
+
+        LocalFileSystem.LocalSegmentedWrite write = (LocalFileSystem.LocalSegmentedWrite) fs.startSegmentedWrite(new Path("target"), 25, 10);
+        write.writeSegment(0, 0, 10, new ByteArrayInputStream(data, 0, 10));
+        write.abort();
+
+        assertFalse(Files.exists(local("target")));
+        fs.close();
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_invalidSegmentSize() throws XenonException, IOException {
+        createFileSystem("1", "0");
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_invalidSegmentThreshold() throws XenonException, IOException {
+        createFileSystem("-1", "1000");
+    }
+}
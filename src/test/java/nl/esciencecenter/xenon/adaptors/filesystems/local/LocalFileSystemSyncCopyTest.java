@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.adaptors.filesystems.local;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.InvalidPropertyException;
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.filesystems.CopyMode;
+import nl.esciencecenter.xenon.filesystems.CopyStatus;
+import nl.esciencecenter.xenon.filesystems.FileSystem;
+
+public class LocalFileSystemSyncCopyTest extends LocalFileSystemCopyTestParent {
+
+    private FileSystem createFileSystem(String syncChecksum) throws XenonException {
+        return createFileSystem(properties("syncChecksum", syncChecksum));
+    }
+
+    private java.nio.file.Path write(String name, String content, long lastModified) throws Exception {
+        java.nio.file.Path file = write(name, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+
+    private String readString(String name) throws Exception {
+        return new String(read(name), StandardCharsets.UTF_8);
+    }
+
+    private CopyStatus sync(FileSystem fs, String source, String target, boolean recursive) throws Exception {
+        return copy(fs, source, target, CopyMode.SYNC, recursive);
+    }
+
+    @Test
+    public void test_sync_newDestination() throws Exception {
+        FileSystem fs = createFileSystem("false");
+        write("src/a", "aaa", 1000000L);
+        write("src/dir/b", "bbbb", 1000000L);
+
+        CopyStatus s = sync(fs, "src", "dst", true);
+
+        assertEquals(7, s.bytesToCopy());
+        assertEquals(7, s.bytesCopied());
+        assertEquals("aaa", readString("dst/a"));
+        assertEquals("bbbb", readString("dst/dir/b"));
+        fs.close();
+    }
+
+    @Test
+    public void test_sync_skipsUpToDate() throws Exception {
+        FileSystem fs = createFileSystem("false");
+        write("src/a", "aaa", 1000000L);
+        write("src/dir/b", "bbbb", 1000000L);
+
+        // Same size and newer, so this file is considered up to date.
+        write("dst/a", "xxx", 2000000L);
+        // Same size but older, so this file is replaced.
+        write("dst/dir/b", "yyyy", 500000L);
+        // Additional files are not touched.
+        write("dst/c", "ccc", 1000000L);
+
+        CopyStatus s = sync(fs, "src", "dst", true);
+
+        assertEquals(4, s.bytesToCopy());
+        assertEquals(4, s.bytesCopied());
+        assertEquals("xxx", readString("dst/a"));
+        assertEquals("bbbb", readString("dst/dir/b"));
+        assertEquals("ccc", readString("dst/c"));
+        fs.close();
+    }
+
+    @Test
+    public void test_sync_replacesChangedSize() throws Exception {
+        FileSystem fs = createFileSystem("false");
+        write("src/a", "aaa", 1000000L);
+        write("dst/a", "aaaa", 2000000L);
+
+        sync(fs, "src", "dst", true);
+
+        assertEquals("aaa", readString("dst/a"));
+        fs.close();
+    }
+
+    @Test
+    public void test_sync_replacesFileWithDirectory() throws Exception {
+        FileSystem fs = createFileSystem("false");
+        write("src/dir/b", "bbbb", 1000000L);
+        write("dst/dir", "not a directory", 2000000L);
+
+        sync(fs, "src", "dst", true);
+
+        assertEquals("bbbb", readString("dst/dir/b"));
+        fs.close();
+    }
+
+    @Test
+    public void test_sync_checksum() throws Exception {
+        FileSystem fs = createFileSystem("true");
+        write("src/a", "aaa", 1000000L);
+        write("src/b", "bbb", 1000000L);
+
+        // Same size and newer, but different content.
+        write("dst/a", "xxx", 2000000L);
+        // Same content, but older.
+        write("dst/b", "bbb", 500000L);
+
+        CopyStatus s = sync(fs, "src", "dst", true);
+
+        assertEquals(6, s.bytesToCopy());
+        assertEquals(6, s.bytesCopied());
+        assertEquals("aaa", readString("dst/a"));
+        assertEquals("bbb", readString("dst/b"));
+        assertEquals(500000L, Files.getLastModifiedTime(local("dst/b")).toMillis());
+        fs.close();
+    }
+
+    @Test
+    public void test_sync_singleFileUpToDate() throws Exception {
+        FileSystem fs = createFileSystem("false");
+        write("a", "aaa", 1000000L);
+        write("b", "xxx", 2000000L);
+
+        sync(fs, "a", "b", false);
+
+        assertEquals("xxx", readString("b"));
+        fs.close();
+    }
+
+    @Test
+    public void test_sync_singleFileChanged() throws Exception {
+        FileSystem fs = createFileSystem("false");
+        write("a", "aaa", 2000000L);
+        write("b", "xxx", 1000000L);
+
+        sync(fs, "a", "b", false);
+
+        assertEquals("aaa", readString("b"));
+        fs.close();
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_invalidSyncChecksum() throws XenonException {
+        createFileSystem("maybe");
+    }
+}
@@ -15,9 +15,13 @@
  */
 package nl.esciencecenter.xenon.adaptors.filesystems.sftp;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashSet;
 
 import org.apache.sshd.common.subsystem.sftp.SftpConstants;
@@ -252,6 +256,38 @@ public class SftpFileSystemSimpleTests {
         f.close();
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void test_mock_getAttributes_containsNull() throws XenonException {
+        MockSftpFileSystem f = new MockSftpFileSystem();
+        f.getAttributes(Arrays.asList(new Path("/home/xenon/file"), null));
+    }
+
+    @Test(expected = NotConnectedException.class)
+    public void test_getAttributes_closed() throws XenonException {
+        SftpFileSystem f = new SftpFileSystem("ID", "TEST", "localhost", new Path("/home/xenon"), 4096, new MockSftpClient() {
+            @Override
+            public boolean isOpen() {
+                return false;
+            }
+        }, null);
+
+        f.getAttributes(Arrays.asList(new Path("/home/xenon/file")));
+    }
+
+    @Test(expected = NotConnectedException.class)
+    public void test_mock_getAttributes_closeFailed() throws XenonException {
+        MockSftpFileSystem f = new MockSftpFileSystem();
+
+        // Closing the mock client fails, so the file system still looks open after its lookup threads are gone.
+        try {
+            f.close();
+        } catch (XenonException e) {
+            // expected
+        }
+
+        f.getAttributes(Arrays.asList(new Path("/home/xenon/file")));
+    }
+
     @Test(expected = XenonException.class)
     public void test_mock_createDirectory() throws XenonException {
         MockSftpFileSystem f = new MockSftpFileSystem();
@@ -312,4 +348,18 @@ public class SftpFileSystemSimpleTests {
         f.writeToFile(new Path("/home/xenon/file"));
     }
 
+    @Test
+    public void test_archiveErrorOutput_bounded() {
+        SftpFileSystem.SftpArchiveProcess.ErrorOutputStream errors = new SftpFileSystem.SftpArchiveProcess.ErrorOutputStream();
+
+        byte[] line = "tar: file: Cannot open: Permission denied\n".getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < 1000; i++) {
+            errors.write(line, 0, line.length);
+            errors.write('x');
+        }
+
+        assertEquals(4096, errors.size());
+        assertArrayEquals(line, Arrays.copyOf(errors.toByteArray(), line.length));
+    }
 }
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.InvalidPropertyException;
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
+import nl.esciencecenter.xenon.adaptors.filesystems.PathAttributesImplementation;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileAdaptor;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileSystem;
+
+public class AttributeCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PathAttributes attributes(Path path) {
+        PathAttributesImplementation a = new PathAttributesImplementation();
+        a.setPath(path);
+        a.setRegular(true);
+        return a;
+    }
+
+    @Test
+    public void test_get_empty() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        assertNull(c.get(new Path("/a"), false));
+        assertEquals(0, c.getHits());
+        assertEquals(1, c.getMisses());
+    }
+
+    @Test
+    public void test_put_get() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path p = new Path("/a");
+        PathAttributes a = attributes(p);
+
+        c.put(p, a, c.getGeneration());
+
+        AttributeCache.Entry e = c.get(p, true);
+        assertNotNull(e);
+        assertTrue(e.exists());
+        assertSame(a, e.getAttributes());
+        assertEquals(1, c.getHits());
+    }
+
+    @Test
+    public void test_putExists_negative() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path p = new Path("/a");
+
+        c.putExists(p, false, c.getGeneration());
+
+        AttributeCache.Entry e = c.get(p, true);
+        assertFalse(e.exists());
+        assertEquals(1, c.getHits());
+    }
+
+    @Test
+    public void test_putExists_attributesNeededIsMiss() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path p = new Path("/a");
+
+        c.putExists(p, true, c.getGeneration());
+
+        assertNotNull(c.get(p, false));
+        assertNull(c.get(p, true).getAttributes());
+        assertEquals(1, c.getHits());
+        assertEquals(1, c.getMisses());
+    }
+
+    @Test
+    public void test_putExists_keepsAttributes() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path p = new Path("/a");
+        PathAttributes a = attributes(p);
+
+        c.put(p, a, c.getGeneration());
+        c.putExists(p, true, c.getGeneration());
+
+        assertSame(a, c.get(p, true).getAttributes());
+    }
+
+    @Test
+    public void test_get_expired() throws Exception {
+        AttributeCache c = new AttributeCache(1, 10);
+        Path p = new Path("/a");
+
+        c.put(p, attributes(p), c.getGeneration());
+        Thread.sleep(10);
+
+        assertNull(c.get(p, true));
+    }
+
+    @Test
+    public void test_put_evictsLeastRecentlyUsed() {
+        AttributeCache c = new AttributeCache(60000, 2);
+        Path a = new Path("/a");
+        Path b = new Path("/b");
+        Path d = new Path("/d");
+
+        c.put(a, attributes(a), c.getGeneration());
+        c.put(b, attributes(b), c.getGeneration());
+        c.get(a, true);
+        c.put(d, attributes(d), c.getGeneration());
+
+        assertNotNull(c.get(a, true));
+        assertNull(c.get(b, true));
+        assertNotNull(c.get(d, true));
+    }
+
+    @Test
+    public void test_invalidate_removesChildren() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path a = new Path("/a");
+        Path ab = new Path("/a/b");
+        Path ac = new Path("/ac");
+
+        c.put(a, attributes(a), c.getGeneration());
+        c.put(ab, attributes(ab), c.getGeneration());
+        c.put(ac, attributes(ac), c.getGeneration());
+
+        c.invalidate(a);
+
+        assertNull(c.get(a, false));
+        assertNull(c.get(ab, false));
+        assertNotNull(c.get(ac, false));
+    }
+
+    @Test
+    public void test_invalidate_laterChildKept() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path a = new Path("/a");
+        Path ab = new Path("/a/b");
+
+        c.invalidate(a);
+        c.put(ab, attributes(ab), c.getGeneration());
+
+        assertNotNull(c.get(ab, false));
+    }
+
+    @Test
+    public void test_put_invalidatedDuringLookupIgnored() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path a = new Path("/a");
+        Path ab = new Path("/a/b");
+
+        long generation = c.getGeneration();
+        c.invalidate(a);
+        c.putExists(a, false, generation);
+        c.putExists(ab, false, generation);
+
+        assertNull(c.get(a, false));
+        assertNull(c.get(ab, false));
+    }
+
+    @Test
+    public void test_put_otherPathInvalidatedDuringLookupKept() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path p = new Path("/a");
+
+        long generation = c.getGeneration();
+        c.invalidate(new Path("/b"));
+        c.invalidate(new Path("/a/b"));
+        c.putExists(p, false, generation);
+
+        assertNotNull(c.get(p, false));
+    }
+
+    @Test
+    public void test_put_forgottenInvalidationIgnored() {
+        AttributeCache c = new AttributeCache(60000, 2);
+        Path p = new Path("/a");
+
+        long generation = c.getGeneration();
+        c.invalidate(new Path("/x"));
+        c.invalidate(new Path("/y"));
+        c.invalidate(new Path("/z"));
+
+        // Only the last two invalidations are remembered, so it is no longer known whether the lookup was affected.
+        c.putExists(p, false, generation);
+
+        assertNull(c.get(p, false));
+    }
+
+    @Test
+    public void test_get_entryBeforeForgottenInvalidationIgnored() {
+        AttributeCache c = new AttributeCache(60000, 2);
+        Path a = new Path("/a");
+        Path ab = new Path("/a/b");
+
+        c.put(ab, attributes(ab), c.getGeneration());
+        c.invalidate(a);
+        c.invalidate(new Path("/y"));
+        c.invalidate(new Path("/z"));
+
+        assertNull(c.get(ab, false));
+    }
+
+    @Test
+    public void test_clear_lookupIgnored() {
+        AttributeCache c = new AttributeCache(60000, 10);
+        Path p = new Path("/a");
+
+        long generation = c.getGeneration();
+        c.clear();
+        c.putExists(p, false, generation);
+
+        assertNull(c.get(p, false));
+    }
+
+    private FileSystem createFileSystem(String cacheTime) throws XenonException {
+        Map<String, String> p = new HashMap<>();
+        p.put(LocalFileAdaptor.PREFIX + "attributeCacheTime", cacheTime);
+        XenonProperties properties = new XenonProperties(new LocalFileAdaptor().getSupportedProperties(), p);
+
+        Path root = new Path(folder.getRoot().getAbsolutePath());
+        return new LocalFileSystem("test", root.toString(), "/", root, 4096, properties) {
+        };
+    }
+
+    @Test
+    public void test_fileSystem_disabledByDefault() throws Exception {
+        FileSystem fs = createFileSystem("0");
+        Path root = fs.getWorkingDirectory();
+
+        fs.createFile(root.resolve("f0"));
+        fs.createFile(root.resolve("f1"));
+
+        assertEquals(0, fs.getAttributeCacheHits());
+        assertEquals(0, fs.getAttributeCacheMisses());
+        fs.close();
+    }
+
+    @Test
+    public void test_fileSystem_hits() throws Exception {
+        FileSystem fs = createFileSystem("60000");
+        Path root = fs.getWorkingDirectory();
+
+        fs.createDirectory(root.resolve("a"));
+        fs.createFile(root.resolve("a/f0"));
+        long misses = fs.getAttributeCacheMisses();
+
+        // The parent directory is known to exist.
+        fs.createFile(root.resolve("a/f1"));
+
+        assertTrue(fs.getAttributeCacheHits() > 0);
+        assertEquals(misses + 1, fs.getAttributeCacheMisses());
+        fs.close();
+    }
+
+    @Test
+    public void test_fileSystem_changesInvalidate() throws Exception {
+        FileSystem fs = createFileSystem("60000");
+        Path root = fs.getWorkingDirectory();
+        Path f = root.resolve("f");
+        Path g = root.resolve("g");
+
+        fs.createFile(f);
+        fs.delete(f, false);
+        fs.createFile(f);
+        fs.rename(f, g);
+        fs.createFile(f);
+
+        try {
+            fs.createFile(g);
+            fail("Expected an exception");
+        } catch (PathAlreadyExistsException e) {
+            // expected
+        }
+
+        fs.close();
+    }
+
+    @Test
+    public void test_fileSystem_externalChangeSeenAfterClear() throws Exception {
+        FileSystem fs = createFileSystem("60000");
+        Path f = fs.getWorkingDirectory().resolve("f");
+
+        try {
+            fs.delete(f, false);
+            fail("Expected an exception");
+        } catch (NoSuchPathException e) {
+            // expected
+        }
+
+        Files.createFile(folder.getRoot().toPath().resolve("f"));
+
+        try {
+            fs.delete(f, false);
+            fail("Expected an exception");
+        } catch (NoSuchPathException e) {
+            // still cached
+        }
+
+        fs.clearAttributeCache();
+        fs.delete(f, false);
+
+        assertFalse(Files.exists(folder.getRoot().toPath().resolve("f")));
+        fs.close();
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_invalidCacheTime() throws Exception {
+        Map<String, String> p = new HashMap<>();
+        p.put(LocalFileAdaptor.PREFIX + "attributeCacheTime", "-1");
+        FileSystem.create("file", folder.getRoot().getAbsolutePath(), null, p);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileSystem;
+
+public class BatchAttributesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger listings = new AtomicInteger();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private FileSystem fs;
+
+    private Path root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = new Path(folder.getRoot().getAbsolutePath());
+
+        // Behaves like an adaptor that answers batches from listings.
+        fs = new LocalFileSystem("test", root.toString(), "/", root, 4096, null) {
+            @Override
+            protected List<PathAttributes> listDirectory(Path dir) throws XenonException {
+                listings.incrementAndGet();
+                return super.listDirectory(dir);
+            }
+
+            @Override
+            public PathAttributes getAttributes(Path path) throws XenonException {
+                lookups.incrementAndGet();
+                return super.getAttributes(path);
+            }
+
+            @Override
+            public Map<Path, PathAttributes> getAttributes(Collection<Path> paths) throws XenonException {
+                return getAttributesFromListings(paths);
+            }
+        };
+
+        Files.createDirectories(folder.getRoot().toPath().resolve("a"));
+        Files.createDirectories(folder.getRoot().toPath().resolve("b"));
+
+        for (String f : new String[] { "a/f0", "a/f1", "a/f2", "b/f3" }) {
+            Files.write(folder.getRoot().toPath().resolve(f), f.getBytes());
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fs.close();
+    }
+
+    @Test
+    public void test_getAttributes_sharedParentListedOnce() throws Exception {
+        List<Path> paths = Arrays.asList(root.resolve("a/f0"), root.resolve("a/f1"), root.resolve("a/f2"));
+
+        Map<Path, PathAttributes> result = fs.getAttributes(paths);
+
+        assertEquals(paths, new ArrayList<>(result.keySet()));
+        assertEquals(4, result.get(root.resolve("a/f1")).getSize());
+        assertEquals(1, listings.get());
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    public void test_getAttributes_singlePathLookedUp() throws Exception {
+        Map<Path, PathAttributes> result = fs.getAttributes(Arrays.asList(root.resolve("a/f0"), root.resolve("b/f3")));
+
+        assertEquals(2, result.size());
+        assertEquals(0, listings.get());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void test_getAttributes_missingLeftOut() throws Exception {
+        Path missing = root.resolve("a/missing");
+        Path inMissingDir = root.resolve("c/f");
+        Path inMissingDir2 = root.resolve("c/g");
+        Path inFile = root.resolve("a/f0/x");
+        Path inFile2 = root.resolve("a/f0/y");
+
+        Map<Path, PathAttributes> result = fs.getAttributes(Arrays.asList(root.resolve("a/f0"), missing, inMissingDir, inMissingDir2, inFile, inFile2));
+
+        assertEquals(1, result.size());
+        assertTrue(result.containsKey(root.resolve("a/f0")));
+    }
+
+    @Test
+    public void test_getAttributes_relativePaths() throws Exception {
+        FileSystem relative = new LocalFileSystem("test", root.toString(), "/", root.resolve("a"), 4096, null) {
+        };
+
+        Map<Path, PathAttributes> result = relative.getAttributes(Arrays.asList(new Path("f0"), new Path("f1")));
+
+        assertEquals(2, result.size());
+        assertEquals(root.resolve("a/f0"), result.get(new Path("f0")).getPath());
+        relative.close();
+    }
+
+    @Test
+    public void test_exists_batch() throws Exception {
+        Path f0 = root.resolve("a/f0");
+        Path missing = root.resolve("a/missing");
+
+        Map<Path, Boolean> result = fs.exists(Arrays.asList(missing, f0));
+
+        assertEquals(Arrays.asList(missing, f0), new ArrayList<>(result.keySet()));
+        assertFalse(result.get(missing));
+        assertTrue(result.get(f0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_getAttributes_null() throws Exception {
+        fs.getAttributes((Collection<Path>) null);
+    }
+}
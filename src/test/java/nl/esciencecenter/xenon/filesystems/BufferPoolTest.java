@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Before
+    @After
+    public void cleanup() {
+        BufferPool.clear();
+    }
+
+    @Test
+    public void test_take_size() {
+        assertEquals(1234, BufferPool.take(1234).length);
+    }
+
+    @Test
+    public void test_release_reused() {
+        byte[] buffer = BufferPool.take(1024);
+        BufferPool.release(buffer);
+
+        assertEquals(1024, BufferPool.getPooledBytes());
+        assertSame(buffer, BufferPool.take(1024));
+        assertEquals(0, BufferPool.getPooledBytes());
+    }
+
+    @Test
+    public void test_release_otherSize() {
+        byte[] buffer = BufferPool.take(1024);
+        BufferPool.release(buffer);
+
+        assertNotSame(buffer, BufferPool.take(2048));
+    }
+
+    @Test
+    public void test_release_bounded() {
+        int size = (int) (BufferPool.MAX_POOLED_BYTES / 2);
+
+        BufferPool.release(new byte[size]);
+        BufferPool.release(new byte[size]);
+        BufferPool.release(new byte[size]);
+
+        assertEquals(BufferPool.MAX_POOLED_BYTES, BufferPool.getPooledBytes());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonPropertyDescription;
+import nl.esciencecenter.xenon.XenonPropertyDescription.Type;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
+
+public class BufferSizeTunerTest {
+
+    private static final String LINK = "TEST0://a -> TEST1://b";
+
+    @After
+    public void cleanup() {
+        BufferSizeTuner.clearLearnedChunkSizes();
+    }
+
+    /*
+     * Feed the tuner one window of data, written at the given throughput (in bytes per second).
+     */
+    private long window(BufferSizeTuner tuner, long now, double throughput) {
+        long bytes = (long) (throughput * BufferSizeTuner.WINDOW / 1e9);
+        bytes = Math.max(bytes, (long) BufferSizeTuner.MIN_CHUNKS_PER_WINDOW * tuner.getChunkSize());
+
+        long end = now + (long) (bytes * 1e9 / throughput);
+        tuner.update((int) bytes, end);
+        return end;
+    }
+
+    @Test
+    public void test_initialSize_clamped() {
+        assertEquals(BufferSizeTuner.MIN_CHUNK_SIZE, new BufferSizeTuner(LINK, 1).getChunkSize());
+        assertEquals(BufferSizeTuner.MAX_CHUNK_SIZE, new BufferSizeTuner(LINK, Integer.MAX_VALUE).getChunkSize());
+    }
+
+    @Test
+    public void test_update_shortWindowIgnored() {
+        BufferSizeTuner tuner = new BufferSizeTuner(LINK, 64 * 1024);
+        tuner.update(1, System.nanoTime());
+        assertEquals(64 * 1024, tuner.getChunkSize());
+    }
+
+    @Test
+    public void test_update_growsWhileImproving() {
+        BufferSizeTuner tuner = new BufferSizeTuner(LINK, 64 * 1024);
+        long now = System.nanoTime();
+
+        now = window(tuner, now, 1e6);
+        assertEquals(128 * 1024, tuner.getChunkSize());
+
+        now = window(tuner, now, 2e6);
+        assertEquals(256 * 1024, tuner.getChunkSize());
+    }
+
+    @Test
+    public void test_update_turnsAroundWhenWorse() {
+        BufferSizeTuner tuner = new BufferSizeTuner(LINK, 64 * 1024);
+        long now = System.nanoTime();
+
+        now = window(tuner, now, 2e6);
+        assertEquals(128 * 1024, tuner.getChunkSize());
+
+        now = window(tuner, now, 1e6);
+        assertEquals(64 * 1024, tuner.getChunkSize());
+        assertEquals(Integer.valueOf(64 * 1024), BufferSizeTuner.getLearnedChunkSize(LINK));
+    }
+
+    @Test
+    public void test_update_holdsWhenStable() {
+        BufferSizeTuner tuner = new BufferSizeTuner(LINK, 64 * 1024);
+        long now = System.nanoTime();
+
+        now = window(tuner, now, 2e6);
+        now = window(tuner, now, 2e6);
+        assertEquals(128 * 1024, tuner.getChunkSize());
+    }
+
+    @Test
+    public void test_learnedSize_usedByNextTuner() {
+        BufferSizeTuner tuner = new BufferSizeTuner(LINK, 64 * 1024);
+        long now = System.nanoTime();
+
+        now = window(tuner, now, 1e6);
+        window(tuner, now, 4e6);
+
+        assertEquals(Integer.valueOf(128 * 1024), BufferSizeTuner.getLearnedChunkSize(LINK));
+        assertEquals(128 * 1024, new BufferSizeTuner(LINK, 64 * 1024).getChunkSize());
+        assertNull(BufferSizeTuner.getLearnedChunkSize("other"));
+    }
+
+    @Test
+    public void test_copy_adaptive() throws XenonException {
+
+        String property = "xenon.adaptors.filesystems.TEST0.adaptiveBufferSize";
+
+        HashMap<String, String> p = new HashMap<>();
+        p.put(property, "true");
+
+        XenonPropertyDescription d = new XenonPropertyDescription(property, Type.BOOLEAN, "false", "test");
+
+        MockFileSystem f0 = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"), new XenonProperties(new XenonPropertyDescription[] { d }, p));
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        byte[] data = new byte[1024 * 1024];
+        new Random(1).nextBytes(data);
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), data);
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertArrayEquals(data, f1.getData(new Path("/test/noot")));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompressionSamplerTest {
+
+    @Test
+    public void test_text_isCompressible() {
+        StringBuilder b = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            b.append("ACGTTGCAACGGTTAC").append(i % 7).append('\n');
+        }
+
+        byte[] data = b.toString().getBytes(StandardCharsets.US_ASCII);
+        assertTrue(CompressionSampler.isCompressible(data, data.length));
+    }
+
+    @Test
+    public void test_random_isNotCompressible() {
+        byte[] data = new byte[CompressionSampler.SAMPLE_SIZE];
+        new Random(42).nextBytes(data);
+        assertFalse(CompressionSampler.isCompressible(data, data.length));
+    }
+
+    @Test
+    public void test_empty_isNotCompressible() {
+        assertFalse(CompressionSampler.isCompressible(new byte[10], 0));
+        assertEquals(1.0, CompressionSampler.ratio(new byte[10], 0), 0.0);
+    }
+
+    @Test
+    public void test_ratio_usesLength() {
+        byte[] data = new byte[1000];
+        new Random(42).nextBytes(data);
+
+        // Only the zeros at the start are sampled
+        byte[] sample = new byte[2000];
+        System.arraycopy(data, 0, sample, 1000, 1000);
+        assertTrue(CompressionSampler.ratio(sample, 1000) < 0.1);
+    }
+}
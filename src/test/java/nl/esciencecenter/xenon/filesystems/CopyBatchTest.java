@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.XenonException;
+
+public class CopyBatchTest {
+
+    private MockFileSystem createSource(int files) throws XenonException {
+
+        MockFileSystem f0 = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"));
+
+        for (int i = 0; i < files; i++) {
+            f0.createFile(new Path("/test/file" + i));
+            f0.addData(new Path("/test/file" + i), new byte[] { (byte) i, 1, 2 });
+        }
+
+        return f0;
+    }
+
+    private void waitUntilCompleted(FileSystem fs) throws XenonException {
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (!fs.getActiveCopies().isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_copy_null() throws XenonException {
+        createSource(0).copy((List<CopyRequest>) null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_copy_nullRequest() throws XenonException {
+        createSource(0).copy(Arrays.asList((CopyRequest) null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_request_nullSource() throws XenonException {
+        new CopyRequest(null, createSource(0), new Path("/test/aap"), CopyMode.CREATE);
+    }
+
+    @Test
+    public void test_copy_empty() throws XenonException {
+        MockFileSystem f0 = createSource(0);
+
+        String h = f0.copy(Collections.<CopyRequest> emptyList());
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(0, s.bytesCopied());
+    }
+
+    @Test
+    public void test_copy_files() throws XenonException {
+        MockFileSystem f0 = createSource(10);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        List<CopyRequest> requests = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            requests.add(new CopyRequest(new Path("/test/file" + i), f1, new Path("/test/copy" + i), CopyMode.CREATE));
+        }
+
+        String h = f0.copy(requests);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(30, s.bytesToCopy());
+        assertEquals(30, s.bytesCopied());
+
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(new byte[] { (byte) i, 1, 2 }, f1.getData(new Path("/test/copy" + i)));
+        }
+    }
+
+    @Test
+    public void test_copy_itemStatus() throws XenonException {
+        MockFileSystem f0 = createSource(2);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        List<CopyRequest> requests = Arrays.asList(new CopyRequest(new Path("/test/file0"), f1, new Path("/test/copy0"), CopyMode.CREATE),
+                new CopyRequest(new Path("/test/missing"), f1, new Path("/test/copy1"), CopyMode.CREATE),
+                new CopyRequest(new Path("/test/file1"), f1, new Path("/test/copy2"), CopyMode.CREATE));
+
+        String h = f0.copy(requests);
+
+        waitUntilCompleted(f0);
+
+        // Retrieving the status of the items does not forget the batch.
+        List<CopyStatus> items = f0.getItemStatus(h);
+        CopyStatus s = f0.getStatus(h);
+
+        assertEquals("FAILED", s.getState());
+        assertTrue(s.getException().getMessage().contains("1 of 3 copies failed"));
+
+        assertEquals(3, items.size());
+        assertEquals(h + "[0]", items.get(0).getCopyIdentifier());
+        assertEquals("DONE", items.get(0).getState());
+        assertEquals(3, items.get(0).bytesCopied());
+        assertEquals("FAILED", items.get(1).getState());
+        assertThat(items.get(1).getException(), instanceOf(NoSuchPathException.class));
+        assertEquals("DONE", items.get(2).getState());
+
+        assertArrayEquals(new byte[] { 1, 1, 2 }, f1.getData(new Path("/test/copy2")));
+    }
+
+    @Test
+    public void test_copy_directoryAndFile() throws XenonException {
+        MockFileSystem f0 = createSource(1);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createDirectory(new Path("/test/dir"));
+        f0.createFile(new Path("/test/dir/aap"));
+        f0.addData(new Path("/test/dir/aap"), new byte[] { 4, 5 });
+
+        List<CopyRequest> requests = Arrays.asList(new CopyRequest(new Path("/test/dir"), f1, new Path("/test/dir"), CopyMode.CREATE, true),
+                new CopyRequest(new Path("/test/file0"), f1, new Path("/test/copy0"), CopyMode.CREATE));
+
+        String h = f0.copy(requests);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(5, s.bytesCopied());
+        assertArrayEquals(new byte[] { 4, 5 }, f1.getData(new Path("/test/dir/aap")));
+        assertArrayEquals(new byte[] { 0, 1, 2 }, f1.getData(new Path("/test/copy0")));
+    }
+
+    @Test
+    public void test_getItemStatus_noBatch() throws XenonException {
+        MockFileSystem f0 = createSource(1);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        String h = f0.copy(new Path("/test/file0"), f1, new Path("/test/copy0"), CopyMode.CREATE, false);
+
+        assertTrue(f0.getItemStatus(h).isEmpty());
+        f0.waitUntilDone(h, 5 * 1000);
+    }
+
+    @Test(expected = NoSuchCopyException.class)
+    public void test_getItemStatus_unknown() throws XenonException {
+        createSource(0).getItemStatus("NOPE");
+    }
+}
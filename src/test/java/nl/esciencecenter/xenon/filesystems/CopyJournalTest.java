@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.XenonException;
+
+public class CopyJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CopyJournal open() throws XenonException {
+        return new CopyJournal("TEST", folder.getRoot().toPath(), "file /src", "sftp host /dst");
+    }
+
+    @Test
+    public void test_get_unknown() throws XenonException {
+        try (CopyJournal j = open()) {
+            assertNull(j.get(new Path("/src/aap")));
+        }
+    }
+
+    @Test
+    public void test_started() throws XenonException {
+        try (CopyJournal j = open()) {
+            j.started(new Path("/src/aap"), 100, 42, false);
+
+            CopyJournal.Entry e = j.get(new Path("/src/aap"));
+            assertEquals(CopyJournal.State.STARTED, e.state);
+            assertEquals(100, e.size);
+            assertEquals(42, e.lastModified);
+            assertEquals(0, e.offset);
+        }
+    }
+
+    @Test
+    public void test_reopen() throws XenonException {
+        try (CopyJournal j = open()) {
+            j.started(new Path("/src/aap"), 100, 42, false);
+            j.checkpoint(new Path("/src/aap"), 50);
+            j.started(new Path("/src/noot mies"), 200, 43, true);
+            j.started(new Path("/src/wim"), 300, 44, false);
+            j.done(new Path("/src/wim"));
+        }
+
+        try (CopyJournal j = open()) {
+            assertEquals(CopyJournal.State.STARTED, j.get(new Path("/src/aap")).state);
+            assertEquals(50, j.get(new Path("/src/aap")).offset);
+            assertEquals(CopyJournal.State.SEGMENTED, j.get(new Path("/src/noot mies")).state);
+            assertEquals(CopyJournal.State.DONE, j.get(new Path("/src/wim")).state);
+            assertEquals(300, j.get(new Path("/src/wim")).offset);
+        }
+    }
+
+    @Test
+    public void test_checkpoint_notStarted() throws XenonException {
+        try (CopyJournal j = open()) {
+            j.checkpoint(new Path("/src/aap"), 50);
+            assertNull(j.get(new Path("/src/aap")));
+        }
+    }
+
+    @Test
+    public void test_reopen_partialLine() throws Exception {
+        try (CopyJournal j = open()) {
+            j.started(new Path("/src/aap"), 100, 42, false);
+            j.checkpoint(new Path("/src/aap"), 50);
+        }
+
+        File[] files = folder.getRoot().listFiles();
+        assertEquals(1, files.length);
+
+        // Simulate a crash while writing the next checkpoint.
+        Files.write(files[0].toPath(), "STARTED 100 42 7".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (CopyJournal j = open()) {
+            assertEquals(50, j.get(new Path("/src/aap")).offset);
+        }
+    }
+
+    @Test
+    public void test_delete() throws XenonException {
+        CopyJournal j = open();
+        j.started(new Path("/src/aap"), 100, 42, false);
+        j.delete();
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void test_differentCopies_differentJournals() throws XenonException {
+        try (CopyJournal j = open(); CopyJournal j2 = new CopyJournal("TEST", folder.getRoot().toPath(), "file /src", "sftp host /other")) {
+            j.started(new Path("/src/aap"), 100, 42, false);
+            assertNull(j2.get(new Path("/src/aap")));
+        }
+
+        assertEquals(2, folder.getRoot().listFiles().length);
+    }
+}
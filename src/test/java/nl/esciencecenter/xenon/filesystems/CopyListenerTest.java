@@ -0,0 +1,206 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonPropertyDescription;
+import nl.esciencecenter.xenon.XenonPropertyDescription.Type;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
+
+public class CopyListenerTest {
+
+    private static class RecordingListener implements CopyListener {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final List<CopyProgress> progress = Collections.synchronizedList(new ArrayList<>());
+
+        long bytesToCopy = -1;
+        CopyStatus status;
+
+        @Override
+        public void copyStarted(String copyIdentifier, long bytesToCopy) {
+            events.add("started");
+            this.bytesToCopy = bytesToCopy;
+        }
+
+        @Override
+        public void fileCopied(String copyIdentifier, Path source, Path destination, long size) {
+            events.add("file " + source + " " + destination + " " + size);
+        }
+
+        @Override
+        public void copyProgress(CopyProgress p) {
+            progress.add(p);
+        }
+
+        @Override
+        public void copyCompleted(CopyStatus status) {
+            events.add("completed");
+            this.status = status;
+        }
+
+        @Override
+        public void copyFailed(CopyStatus status) {
+            events.add("failed");
+            this.status = status;
+        }
+    }
+
+    private MockFileSystem createFileSystem(String progressInterval) throws XenonException {
+
+        String property = "xenon.adaptors.filesystems.TEST0.copyProgressInterval";
+
+        HashMap<String, String> p = new HashMap<>();
+        p.put(property, progressInterval);
+
+        XenonPropertyDescription d = new XenonPropertyDescription(property, Type.INTEGER, "1000", "test");
+
+        return new MockFileSystem("0", "TEST0", "MEM", new Path("/test"), new XenonProperties(new XenonPropertyDescription[] { d }, p));
+    }
+
+    @Test
+    public void test_copyFile_events() throws XenonException {
+
+        MockFileSystem f0 = createFileSystem("0");
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[] { 1, 2, 3, 4 });
+
+        RecordingListener listener = new RecordingListener();
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false, listener);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+
+        assertEquals(Arrays.asList("started", "file /test/aap /test/noot 4", "completed"), listener.events);
+        assertEquals(4, listener.bytesToCopy);
+        assertEquals(4, listener.status.bytesCopied());
+        assertEquals(h, listener.status.getCopyIdentifier());
+        assertNull(listener.status.getException());
+
+        assertFalse(listener.progress.isEmpty());
+
+        CopyProgress last = listener.progress.get(listener.progress.size() - 1);
+        assertEquals(h, last.getCopyIdentifier());
+        assertEquals(4, last.bytesCopied());
+        assertEquals(4, last.bytesToCopy());
+        assertEquals(0, last.getEstimatedTimeRemaining());
+    }
+
+    @Test
+    public void test_copyDir_events() throws XenonException {
+
+        MockFileSystem f0 = createFileSystem("0");
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createDirectory(new Path("/test/aap"));
+
+        for (int i = 0; i < 3; i++) {
+            f0.createFile(new Path("/test/aap/file" + i));
+            f0.addData(new Path("/test/aap/file" + i), new byte[] { 1, 2 });
+        }
+
+        RecordingListener listener = new RecordingListener();
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/aap"), CopyMode.CREATE, true, listener);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+
+        assertEquals(5, listener.events.size());
+        assertEquals("started", listener.events.get(0));
+        assertEquals("completed", listener.events.get(4));
+        assertEquals(6, listener.bytesToCopy);
+        assertEquals(6, listener.status.bytesCopied());
+    }
+
+    @Test
+    public void test_copy_progressRateLimited() throws XenonException {
+
+        MockFileSystem f0 = createFileSystem("100000");
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[] { 1, 2, 3, 4 });
+
+        RecordingListener listener = new RecordingListener();
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false, listener);
+        f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(listener.progress.isEmpty());
+        assertEquals("completed", listener.events.get(listener.events.size() - 1));
+    }
+
+    @Test
+    public void test_copy_failed() throws XenonException {
+
+        MockFileSystem f0 = createFileSystem("0");
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        RecordingListener listener = new RecordingListener();
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false, listener);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.hasException());
+        assertEquals(Arrays.asList("failed"), listener.events);
+        assertEquals("FAILED", listener.status.getState());
+        assertThat(listener.status.getException(), instanceOf(NoSuchPathException.class));
+    }
+
+    @Test
+    public void test_copy_listenerExceptionIgnored() throws XenonException {
+
+        MockFileSystem f0 = createFileSystem("0");
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[] { 1, 2, 3, 4 });
+
+        CopyListener listener = new CopyListener() {
+            @Override
+            public void copyProgress(CopyProgress progress) {
+                throw new IllegalStateException("Bang!");
+            }
+        };
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false, listener);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+    }
+}
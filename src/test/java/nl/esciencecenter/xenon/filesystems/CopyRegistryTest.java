@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CopyRegistryTest {
+
+    @Test
+    public void test_add_active() {
+        CopyRegistry<String> r = new CopyRegistry<>(10, 1000);
+        r.add("a", "copy a");
+
+        assertEquals("copy a", r.get("a"));
+        assertEquals("copy a", r.getActive().get("a"));
+        assertTrue(r.getCompleted().isEmpty());
+    }
+
+    @Test
+    public void test_completed_movedToHistory() {
+        CopyRegistry<String> r = new CopyRegistry<>(10, 60 * 1000);
+        r.add("a", "copy a");
+        r.completed("a");
+
+        assertTrue(r.getActive().isEmpty());
+        assertEquals(Arrays.asList("a"), r.getCompleted());
+        assertEquals("copy a", r.get("a"));
+    }
+
+    @Test
+    public void test_remove() {
+        CopyRegistry<String> r = new CopyRegistry<>(10, 60 * 1000);
+        r.add("a", "copy a");
+        r.add("b", "copy b");
+        r.completed("b");
+
+        assertEquals("copy a", r.remove("a"));
+        assertEquals("copy b", r.remove("b"));
+        assertNull(r.remove("c"));
+        assertNull(r.get("a"));
+        assertNull(r.get("b"));
+    }
+
+    @Test
+    public void test_completed_afterRemoveIgnored() {
+        CopyRegistry<String> r = new CopyRegistry<>(10, 60 * 1000);
+        r.add("a", "copy a");
+        r.remove("a");
+        r.completed("a");
+
+        assertNull(r.get("a"));
+        assertTrue(r.getCompleted().isEmpty());
+    }
+
+    @Test
+    public void test_history_boundedBySize() {
+        CopyRegistry<String> r = new CopyRegistry<>(2, 60 * 1000);
+
+        for (String id : new String[] { "a", "b", "c" }) {
+            r.add(id, "copy " + id);
+            r.completed(id);
+        }
+
+        assertEquals(Arrays.asList("b", "c"), r.getCompleted());
+        assertNull(r.get("a"));
+    }
+
+    @Test
+    public void test_history_evictedByTime() {
+        CopyRegistry<String> r = new CopyRegistry<>(10, 1000);
+
+        long now = System.nanoTime();
+
+        r.add("a", "copy a");
+        r.completed("a", now - TimeUnit.SECONDS.toNanos(2));
+        r.add("b", "copy b");
+        r.completed("b", now);
+
+        assertNull(r.get("a"));
+        assertEquals("copy b", r.get("b"));
+    }
+
+    @Test
+    public void test_history_disabled() {
+        CopyRegistry<String> r = new CopyRegistry<>(0, 1000);
+        r.add("a", "copy a");
+        r.completed("a");
+
+        assertNull(r.get("a"));
+    }
+
+    @Test
+    public void test_get_duringCompleted() throws Exception {
+        final int count = 20000;
+        final CopyRegistry<String> r = new CopyRegistry<>(count, 60 * 1000);
+        final AtomicInteger current = new AtomicInteger(-1);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final AtomicBoolean missed = new AtomicBoolean(false);
+
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                int i = current.get();
+
+                if (i >= 0 && r.get("copy" + i) == null) {
+                    missed.set(true);
+                }
+            }
+        });
+
+        reader.start();
+
+        for (int i = 0; i < count; i++) {
+            r.add("copy" + i, "copy " + i);
+            current.set(i);
+            r.completed("copy" + i);
+        }
+
+        done.set(true);
+        reader.join();
+
+        assertFalse(missed.get());
+    }
+}
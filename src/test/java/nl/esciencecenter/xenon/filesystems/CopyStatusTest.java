@@ -119,7 +119,47 @@ public class CopyStatusTest {
         assertEquals(expected, s.toString());
     }
 
-
-
-
+    @Test
+    public void test_getChecksums_defaultEmpty() {
+        // Implementations written before checksums existed need not provide them.
+        CopyStatus s = new CopyStatus() {
+            public String getCopyIdentifier() {
+                return "ID";
+            }
+
+            public String getState() {
+                return "DONE";
+            }
+
+            public XenonException getException() {
+                return null;
+            }
+
+            public void maybeThrowException() {
+                // nothing
+            }
+
+            public boolean isRunning() {
+                return false;
+            }
+
+            public boolean isDone() {
+                return true;
+            }
+
+            public boolean hasException() {
+                return false;
+            }
+
+            public long bytesToCopy() {
+                return 0;
+            }
+
+            public long bytesCopied() {
+                return 0;
+            }
+        };
+
+        assertTrue(s.getChecksums().isEmpty());
+    }
 }
@@ -22,17 +22,25 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import nl.esciencecenter.xenon.UnknownAdaptorException;
+import nl.esciencecenter.xenon.UnsupportedOperationException;
 import nl.esciencecenter.xenon.XenonException;
 import nl.esciencecenter.xenon.XenonPropertyDescription;
 import nl.esciencecenter.xenon.XenonPropertyDescription.Type;
@@ -181,6 +189,51 @@ public class FileSystemTest {
         }
     }
 
+    class BarrierInputStream extends InputStream {
+
+        final CyclicBarrier barrier;
+        boolean first = true;
+        int bytes = 8;
+
+        public BarrierInputStream(CyclicBarrier barrier) {
+            this.barrier = barrier;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            if (first) {
+                // Only continues if all streams sharing the barrier are read concurrently.
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IOException("Streams not read concurrently", e);
+                }
+                first = false;
+            }
+
+            if (bytes == 0) {
+                return -1;
+            }
+
+            bytes--;
+            return 42;
+        }
+    }
+
+    private MockFileSystem createMockFileSystem(String id, String name, int copyThreads) throws XenonException {
+
+        String property = "xenon.adaptors.filesystems." + name + ".copyThreads";
+
+        HashMap<String, String> p = new HashMap<>();
+        p.put(property, Integer.toString(copyThreads));
+
+        XenonPropertyDescription d = new XenonPropertyDescription(property, Type.INTEGER, "1", "test");
+        XenonProperties prop = new XenonProperties(new XenonPropertyDescription[] { d }, p);
+
+        return new MockFileSystem(id, name, "MEM", new Path("/test"), prop);
+    }
+
     // Testing against actual FileSystem
 
     @Test
@@ -855,6 +908,65 @@ public class FileSystemTest {
         f0.copyFile(f, f1, f, CopyMode.CREATE, f0.createCallback(4 * 1024));
     }
 
+    @Test
+    public void test_streamCopyOverlapsReadAndWrite() throws Exception {
+
+        MockFileSystem f0 = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"));
+
+        CountDownLatch secondRead = new CountDownLatch(1);
+
+        InputStream in = new InputStream() {
+            int reads;
+
+            @Override
+            public int read() {
+                throw new java.lang.UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                reads++;
+
+                if (reads == 2) {
+                    secondRead.countDown();
+                }
+
+                if (reads > 3) {
+                    return -1;
+                }
+
+                Arrays.fill(b, off, off + len, (byte) reads);
+                return len;
+            }
+        };
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new java.lang.UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    // Only returns in time if the second block is read while the first is written.
+                    if (!secondRead.await(5, TimeUnit.SECONDS)) {
+                        throw new IOException("Read and write do not overlap");
+                    }
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                data.write(b, off, len);
+            }
+        };
+
+        f0.streamCopy(in, out, 4, f0.createCallback(Long.MAX_VALUE));
+
+        assertArrayEquals(new byte[] { 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3 }, data.toByteArray());
+    }
+
     @Test(expected = XenonException.class)
     public void test_copyFileCancelImmediately() throws XenonException {
         Path entry = new Path("/test");
@@ -1246,6 +1358,331 @@ public class FileSystemTest {
         assertTrue(Arrays.equals(data1, f1.getData(new Path("/test/aap/noot/file1"))));
     }
 
+    @Test
+    public void test_copyDirParallelOK() throws XenonException {
+
+        MockFileSystem f0 = createMockFileSystem("0", "TEST0", 4);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createDirectory(new Path("/test/aap"));
+        f0.createDirectory(new Path("/test/aap/noot"));
+
+        for (int i = 0; i < 16; i++) {
+            Path file = new Path("/test/aap/noot/file" + i);
+            f0.createFile(file);
+            f0.addData(file, new byte[] { (byte) i, 1, 2, 3 });
+        }
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/aap"), CopyMode.CREATE, true);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(16 * 4, s.bytesCopied());
+
+        for (int i = 0; i < 16; i++) {
+            assertTrue(Arrays.equals(new byte[] { (byte) i, 1, 2, 3 }, f1.getData(new Path("/test/aap/noot/file" + i))));
+        }
+    }
+
+    @Test
+    public void test_copySingleThreadInOrder() throws Exception {
+
+        MockFileSystem f0 = createMockFileSystem("0", "TEST0", 1);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        CountDownLatch released = new CountDownLatch(1);
+
+        f0.addInputStream(new Path("/test/aap"), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        });
+
+        String h0 = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+        String h1 = f0.copy(new Path("/test/mies"), f1, new Path("/test/zus"), CopyMode.CREATE, false);
+
+        // With a single copy thread, the second copy only starts once the first is done, so it does not find out its source is missing before that.
+        Thread.sleep(200);
+        assertFalse(f0.getStatus(h1).isDone());
+
+        released.countDown();
+
+        assertFalse(f0.waitUntilDone(h0, 5 * 1000).hasException());
+        assertThat(f0.waitUntilDone(h1, 5 * 1000).getException(), instanceOf(NoSuchPathException.class));
+    }
+
+    @Test
+    public void test_copyChecksumMismatch() throws XenonException {
+
+        String prefix = "xenon.adaptors.filesystems.TEST0.";
+
+        HashMap<String, String> p = new HashMap<>();
+        p.put(prefix + "copyChecksum", "MD5");
+        p.put(prefix + "verifyChecksum", "true");
+
+        XenonPropertyDescription[] d = new XenonPropertyDescription[] { new XenonPropertyDescription(prefix + "copyChecksum", Type.STRING, "", "test"),
+                new XenonPropertyDescription(prefix + "verifyChecksum", Type.BOOLEAN, "false", "test") };
+
+        MockFileSystem f0 = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"), new XenonProperties(d, p));
+
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test")) {
+            @Override
+            protected byte[] getChecksum(Path file, String algorithm) {
+                return new byte[16];
+            }
+        };
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[] { 1, 2, 3 });
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertThat(s.getException(), instanceOf(ChecksumMismatchException.class));
+    }
+
+    @Test
+    public void test_getActiveCopies() throws Exception {
+
+        MockFileSystem f0 = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"));
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        f0.addInputStream(new Path("/test/aap"), new BarrierInputStream(barrier));
+
+        assertTrue(f0.getActiveCopies().isEmpty());
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+
+        List<CopyStatus> active = f0.getActiveCopies();
+        assertEquals(1, active.size());
+        assertEquals(h, active.get(0).getCopyIdentifier());
+        assertFalse(active.get(0).isDone());
+
+        // Let the copy continue
+        barrier.await(5, TimeUnit.SECONDS);
+
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+        assertTrue(s.isDone());
+        assertTrue(f0.getActiveCopies().isEmpty());
+    }
+
+    @Test(expected = NoSuchCopyException.class)
+    public void test_copyHistoryEvicted() throws Exception {
+
+        String property = "xenon.adaptors.filesystems.TEST0.copyHistorySize";
+
+        HashMap<String, String> p = new HashMap<>();
+        p.put(property, "0");
+
+        XenonPropertyDescription d = new XenonPropertyDescription(property, Type.INTEGER, "1000", "test");
+
+        MockFileSystem f0 = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"), new XenonProperties(new XenonPropertyDescription[] { d }, p));
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[] { 1, 2, 3, 4 });
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+
+        // Wait for the copy to complete without retrieving its status.
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (!f0.getActiveCopies().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Completed copies are not remembered, as the history has size 0.
+        f0.getStatus(h);
+    }
+
+    private static class ServerCopyFileSystem extends MockFileSystem {
+
+        final boolean fail;
+        int serverCopies;
+
+        ServerCopyFileSystem(String id, String name, boolean fail) throws XenonException {
+            super(id, name, "MEM", new Path("/test"));
+            this.fail = fail;
+        }
+
+        @Override
+        protected boolean canCopyOnServer(FileSystem destinationFS) {
+            return destinationFS instanceof ServerCopyFileSystem;
+        }
+
+        @Override
+        protected void copyOnServer(Path source, FileSystem destinationFS, Path destination) throws XenonException {
+
+            if (fail) {
+                throw new UnsupportedOperationException("TEST", "Server copy failed");
+            }
+
+            serverCopies++;
+
+            MockFileSystem target = (MockFileSystem) destinationFS;
+            target.createFile(destination);
+            target.addData(destination, getData(source));
+        }
+    }
+
+    @Test
+    public void test_copyFileOnServer() throws XenonException {
+
+        ServerCopyFileSystem f0 = new ServerCopyFileSystem("0", "TEST0", false);
+        ServerCopyFileSystem f1 = new ServerCopyFileSystem("1", "TEST1", false);
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[] { 1, 2, 3, 4 });
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(1, f0.serverCopies);
+        assertEquals(4, s.bytesCopied());
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, f1.getData(new Path("/test/noot")));
+    }
+
+    @Test
+    public void test_copyFileOnServerFallsBack() throws XenonException {
+
+        ServerCopyFileSystem f0 = new ServerCopyFileSystem("0", "TEST0", true);
+        ServerCopyFileSystem f1 = new ServerCopyFileSystem("1", "TEST1", true);
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[] { 1, 2, 3, 4 });
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(0, f0.serverCopies);
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, f1.getData(new Path("/test/noot")));
+    }
+
+    private static class CountingFileSystem extends MockFileSystem {
+
+        final AtomicInteger lookups = new AtomicInteger();
+
+        CountingFileSystem(String id, String name) throws XenonException {
+            super(id, name, "MEM", new Path("/test"));
+        }
+
+        @Override
+        public synchronized PathAttributes getAttributes(Path path) throws XenonException {
+            lookups.incrementAndGet();
+            return super.getAttributes(path);
+        }
+    }
+
+    @Test
+    public void test_copyDirReusesListing() throws XenonException {
+
+        CountingFileSystem f0 = new CountingFileSystem("0", "TEST0");
+        CountingFileSystem f1 = new CountingFileSystem("1", "TEST1");
+
+        f0.createDirectory(new Path("/test/aap"));
+        f1.createDirectory(new Path("/test/aap"));
+
+        for (int i = 0; i < 10; i++) {
+            f0.createFile(new Path("/test/aap/file" + i));
+            f0.addData(new Path("/test/aap/file" + i), new byte[] { 1, 2 });
+        }
+
+        f1.createFile(new Path("/test/aap/file0"));
+        f1.addData(new Path("/test/aap/file0"), new byte[] { 3 });
+
+        f0.lookups.set(0);
+        f1.lookups.set(0);
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/aap"), CopyMode.REPLACE, true);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(20, s.bytesCopied());
+        assertArrayEquals(new byte[] { 1, 2 }, f1.getData(new Path("/test/aap/file0")));
+
+        // The files are neither looked up in the source nor in the destination, as both directories are listed.
+        assertTrue("source lookups " + f0.lookups.get(), f0.lookups.get() < 10);
+        assertTrue("destination lookups " + f1.lookups.get(), f1.lookups.get() < 10);
+    }
+
+    @Test
+    public void test_copyDirTransfersConcurrently() throws XenonException {
+
+        MockFileSystem f0 = createMockFileSystem("0", "TEST0", 2);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        f0.createDirectory(new Path("/test/aap"));
+        f0.addInputStream(new Path("/test/aap/file0"), new BarrierInputStream(barrier));
+        f0.addInputStream(new Path("/test/aap/file1"), new BarrierInputStream(barrier));
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/aap"), CopyMode.CREATE, true);
+        CopyStatus s = f0.waitUntilDone(h, 10 * 1000);
+
+        assertTrue(s.isDone());
+        assertFalse(s.hasException());
+        assertEquals(16, s.bytesCopied());
+    }
+
+    @Test
+    public void test_copyConcurrentCopiesShareTransfers() throws XenonException {
+
+        MockFileSystem f0 = createMockFileSystem("0", "TEST0", 2);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        f0.addInputStream(new Path("/test/file0"), new BarrierInputStream(barrier));
+        f0.addInputStream(new Path("/test/file1"), new BarrierInputStream(barrier));
+
+        String h0 = f0.copy(new Path("/test/file0"), f1, new Path("/test/file0"), CopyMode.CREATE, false);
+        String h1 = f0.copy(new Path("/test/file1"), f1, new Path("/test/file1"), CopyMode.CREATE, false);
+
+        CopyStatus s0 = f0.waitUntilDone(h0, 10 * 1000);
+        CopyStatus s1 = f0.waitUntilDone(h1, 10 * 1000);
+
+        assertFalse(s0.hasException());
+        assertFalse(s1.hasException());
+    }
+
+    @Test
+    public void test_copyDirFailsOnFirstError() throws XenonException {
+
+        MockFileSystem f0 = createMockFileSystem("0", "TEST0", 4);
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createDirectory(new Path("/test/aap"));
+        f0.createFile(new Path("/test/aap/file0"));
+        f0.addData(new Path("/test/aap/file0"), new byte[] { 42 });
+        f0.createFile(new Path("/test/aap/file1"));
+        f0.addData(new Path("/test/aap/file1"), new byte[] { 42 });
+
+        f1.createDirectory(new Path("/test/aap"));
+        f1.createFile(new Path("/test/aap/file1"));
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/aap"), CopyMode.CREATE, true);
+        CopyStatus s = f0.waitUntilDone(h, 5 * 1000);
+
+        assertTrue(s.isDone());
+        assertTrue(s.hasException());
+    }
+
     // getStatus
     @Test(expected = IllegalArgumentException.class)
     public void test_getStatusFailsNull() throws XenonException {
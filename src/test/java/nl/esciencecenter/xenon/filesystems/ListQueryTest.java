@@ -0,0 +1,289 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonRuntimeException;
+import nl.esciencecenter.xenon.adaptors.filesystems.LazyPathAttributes;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileSystem;
+
+public class ListQueryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger listings = new AtomicInteger();
+    private final AtomicInteger filteredListings = new AtomicInteger();
+
+    private FileSystem fs;
+
+    private Path root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = new Path(folder.getRoot().getAbsolutePath());
+
+        fs = new LocalFileSystem("test", root.toString(), "/", root, 4096, null) {
+            @Override
+            protected List<PathAttributes> listDirectory(Path dir) throws XenonException {
+                listings.incrementAndGet();
+                return super.listDirectory(dir);
+            }
+
+            @Override
+            protected List<PathAttributes> listDirectory(Path dir, ListQuery query) throws XenonException {
+                filteredListings.incrementAndGet();
+                return super.listDirectory(dir, query);
+            }
+        };
+
+        for (String d : new String[] { "a/b/c", "a/skip", "e" }) {
+            Files.createDirectories(folder.getRoot().toPath().resolve(d));
+        }
+
+        for (String f : new String[] { "x.h5", "a/y.h5", "a/y.txt", "a/b/z.h5", "a/b/c/deep.h5", "a/skip/s.h5", "e/w.h5" }) {
+            Files.createFile(folder.getRoot().toPath().resolve(f));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fs.close();
+    }
+
+    private Set<String> names(Iterable<PathAttributes> listing) {
+        Set<String> result = new HashSet<>();
+
+        for (PathAttributes p : listing) {
+            result.add(folder.getRoot().toPath().relativize(java.nio.file.Paths.get(p.getPath().toString())).toString());
+        }
+
+        return result;
+    }
+
+    private Set<String> set(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    public void test_glob_wildcards() {
+        ListQuery q = new ListQuery();
+        q.setNameGlob("data_??.{h5,nc}");
+
+        assertTrue(q.matchesName("data_01.h5"));
+        assertTrue(q.matchesName("data_ab.nc"));
+        assertFalse(q.matchesName("data_1.h5"));
+        assertFalse(q.matchesName("data_01.txt"));
+        assertEquals("data_", q.getNamePrefix());
+    }
+
+    @Test
+    public void test_glob_star() {
+        ListQuery q = new ListQuery();
+        q.setNameGlob("*.h5");
+
+        assertTrue(q.matchesName("a.h5"));
+        assertTrue(q.matchesName(".h5"));
+        assertFalse(q.matchesName("a.h5.bak"));
+        assertEquals("", q.getNamePrefix());
+    }
+
+    @Test
+    public void test_glob_sets() {
+        ListQuery q = new ListQuery();
+        q.setNameGlob("f[0-3][!a].txt");
+
+        assertTrue(q.matchesName("f2b.txt"));
+        assertFalse(q.matchesName("f4b.txt"));
+        assertFalse(q.matchesName("f2a.txt"));
+        assertEquals("f", q.getNamePrefix());
+    }
+
+    @Test
+    public void test_glob_literalRegexCharacters() {
+        ListQuery q = new ListQuery();
+        q.setNameGlob("a+b(1)\\*.x");
+
+        assertTrue(q.matchesName("a+b(1)*.x"));
+        assertFalse(q.matchesName("a+b(1)y.x"));
+        assertEquals("a+b(1)*.x", q.getNamePrefix());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_glob_unclosedGroup() {
+        new ListQuery().setNameGlob("{a,b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_glob_unclosedSet() {
+        new ListQuery().setNameGlob("[ab");
+    }
+
+    @Test
+    public void test_regex() {
+        ListQuery q = new ListQuery();
+        q.setNameGlob("abc*");
+        q.setNameRegex("run[0-9]+\\.log");
+
+        assertTrue(q.matchesName("run12.log"));
+        assertFalse(q.matchesName("run12.log.1"));
+        assertEquals("", q.getNamePrefix());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_regex_invalid() {
+        new ListQuery().setNameRegex("(");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_maxDepth_invalid() {
+        new ListQuery().setMaxDepth(0);
+    }
+
+    @Test
+    public void test_list_defaultIsRecursive() throws Exception {
+        assertEquals(names(fs.list(root, true)), names(fs.list(root, new ListQuery())));
+    }
+
+    @Test
+    public void test_list_globAndDepth() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setNameGlob("*.h5");
+        q.setMaxDepth(2);
+
+        assertEquals(set("x.h5", "a/y.h5", "e/w.h5"), names(fs.list(root, q)));
+
+        // The root and its subdirectories a and e, but nothing below them. Only the root is needed unfiltered.
+        assertEquals(1, listings.get());
+        assertEquals(2, filteredListings.get());
+    }
+
+    @Test
+    public void test_list_depthOne() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setMaxDepth(1);
+
+        assertEquals(set("x.h5", "a", "e"), names(fs.list(root, q)));
+        assertEquals(0, listings.get());
+        assertEquals(1, filteredListings.get());
+    }
+
+    @Test
+    public void test_list_onlyDirectories() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setIncludeFiles(false);
+
+        assertEquals(set("a", "a/b", "a/b/c", "a/skip", "e"), names(fs.list(root, q)));
+    }
+
+    @Test
+    public void test_list_onlyFilesStillDescends() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setIncludeDirectories(false);
+        q.setNameGlob("deep*");
+
+        assertEquals(set("a/b/c/deep.h5"), names(fs.list(root, q)));
+    }
+
+    @Test
+    public void test_list_prune() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setPrune(p -> "skip".equals(p.getPath().getFileNameAsString()));
+
+        Set<String> names = names(fs.list(root, q));
+
+        assertTrue(names.contains("a/skip"));
+        assertFalse(names.contains("a/skip/s.h5"));
+        assertTrue(names.contains("a/b/c/deep.h5"));
+
+        // root, a, a/b, a/b/c and e, but not a/skip.
+        assertEquals(5, listings.get());
+    }
+
+    @Test
+    public void test_list_lightweight() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setLightweight(true);
+
+        assertEquals(names(fs.list(root, true)), names(fs.list(root, q)));
+
+        for (PathAttributes p : fs.list(root, q)) {
+            LazyPathAttributes a = (LazyPathAttributes) p;
+            assertFalse(a.isLoaded());
+
+            if ("y.h5".equals(a.getPath().getFileNameAsString())) {
+                assertTrue(a.isRegular());
+                assertEquals(0, a.getSize());
+                assertTrue(a.getLastModifiedTime() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void test_list_lightweightLoadsOnDemand() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setLightweight(true);
+        q.setMaxDepth(1);
+        q.setNameGlob("x.h5");
+
+        Iterator<PathAttributes> it = fs.list(root, q).iterator();
+        LazyPathAttributes a = (LazyPathAttributes) it.next();
+        assertFalse(it.hasNext());
+
+        assertEquals(fs.getAttributes(root.resolve("x.h5")).getPermissions(), a.getPermissions());
+        assertTrue(a.isLoaded());
+    }
+
+    @Test(expected = XenonRuntimeException.class)
+    public void test_list_lightweightRemoved() throws Exception {
+        ListQuery q = new ListQuery();
+        q.setLightweight(true);
+        q.setMaxDepth(1);
+        q.setNameGlob("x.h5");
+
+        PathAttributes a = fs.list(root, q).iterator().next();
+        Files.delete(folder.getRoot().toPath().resolve("x.h5"));
+        a.getOwner();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_list_nullQuery() throws Exception {
+        fs.list(root, (ListQuery) null);
+    }
+
+    @Test(expected = NoSuchPathException.class)
+    public void test_list_missingDirectory() throws Exception {
+        fs.list(root.resolve("missing"), new ListQuery());
+    }
+}
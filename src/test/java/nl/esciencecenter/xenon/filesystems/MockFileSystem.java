@@ -159,6 +159,10 @@ public class MockFileSystem extends FileSystem {
 
         void setData(byte[] data) {
             this.data = data;
+
+            if (attributes instanceof PathAttributesImplementation) {
+                ((PathAttributesImplementation) attributes).setSize(data.length);
+            }
         }
 
         byte[] getData() {
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.InvalidPropertyException;
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonRuntimeException;
+import nl.esciencecenter.xenon.adaptors.NotConnectedException;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileAdaptor;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileSystem;
+
+public class ParallelListingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private volatile long listDelay = 5;
+
+    private FileSystem fs;
+
+    private Path root;
+
+    private FileSystem createFileSystem(String listThreads) throws XenonException {
+        Map<String, String> p = new HashMap<>();
+        p.put(LocalFileAdaptor.PREFIX + "listThreads", listThreads);
+        XenonProperties properties = new XenonProperties(new LocalFileAdaptor().getSupportedProperties(), p);
+
+        return new LocalFileSystem("test", root.toString(), "/", root, 4096, properties) {
+            @Override
+            protected List<PathAttributes> listDirectory(Path dir) throws XenonException {
+                if ("broken".equals(dir.getFileNameAsString())) {
+                    throw new XenonException("test", "Cannot list " + dir);
+                }
+
+                int n = active.incrementAndGet();
+                maxActive.accumulateAndGet(n, Math::max);
+
+                try {
+                    Thread.sleep(listDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                try {
+                    return super.listDirectory(dir);
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        root = new Path(folder.getRoot().getAbsolutePath());
+
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 5; j++) {
+                java.nio.file.Path dir = folder.getRoot().toPath().resolve("d" + i + "/s" + j);
+                Files.createDirectories(dir);
+                Files.createFile(dir.resolve("f"));
+            }
+        }
+
+        fs = createFileSystem("4");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fs.close();
+    }
+
+    private List<String> names(Iterable<PathAttributes> listing) {
+        List<String> result = new ArrayList<>();
+
+        for (PathAttributes p : listing) {
+            result.add(folder.getRoot().toPath().relativize(java.nio.file.Paths.get(p.getPath().toString())).toString());
+        }
+
+        return result;
+    }
+
+    @Test
+    public void test_list_sameEntriesAsSequential() throws Exception {
+        List<String> parallel = names(fs.list(root, true));
+
+        FileSystem sequential = createFileSystem("1");
+        List<String> expected = names(sequential.list(root, true));
+        sequential.close();
+
+        assertEquals(10 + 50 + 50, expected.size());
+        assertEquals(expected.size(), parallel.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(parallel));
+    }
+
+    @Test
+    public void test_list_directoryBeforeEntries() throws Exception {
+        List<String> names = names(fs.list(root, true));
+
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertTrue(names.indexOf("d" + i) < names.indexOf("d" + i + "/s" + j));
+                assertTrue(names.indexOf("d" + i + "/s" + j) < names.indexOf("d" + i + "/s" + j + "/f"));
+            }
+        }
+    }
+
+    @Test
+    public void test_list_concurrencyCapped() throws Exception {
+        names(fs.list(root, true));
+        assertTrue(maxActive.get() > 1);
+        assertTrue(maxActive.get() <= 4);
+    }
+
+    @Test
+    public void test_list_deferredWhenIteratorIsSlow() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        try {
+            ParallelListing it = new ParallelListing(fs, pool, 1, root, fs.listDirectory(root));
+
+            int count = 0;
+
+            while (it.hasNext()) {
+                it.next();
+                count++;
+                Thread.sleep(1);
+            }
+
+            assertEquals(110, count);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_list_subdirectoryFails() throws Exception {
+        Files.createDirectories(folder.getRoot().toPath().resolve("d3/s2/broken"));
+
+        try {
+            names(fs.list(root, true));
+            fail("Expected an exception");
+        } catch (XenonRuntimeException e) {
+            assertTrue(e.getCause() instanceof XenonException);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void test_list_fileSystemClosed() throws Exception {
+        listDelay = 100;
+
+        Iterator<PathAttributes> it = fs.list(root, true).iterator();
+        it.next();
+
+        fs.close();
+
+        try {
+            while (it.hasNext()) {
+                it.next();
+            }
+            fail("Expected an exception");
+        } catch (XenonRuntimeException e) {
+            assertTrue(e.getCause() instanceof NotConnectedException);
+        }
+    }
+
+    @Test
+    public void test_copy_recursive() throws Exception {
+        Files.createDirectories(folder.getRoot().toPath().resolve("target"));
+
+        String h = fs.copy(root.resolve("d1"), fs, root.resolve("target/d1"), CopyMode.CREATE, true);
+        CopyStatus s = fs.waitUntilDone(h, 30 * 1000);
+        s.maybeThrowException();
+
+        Set<String> copied = new HashSet<>(names(fs.list(root.resolve("target/d1"), true)));
+        assertEquals(10, copied.size());
+        assertTrue(copied.contains("target/d1/s4/f"));
+    }
+
+    @Test(expected = InvalidPropertyException.class)
+    public void test_create_invalidListThreads() throws Exception {
+        Map<String, String> p = new HashMap<>();
+        p.put(LocalFileAdaptor.PREFIX + "listThreads", "0");
+        FileSystem.create("file", root.toString(), null, p);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.XenonRuntimeException;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileSystem;
+
+public class RecursiveListingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger listings = new AtomicInteger();
+
+    private FileSystem fs;
+
+    private Path root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = new Path(folder.getRoot().getAbsolutePath());
+
+        fs = new LocalFileSystem("test", root.toString(), "/", root, 4096, null) {
+            @Override
+            protected List<PathAttributes> listDirectory(Path dir) throws XenonException {
+                listings.incrementAndGet();
+                return super.listDirectory(dir);
+            }
+        };
+
+        for (String d : new String[] { "a/b/c", "a/d", "e" }) {
+            Files.createDirectories(folder.getRoot().toPath().resolve(d));
+        }
+
+        for (String f : new String[] { "f0", "a/f1", "a/b/f2", "a/b/c/f3", "a/d/f4" }) {
+            Files.createFile(folder.getRoot().toPath().resolve(f));
+        }
+    }
+
+    private List<String> names(Iterable<PathAttributes> listing) {
+        List<String> result = new ArrayList<>();
+
+        for (PathAttributes p : listing) {
+            result.add(folder.getRoot().toPath().relativize(java.nio.file.Paths.get(p.getPath().toString())).toString());
+        }
+
+        return result;
+    }
+
+    @Test
+    public void test_list_allEntries() throws Exception {
+        List<String> names = names(fs.list(root, true));
+
+        Set<String> expected = new HashSet<>();
+        for (String s : new String[] { "a", "a/b", "a/b/c", "a/d", "e", "f0", "a/f1", "a/b/f2", "a/b/c/f3", "a/d/f4" }) {
+            expected.add(s);
+        }
+
+        assertEquals(expected.size(), names.size());
+        assertEquals(expected, new HashSet<>(names));
+    }
+
+    @Test
+    public void test_list_entriesOfDirectoryBeforeSubdirectories() throws Exception {
+        List<String> names = names(fs.list(root, true));
+
+        for (String top : new String[] { "a", "e", "f0" }) {
+            assertTrue(names.indexOf(top) < names.indexOf("a/f1"));
+            assertTrue(names.indexOf(top) < names.indexOf("a/d/f4"));
+        }
+
+        assertTrue(names.indexOf("a/b") < names.indexOf("a/b/c"));
+        assertTrue(names.indexOf("a/f1") < names.indexOf("a/b/f2"));
+    }
+
+    @Test
+    public void test_list_lazy() throws Exception {
+        Iterator<PathAttributes> it = fs.list(root, true).iterator();
+
+        assertEquals(1, listings.get());
+
+        // The top directory has 3 entries, which are returned before any subdirectory is listed.
+        it.next();
+        it.next();
+        it.next();
+        assertEquals(1, listings.get());
+
+        // The next entry is in a, which is listed after e if that (empty) directory comes first.
+        it.next();
+        assertTrue(listings.get() <= 3);
+    }
+
+    @Test
+    public void test_list_subdirectoryRemoved() throws Exception {
+        Iterator<PathAttributes> it = fs.list(root, true).iterator();
+
+        Files.delete(folder.getRoot().toPath().resolve("e"));
+
+        int count = 0;
+
+        try {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+            fail("Expected an exception");
+        } catch (XenonRuntimeException e) {
+            assertTrue(e.getCause() instanceof XenonException);
+        }
+
+        assertTrue(count >= 3);
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void test_list_nonRecursive() throws Exception {
+        List<String> names = names(fs.list(root, false));
+        assertEquals(3, names.size());
+        assertEquals(1, listings.get());
+    }
+}
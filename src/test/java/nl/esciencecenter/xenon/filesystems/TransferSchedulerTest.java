@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import nl.esciencecenter.xenon.XenonException;
+
+public class TransferSchedulerTest {
+
+    @After
+    public void cleanup() {
+        TransferScheduler.clearBandwidthLimits();
+    }
+
+    private TransferScheduler.Flow createFlow(int weight) throws XenonException {
+        MockFileSystem fs = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"));
+        return new TransferScheduler.Flow(weight, fs, fs);
+    }
+
+    @Test
+    public void test_getHost() {
+        assertEquals("host", TransferScheduler.getHost("host"));
+        assertEquals("host", TransferScheduler.getHost("host:22/path"));
+        assertEquals("host", TransferScheduler.getHost("user@host:22"));
+        assertEquals("s3.example.com", TransferScheduler.getHost("http://s3.example.com:9000/bucket"));
+        assertNull(TransferScheduler.getHost("/tmp"));
+        assertNull(TransferScheduler.getHost(""));
+        assertNull(TransferScheduler.getHost(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_setBandwidthLimit_negative() {
+        TransferScheduler.setBandwidthLimit(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_setHostBandwidthLimit_nullHost() {
+        TransferScheduler.setHostBandwidthLimit(null, 1000);
+    }
+
+    @Test
+    public void test_acquire_unlimited() throws Exception {
+        TransferScheduler.Flow flow = createFlow(1);
+
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < 1000; i++) {
+            TransferScheduler.acquire(flow, 1024 * 1024);
+        }
+
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void test_acquire_limited() throws Exception {
+        TransferScheduler.setAdaptorBandwidthLimit("TEST0", 1000 * 1000);
+        TransferScheduler.Flow flow = createFlow(1);
+
+        // The bucket starts full
+        TransferScheduler.acquire(flow, 1000 * 1000);
+
+        long start = System.nanoTime();
+        TransferScheduler.acquire(flow, 250 * 1000);
+        TransferScheduler.acquire(flow, 250 * 1000);
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue("took " + millis + " ms", millis >= 400);
+    }
+
+    @Test
+    public void test_acquire_removedLimit() throws Exception {
+        TransferScheduler.setHostBandwidthLimit("MEM", 1000);
+        TransferScheduler.setHostBandwidthLimit("MEM", 0);
+
+        TransferScheduler.Flow flow = createFlow(1);
+
+        long start = System.currentTimeMillis();
+        TransferScheduler.acquire(flow, 1000 * 1000);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void test_acquire_weightedShare() throws Exception {
+        TransferScheduler.TokenBucket bucket = new TransferScheduler.TokenBucket(400 * 1000);
+
+        TransferScheduler.Flow light = createFlow(1);
+        TransferScheduler.Flow heavy = createFlow(3);
+
+        // Empty the bucket, so both flows compete from the start
+        bucket.acquire(createFlow(1), 400 * 1000);
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicLong lightBytes = new AtomicLong();
+        AtomicLong heavyBytes = new AtomicLong();
+
+        Thread t1 = new Thread(() -> consume(bucket, light, lightBytes, done));
+        Thread t2 = new Thread(() -> consume(bucket, heavy, heavyBytes, done));
+        t1.start();
+        t2.start();
+
+        Thread.sleep(1000);
+        done.set(true);
+        t1.join();
+        t2.join();
+
+        double ratio = (double) heavyBytes.get() / lightBytes.get();
+        assertTrue("ratio " + ratio, ratio > 2.0 && ratio < 4.0);
+    }
+
+    private void consume(TransferScheduler.TokenBucket bucket, TransferScheduler.Flow flow, AtomicLong bytes, AtomicBoolean done) {
+        try {
+            while (!done.get()) {
+                bucket.acquire(flow, 4096);
+                bytes.addAndGet(4096);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void test_copy_limited() throws Exception {
+        MockFileSystem f0 = new MockFileSystem("0", "TEST0", "MEM", new Path("/test"));
+        MockFileSystem f1 = new MockFileSystem("1", "TEST1", "MEM", new Path("/test"));
+
+        f0.createFile(new Path("/test/aap"));
+        f0.addData(new Path("/test/aap"), new byte[300 * 1000]);
+
+        TransferScheduler.setAdaptorBandwidthLimit("TEST1", 200 * 1000);
+
+        long start = System.nanoTime();
+
+        String h = f0.copy(new Path("/test/aap"), f1, new Path("/test/noot"), CopyMode.CREATE, false);
+        CopyStatus s = f0.waitUntilDone(h, 10 * 1000);
+
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue(s.isDone());
+        s.maybeThrowException();
+        assertTrue("took " + millis + " ms", millis >= 400);
+    }
+}
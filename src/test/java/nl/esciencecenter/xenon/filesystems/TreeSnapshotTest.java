@@ -0,0 +1,226 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileSystem;
+
+public class TreeSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger listings = new AtomicInteger();
+
+    private FileSystem fs;
+
+    private Path root;
+
+    private java.nio.file.Path local(String name) {
+        return folder.getRoot().toPath().resolve(name);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        root = new Path(folder.getRoot().getAbsolutePath());
+
+        fs = new LocalFileSystem("test", root.toString(), "/", root, 4096, null) {
+            @Override
+            protected List<PathAttributes> listDirectoryLightweight(Path dir) throws XenonException {
+                listings.incrementAndGet();
+                return super.listDirectoryLightweight(dir);
+            }
+        };
+
+        for (String d : new String[] { "a/b", "c" }) {
+            Files.createDirectories(local(d));
+        }
+
+        for (String f : new String[] { "x", "a/y", "a/b/z", "c/w" }) {
+            Files.write(local(f), f.getBytes());
+        }
+
+        // Make all directories old enough to be pruned.
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+
+        for (String d : new String[] { "a/b", "a", "c", "" }) {
+            Files.setLastModifiedTime(local(d), old);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fs.close();
+    }
+
+    @Test
+    public void test_create() throws Exception {
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+
+        assertEquals(7, s.size());
+        assertEquals(4, listings.get());
+        assertTrue(s.get(new Path("a/b")).isDirectory());
+        assertEquals(5, s.get(root.resolve("a/b/z")).getSize());
+        assertNull(s.get(new Path("missing")));
+    }
+
+    @Test(expected = InvalidPathException.class)
+    public void test_create_notDirectory() throws Exception {
+        TreeSnapshot.create(fs, root.resolve("x"));
+    }
+
+    @Test(expected = NoSuchPathException.class)
+    public void test_create_missing() throws Exception {
+        TreeSnapshot.create(fs, root.resolve("missing"));
+    }
+
+    @Test
+    public void test_saveLoad() throws Exception {
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+
+        java.nio.file.Path file = folder.newFile("snapshot").toPath();
+        s.save(file);
+
+        TreeSnapshot l = TreeSnapshot.load(file);
+
+        assertEquals(s.size(), l.size());
+        assertEquals(s.getRoot(), l.getRoot());
+        assertEquals(s.getCreationTime(), l.getCreationTime());
+        assertEquals(s.get(new Path("a/b/z")).getLastModifiedTime(), l.get(new Path("a/b/z")).getLastModifiedTime());
+        assertTrue(s.diff(l).isEmpty());
+    }
+
+    @Test(expected = XenonException.class)
+    public void test_load_notSnapshot() throws Exception {
+        java.nio.file.Path file = folder.newFile("snapshot").toPath();
+        TreeSnapshot.load(file);
+    }
+
+    @Test
+    public void test_diff() throws Exception {
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+
+        Files.write(local("a/b/new"), new byte[1]);
+        Files.delete(local("c/w"));
+        Files.write(local("x"), new byte[100]);
+
+        TreeDiff d = s.diff(s.rescan(fs, false));
+
+        assertEquals(Collections.singletonList(root.resolve("a/b/new")), d.getAdded());
+        assertEquals(Collections.singletonList(root.resolve("c/w")), d.getRemoved());
+        assertEquals(Collections.singletonList(root.resolve("x")), d.getModified());
+    }
+
+    @Test
+    public void test_rescan_prunesUnchangedDirectories() throws Exception {
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+        listings.set(0);
+
+        // Only changes the modification time of a/b.
+        Files.write(local("a/b/new"), new byte[1]);
+
+        TreeSnapshot n = s.rescan(fs, true);
+
+        assertEquals(1, listings.get());
+        assertEquals(Arrays.asList(root.resolve("a/b/new")), s.diff(n).getAdded());
+        assertEquals(8, n.size());
+    }
+
+    @Test
+    public void test_rescan_prunedSubdirectoryRemoved() throws Exception {
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+
+        Files.delete(local("a/b/z"));
+        Files.delete(local("a/b"));
+        Files.setLastModifiedTime(local("a"), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+        TreeDiff d = s.diff(s.rescan(fs, true));
+
+        // The entries below a/b are gone with it, even though a looks unchanged.
+        assertEquals(Arrays.asList(root.resolve("a/b"), root.resolve("a/b/z")), d.getRemoved());
+    }
+
+    @Test
+    public void test_rescan_prunedSiblingsSharingPrefix() throws Exception {
+        Files.createDirectories(local("a/data"));
+        Files.write(local("a/data/in"), new byte[1]);
+        Files.write(local("a/data.csv"), new byte[1]);
+        Files.write(local("a/data-1"), new byte[1]);
+
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        Files.setLastModifiedTime(local("a/data"), old);
+        Files.setLastModifiedTime(local("a"), old);
+
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+        listings.set(0);
+
+        TreeSnapshot n = s.rescan(fs, true);
+
+        assertEquals(0, listings.get());
+        assertTrue(s.diff(n).toString(), s.diff(n).isEmpty());
+        assertEquals(s.size(), n.size());
+    }
+
+    @Test
+    public void test_rescan_recentDirectoriesNotPruned() throws Exception {
+        Files.setLastModifiedTime(local("c"), FileTime.fromMillis(System.currentTimeMillis()));
+
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+        listings.set(0);
+
+        s.rescan(fs, true);
+
+        assertEquals(1, listings.get());
+    }
+
+    @Test
+    public void test_rescan_marginCoversClockSkew() throws Exception {
+        TreeSnapshot s = TreeSnapshot.create(fs, root);
+        listings.set(0);
+
+        // The directories were modified a minute before the snapshot, which a server clock running two minutes behind cannot tell apart from just before.
+        s.rescan(fs, true, 120000);
+
+        assertEquals(4, listings.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_rescan_negativeMargin() throws Exception {
+        TreeSnapshot.create(fs, root).rescan(fs, true, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_diff_otherTree() throws Exception {
+        TreeSnapshot.create(fs, root).diff(TreeSnapshot.create(fs, root.resolve("a")));
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2013 Netherlands eScience Center
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.esciencecenter.xenon.filesystems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.esciencecenter.xenon.XenonException;
+import nl.esciencecenter.xenon.adaptors.XenonProperties;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileAdaptor;
+import nl.esciencecenter.xenon.adaptors.filesystems.local.LocalFileSystem;
+
+public class WatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger listings = new AtomicInteger();
+
+    // If set, listings of "dir" by the polling file system wait for this latch.
+    private volatile CountDownLatch listingReleased;
+
+    // If set, listings of "dir" by the polling file system fail after waiting for the latch.
+    private volatile boolean listingFails;
+
+    private Path root;
+
+    private FileSystem local;
+
+    // Watches by polling, with an interval long enough that only the test polls.
+    private FileSystem polling;
+
+    /** Records the events it receives as "kind name". */
+    private static class RecordingListener implements WatchListener {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void pathCreated(Path path) {
+            events.add("created " + path.getFileNameAsString());
+        }
+
+        @Override
+        public void pathDeleted(Path path) {
+            events.add("deleted " + path.getFileNameAsString());
+        }
+
+        @Override
+        public void pathModified(Path path) {
+            events.add("modified " + path.getFileNameAsString());
+        }
+
+        @Override
+        public void watchFailed(Path dir, XenonException exception) {
+            events.add("failed " + dir.getFileNameAsString());
+        }
+
+        List<String> drain() {
+            List<String> result = new ArrayList<>();
+            events.drainTo(result);
+            return result;
+        }
+
+        // Waits for an event of the given kind and name, skipping others (the WatchService may also report a modification after a creation).
+        boolean await(String event) throws InterruptedException {
+            for (String e = events.poll(10, TimeUnit.SECONDS); e != null; e = events.poll(10, TimeUnit.SECONDS)) {
+                if (event.equals(e)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // LocalFileSystem is in another package, so it does not inherit the package private poller.
+    private static WatchPoller poller(FileSystem fs) {
+        return fs.getWatchPoller();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        root = new Path(folder.getRoot().getAbsolutePath());
+
+        local = new LocalFileSystem("test", root.toString(), "/", root, 4096, null) {
+        };
+
+        Map<String, String> p = new HashMap<>();
+        p.put(LocalFileAdaptor.PREFIX + "watchInterval", "3600000");
+        XenonProperties properties = new XenonProperties(new LocalFileAdaptor().getSupportedProperties(), p);
+
+        polling = new LocalFileSystem("test", root.toString(), "/", root, 4096, properties) {
+            @Override
+            protected List<PathAttributes> listDirectoryLightweight(Path dir) throws XenonException {
+                listings.incrementAndGet();
+
+                CountDownLatch released = listingReleased;
+
+                if (released != null && dir.getFileNameAsString().equals("dir")) {
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    if (listingFails) {
+                        throw new XenonException("test", "Listing failed");
+                    }
+                }
+
+                return super.listDirectoryLightweight(dir);
+            }
+
+            @Override
+            protected void startWatch(String watchIdentifier, Path dir, WatchListener listener) throws XenonException {
+                poller(this).add(watchIdentifier, dir, listener);
+            }
+
+            @Override
+            protected boolean stopWatch(String watchIdentifier) {
+                return poller(this).remove(watchIdentifier);
+            }
+        };
+
+        Files.createDirectories(folder.getRoot().toPath().resolve("dir"));
+        Files.write(folder.getRoot().toPath().resolve("dir/old"), new byte[1]);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        local.close();
+        polling.close();
+    }
+
+    @Test
+    public void test_local_createAndDelete() throws Exception {
+        RecordingListener l = new RecordingListener();
+        String id = local.watch(root.resolve("dir"), l);
+
+        Files.write(folder.getRoot().toPath().resolve("dir/new"), new byte[1]);
+        assertTrue(l.await("created new"));
+
+        Files.delete(folder.getRoot().toPath().resolve("dir/old"));
+        assertTrue(l.await("deleted old"));
+
+        assertTrue(local.unwatch(id));
+        assertFalse(local.unwatch(id));
+    }
+
+    @Test
+    public void test_local_directoryRemoved() throws Exception {
+        RecordingListener l = new RecordingListener();
+        String id = local.watch(root.resolve("dir"), l);
+
+        Files.delete(folder.getRoot().toPath().resolve("dir/old"));
+        Files.delete(folder.getRoot().toPath().resolve("dir"));
+
+        assertTrue(l.await("failed dir"));
+        assertFalse(local.unwatch(id));
+    }
+
+    @Test
+    public void test_local_unwatchedNotFailed() throws Exception {
+        RecordingListener l1 = new RecordingListener();
+        RecordingListener l2 = new RecordingListener();
+
+        String id = local.watch(root.resolve("dir"), l1);
+        local.watch(root.resolve("dir"), l2);
+        assertTrue(local.unwatch(id));
+
+        Files.delete(folder.getRoot().toPath().resolve("dir/old"));
+        Files.delete(folder.getRoot().toPath().resolve("dir"));
+
+        assertTrue(l2.await("failed dir"));
+        assertTrue(l1.drain().isEmpty());
+    }
+
+    @Test
+    public void test_polling_sharesListing() throws Exception {
+        RecordingListener l1 = new RecordingListener();
+        RecordingListener l2 = new RecordingListener();
+
+        polling.watch(root.resolve("dir"), l1);
+        polling.watch(new Path("dir"), l2);
+        assertEquals(1, listings.get());
+
+        Files.write(folder.getRoot().toPath().resolve("dir/new"), new byte[1]);
+        Files.write(folder.getRoot().toPath().resolve("dir/old"), new byte[10]);
+
+        poller(polling).poll();
+
+        assertEquals(2, listings.get());
+        assertEquals(Arrays.asList("created new", "modified old"), l1.drain());
+        assertEquals(Arrays.asList("created new", "modified old"), l2.drain());
+    }
+
+    @Test(timeout = 10000)
+    public void test_polling_addDuringPoll() throws Exception {
+        RecordingListener l1 = new RecordingListener();
+        RecordingListener l2 = new RecordingListener();
+
+        polling.watch(root.resolve("dir"), l1);
+        Files.createDirectories(folder.getRoot().toPath().resolve("other"));
+
+        listingReleased = new CountDownLatch(1);
+
+        Thread t = new Thread(poller(polling)::poll);
+        t.setDaemon(true);
+        t.start();
+
+        while (listings.get() < 2) {
+            Thread.sleep(10);
+        }
+
+        // The poll is stuck listing dir, which must not keep a new watch from being added.
+        polling.watch(root.resolve("other"), l2);
+        assertEquals(3, listings.get());
+
+        listingReleased.countDown();
+        t.join();
+
+        Files.write(folder.getRoot().toPath().resolve("other/new"), new byte[1]);
+        listingReleased = null;
+        poller(polling).poll();
+
+        assertEquals(Arrays.asList("created new"), l2.drain());
+        assertTrue(l1.drain().isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void test_polling_failedListingOfUnwatchedDirectory() throws Exception {
+        RecordingListener l1 = new RecordingListener();
+        RecordingListener l2 = new RecordingListener();
+
+        String id = polling.watch(root.resolve("dir"), l1);
+
+        listingReleased = new CountDownLatch(1);
+        CountDownLatch released = listingReleased;
+
+        Thread t = new Thread(poller(polling)::poll);
+        t.setDaemon(true);
+        t.start();
+
+        while (listings.get() < 2) {
+            Thread.sleep(10);
+        }
+
+        // While the poll is stuck listing dir, it is watched again. The poll then fails to list the directory it started with.
+        listingReleased = null;
+        polling.unwatch(id);
+        polling.watch(root.resolve("dir"), l2);
+
+        listingFails = true;
+        released.countDown();
+        t.join();
+        listingFails = false;
+
+        assertTrue(l1.drain().isEmpty());
+        assertTrue(l2.drain().isEmpty());
+
+        // The new watch is still polled.
+        Files.write(folder.getRoot().toPath().resolve("dir/new"), new byte[1]);
+        poller(polling).poll();
+
+        assertEquals(Arrays.asList("created new"), l2.drain());
+    }
+
+    @Test
+    public void test_polling_unwatch() throws Exception {
+        RecordingListener l = new RecordingListener();
+        String id = polling.watch(root.resolve("dir"), l);
+
+        assertTrue(polling.unwatch(id));
+        assertFalse(polling.unwatch(id));
+
+        Files.delete(folder.getRoot().toPath().resolve("dir/old"));
+        poller(polling).poll();
+
+        // The directory has no watches left, so it is no longer listed.
+        assertEquals(1, listings.get());
+        assertTrue(l.drain().isEmpty());
+    }
+
+    @Test
+    public void test_polling_directoryRemoved() throws Exception {
+        RecordingListener l = new RecordingListener();
+        String id = polling.watch(root.resolve("dir"), l);
+
+        Files.delete(folder.getRoot().toPath().resolve("dir/old"));
+        Files.delete(folder.getRoot().toPath().resolve("dir"));
+
+        poller(polling).poll();
+
+        assertEquals(Arrays.asList("failed dir"), l.drain());
+        assertFalse(polling.unwatch(id));
+    }
+
+    @Test
+    public void test_polling_listenerExceptionIgnored() throws Exception {
+        RecordingListener l = new RecordingListener();
+
+        polling.watch(root.resolve("dir"), new WatchListener() {
+            @Override
+            public void pathDeleted(Path path) {
+                throw new RuntimeException("fail");
+            }
+        });
+        polling.watch(root.resolve("dir"), l);
+
+        Files.delete(folder.getRoot().toPath().resolve("dir/old"));
+        poller(polling).poll();
+
+        assertEquals(Arrays.asList("deleted old"), l.drain());
+    }
+
+    @Test(expected = InvalidPathException.class)
+    public void test_watch_notDirectory() throws Exception {
+        local.watch(root.resolve("dir/old"), new RecordingListener());
+    }
+
+    @Test(expected = NoSuchPathException.class)
+    public void test_watch_missing() throws Exception {
+        polling.watch(root.resolve("missing"), new RecordingListener());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_watch_nullListener() throws Exception {
+        local.watch(root.resolve("dir"), null);
+    }
+
+    @Test
+    public void test_unwatch_unknown() {
+        assertFalse(local.unwatch("WATCH-local-42"));
+        assertFalse(polling.unwatch("WATCH-local-42"));
+    }
+
+    @Test
+    public void test_polling_noChanges() throws Exception {
+        RecordingListener l = new RecordingListener();
+        polling.watch(root.resolve("dir"), l);
+
+        poller(polling).poll();
+
+        assertTrue(l.drain().isEmpty());
+    }
+}